@@ -0,0 +1,73 @@
+package redactedrice.randomizer;
+
+import redactedrice.randomizer.lua.ExecutionEvent;
+import redactedrice.randomizer.lua.ExecutionResult;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * Handle of a randomize batch started with LuaRandomizerWrapper.executeModulesAsync. The results
+ * future completes with the same list executeModules returns, and the events publisher reports
+ * each module request as it starts and completes, then closes when the batch ends.
+ *
+ * Cancelling (cancel or cancelling the results future) is cooperative: no further module requests
+ * are started and a running module is stopped with a Lua error at its next cancellation check.
+ * Results of the requests that did run stay available from getExecutionResults of the wrapper.
+ */
+public final class AsyncExecution {
+    private final CompletableFuture<List<ExecutionResult>> results = new CompletableFuture<>();
+    // Delivers on the common pool. Subscribers that stop requesting hold up the batch
+    private final SubmissionPublisher<ExecutionEvent> events = new SubmissionPublisher<>();
+    private volatile boolean cancelled;
+
+    AsyncExecution() {
+        results.whenComplete((value, error) -> {
+            if (results.isCancelled()) {
+                cancelled = true;
+            }
+        });
+    }
+
+    public CompletableFuture<List<ExecutionResult>> getResults() {
+        return results;
+    }
+
+    // Subscribers only receive the events published after they subscribe
+    public Flow.Publisher<ExecutionEvent> getEvents() {
+        return events;
+    }
+
+    public void cancel() {
+        cancelled = true;
+        results.cancel(false);
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isDone() {
+        return results.isDone();
+    }
+
+    void subscribe(Flow.Subscriber<? super ExecutionEvent> subscriber) {
+        events.subscribe(subscriber);
+    }
+
+    void publish(ExecutionEvent event) {
+        events.submit(event);
+    }
+
+    void complete(List<ExecutionResult> batchResults) {
+        events.close();
+        results.complete(batchResults);
+    }
+
+    void fail(Throwable error) {
+        events.closeExceptionally(error);
+        results.completeExceptionally(error);
+    }
+}
@@ -3,22 +3,46 @@ package redactedrice.randomizer;
 import redactedrice.randomizer.context.EnumDefinition;
 import redactedrice.randomizer.context.EnumRegistry;
 import redactedrice.randomizer.context.JavaContext;
+import redactedrice.randomizer.context.RandomizationPatch;
+import redactedrice.randomizer.utils.LogContext;
 import redactedrice.randomizer.utils.Logger;
 import redactedrice.randomizer.utils.LogLevel;
 import redactedrice.randomizer.utils.IssueTracker;
 import redactedrice.randomizer.lua.requirements.CoreRequirements;
 import redactedrice.randomizer.lua.sandbox.LuaSandbox;
+import redactedrice.randomizer.lua.CheckpointedRun;
+import redactedrice.randomizer.lua.ExecutionEvent;
 import redactedrice.randomizer.lua.ExecutionPlan;
+import redactedrice.randomizer.lua.ExecutionPlanBuilder;
 import redactedrice.randomizer.lua.ExecutionRequest;
 import redactedrice.randomizer.lua.ExecutionResult;
 import redactedrice.randomizer.lua.Issue;
 import redactedrice.randomizer.lua.Module;
+import redactedrice.randomizer.lua.ModuleExecutionHandle;
 import redactedrice.randomizer.lua.ModuleExecutor;
 import redactedrice.randomizer.lua.ModuleRegistry;
+import redactedrice.randomizer.lua.PreparedPlan;
+import redactedrice.randomizer.lua.ResultListener;
+import redactedrice.randomizer.lua.ResultMemoCache;
+import redactedrice.randomizer.lua.ResultRetention;
 import redactedrice.randomizer.lua.dynamicVar.DynamicVarRegistry;
+import redactedrice.randomizer.lua.sweep.SeedOutcome;
+import redactedrice.randomizer.lua.sweep.SeedRecord;
+import redactedrice.randomizer.lua.sweep.SeedSweepStore;
 
+import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 // main api for loading and running lua randomizer modules
 public class LuaRandomizerWrapper {
@@ -27,6 +51,19 @@ public class LuaRandomizerWrapper {
     ModuleRegistry moduleRegistry;
     ModuleExecutor moduleExecutor;
     JavaContext sharedEnumContext; // shared context for enum registration during onLoad
+    // Fork of the shared context as onLoad found it so search workers run onLoad the same way
+    JavaContext onLoadContext;
+    // Kept so findSeed can build worker wrappers with their own sandboxes
+    final List<String> allowedDirectories;
+    final Set<String> definedGroups;
+    final CoreRequirements requirementContext;
+    int seedSearchParallelism = Runtime.getRuntime().availableProcessors();
+    // Workers of the last findSeed and the module version and search paths they loaded
+    List<LuaRandomizerWrapper> searchWorkers = List.of();
+    int searchWorkersVersion = -1;
+    List<String> searchWorkersPaths = List.of();
+    // Thread of the last executeModulesAsync batch. Guarded by this
+    Thread asyncThread;
 
     public LuaRandomizerWrapper(List<String> allowedDirectories, List<String> searchPaths,
             Set<String> definedGroups) {
@@ -39,6 +76,9 @@ public class LuaRandomizerWrapper {
             throw new IllegalArgumentException("At least one allowed directory must be provided");
         }
 
+        this.allowedDirectories = List.copyOf(allowedDirectories);
+        this.definedGroups = definedGroups;
+        this.requirementContext = requirementContext;
         this.searchPaths = new ArrayList<>(searchPaths != null ? searchPaths : new ArrayList<>());
         this.sandbox = new LuaSandbox(allowedDirectories);
         this.moduleRegistry =
@@ -69,6 +109,7 @@ public class LuaRandomizerWrapper {
 
     public int loadModules() {
         moduleRegistry.clear();
+        moduleExecutor.clearArgumentCache();
         IssueTracker.snapshot();
         int totalLoaded = 0;
 
@@ -80,6 +121,7 @@ public class LuaRandomizerWrapper {
 
         // Validate requirements for loaded modules
         moduleRegistry.validateAllRequirements();
+        onLoadContext = sharedEnumContext.fork();
         callModuleOnLoadFunctions();
         IssueTracker.logDeltaSummary("Module load");
         IssueTracker.clearSnapshot();
@@ -191,27 +233,374 @@ public class LuaRandomizerWrapper {
             return List.of();
         }
 
-        // Execute the pre randomize scripts
-        moduleExecutor.executeScripts(plan.getPreRandomizeScripts(), context,
-                ModuleRegistry.SCRIPT_TIMING_PRE, ModuleRegistry.SCRIPT_WHEN_RANDOMIZE);
+        // Log lines of the batch carry its id
+        LogContext.Scope logScope = LogContext.enterBatch(LogContext.newBatchId());
+        try {
+            // Execute the pre randomize scripts
+            moduleExecutor.executeScripts(plan.getPreRandomizeScripts(), context,
+                    ModuleRegistry.SCRIPT_TIMING_PRE, ModuleRegistry.SCRIPT_WHEN_RANDOMIZE);
+
+            // Execute the modules running the pre/post scripts for each one
+            List<ExecutionResult> results = moduleExecutor.executeModules(
+                    plan.getModuleRequests(), moduleRegistry, context,
+                    plan.getPreModuleScripts(), plan.getPostModuleScripts(), baseSeed);
+
+            // Execute post randomize scripts
+            moduleExecutor.executeScripts(plan.getPostRandomizeScripts(), context,
+                    ModuleRegistry.SCRIPT_TIMING_POST, ModuleRegistry.SCRIPT_WHEN_RANDOMIZE);
+
+            return results;
+        } finally {
+            logScope.close();
+        }
+    }
 
-        // Execute the modules running the pre/post scripts for each one
-        List<ExecutionResult> results =
-                moduleExecutor.executeModules(plan.getModuleRequests(), moduleRegistry, context,
-                        plan.getPreModuleScripts(), plan.getPostModuleScripts(), baseSeed);
+    // Runs executeModules on a background thread so the caller (e.g. a UI thread) is not
+    // blocked. See AsyncExecution for progress events and cancellation. The wrapper must not be
+    // used for other runs until the returned execution is done
+    public AsyncExecution executeModulesAsync(List<ExecutionRequest> requests,
+            JavaContext context, int baseSeed) {
+        return executeModulesAsync(requests, context, baseSeed, null);
+    }
 
-        // Execute post randomize scripts
-        moduleExecutor.executeScripts(plan.getPostRandomizeScripts(), context,
-                ModuleRegistry.SCRIPT_TIMING_POST, ModuleRegistry.SCRIPT_WHEN_RANDOMIZE);
+    // Same as above but subscribes to the events before the batch starts so none are missed
+    public AsyncExecution executeModulesAsync(List<ExecutionRequest> requests,
+            JavaContext context, int baseSeed, Flow.Subscriber<? super ExecutionEvent> subscriber) {
+        if (context == null) {
+            throw new IllegalArgumentException("Context cannot be null");
+        }
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("Requests list cannot be null or empty");
+        }
+        List<ExecutionRequest> batch = List.copyOf(requests);
+        AsyncExecution execution = new AsyncExecution();
+        Thread thread = new Thread(() -> {
+            moduleExecutor.setCancellationCheck(execution::isCancelled);
+            moduleExecutor.setEventListener(execution::publish);
+            try {
+                execution.complete(executeModules(batch, context, baseSeed));
+            } catch (RuntimeException | Error e) {
+                execution.fail(e);
+            } finally {
+                moduleExecutor.setCancellationCheck(null);
+                moduleExecutor.setEventListener(null);
+            }
+        }, "LuaRandomizer-execution");
+        thread.setDaemon(true);
+
+        // Checked against the thread since a cancelled batch is done before its module stops.
+        // Locked so two callers can't both pass the check and start overlapping batches
+        synchronized (this) {
+            if (asyncThread != null && asyncThread.isAlive()) {
+                throw new IllegalStateException("An asynchronous execution is still running");
+            }
+            if (subscriber != null) {
+                execution.subscribe(subscriber);
+            }
+            asyncThread = thread;
+            thread.start();
+        }
+        return execution;
+    }
 
-        return results;
+    // Same as executeModules but keeps a checkpoint before every plan step so the host can change
+    // later requests and rerun only the tail with CheckpointedRun.reexecuteFrom. Enables the
+    // context's write journal. Returns null when plan validation fails (see IssueTracker).
+    public CheckpointedRun executeModulesWithCheckpoints(List<ExecutionRequest> requests,
+            JavaContext context, int baseSeed) {
+        if (context == null) {
+            throw new IllegalArgumentException("Context cannot be null");
+        }
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("Requests list cannot be null or empty");
+        }
+        context.mergeEnumRegistry(sharedEnumContext.getEnumRegistry());
+        context.clearWrapperCache();
+
+        moduleExecutor.clearResults();
+        IssueTracker.clear();
+
+        ExecutionPlan plan = ExecutionPlan.forRandomizeBatch(moduleRegistry, requests);
+        if (!plan.validate()) {
+            return null;
+        }
+        return moduleExecutor.executeWithCheckpoints(plan, moduleRegistry, context, baseSeed);
+    }
+
+    // Resolves and validates a randomize batch once so it can be run for many seeds with
+    // executePreparedPlan. The context supplies enums for argument conversion and should be the
+    // one (or share the enum registry of the one) the plan will be run with.
+    public PreparedPlan prepareExecutionPlan(List<ExecutionRequest> requests,
+            JavaContext context) {
+        if (context == null) {
+            throw new IllegalArgumentException("Context cannot be null");
+        }
+        context.mergeEnumRegistry(sharedEnumContext.getEnumRegistry());
+        return PreparedPlan.prepare(moduleRegistry, requests, context);
+    }
+
+    // Same as executeModules for a prepared plan. The plan is rebuilt first if modules were
+    // reloaded since it was prepared.
+    public List<ExecutionResult> executePreparedPlan(PreparedPlan plan, JavaContext context,
+            int baseSeed) {
+        if (context == null) {
+            throw new IllegalArgumentException("Context cannot be null");
+        }
+        if (plan == null) {
+            throw new IllegalArgumentException("Prepared plan cannot be null");
+        }
+        context.mergeEnumRegistry(sharedEnumContext.getEnumRegistry());
+        context.clearWrapperCache();
+
+        moduleExecutor.clearResults();
+        IssueTracker.clear();
+
+        plan.refreshIfStale(context);
+        if (!plan.validate()) {
+            return List.of();
+        }
+        return runPreparedPlan(plan, context, baseSeed);
+    }
+
+    // Runs an already validated prepared plan without touching results or issues of other runs
+    private List<ExecutionResult> runPreparedPlan(PreparedPlan plan, JavaContext context,
+            int baseSeed) {
+        ExecutionPlan executionPlan = plan.getExecutionPlan();
+        // Each run (e.g. each findSeed attempt) is its own batch in the log
+        LogContext.Scope logScope = LogContext.enterBatch(LogContext.newBatchId());
+        try {
+            moduleExecutor.executeScripts(executionPlan.getPreRandomizeScripts(), context,
+                    ModuleRegistry.SCRIPT_TIMING_PRE, ModuleRegistry.SCRIPT_WHEN_RANDOMIZE);
+            List<ExecutionResult> results =
+                    moduleExecutor.executeModules(plan, context, baseSeed);
+            moduleExecutor.executeScripts(executionPlan.getPostRandomizeScripts(), context,
+                    ModuleRegistry.SCRIPT_TIMING_POST, ModuleRegistry.SCRIPT_WHEN_RANDOMIZE);
+
+            return results;
+        } finally {
+            logScope.close();
+        }
+    }
+
+    // Tries seeds startSeed until startSeed + maxAttempts in parallel and returns the outcome of
+    // the lowest seed the predicate accepts, or null if none is accepted (or the plan is
+    // invalid, see IssueTracker). Each worker has its own sandbox and modules so the answer is
+    // the same as a sequential search. Attempts on higher seeds stop at the next module once a
+    // lower seed is accepted. Workers fork the shared context and copy this wrapper's executor
+    // settings before each search. The context factory and predicate are called from worker
+    // threads. Each attempt's issues are kept in its SeedOutcome and only the accepted one's are
+    // added to IssueTracker
+    public SeedOutcome findSeed(List<ExecutionRequest> requests,
+            Supplier<JavaContext> contextFactory, Predicate<SeedOutcome> predicate, int startSeed,
+            int maxAttempts) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("Requests list cannot be null or empty");
+        }
+        if (contextFactory == null || predicate == null) {
+            throw new IllegalArgumentException("Context factory and predicate cannot be null");
+        }
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("Max attempts must be positive");
+        }
+        if ((long) startSeed + maxAttempts - 1 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Seed range passes Integer.MAX_VALUE");
+        }
+        // Before clearing so issues of loading worker modules do not count against the search
+        List<LuaRandomizerWrapper> workers = getSearchWorkers();
+        IssueTracker.clear();
+        if (!prepareExecutionPlan(requests, sharedEnumContext).validate()) {
+            return null;
+        }
+
+        AtomicInteger nextAttempt = new AtomicInteger();
+        AtomicInteger bestAttempt = new AtomicInteger(Integer.MAX_VALUE);
+        AtomicBoolean failed = new AtomicBoolean();
+        SeedOutcome[] accepted = new SeedOutcome[1];
+
+        ExecutorService pool = Executors.newFixedThreadPool(workers.size());
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (LuaRandomizerWrapper worker : workers) {
+                PreparedPlan plan = worker.prepareExecutionPlan(requests, worker.sharedEnumContext);
+                futures.add(pool.submit(() -> {
+                    try {
+                        worker.searchSeeds(plan, contextFactory, predicate, startSeed,
+                                maxAttempts, nextAttempt, bestAttempt, failed, accepted);
+                    } catch (RuntimeException | Error e) {
+                        failed.set(true);
+                        throw e;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Seed search failed", e.getCause());
+        } catch (InterruptedException e) {
+            failed.set(true);
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            pool.shutdownNow();
+        }
+        synchronized (accepted) {
+            if (accepted[0] != null) {
+                IssueTracker.addAll(accepted[0].getIssues());
+            }
+            return accepted[0];
+        }
+    }
+
+    // One worker's loop of findSeed. Attempts are claimed in increasing order so every attempt
+    // below the best accepted one is always finished
+    private void searchSeeds(PreparedPlan plan, Supplier<JavaContext> contextFactory,
+            Predicate<SeedOutcome> predicate, int startSeed, int maxAttempts,
+            AtomicInteger nextAttempt, AtomicInteger bestAttempt, AtomicBoolean failed,
+            SeedOutcome[] accepted) {
+        while (!failed.get()) {
+            int attempt = nextAttempt.getAndIncrement();
+            if (attempt >= maxAttempts || attempt > bestAttempt.get()) {
+                return;
+            }
+            JavaContext context = contextFactory.get();
+            context.mergeEnumRegistry(sharedEnumContext.getEnumRegistry());
+            context.clearWrapperCache();
+            plan.refreshIfStale(context);
+
+            List<ExecutionResult> results;
+            List<IssueTracker.Issue> issues;
+            moduleExecutor.setCancellationCheck(
+                    () -> failed.get() || bestAttempt.get() < attempt);
+            try (IssueTracker.Capture capture = IssueTracker.capture()) {
+                results = runPreparedPlan(plan, context, startSeed + attempt);
+                issues = capture.getIssues();
+            } finally {
+                moduleExecutor.setCancellationCheck(null);
+                moduleExecutor.clearResults();
+            }
+            if (bestAttempt.get() < attempt) {
+                continue;
+            }
+            SeedOutcome outcome = new SeedOutcome(startSeed + attempt, results, issues, context);
+            if (predicate.test(outcome)) {
+                synchronized (accepted) {
+                    if (attempt < bestAttempt.get()) {
+                        bestAttempt.set(attempt);
+                        accepted[0] = outcome;
+                    }
+                }
+            }
+        }
+    }
+
+    // This wrapper plus parallelism - 1 copies loaded from the same search paths. Copies run onLoad
+    // against a fork of the shared context as this wrapper's onLoad found it, so Lua state built
+    // by onLoad matches and its enums are not registered twice. Rebuilt when modules are
+    // reloaded or the search paths or parallelism change
+    private List<LuaRandomizerWrapper> getSearchWorkers() {
+        if (searchWorkers.size() != seedSearchParallelism
+                || searchWorkersVersion != moduleRegistry.getVersion()
+                || !searchWorkersPaths.equals(searchPaths)) {
+            List<LuaRandomizerWrapper> workers = new ArrayList<>();
+            workers.add(this);
+            for (int i = 1; i < seedSearchParallelism; i++) {
+                LuaRandomizerWrapper worker = new LuaRandomizerWrapper(allowedDirectories,
+                        searchPaths, definedGroups, requirementContext);
+                worker.sharedEnumContext =
+                        (onLoadContext != null ? onLoadContext : sharedEnumContext).fork();
+                worker.loadModules();
+                workers.add(worker);
+            }
+            searchWorkers = workers;
+            searchWorkersVersion = moduleRegistry.getVersion();
+            searchWorkersPaths = List.copyOf(searchPaths);
+        }
+        for (LuaRandomizerWrapper worker : searchWorkers) {
+            if (worker != this) {
+                worker.matchSearchHost(this);
+            }
+        }
+        return searchWorkers;
+    }
+
+    // Gives a worker the host's current shared registrations and enums and the executor settings
+    // that change results (memo, declared access, retention and detaching) so its attempts run
+    // the same as on the host. Listeners stay with the host since they are not thread safe
+    private void matchSearchHost(LuaRandomizerWrapper host) {
+        sharedEnumContext = host.sharedEnumContext.fork();
+        ModuleExecutor hostExecutor = host.moduleExecutor;
+        moduleExecutor.setMemoCache(hostExecutor.getMemoCache());
+        moduleExecutor.setEnforceDeclaredAccess(hostExecutor.isEnforceDeclaredAccess());
+        moduleExecutor.setResultRetention(hostExecutor.getResultRetention());
+        moduleExecutor.setDetachResults(hostExecutor.isDetachResults());
+    }
+
+    public void setSeedSearchParallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.seedSearchParallelism = parallelism;
+    }
+
+    public int getSeedSearchParallelism() {
+        return seedSearchParallelism;
+    }
+
+    // Runs a prepared plan for seeds startSeed until startSeed + seedCount, each on a fresh context
+    // from the factory, and stores every seed's results and issues (plus its writes if
+    // recordDiffs) in a SeedSweepStore at file. Each seed's issues are captured apart from
+    // IssueTracker. Results are dropped after each seed so heap use does not grow with the sweep.
+    // Read the file back with SeedSweepStore.open. Returns the number of seeds whose modules all
+    // succeeded
+    public int sweepSeeds(PreparedPlan plan, Supplier<JavaContext> contextFactory, int startSeed,
+            int seedCount, Path file, boolean recordDiffs) throws IOException {
+        if (plan == null) {
+            throw new IllegalArgumentException("Prepared plan cannot be null");
+        }
+        if (contextFactory == null) {
+            throw new IllegalArgumentException("Context factory cannot be null");
+        }
+        int succeeded = 0;
+        try (SeedSweepStore store = SeedSweepStore.create(file, startSeed, seedCount)) {
+            for (int i = 0; i < seedCount; i++) {
+                int seed = startSeed + i;
+                JavaContext context = contextFactory.get();
+                if (recordDiffs) {
+                    startRecording(context);
+                }
+                List<ExecutionResult> results;
+                RandomizationPatch patch = null;
+                SeedRecord record;
+                try (IssueTracker.Capture issues = IssueTracker.capture()) {
+                    try {
+                        results = executePreparedPlan(plan, context, seed);
+                    } finally {
+                        if (recordDiffs) {
+                            patch = stopRecording();
+                        }
+                    }
+                    record = SeedRecord.of(seed, results, issues.getIssues(), patch);
+                }
+                store.append(record);
+                if (!results.isEmpty() && record.isSuccess()) {
+                    succeeded++;
+                }
+                moduleExecutor.clearResults();
+            }
+        }
+        return succeeded;
     }
 
     // Single module (plus its pre/post module scripts). Does not clear issues - call
     // IssueTracker.clear or executePreRandomizeScripts once before a multi module host loop.
     // Dynamic var order is not validated here. For one by one loops the host should build and
-    // validate an ExecutionPlan for the full request list up front (or revalidate as actions are
-    // added) via createExecutionPlan / validateExecutionPlan.
+    // validate an ExecutionPlan for the full request list up front via createExecutionPlan /
+    // validateExecutionPlan, or keep one validated as actions are edited via
+    // createExecutionPlanBuilder.
     public ExecutionResult executeModule(ExecutionRequest request, JavaContext context,
             int baseSeed) {
         if (context == null) {
@@ -233,6 +622,78 @@ public class LuaRandomizerWrapper {
         return results.get(0);
     }
 
+    // Same as executeModule but returns a handle that runs it in time slices from the caller's
+    // own loop (e.g. a frame at a time) instead of blocking until it is done
+    public ModuleExecutionHandle startModule(ExecutionRequest request, JavaContext context,
+            int baseSeed) {
+        if (context == null) {
+            throw new IllegalArgumentException("Context cannot be null");
+        }
+        if (request == null) {
+            throw new IllegalArgumentException("Request cannot be null");
+        }
+        return moduleExecutor
+                .startStepping(() -> List.of(executeModule(request, context, baseSeed)));
+    }
+
+    // Same as executeModules run in time slices (see startModule)
+    public ModuleExecutionHandle startModules(List<ExecutionRequest> requests,
+            JavaContext context, int baseSeed) {
+        if (context == null) {
+            throw new IllegalArgumentException("Context cannot be null");
+        }
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("Requests list cannot be null or empty");
+        }
+        List<ExecutionRequest> batch = List.copyOf(requests);
+        return moduleExecutor.startStepping(() -> executeModules(batch, context, baseSeed));
+    }
+
+    // Records the writes of everything executed with the context until stopRecording so a seed
+    // can be reapplied later with PatchReplayer without running Lua
+    public void startRecording(JavaContext context) {
+        moduleExecutor.startRecording(context);
+    }
+
+    public RandomizationPatch stopRecording() {
+        return moduleExecutor.stopRecording();
+    }
+
+    // Reuses results of modules already run with the same arguments, seed and context contents.
+    // Null disables memoization
+    public void setResultMemoCache(ResultMemoCache memoCache) {
+        moduleExecutor.setMemoCache(memoCache);
+    }
+
+    public ResultMemoCache getResultMemoCache() {
+        return moduleExecutor.getMemoCache();
+    }
+
+    // Debug check that modules declaring reads/writes only write the keys they declare. Costs a
+    // write journal per module so meant for module development
+    public void setEnforceDeclaredAccess(boolean enforce) {
+        moduleExecutor.setEnforceDeclaredAccess(enforce);
+    }
+
+    // Called with every module and script result as it is produced
+    public void addResultListener(ResultListener listener) {
+        moduleExecutor.addResultListener(listener);
+    }
+
+    public void removeResultListener(ResultListener listener) {
+        moduleExecutor.removeResultListener(listener);
+    }
+
+    // Bounds the results kept for getExecutionResults. Keeps all by default
+    public void setResultRetention(ResultRetention retention) {
+        moduleExecutor.setResultRetention(retention);
+    }
+
+    // Keep results as immutable Java values instead of Lua values (see ExecutionResult.detach)
+    public void setDetachResults(boolean detach) {
+        moduleExecutor.setDetachResults(detach);
+    }
+
     // Will return module and scrupt results
     public List<ExecutionResult> getExecutionResults() {
         return moduleExecutor.getResults();
@@ -305,13 +766,31 @@ public class LuaRandomizerWrapper {
 
     /**
      * Builds the run plan for a full randomize batch. Hosts that execute modules one by one should
-     * create this from the complete (or growing) request list and call ExecutionPlan.validate
-     * before the loop, revalidating whenever the list changes.
+     * create this from the complete request list and call ExecutionPlan.validate before the loop.
+     * Hosts whose request list changes as actions are added, removed or reordered should use
+     * createExecutionPlanBuilder instead.
      */
     public ExecutionPlan createExecutionPlan(List<ExecutionRequest> requests) {
         return ExecutionPlan.forRandomizeBatch(moduleRegistry, requests);
     }
 
+    /**
+     * Builds a randomize batch plan with requests reordered so providers and required modules run
+     * before the modules that depend on them. The reordered requests can be passed to
+     * executeModules and the plan's DependencyOrder shows which requests could run concurrently.
+     */
+    public ExecutionPlan createDependencyOrderedPlan(List<ExecutionRequest> requests) {
+        return ExecutionPlan.forDependencyOrderedBatch(moduleRegistry, requests);
+    }
+
+    /**
+     * Creates an editable randomize batch that revalidates only the requests affected by each
+     * edit. Build the ExecutionPlan from it once editing is done.
+     */
+    public ExecutionPlanBuilder createExecutionPlanBuilder() {
+        return new ExecutionPlanBuilder(moduleRegistry);
+    }
+
     /**
      * Returns dynamic var execution order issues without reporting them to IssueTracker. Use
      * createExecutionPlan and ExecutionPlan.validate when the host wants validation errors logged
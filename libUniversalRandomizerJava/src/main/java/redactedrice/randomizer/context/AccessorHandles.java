@@ -0,0 +1,132 @@
+package redactedrice.randomizer.context;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Cached MethodHandles for the bean style properties of PropertyAccess, so the native primitives
+// read and write each property without a reflective lookup per element. Handles are adapted to
+// (Object)Object and (Object, Object)void and cached per class
+final class AccessorHandles {
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER_TYPE =
+            MethodType.methodType(void.class, Object.class, Object.class);
+
+    private static final ClassValue<Map<String, Getter>> GETTERS =
+            new ClassValue<Map<String, Getter>>() {
+                @Override
+                protected Map<String, Getter> computeValue(Class<?> type) {
+                    return new ConcurrentHashMap<>();
+                }
+            };
+    private static final ClassValue<Map<String, Setter>> SETTERS =
+            new ClassValue<Map<String, Setter>>() {
+                @Override
+                protected Map<String, Setter> computeValue(Class<?> type) {
+                    return new ConcurrentHashMap<>();
+                }
+            };
+    // ConcurrentHashMap cannot hold null so missing properties are cached with these
+    private static final Getter NO_GETTER = new Getter(null);
+    private static final Setter NO_SETTER = new Setter(null, null);
+
+    private AccessorHandles() {}
+
+    static final class Getter {
+        private final MethodHandle handle;
+
+        private Getter(MethodHandle handle) {
+            this.handle = handle;
+        }
+
+        Object get(Object target) {
+            try {
+                return (Object) handle.invokeExact(target);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    static final class Setter {
+        private final MethodHandle handle;
+        private final Class<?> type;
+
+        private Setter(MethodHandle handle, Class<?> type) {
+            this.handle = handle;
+            this.type = type;
+        }
+
+        Class<?> getType() {
+            return type;
+        }
+
+        void set(Object target, Object value) {
+            try {
+                handle.invokeExact(target, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    // getX() / isX() or the public field x. Null if the class has neither
+    static Getter getter(Class<?> clazz, String property) {
+        Getter getter = GETTERS.get(clazz).computeIfAbsent(property, p -> createGetter(clazz, p));
+        return getter != NO_GETTER ? getter : null;
+    }
+
+    // setX(value) or the public field x. Null if the class has neither
+    static Setter setter(Class<?> clazz, String property) {
+        Setter setter = SETTERS.get(clazz).computeIfAbsent(property, p -> createSetter(clazz, p));
+        return setter != NO_SETTER ? setter : null;
+    }
+
+    private static Getter createGetter(Class<?> clazz, String property) {
+        try {
+            Method method = PropertyAccess.findGetter(clazz, property);
+            if (method != null) {
+                return new Getter(MethodHandles.publicLookup().unreflect(method)
+                        .asType(GETTER_TYPE));
+            }
+            Field field = PropertyAccess.findField(clazz, property);
+            if (field != null) {
+                return new Getter(MethodHandles.publicLookup().unreflectGetter(field)
+                        .asType(GETTER_TYPE));
+            }
+        } catch (IllegalAccessException e) {
+            // Public members of non public classes. Treated like a missing property
+        }
+        return NO_GETTER;
+    }
+
+    private static Setter createSetter(Class<?> clazz, String property) {
+        String setterName =
+                "set" + Character.toUpperCase(property.charAt(0)) + property.substring(1);
+        try {
+            for (Method method : clazz.getMethods()) {
+                if (method.getName().equals(setterName) && method.getParameterCount() == 1) {
+                    return new Setter(MethodHandles.publicLookup().unreflect(method)
+                            .asType(SETTER_TYPE), method.getParameterTypes()[0]);
+                }
+            }
+            Field field = PropertyAccess.findField(clazz, property);
+            if (field != null && !Modifier.isFinal(field.getModifiers())) {
+                return new Setter(MethodHandles.publicLookup().unreflectSetter(field)
+                        .asType(SETTER_TYPE), field.getType());
+            }
+        } catch (IllegalAccessException e) {
+            // Public members of non public classes. Treated like a missing property
+        }
+        return NO_SETTER;
+    }
+}
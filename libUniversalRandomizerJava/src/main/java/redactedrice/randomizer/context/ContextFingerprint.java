@@ -0,0 +1,242 @@
+package redactedrice.randomizer.context;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Content hash of a context's registered values and config used to tell whether a module would
+ * see the same input as an earlier run. Lists, sets, maps and arrays are hashed element by
+ * element. Other objects are hashed by their class and, recursively, the values of their getters
+ * and public fields, which is everything Lua can read from them. Shadows contribute their
+ * originals and their recorded writes. Input that cannot be fully read (a getter that throws, a
+ * member that cannot be made accessible or a graph deeper than MAX_DEPTH) has no fingerprint so
+ * it is never treated as unchanged. Dynamic Lua fields are not part of the fingerprint.
+ */
+public final class ContextFingerprint {
+    public static final int MAX_DEPTH = 64;
+    private static final Map<Class<?>, List<Accessor>> ACCESSORS = new ConcurrentHashMap<>();
+    // Cached for classes with members that cannot be read. Compared by identity so it must not be
+    // the shared empty List.of()
+    private static final List<Accessor> UNREADABLE =
+            Collections.unmodifiableList(new ArrayList<>());
+
+    private ContextFingerprint() {}
+
+    /** Fingerprint of every registration and the config */
+    public static OptionalLong of(JavaContext context) {
+        return of(context, null);
+    }
+
+    /**
+     * Fingerprint of the given registered names (all if null) and the config or empty if part of
+     * them could not be read
+     */
+    public static OptionalLong of(JavaContext context, Collection<String> names) {
+        Hasher hasher = new Hasher();
+        Collection<String> selected =
+                names != null ? names : List.of(context.getRegisteredNames());
+        for (String name : new TreeSet<>(selected)) {
+            hasher.add(name.hashCode());
+            hasher.add(context.contains(name) ? 1 : 0);
+            hasher.value(context.get(name), 0);
+        }
+        Map<String, Object> config = context.snapshotConfig();
+        hasher.add(config.size());
+        for (String key : new TreeSet<>(config.keySet())) {
+            hasher.add(key.hashCode());
+            hasher.value(config.get(key), 0);
+        }
+        return hasher.walk.complete ? OptionalLong.of(hasher.hash) : OptionalLong.empty();
+    }
+
+    // State shared by a hasher and the child hashers of unordered elements
+    private static final class Walk {
+        // Objects already hashed map to their visit order so shared references and cycles are
+        // hashed by position instead of content
+        final Map<Object, Integer> visited = new IdentityHashMap<>();
+        boolean complete = true;
+    }
+
+    private static final class Hasher {
+        long hash = 0xcbf29ce484222325L;
+        private final Walk walk;
+
+        Hasher() {
+            this(new Walk());
+        }
+
+        private Hasher(Walk walk) {
+            this.walk = walk;
+        }
+
+        void add(long value) {
+            hash = (hash ^ value) * 0x100000001b3L;
+            hash ^= hash >>> 29;
+        }
+
+        void value(Object value, int depth) {
+            if (value == null) {
+                add(0);
+            } else if (value instanceof Enum) {
+                add(((Enum<?>) value).getDeclaringClass().getName().hashCode());
+                add(((Enum<?>) value).name().hashCode());
+            } else if (isPlain(value)) {
+                add(value.getClass().getName().hashCode());
+                add(value.hashCode());
+            } else if (depth >= MAX_DEPTH) {
+                walk.complete = false;
+            } else {
+                Integer seen = walk.visited.get(value);
+                if (seen != null) {
+                    add(-1 - seen);
+                    return;
+                }
+                walk.visited.put(value, walk.visited.size());
+                composite(value, depth + 1);
+            }
+        }
+
+        // Order independent so equal sets and maps with different iteration order match
+        private long unordered(Object first, Object second, int depth) {
+            Hasher child = new Hasher(walk);
+            child.value(first, depth);
+            child.value(second, depth);
+            return child.hash;
+        }
+
+        private void composite(Object value, int depth) {
+            if (value instanceof ShadowObjects) {
+                ShadowObjects shadow = (ShadowObjects) value;
+                value(shadow.getOriginals(), depth);
+                // Modified objects are kept by identity so their order is not stable
+                long sum = 0;
+                for (Object modified : shadow.getModifiedObjects()) {
+                    Hasher writeHasher = new Hasher(walk);
+                    writeHasher.value(modified, depth);
+                    for (Map.Entry<String, Object> write : shadow.getWrites(modified).entrySet()) {
+                        writeHasher.add(write.getKey().hashCode());
+                        writeHasher.value(write.getValue(), depth);
+                    }
+                    sum += writeHasher.hash;
+                }
+                add(sum);
+            } else if (value instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) value;
+                add(map.size());
+                long sum = 0;
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    sum += unordered(entry.getKey(), entry.getValue(), depth);
+                }
+                add(sum);
+            } else if (value instanceof Set) {
+                Set<?> set = (Set<?>) value;
+                add(set.size());
+                long sum = 0;
+                for (Object element : set) {
+                    sum += unordered(element, null, depth);
+                }
+                add(sum);
+            } else if (value instanceof Collection) {
+                Collection<?> collection = (Collection<?>) value;
+                add(collection.size());
+                for (Object element : collection) {
+                    value(element, depth);
+                }
+            } else if (value.getClass().isArray()) {
+                int length = Array.getLength(value);
+                add(value.getClass().getName().hashCode());
+                add(length);
+                for (int i = 0; i < length; i++) {
+                    value(Array.get(value, i), depth);
+                }
+            } else {
+                add(value.getClass().getName().hashCode());
+                List<Accessor> accessors = accessors(value.getClass());
+                if (accessors == UNREADABLE) {
+                    walk.complete = false;
+                    return;
+                }
+                for (Accessor accessor : accessors) {
+                    try {
+                        value(accessor.read(value), depth);
+                    } catch (ReflectiveOperationException | RuntimeException e) {
+                        walk.complete = false;
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isPlain(Object value) {
+        return value instanceof Boolean || value instanceof Number || value instanceof Character
+                || value instanceof String;
+    }
+
+    private static List<Accessor> accessors(Class<?> clazz) {
+        return ACCESSORS.computeIfAbsent(clazz, ContextFingerprint::findAccessors);
+    }
+
+    // Public getters and fields, which Lua can also call on non public classes
+    private static List<Accessor> findAccessors(Class<?> clazz) {
+        TreeMap<String, Accessor> accessors = new TreeMap<>();
+        for (Method method : clazz.getMethods()) {
+            if (method.getParameterCount() == 0 && method.getDeclaringClass() != Object.class
+                    && !Modifier.isStatic(method.getModifiers())
+                    && PropertyAccess.getterProperty(method.getName()) != null) {
+                if (!canRead(method)) {
+                    return UNREADABLE;
+                }
+                accessors.put("m" + method.getName(), new Accessor(method, null));
+            }
+        }
+        for (Field field : clazz.getFields()) {
+            if (!Modifier.isStatic(field.getModifiers())) {
+                if (!canRead(field)) {
+                    return UNREADABLE;
+                }
+                accessors.put("f" + field.getName(), new Accessor(null, field));
+            }
+        }
+        return List.copyOf(accessors.values());
+    }
+
+    private static boolean canRead(AccessibleObject member) {
+        if (Modifier.isPublic(((Member) member).getDeclaringClass().getModifiers())) {
+            return true;
+        }
+        try {
+            return member.trySetAccessible();
+        } catch (SecurityException e) {
+            return false;
+        }
+    }
+
+    private static final class Accessor {
+        private final Method getter;
+        private final Field field;
+
+        Accessor(Method getter, Field field) {
+            this.getter = getter;
+            this.field = field;
+        }
+
+        Object read(Object target) throws ReflectiveOperationException {
+            return getter != null ? getter.invoke(target) : field.get(target);
+        }
+    }
+}
@@ -9,6 +9,11 @@ public class EnumDefinition {
     Map<String, Integer> valueMap; // Maps enum name to integer value
     Class<? extends Enum<?>> enumClass;
     Map<String, String> valueDisplayNames; // canonical value -> display label
+    // input -> canonical lookups in resolveCanonicalValue precedence order
+    private final Map<String, String> exactNames = new HashMap<>();
+    private final Map<String, String> exactDisplayNames = new HashMap<>();
+    private final Map<String, String> foldedNames = new HashMap<>();
+    private final Map<String, String> foldedDisplayNames = new HashMap<>();
 
     public EnumDefinition(String name, List<String> values, Map<String, Integer> valueMap,
             Class<? extends Enum<?>> enumClass) {
@@ -24,6 +29,29 @@ public class EnumDefinition {
         this.enumClass = enumClass;
         this.valueDisplayNames =
                 EnumDisplayNamesValidator.validate(values, valueDisplayNames, name);
+        buildLookups();
+    }
+
+    // putIfAbsent keeps the first canonical in declaration order, matching the old linear scans
+    private void buildLookups() {
+        for (String canonical : values) {
+            exactNames.putIfAbsent(canonical, canonical);
+            foldedNames.putIfAbsent(foldCase(canonical), canonical);
+            String display = valueDisplayNames.get(canonical);
+            if (display != null) {
+                exactDisplayNames.putIfAbsent(display, canonical);
+                foldedDisplayNames.putIfAbsent(foldCase(display), canonical);
+            }
+        }
+    }
+
+    // Key such that foldCase(a).equals(foldCase(b)) exactly when a.equalsIgnoreCase(b)
+    public static String foldCase(String input) {
+        char[] chars = input.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
     }
 
     public String getName() {
@@ -64,35 +92,35 @@ public class EnumDefinition {
         if (input == null) {
             return null;
         }
-        for (String canonical : values) {
-            if (canonical.equals(input)) {
-                return canonical;
-            }
+        String canonical = exactNames.get(input);
+        if (canonical == null) {
+            canonical = exactDisplayNames.get(input);
         }
-        for (String canonical : values) {
-            String display = valueDisplayNames.get(canonical);
-            if (display != null && display.equals(input)) {
-                return canonical;
-            }
-        }
-        for (String canonical : values) {
-            if (canonical.equalsIgnoreCase(input)) {
-                return canonical;
+        if (canonical == null) {
+            String folded = foldCase(input);
+            canonical = foldedNames.get(folded);
+            if (canonical == null) {
+                canonical = foldedDisplayNames.get(folded);
             }
         }
-        for (String canonical : values) {
-            String display = valueDisplayNames.get(canonical);
-            if (display != null && display.equalsIgnoreCase(input)) {
-                return canonical;
-            }
-        }
-        return null;
+        return canonical;
     }
 
     public Class<? extends Enum<?>> getEnumClass() {
         return enumClass;
     }
 
+    // True if both define the same values, so conversions against one are valid for the other.
+    // Definitions are immutable so this holds for as long as both exist
+    public boolean definesSameAs(EnumDefinition other) {
+        if (other == this) {
+            return true;
+        }
+        return other != null && Objects.equals(name, other.name) && enumClass == other.enumClass
+                && values.equals(other.values) && valueMap.equals(other.valueMap)
+                && valueDisplayNames.equals(other.valueDisplayNames);
+    }
+
     public EnumDefinition expandWith(List<String> newValues, Map<String, Integer> newValueMap) {
         return expandWith(newValues, newValueMap, null);
     }
@@ -4,6 +4,7 @@ import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.Varargs;
 import org.luaj.vm2.lib.VarArgFunction;
 import org.luaj.vm2.lib.jse.CoerceJavaToLua;
+import org.luaj.vm2.lib.jse.CoerceLuaToJava;
 import redactedrice.randomizer.utils.LuaJavaConverter;
 
 import java.lang.reflect.Method;
@@ -40,9 +41,24 @@ public class EnumMethodInterceptor extends VarArgFunction {
         // Always use userdata as 'self' (first argument)
         LuaValue self = determineSelf(args);
 
+        ShadowObjects shadow = objectWrapper != null ? objectWrapper.getShadow() : null;
+        if (shadow != null && javaMethod != null) {
+            Varargs shadowed = invokeShadowed(shadow, javaMethod, args, self);
+            if (shadowed != null) {
+                return shadowed;
+            }
+        }
+
         if (javaMethod != null) {
             // Convert arguments, converting strings to enums when appropriate
             LuaValue[] newArgs = convertArguments(args, javaMethod.getParameterTypes(), self);
+            WriteJournal journal = objectWrapper != null ? objectWrapper.getJournal() : null;
+            if (journal != null && javaMethod.getParameterCount() == 1) {
+                String property = PropertyAccess.setterProperty(methodName);
+                if (property != null) {
+                    return invokeJournaled(journal, property, javaMethod, newArgs);
+                }
+            }
             Varargs result = originalMethod.invoke(LuaValue.varargsOf(newArgs));
             return convertReturnValue(result);
         } else {
@@ -53,6 +69,38 @@ public class EnumMethodInterceptor extends VarArgFunction {
         }
     }
 
+    // Setters record into the shadow and getters of written properties read from it. Returns
+    // null for any other method so it runs on the original object
+    private Varargs invokeShadowed(ShadowObjects shadow, Method javaMethod, Varargs args,
+            LuaValue self) {
+        if (javaMethod.getParameterCount() == 1) {
+            String property = PropertyAccess.setterProperty(methodName);
+            if (property != null) {
+                LuaValue[] newArgs = convertArguments(args, javaMethod.getParameterTypes(), self);
+                objectWrapper.shadowWrite(javaObject, property,
+                        CoerceLuaToJava.coerce(newArgs[1], javaMethod.getParameterTypes()[0]));
+                return LuaValue.NONE;
+            }
+        } else if (javaMethod.getParameterCount() == 0) {
+            String property = PropertyAccess.getterProperty(methodName);
+            if (property != null && shadow.hasWrite(javaObject, property)) {
+                return objectWrapper.toLua(shadow.getWrite(javaObject, property));
+            }
+        }
+        return null;
+    }
+
+    // Calls a setter, recording the property's previous value when it has a getter or field
+    private Varargs invokeJournaled(WriteJournal journal, String property, Method setter,
+            LuaValue[] newArgs) {
+        boolean readable = PropertyAccess.isReadable(javaObject.getClass(), property);
+        Object previous = readable ? PropertyAccess.read(javaObject, property) : null;
+        Varargs result = originalMethod.invoke(LuaValue.varargsOf(newArgs));
+        journal.record(new WriteJournal.Entry(javaObject, property, readable, previous,
+                CoerceLuaToJava.coerce(newArgs[1], setter.getParameterTypes()[0]), null));
+        return convertReturnValue(result);
+    }
+
     private LuaValue determineSelf(Varargs args) {
         if (args.narg() > 0 && args.arg(1).istable()) {
             // Check if it's our wrapper by looking for __userdata field
@@ -6,15 +6,40 @@ import redactedrice.randomizer.utils.LuaJavaConverter;
 import java.lang.reflect.Method;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 // manages enum registrations and provides them to lua context
 public class EnumRegistry {
-    private final Map<String, EnumDefinition> enums;
+    // Copy on write once shared with a fork so forks never see each other's registrations
+    private volatile Map<String, EnumDefinition> enums;
+    private boolean enumsShared;
+    // Bumped on every change so callers caching enum based conversions can tell they are stale
+    private final AtomicInteger modificationCount = new AtomicInteger();
 
     public EnumRegistry() {
         this.enums = new ConcurrentHashMap<>();
     }
 
+    private EnumRegistry(Map<String, EnumDefinition> sharedEnums) {
+        this.enums = sharedEnums;
+        this.enumsShared = true;
+    }
+
+    // Child registry starting with this registry's enums. Definitions are immutable so they are
+    // shared and the map is only copied by whichever side registers or extends an enum first
+    public synchronized EnumRegistry fork() {
+        enumsShared = true;
+        return new EnumRegistry(enums);
+    }
+
+    private synchronized EnumDefinition putEnum(String name, EnumDefinition enumDef) {
+        if (enumsShared) {
+            enums = new ConcurrentHashMap<>(enums);
+            enumsShared = false;
+        }
+        return enums.put(name, enumDef);
+    }
+
     public <E extends Enum<E>> void registerEnum(Class<E> enumClass) {
         registerEnum(enumClass.getSimpleName(), enumClass);
     }
@@ -82,7 +107,8 @@ public class EnumRegistry {
             valueMap.put(enumName, intValue);
         }
 
-        enums.put(name, new EnumDefinition(name, values, valueMap, enumClass, valueDisplayNames));
+        putEnum(name, new EnumDefinition(name, values, valueMap, enumClass, valueDisplayNames));
+        modificationCount.incrementAndGet();
     }
 
     public void registerEnum(String name, List<String> values) {
@@ -100,8 +126,9 @@ public class EnumRegistry {
             throw new IllegalArgumentException("Enum values cannot be null or empty");
         }
 
-        enums.put(name, new EnumDefinition(name, new ArrayList<>(values), valueMap, null,
+        putEnum(name, new EnumDefinition(name, new ArrayList<>(values), valueMap, null,
                 valueDisplayNames));
+        modificationCount.incrementAndGet();
     }
 
     public void registerEnum(String name, Map<String, Integer> valueMap) {
@@ -129,7 +156,8 @@ public class EnumRegistry {
                 (valueMap instanceof LinkedHashMap) ? new LinkedHashMap<>(valueMap)
                         : new HashMap<>(valueMap);
 
-        enums.put(name, new EnumDefinition(name, values, orderedValueMap, null, valueDisplayNames));
+        putEnum(name, new EnumDefinition(name, values, orderedValueMap, null, valueDisplayNames));
+        modificationCount.incrementAndGet();
     }
 
     private void validateEnumRegistration(String name) {
@@ -145,8 +173,10 @@ public class EnumRegistry {
         if (source != null) {
             for (String enumName : source.getEnumNames()) {
                 EnumDefinition enumDef = source.getEnum(enumName);
-                if (enumDef != null) {
-                    enums.put(enumName, enumDef);
+                // Only write real changes since hosts merge the shared registry every run
+                if (enumDef != null && enums.get(enumName) != enumDef) {
+                    putEnum(enumName, enumDef);
+                    modificationCount.incrementAndGet();
                 }
             }
         }
@@ -177,7 +207,8 @@ public class EnumRegistry {
         // Enum exists - delegate to EnumDefinition to expand itself
         EnumDefinition expanded =
                 existingDef.expandWith(newValues, newValueMap, newValueDisplayNames);
-        enums.put(name, expanded);
+        putEnum(name, expanded);
+        modificationCount.incrementAndGet();
         return expanded;
     }
 
@@ -203,6 +234,10 @@ public class EnumRegistry {
         }
     }
 
+    public int getModificationCount() {
+        return modificationCount.get();
+    }
+
     public boolean hasEnum(String name) {
         return enums.containsKey(name);
     }
@@ -4,19 +4,35 @@ import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.lib.TwoArgFunction;
 import redactedrice.randomizer.utils.LuaJavaConverter;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 // wrapper for java objects to pass to lua execution context
 // lets lua scripts access and modify registered java objects
+//
+// A context is used by one run at a time. fork() creates children for parallel runs that share
+// the registrations, config and enums copy on write: a map is never modified once shared, so
+// whichever side writes first copies the names (not the registered objects). The registered
+// objects themselves are shared by reference so forks must not mutate parent data in place.
+// Shadow registrations are the exception: each fork gets its own copy of the shadowed writes.
+// Registrations and config are read and written under the context's lock so a fork or a run
+// building its Lua table never sees a map that is being changed.
 public class JavaContext {
-    Map<String, Object> objects;
-    Map<String, Object> config;
+    volatile Map<String, Object> objects;
+    volatile Map<String, Object> config;
+    private boolean objectsShared;
+    private boolean configShared;
     EnumRegistry enumRegistry;
     JavaObjectWrapper objectWrapper;
+    // One wrapper (and wrapper cache) per registered shadow
+    private final Map<ShadowObjects, JavaObjectWrapper> shadowWrappers = new IdentityHashMap<>();
+    private volatile WriteJournal writeJournal;
     String executionModuleName;
 
     public JavaContext() {
@@ -26,21 +42,140 @@ public class JavaContext {
         this.objectWrapper = new JavaObjectWrapper(enumRegistry);
     }
 
-    public void register(String name, Object object) {
+    private JavaContext(Map<String, Object> objects, Map<String, Object> config,
+            EnumRegistry enumRegistry) {
+        this.objects = objects;
+        this.config = config;
+        this.objectsShared = true;
+        this.configShared = true;
+        this.enumRegistry = enumRegistry;
+        this.objectWrapper = new JavaObjectWrapper(enumRegistry);
+    }
+
+    // Cheap child context for a parallel run. It starts with this context's registrations,
+    // config and enums and has its own wrapper cache. Registrations made on either side after the
+    // fork are not visible to the other.
+    public synchronized JavaContext fork() {
+        objectsShared = true;
+        configShared = true;
+        JavaContext child = new JavaContext(objects, config, enumRegistry.fork());
+        for (Map.Entry<String, Object> entry : objects.entrySet()) {
+            if (entry.getValue() instanceof ShadowObjects) {
+                child.writableObjects().put(entry.getKey(),
+                        ((ShadowObjects) entry.getValue()).fork());
+            }
+        }
+        return child;
+    }
+
+    private synchronized Map<String, Object> writableObjects() {
+        if (objectsShared) {
+            objects = new HashMap<>(objects);
+            objectsShared = false;
+        }
+        return objects;
+    }
+
+    private synchronized Map<String, Object> writableConfig() {
+        if (configShared) {
+            config = new HashMap<>(config);
+            configShared = false;
+        }
+        return config;
+    }
+
+    // Copies of the given registrations (all if null) and of the config taken under the lock, so
+    // they can be read while other threads register. Unlike fork the live maps stay writable
+    private synchronized Map<String, Object> snapshotObjects(Collection<String> names) {
+        if (names == null) {
+            return new LinkedHashMap<>(objects);
+        }
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        for (String name : names) {
+            if (objects.containsKey(name)) {
+                snapshot.put(name, objects.get(name));
+            }
+        }
+        return snapshot;
+    }
+
+    synchronized Map<String, Object> snapshotConfig() {
+        return new HashMap<>(config);
+    }
+
+    public synchronized void register(String name, Object object) {
         if (name == null || name.trim().isEmpty()) {
             throw new IllegalArgumentException("Name cannot be null or empty");
         }
-        objects.put(name, object);
+        writableObjects().put(name, object);
+    }
+
+    /**
+     * Registers a copy on write view of the originals (an object or a list / map of objects)
+     * instead of a deep copy. Lua sees the originals, but setter calls and field writes are kept
+     * in the returned ShadowObjects and never reach the originals. Use it to materialize the
+     * modified objects after the run. get(name) also returns it
+     */
+    public ShadowObjects registerShadow(String name, Object originals) {
+        if (originals == null) {
+            throw new IllegalArgumentException("Shadowed originals cannot be null");
+        }
+        ShadowObjects shadow = new ShadowObjects(originals);
+        register(name, shadow);
+        return shadow;
+    }
+
+    public synchronized ShadowObjects getShadow(String name) {
+        Object registered = objects.get(name);
+        return registered instanceof ShadowObjects ? (ShadowObjects) registered : null;
+    }
+
+    private synchronized JavaObjectWrapper shadowWrapper(ShadowObjects shadow) {
+        return shadowWrappers.computeIfAbsent(shadow, ignored -> {
+            JavaObjectWrapper wrapper = new JavaObjectWrapper(enumRegistry, shadow);
+            wrapper.setJournal(writeJournal);
+            return wrapper;
+        });
+    }
+
+    /**
+     * Starts journaling setter calls and field writes made from Lua through this context's
+     * wrappers so they can be rolled back. Returns the active journal if already enabled. Module
+     * executors take a savepoint per module and roll back failed modules while it is enabled.
+     * Forks do not inherit the journal
+     */
+    public synchronized WriteJournal enableWriteJournal() {
+        if (writeJournal == null) {
+            writeJournal = new WriteJournal();
+            applyJournal();
+        }
+        return writeJournal;
     }
 
-    public void setConfig(String key, Object value) {
+    public synchronized void disableWriteJournal() {
+        writeJournal = null;
+        applyJournal();
+    }
+
+    public WriteJournal getWriteJournal() {
+        return writeJournal;
+    }
+
+    private void applyJournal() {
+        objectWrapper.setJournal(writeJournal);
+        for (JavaObjectWrapper wrapper : shadowWrappers.values()) {
+            wrapper.setJournal(writeJournal);
+        }
+    }
+
+    public synchronized void setConfig(String key, Object value) {
         if (key == null || key.trim().isEmpty()) {
             throw new IllegalArgumentException("Config key cannot be null or empty");
         }
-        config.put(key, value);
+        writableConfig().put(key, value);
     }
 
-    public Object getConfig(String key) {
+    public synchronized Object getConfig(String key) {
         return config.get(key);
     }
 
@@ -106,49 +241,92 @@ public class JavaContext {
         }
     }
 
-    public Object get(String name) {
+    public synchronized Object get(String name) {
         return objects.get(name);
     }
 
-    public Object remove(String name) {
-        return objects.remove(name);
+    public synchronized Object remove(String name) {
+        if (!objects.containsKey(name)) {
+            return null;
+        }
+        return writableObjects().remove(name);
     }
 
-    public boolean contains(String name) {
+    public synchronized boolean contains(String name) {
         return objects.containsKey(name);
     }
 
-    public void clear() {
-        objects.clear();
+    public synchronized void clear() {
+        objects = new HashMap<>();
+        objectsShared = false;
         objectWrapper.clearCache();
+        shadowWrappers.clear();
     }
 
     /** Clears cached object wrappers without removing registered objects */
-    public void clearWrapperCache() {
+    public synchronized void clearWrapperCache() {
         objectWrapper.clearCache();
+        shadowWrappers.clear();
     }
 
-    public String[] getRegisteredNames() {
+    /**
+     * Journal entries whose target is reachable from some registration but not from the given
+     * names, following lists and string keyed maps like RandomizationPatch. Targets not reachable
+     * from any registration (e.g. objects returned by getters) cannot be attributed and are not
+     * included
+     */
+    public List<WriteJournal.Entry> findWritesOutside(Collection<String> names,
+            List<WriteJournal.Entry> entries) {
+        Map<Object, RandomizationPatch.ObjectPath> allowed =
+                RandomizationPatch.indexPaths(this, names != null ? names : List.of());
+        Map<Object, RandomizationPatch.ObjectPath> known = RandomizationPatch.indexPaths(this);
+        List<WriteJournal.Entry> outside = new ArrayList<>();
+        for (WriteJournal.Entry entry : entries) {
+            if (known.containsKey(entry.getTarget()) && !allowed.containsKey(entry.getTarget())) {
+                outside.add(entry);
+            }
+        }
+        return outside;
+    }
+
+    public synchronized String[] getRegisteredNames() {
         return objects.keySet().toArray(new String[0]);
     }
 
     public LuaTable toLuaTable() {
+        return toLuaTable(null);
+    }
+
+    // Builds the table with only the given registrations (all if null), e.g. the keys a module
+    // declares it reads and writes. Config, enums and the enum functions are always included
+    public LuaTable toLuaTable(Collection<String> names) {
         LuaTable table = new LuaTable();
+        // Shared across entries so collections registered under several names (or nested in
+        // each other) convert to a single table
+        Map<Object, LuaTable> converted = new IdentityHashMap<>();
+        Map<String, Object> objects = snapshotObjects(names);
+        Map<String, Object> config = snapshotConfig();
 
         // Add regular objects with proper conversion
         for (Map.Entry<String, Object> entry : objects.entrySet()) {
+            String name = entry.getKey();
             Object value = entry.getValue();
             LuaValue luaValue;
 
-            // Wrap complex objects for method access, including objects inside lists/maps
-            if (value != null && !isPrimitiveOrWrapper(value) && !(value instanceof String)
-                    && !(value instanceof Enum)) {
+            // Shadows convert with their own wrapper and identity map so originals that are also
+            // registered directly keep separate tables
+            if (value instanceof ShadowObjects) {
+                ShadowObjects shadow = (ShadowObjects) value;
+                luaValue = LuaJavaConverter.javaToLua(shadow.getOriginals(), shadowWrapper(shadow),
+                        new IdentityHashMap<>());
+            } else if (value != null && !isPrimitiveOrWrapper(value)
+                    && !(value instanceof String) && !(value instanceof Enum)) {
                 // Pass wrapper to converter so it can wrap nested objects
-                luaValue = LuaJavaConverter.javaToLua(value, objectWrapper);
+                luaValue = LuaJavaConverter.javaToLua(value, objectWrapper, converted);
             } else {
                 luaValue = LuaJavaConverter.javaToLua(value);
             }
-            table.set(entry.getKey(), luaValue);
+            table.set(name, luaValue);
         }
 
         // Add config as a table
@@ -248,12 +426,12 @@ public class JavaContext {
                 || value instanceof Float || value instanceof Double;
     }
 
-    public int size() {
+    public synchronized int size() {
         return objects.size();
     }
 
     @Override
-    public String toString() {
+    public synchronized String toString() {
         return "JavaContext{" + objects.size() + " objects: " + objects.keySet() + ", "
                 + enumRegistry.getEnumNames().size() + " enums: " + enumRegistry.getEnumNames()
                 + "}";
@@ -5,7 +5,10 @@ import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.lib.ThreeArgFunction;
 import org.luaj.vm2.lib.TwoArgFunction;
 import org.luaj.vm2.lib.jse.CoerceJavaToLua;
+import org.luaj.vm2.lib.jse.CoerceLuaToJava;
+import redactedrice.randomizer.utils.LuaJavaConverter;
 
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
@@ -15,11 +18,54 @@ import java.util.Map;
 // Provides extensible wrapper that allows both Java method calls and dynamic Lua fields
 public class JavaObjectWrapper {
     private final EnumRegistry enumRegistry;
+    // Set for wrappers of a registerShadow view. Setter calls and field writes go here
+    private final ShadowObjects shadow;
+    // Set while the owning context journals writes (see JavaContext.enableWriteJournal)
+    private volatile WriteJournal journal;
     // We need to cache objects so we can store and keep lua assigned values to them
     private final Map<Object, LuaTable> wrapperCache = new IdentityHashMap<>();
 
     public JavaObjectWrapper(EnumRegistry enumRegistry) {
+        this(enumRegistry, null);
+    }
+
+    JavaObjectWrapper(EnumRegistry enumRegistry, ShadowObjects shadow) {
         this.enumRegistry = enumRegistry;
+        this.shadow = shadow;
+    }
+
+    ShadowObjects getShadow() {
+        return shadow;
+    }
+
+    WriteJournal getJournal() {
+        return journal;
+    }
+
+    EnumRegistry getEnumRegistry() {
+        return enumRegistry;
+    }
+
+    // The wrapper that created the given wrapper table or null if it is not one of ours
+    static JavaObjectWrapper ownerOf(LuaValue value) {
+        LuaValue metatable = value.istable() ? value.getmetatable() : null;
+        LuaValue index = metatable != null ? metatable.rawget(LuaValue.INDEX) : LuaValue.NIL;
+        return index instanceof WrapperIndex ? ((WrapperIndex) index).objectWrapper : null;
+    }
+
+    void setJournal(WriteJournal journal) {
+        this.journal = journal;
+    }
+
+    // Records a write into this wrapper's shadow, journaling the shadow's previous state
+    void shadowWrite(Object target, String property, Object value) {
+        WriteJournal current = journal;
+        if (current != null) {
+            boolean hadWrite = shadow.hasWrite(target, property);
+            current.record(new WriteJournal.Entry(target, property, hadWrite,
+                    hadWrite ? shadow.getWrite(target, property) : null, value, shadow));
+        }
+        shadow.recordWrite(target, property, value);
     }
 
     /** Clears cached wrappers so a new randomization does not reuse stale dynamic Lua fields */
@@ -45,7 +91,8 @@ public class JavaObjectWrapper {
         LuaTable metatable = new LuaTable();
         metatable.set(LuaValue.INDEX, new WrapperIndex(javaObject, userdata, wrapper, methodCache,
                 enumRegistry, this));
-        metatable.set(LuaValue.NEWINDEX, new WrapperNewIndex(userdata, wrapper));
+        metatable.set(LuaValue.NEWINDEX,
+                new WrapperNewIndex(javaObject, userdata, wrapper, this));
 
         wrapper.rawset("__userdata", userdata);
         wrapper.setmetatable(metatable);
@@ -54,6 +101,18 @@ public class JavaObjectWrapper {
         return wrapper;
     }
 
+    // Converts a Java value read from a shadow the same way a getter or field read would be
+    LuaValue toLua(Object value) {
+        if (value instanceof java.util.List || value instanceof Map) {
+            return LuaJavaConverter.javaToLua(value, this);
+        }
+        LuaValue coerced = CoerceJavaToLua.coerce(value);
+        if (coerced.isuserdata() && !(value instanceof Enum)) {
+            return wrap(value);
+        }
+        return coerced;
+    }
+
     /** __index: wrapper fields first, then Java userdata / intercepted methods */
     private static final class WrapperIndex extends TwoArgFunction {
         private final Object javaObject;
@@ -81,6 +140,12 @@ public class JavaObjectWrapper {
                 return wrapperValue;
             }
 
+            ShadowObjects shadow = objectWrapper.getShadow();
+            if (shadow != null && key.isstring()
+                    && shadow.hasWrite(javaObject, key.tojstring())) {
+                return objectWrapper.toLua(shadow.getWrite(javaObject, key.tojstring()));
+            }
+
             try {
                 LuaValue userdataValue = userdata.get(key);
                 if (userdataValue.isfunction()) {
@@ -96,18 +161,39 @@ public class JavaObjectWrapper {
 
     /** __newindex: Java fields when possible, otherwise dynamic Lua fields on the wrapper */
     private static final class WrapperNewIndex extends ThreeArgFunction {
+        private final Object javaObject;
         private final LuaValue userdata;
         private final LuaTable wrapper;
+        private final JavaObjectWrapper objectWrapper;
 
-        WrapperNewIndex(LuaValue userdata, LuaTable wrapper) {
+        WrapperNewIndex(Object javaObject, LuaValue userdata, LuaTable wrapper,
+                JavaObjectWrapper objectWrapper) {
+            this.javaObject = javaObject;
             this.userdata = userdata;
             this.wrapper = wrapper;
+            this.objectWrapper = objectWrapper;
         }
 
         @Override
         public LuaValue call(LuaValue table, LuaValue key, LuaValue value) {
+            WriteJournal journal = objectWrapper.getJournal();
+            Field field = null;
+            if ((objectWrapper.getShadow() != null || journal != null) && key.isstring()) {
+                field = PropertyAccess.findField(javaObject.getClass(), key.tojstring());
+            }
+            if (field != null && objectWrapper.getShadow() != null) {
+                LuaValue inner = value.istable() ? value.get("__userdata") : LuaValue.NIL;
+                objectWrapper.shadowWrite(javaObject, field.getName(), CoerceLuaToJava
+                        .coerce(inner.isuserdata() ? inner : value, field.getType()));
+                return LuaValue.NIL;
+            }
             try {
+                Object previous = field != null ? field.get(javaObject) : null;
                 userdata.set(key, value);
+                if (field != null) {
+                    journal.record(new WriteJournal.Entry(javaObject, field.getName(), true,
+                            previous, field.get(javaObject), null));
+                }
             } catch (Throwable e) {
                 // Must catch Throwable because LuaJ throws LuaError
                 wrapper.rawset(key, value);
@@ -0,0 +1,422 @@
+package redactedrice.randomizer.context;
+
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaUserdata;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.VarArgFunction;
+import org.luaj.vm2.lib.jse.CoerceLuaToJava;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Java implementations of the hot randomizer primitives (shuffle, pools, grouping, assignment
+ * and weighted picks) exposed to Lua as the randomizerNative table so the core Lua library can
+ * delegate to them instead of looping in the interpreter.
+ *
+ * Properties are given as "health", "getHealth" or "setHealth" and are accessed on context
+ * objects through cached MethodHandles (see AccessorHandles). Writes still go through the
+ * element's wrapper state so shadows and write journals see them like a Lua setter call.
+ * Elements without a Java property (plain Lua tables or dynamic Lua fields) fall back to normal
+ * Lua indexing.
+ *
+ * Random draws come from the current RandomStream (see setStream), which the executor derives per
+ * module so results do not depend on module order. Each primitive also takes an optional stream,
+ * e.g. randomizerNative.stream():split("fire"), and grouped assignment draws each group from its
+ * own sub-stream.
+ */
+public class NativePrimitives {
+    public static final String GLOBAL_NAME = "randomizerNative";
+
+    // Methods of the stream userdata returned to Lua
+    private static final LuaTable STREAM_METATABLE = createStreamMetatable();
+
+    private RandomStream stream = new RandomStream(0);
+
+    public void setSeed(long seed) {
+        stream = new RandomStream(seed);
+    }
+
+    // Back to the initial stream of seed 0 so an unseeded module does not continue the draws of
+    // the module before it
+    public void resetStream() {
+        setSeed(0);
+    }
+
+    public void setStream(RandomStream stream) {
+        if (stream == null) {
+            throw new IllegalArgumentException("Stream cannot be null");
+        }
+        this.stream = stream;
+    }
+
+    public RandomStream getStream() {
+        return stream;
+    }
+
+    public static LuaValue toLua(RandomStream stream) {
+        return new LuaUserdata(stream, STREAM_METATABLE);
+    }
+
+    // stream:random() / random(m) / random(m, n) like math.random and stream:split(name)
+    private static LuaTable createStreamMetatable() {
+        LuaTable methods = new LuaTable();
+        methods.set("random", new VarArgFunction() {
+            @Override
+            public Varargs invoke(Varargs args) {
+                RandomStream self = checkStream(args, 1);
+                if (args.narg() < 2) {
+                    return LuaValue.valueOf(self.nextDouble());
+                }
+                if (args.narg() < 3) {
+                    return LuaValue.valueOf(self.nextInt(1, args.checkint(2)));
+                }
+                return LuaValue.valueOf(self.nextInt(args.checkint(2), args.checkint(3)));
+            }
+        });
+        methods.set("split", new VarArgFunction() {
+            @Override
+            public Varargs invoke(Varargs args) {
+                return toLua(checkStream(args, 1).split(args.checkjstring(2)));
+            }
+        });
+        LuaTable metatable = new LuaTable();
+        metatable.set(LuaValue.INDEX, methods);
+        return metatable;
+    }
+
+    private static RandomStream checkStream(Varargs args, int index) {
+        return (RandomStream) args.checkuserdata(index, RandomStream.class);
+    }
+
+    // The stream argument at index if given, otherwise the current stream
+    private RandomStream optStream(Varargs args, int index) {
+        return args.isnil(index) ? stream : checkStream(args, index);
+    }
+
+    public LuaTable createLuaTable() {
+        LuaTable table = new LuaTable();
+        table.set("setSeed", new VarArgFunction() {
+            @Override
+            public Varargs invoke(Varargs args) {
+                setSeed(args.checklong(1));
+                return LuaValue.NONE;
+            }
+        });
+        table.set("stream", new VarArgFunction() {
+            @Override
+            public Varargs invoke(Varargs args) {
+                return toLua(stream);
+            }
+        });
+        table.set("newStream", new VarArgFunction() {
+            @Override
+            public Varargs invoke(Varargs args) {
+                return toLua(new RandomStream(args.checklong(1)));
+            }
+        });
+        table.set("shuffle", new VarArgFunction() {
+            @Override
+            public Varargs invoke(Varargs args) {
+                return shuffle(args.checktable(1), optStream(args, 2));
+            }
+        });
+        table.set("pool", new VarArgFunction() {
+            @Override
+            public Varargs invoke(Varargs args) {
+                return pool(args.checktable(1), args.optjstring(2, null));
+            }
+        });
+        table.set("groupBy", new VarArgFunction() {
+            @Override
+            public Varargs invoke(Varargs args) {
+                return groupBy(args.checktable(1), args.checkjstring(2),
+                        args.optjstring(3, null));
+            }
+        });
+        table.set("assign", new VarArgFunction() {
+            @Override
+            public Varargs invoke(Varargs args) {
+                return LuaValue.valueOf(assign(args.checktable(1), args.checktable(2),
+                        args.arg(3), args.optboolean(4, false), optStream(args, 5)));
+            }
+        });
+        table.set("assignGrouped", new VarArgFunction() {
+            @Override
+            public Varargs invoke(Varargs args) {
+                return LuaValue.valueOf(assignGrouped(args.checktable(1), args.checktable(2),
+                        args.checkjstring(3), args.arg(4), args.optboolean(5, false),
+                        optStream(args, 6)));
+            }
+        });
+        table.set("weightedPick", new VarArgFunction() {
+            @Override
+            public Varargs invoke(Varargs args) {
+                return weightedPick(args.checktable(1), args.checktable(2), optStream(args, 3));
+            }
+        });
+        return table;
+    }
+
+    // Fisher-Yates shuffle of the array part in place. Returns the same table
+    public LuaTable shuffle(LuaTable list, RandomStream random) {
+        for (int i = list.length(); i > 1; i--) {
+            int j = random.nextInt(i) + 1;
+            LuaValue swap = list.get(i);
+            list.set(i, list.get(j));
+            list.set(j, swap);
+        }
+        return list;
+    }
+
+    // New array of each element's property, or a copy of the elements if property is null
+    public LuaTable pool(LuaTable list, String property) {
+        String name = property != null ? propertyName(property) : null;
+        int length = list.length();
+        LuaTable pool = new LuaTable(length, 0);
+        for (int i = 1; i <= length; i++) {
+            LuaValue element = list.get(i);
+            pool.set(i, name != null ? read(element, name) : element);
+        }
+        return pool;
+    }
+
+    // Table of group key to the array of elements (or their valueProperty) in that group, in list
+    // order. Enum keys become their names so groups can be indexed with strings from Lua
+    public LuaTable groupBy(LuaTable list, String keyProperty, String valueProperty) {
+        String keyName = propertyName(keyProperty);
+        String valueName = valueProperty != null ? propertyName(valueProperty) : null;
+        LuaTable groups = new LuaTable();
+        int length = list.length();
+        for (int i = 1; i <= length; i++) {
+            LuaValue element = list.get(i);
+            LuaValue key = read(element, keyName);
+            if (key.isnil()) {
+                continue;
+            }
+            LuaValue group = groups.get(key);
+            if (group.isnil()) {
+                group = new LuaTable();
+                groups.set(key, group);
+            }
+            group.set(group.length() + 1, valueName != null ? read(element, valueName) : element);
+        }
+        return groups;
+    }
+
+    /**
+     * Assigns each element a random value of the pool with the setter (property name or
+     * function(element, value)). Consumable pools hand out each entry once and error when they
+     * run out. Returns the number of elements assigned
+     */
+    public int assign(LuaTable list, LuaTable pool, LuaValue setter, boolean consumable,
+            RandomStream random) {
+        Drawer drawer = new Drawer(pool, consumable, random);
+        String name = setter.isstring() ? propertyName(setter.tojstring()) : null;
+        int length = list.length();
+        for (int i = 1; i <= length; i++) {
+            LuaValue element = list.get(i);
+            if (drawer.isEmpty()) {
+                throw new LuaError("Pool ran out after assigning " + (i - 1) + " of " + length
+                        + " elements");
+            }
+            apply(element, name, setter, drawer.draw());
+        }
+        return length;
+    }
+
+    /**
+     * Like assign but draws from the pool group matching each element's keyProperty (see
+     * groupBy). Each group draws from its own sub-stream of the call so a group's result does
+     * not depend on the other groups. Elements without a group are skipped. Returns the number of
+     * elements assigned
+     */
+    public int assignGrouped(LuaTable list, LuaTable groupedPool, String keyProperty,
+            LuaValue setter, boolean consumable, RandomStream random) {
+        RandomStream callStream = random.splitNext();
+        String keyName = propertyName(keyProperty);
+        String name = setter.isstring() ? propertyName(setter.tojstring()) : null;
+        Map<LuaValue, Drawer> drawers = new HashMap<>();
+        int assigned = 0;
+        int length = list.length();
+        for (int i = 1; i <= length; i++) {
+            LuaValue element = list.get(i);
+            LuaValue key = read(element, keyName);
+            LuaValue group = key.isnil() ? LuaValue.NIL : groupedPool.get(key);
+            if (!group.istable()) {
+                continue;
+            }
+            Drawer groupDrawer = drawers.get(key);
+            if (groupDrawer == null) {
+                groupDrawer = new Drawer(group.checktable(), consumable,
+                        callStream.split(key.tojstring()));
+                drawers.put(key, groupDrawer);
+            }
+            if (groupDrawer.isEmpty()) {
+                throw new LuaError("Pool for group '" + key.tojstring() + "' ran out");
+            }
+            apply(element, name, setter, groupDrawer.draw());
+            assigned++;
+        }
+        return assigned;
+    }
+
+    // One of the values picked with probability proportional to the matching weight
+    public LuaValue weightedPick(LuaTable values, LuaTable weights, RandomStream random) {
+        int length = values.length();
+        double total = 0;
+        for (int i = 1; i <= length; i++) {
+            double weight = weights.get(i).optdouble(0);
+            if (weight < 0) {
+                throw new LuaError("Weight " + i + " is negative");
+            }
+            total += weight;
+        }
+        if (total <= 0) {
+            throw new LuaError("weightedPick needs at least one positive weight");
+        }
+        double target = random.nextDouble() * total;
+        LuaValue last = LuaValue.NIL;
+        for (int i = 1; i <= length; i++) {
+            double weight = weights.get(i).optdouble(0);
+            if (weight > 0) {
+                last = values.get(i);
+                target -= weight;
+                if (target < 0) {
+                    return last;
+                }
+            }
+        }
+        // Only reachable through rounding on the final weight
+        return last;
+    }
+
+    // Random draws from a pool array. Consumable drawers remove drawn entries (swap with last)
+    private static final class Drawer {
+        private final List<LuaValue> entries;
+        private final boolean consumable;
+        private final RandomStream random;
+
+        Drawer(LuaTable pool, boolean consumable, RandomStream random) {
+            int length = pool.length();
+            this.entries = new ArrayList<>(length);
+            for (int i = 1; i <= length; i++) {
+                entries.add(pool.get(i));
+            }
+            this.consumable = consumable;
+            this.random = random;
+        }
+
+        boolean isEmpty() {
+            return entries.isEmpty();
+        }
+
+        LuaValue draw() {
+            int index = random.nextInt(entries.size());
+            LuaValue value = entries.get(index);
+            if (consumable) {
+                int last = entries.size() - 1;
+                entries.set(index, entries.get(last));
+                entries.remove(last);
+            }
+            return value;
+        }
+    }
+
+    private static void apply(LuaValue element, String property, LuaValue setter,
+            LuaValue value) {
+        if (property != null) {
+            write(element, property, value);
+        } else {
+            setter.checkfunction().call(element, value);
+        }
+    }
+
+    // health, getHealth, isAlive and setHealth all name a property
+    static String propertyName(String name) {
+        String property = PropertyAccess.getterProperty(name);
+        if (property == null) {
+            property = PropertyAccess.setterProperty(name);
+        }
+        return property != null ? property : name;
+    }
+
+    // Reads like the element's getter would, including writes held in its shadow
+    static LuaValue read(LuaValue element, String property) {
+        JavaObjectWrapper owner = JavaObjectWrapper.ownerOf(element);
+        Object target = owner != null ? element.rawget("__userdata").touserdata() : null;
+        if (target == null) {
+            return element.get(property);
+        }
+        ShadowObjects shadow = owner.getShadow();
+        if (shadow != null && shadow.hasWrite(target, property)) {
+            return groupSafe(owner, shadow.getWrite(target, property));
+        }
+        AccessorHandles.Getter getter = AccessorHandles.getter(target.getClass(), property);
+        if (getter == null) {
+            return element.get(property);
+        }
+        return groupSafe(owner, getter.get(target));
+    }
+
+    // Enums convert to their names so they work as table keys and enum setter arguments
+    private static LuaValue groupSafe(JavaObjectWrapper owner, Object value) {
+        if (value instanceof Enum) {
+            return LuaValue.valueOf(((Enum<?>) value).name());
+        }
+        return owner.toLua(value);
+    }
+
+    // Writes like the element's setter would, recording into its shadow or write journal
+    static void write(LuaValue element, String property, LuaValue value) {
+        JavaObjectWrapper owner = JavaObjectWrapper.ownerOf(element);
+        Object target = owner != null ? element.rawget("__userdata").touserdata() : null;
+        AccessorHandles.Setter setter =
+                target != null ? AccessorHandles.setter(target.getClass(), property) : null;
+        if (setter == null) {
+            element.set(property, value);
+            return;
+        }
+        Object javaValue = toJava(owner, value, setter.getType());
+        if (owner.getShadow() != null) {
+            owner.shadowWrite(target, property, javaValue);
+            return;
+        }
+        WriteJournal journal = owner.getJournal();
+        if (journal == null) {
+            setter.set(target, javaValue);
+            return;
+        }
+        AccessorHandles.Getter getter = AccessorHandles.getter(target.getClass(), property);
+        Object previous = getter != null ? getter.get(target) : null;
+        setter.set(target, javaValue);
+        journal.record(new WriteJournal.Entry(target, property, getter != null, previous,
+                javaValue, null));
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object toJava(JavaObjectWrapper owner, LuaValue value, Class<?> type) {
+        LuaValue inner = value.istable() ? value.rawget("__userdata") : LuaValue.NIL;
+        if (inner.isuserdata()) {
+            value = inner;
+        }
+        if (type.isEnum() && value.isstring()) {
+            Object enumValue = owner.getEnumRegistry() != null ? owner.getEnumRegistry()
+                    .stringToEnum(type.getSimpleName(), value.tojstring()) : null;
+            if (enumValue == null) {
+                try {
+                    enumValue = Enum.valueOf((Class) type, value.tojstring());
+                } catch (IllegalArgumentException e) {
+                    throw new LuaError("'" + value.tojstring() + "' is not a value of "
+                            + type.getSimpleName());
+                }
+            }
+            return enumValue;
+        }
+        return CoerceLuaToJava.coerce(value, type);
+    }
+}
@@ -0,0 +1,78 @@
+package redactedrice.randomizer.context;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies a RandomizationPatch to a JavaContext without Lua. Paths are resolved against the
+ * context's registrations so it should be set up the same way as the recorded one. Writes to a
+ * name registered as a shadow go into the shadow like they did when recorded through Lua. When
+ * the context has a write journal the writes are journaled so they can be rolled back.
+ */
+public final class PatchReplayer {
+    private PatchReplayer() {}
+
+    /** Applies every write in order and returns the number applied */
+    public static int apply(RandomizationPatch patch, JavaContext context) {
+        if (patch == null) {
+            throw new IllegalArgumentException("Patch cannot be null");
+        }
+        if (context == null) {
+            throw new IllegalArgumentException("Context cannot be null");
+        }
+        WriteJournal journal = context.getWriteJournal();
+        for (RandomizationPatch.Write write : patch.getWrites()) {
+            RandomizationPatch.ObjectPath path = write.getPath();
+            Object target = resolve(context, path);
+            Object value = write.getValue();
+            if (value instanceof RandomizationPatch.ObjectPath) {
+                value = resolve(context, (RandomizationPatch.ObjectPath) value);
+            }
+
+            String property = write.getProperty();
+            ShadowObjects shadow = context.getShadow(path.getRootName());
+            if (shadow != null) {
+                if (journal != null) {
+                    journal.record(new WriteJournal.Entry(target, property,
+                            shadow.hasWrite(target, property), shadow.getWrite(target, property),
+                            value, shadow));
+                }
+                shadow.recordWrite(target, property, value);
+            } else {
+                if (journal != null) {
+                    boolean readable = PropertyAccess.isReadable(target.getClass(), property);
+                    journal.record(new WriteJournal.Entry(target, property, readable,
+                            readable ? PropertyAccess.read(target, property) : null, value, null));
+                }
+                PropertyAccess.write(target, property, value);
+            }
+        }
+        return patch.size();
+    }
+
+    static Object resolve(JavaContext context, RandomizationPatch.ObjectPath path) {
+        if (!context.contains(path.getRootName())) {
+            throw new IllegalStateException(
+                    "Patch target '" + path.getRootName() + "' is not registered");
+        }
+        Object current = context.get(path.getRootName());
+        if (current instanceof ShadowObjects) {
+            current = ((ShadowObjects) current).getOriginals();
+        }
+        for (Object step : path.getSteps()) {
+            if (step instanceof Integer && current instanceof List
+                    && (Integer) step < ((List<?>) current).size()) {
+                current = ((List<?>) current).get((Integer) step);
+            } else if (step instanceof String && current instanceof Map
+                    && ((Map<?, ?>) current).containsKey(step)) {
+                current = ((Map<?, ?>) current).get(step);
+            } else {
+                throw new IllegalStateException("Patch target " + path + " does not exist");
+            }
+        }
+        if (current == null) {
+            throw new IllegalStateException("Patch target " + path + " is null");
+        }
+        return current;
+    }
+}
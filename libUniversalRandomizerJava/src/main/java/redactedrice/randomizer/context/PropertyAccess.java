@@ -0,0 +1,131 @@
+package redactedrice.randomizer.context;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+// Bean style property access used to apply and undo writes made through object wrappers. A
+// property is read with getX() / isX() or the public field x and written with setX(value) or the
+// public field x
+final class PropertyAccess {
+    private PropertyAccess() {}
+
+    // setHealth -> health. Null if the name is not a setter name
+    static String setterProperty(String methodName) {
+        return accessorProperty(methodName, "set");
+    }
+
+    // getHealth / isAlive -> health / alive. Null if the name is not a getter name
+    static String getterProperty(String methodName) {
+        String property = accessorProperty(methodName, "get");
+        return property != null ? property : accessorProperty(methodName, "is");
+    }
+
+    private static String accessorProperty(String methodName, String prefix) {
+        if (methodName.length() <= prefix.length() || !methodName.startsWith(prefix)
+                || !Character.isUpperCase(methodName.charAt(prefix.length()))) {
+            return null;
+        }
+        return Character.toLowerCase(methodName.charAt(prefix.length()))
+                + methodName.substring(prefix.length() + 1);
+    }
+
+    // Public instance field of the class or null
+    static Field findField(Class<?> clazz, String name) {
+        try {
+            Field field = clazz.getField(name);
+            return Modifier.isStatic(field.getModifiers()) ? null : field;
+        } catch (NoSuchFieldException e) {
+            return null;
+        }
+    }
+
+    static Method findGetter(Class<?> clazz, String property) {
+        String suffix = Character.toUpperCase(property.charAt(0)) + property.substring(1);
+        for (String name : new String[] {"get" + suffix, "is" + suffix}) {
+            try {
+                Method method = clazz.getMethod(name);
+                if (method.getReturnType() != void.class) {
+                    return method;
+                }
+            } catch (NoSuchMethodException e) {
+                // try the next prefix
+            }
+        }
+        return null;
+    }
+
+    static boolean isReadable(Class<?> clazz, String property) {
+        return findGetter(clazz, property) != null || findField(clazz, property) != null;
+    }
+
+    static Object read(Object target, String property) {
+        try {
+            Method getter = findGetter(target.getClass(), property);
+            if (getter != null) {
+                return getter.invoke(target);
+            }
+            Field field = findField(target.getClass(), property);
+            if (field != null) {
+                return field.get(target);
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot read '" + property + "' of "
+                    + target.getClass().getSimpleName(), e);
+        }
+        throw new IllegalStateException(
+                "No getter or field for '" + property + "' on " + target.getClass().getSimpleName());
+    }
+
+    // Uses the matching setter if there is one, otherwise the public field of that name
+    static void write(Object target, String property, Object value) {
+        String setterName =
+                "set" + Character.toUpperCase(property.charAt(0)) + property.substring(1);
+        try {
+            for (Method method : target.getClass().getMethods()) {
+                if (method.getName().equals(setterName) && method.getParameterCount() == 1
+                        && accepts(method.getParameterTypes()[0], value)) {
+                    method.invoke(target, value);
+                    return;
+                }
+            }
+            Field field = findField(target.getClass(), property);
+            if (field == null) {
+                throw new NoSuchFieldException(property);
+            }
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot write '" + property + "' of "
+                    + target.getClass().getSimpleName(), e);
+        }
+    }
+
+    private static boolean accepts(Class<?> type, Object value) {
+        if (value == null) {
+            return !type.isPrimitive();
+        }
+        return boxed(type).isInstance(value);
+    }
+
+    private static Class<?> boxed(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        }
+        if (type == int.class) {
+            return Integer.class;
+        } else if (type == long.class) {
+            return Long.class;
+        } else if (type == double.class) {
+            return Double.class;
+        } else if (type == float.class) {
+            return Float.class;
+        } else if (type == boolean.class) {
+            return Boolean.class;
+        } else if (type == short.class) {
+            return Short.class;
+        } else if (type == byte.class) {
+            return Byte.class;
+        }
+        return Character.class;
+    }
+}
@@ -0,0 +1,86 @@
+package redactedrice.randomizer.context;
+
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+/**
+ * Splittable random stream used by the native primitives. A stream is fully determined by its
+ * seed, and named sub-streams (see split) are derived from the seed and name only, so a module's
+ * draws do not depend on what ran before it or on other modules running concurrently.
+ *
+ * Module streams come from (baseSeed, seedOffset, moduleId) via forModule. Draws use
+ * SplittableRandom so sequences are stable across JVMs.
+ */
+public final class RandomStream {
+    // FNV-1a 64 bit constants for hashing split names
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long seed;
+    private final SplittableRandom random;
+
+    public RandomStream(long seed) {
+        this.seed = seed;
+        this.random = new SplittableRandom(seed);
+    }
+
+    /** Independent stream for one module of a run */
+    public static RandomStream forModule(int baseSeed, int seedOffset, String moduleId) {
+        if (moduleId == null) {
+            throw new IllegalArgumentException("Module id cannot be null");
+        }
+        long seed = mix(mix(baseSeed) ^ seedOffset);
+        return new RandomStream(mix(seed ^ hash(moduleId)));
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Sub-stream for the given name (e.g. a group key). Does not draw from this stream so the
+     * same name always gives the same sub-stream regardless of draw order
+     */
+    public RandomStream split(String name) {
+        return new RandomStream(mix(seed ^ hash(name != null ? name : "")));
+    }
+
+    /** Sub-stream seeded from the next draw of this stream, for repeated calls in sequence */
+    public RandomStream splitNext() {
+        return new RandomStream(mix(random.nextLong()));
+    }
+
+    /** Uniform int in [0, bound) */
+    public int nextInt(int bound) {
+        return random.nextInt(bound);
+    }
+
+    /** Uniform int in [min, max] */
+    public int nextInt(int min, int max) {
+        if (min > max) {
+            throw new IllegalArgumentException("min " + min + " is greater than max " + max);
+        }
+        return (int) random.nextLong(min, (long) max + 1);
+    }
+
+    /** Uniform double in [0, 1) */
+    public double nextDouble() {
+        return random.nextDouble();
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+
+    private static long hash(String name) {
+        long hash = FNV_OFFSET;
+        for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
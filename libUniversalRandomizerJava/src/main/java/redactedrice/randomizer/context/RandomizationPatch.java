@@ -0,0 +1,416 @@
+package redactedrice.randomizer.context;
+
+import redactedrice.randomizer.utils.Logger;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Ordered property writes of a randomization that can be saved and applied again with
+ * PatchReplayer without running Lua. Objects are addressed by the name they are registered under
+ * in the JavaContext plus list indices / string map keys below it, so the patch applies to a
+ * fresh context built with the same registrations.
+ *
+ * Values may be null, primitives and their wrappers, strings, enums or references to other
+ * addressable objects. Writes to objects that cannot be addressed (for example objects only
+ * reached through a method's return value) or with other value types are left out and counted
+ * in getUnrecordedCount.
+ */
+public final class RandomizationPatch {
+    public static final int FORMAT_VERSION = 1;
+    private static final int MAGIC = 0x55525054; // "URPT"
+
+    private static final byte VALUE_NULL = 0;
+    private static final byte VALUE_BOOLEAN = 1;
+    private static final byte VALUE_INT = 2;
+    private static final byte VALUE_LONG = 3;
+    private static final byte VALUE_DOUBLE = 4;
+    private static final byte VALUE_FLOAT = 5;
+    private static final byte VALUE_SHORT = 6;
+    private static final byte VALUE_BYTE = 7;
+    private static final byte VALUE_CHAR = 8;
+    private static final byte VALUE_STRING = 9;
+    private static final byte VALUE_ENUM = 10;
+    private static final byte VALUE_REFERENCE = 11;
+
+    private static final byte STEP_INDEX = 0;
+    private static final byte STEP_KEY = 1;
+
+    private final List<Write> writes;
+    private final int unrecordedCount;
+
+    private RandomizationPatch(List<Write> writes, int unrecordedCount) {
+        this.writes = Collections.unmodifiableList(writes);
+        this.unrecordedCount = unrecordedCount;
+    }
+
+    /** Builds a patch from journal entries addressing objects by the context's registrations */
+    public static RandomizationPatch fromJournal(JavaContext context,
+            List<WriteJournal.Entry> entries) {
+        Map<Object, ObjectPath> paths = indexPaths(context);
+        List<Write> writes = new ArrayList<>(entries.size());
+        int unrecorded = 0;
+        for (WriteJournal.Entry entry : entries) {
+            ObjectPath path = paths.get(entry.getTarget());
+            Object value = entry.getValue();
+            if (path == null || !isRecordable(value, paths)) {
+                unrecorded++;
+                continue;
+            }
+            ObjectPath reference = value != null ? paths.get(value) : null;
+            writes.add(new Write(path, entry.getProperty(),
+                    reference != null ? reference : value));
+        }
+        if (unrecorded > 0) {
+            Logger.warn("Left " + unrecorded + " writes out of the randomization patch because"
+                    + " their object or value cannot be addressed");
+        }
+        return new RandomizationPatch(writes, unrecorded);
+    }
+
+    static Map<Object, ObjectPath> indexPaths(JavaContext context) {
+        return indexPaths(context, null);
+    }
+
+    // Paths of every object reachable from the given registrations (all if null) through lists
+    // and string keyed maps. Names are visited in sorted order so an object registered twice gets
+    // a stable path
+    static Map<Object, ObjectPath> indexPaths(JavaContext context, Collection<String> names) {
+        Map<Object, ObjectPath> paths = new IdentityHashMap<>();
+        Map<String, Object> sorted = new TreeMap<>();
+        for (String name : names != null ? names : List.of(context.getRegisteredNames())) {
+            if (context.contains(name)) {
+                sorted.put(name, context.get(name));
+            }
+        }
+        for (Map.Entry<String, Object> registered : sorted.entrySet()) {
+            Object value = registered.getValue();
+            if (value instanceof ShadowObjects) {
+                value = ((ShadowObjects) value).getOriginals();
+            }
+            index(value, new ObjectPath(registered.getKey(), List.of()), paths);
+        }
+        return paths;
+    }
+
+    private static void index(Object value, ObjectPath path, Map<Object, ObjectPath> paths) {
+        if (value == null || isPlainValue(value) || paths.containsKey(value)) {
+            return;
+        }
+        paths.put(value, path);
+        if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            for (int i = 0; i < list.size(); i++) {
+                index(list.get(i), path.child(i), paths);
+            }
+        } else if (value instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (entry.getKey() instanceof String) {
+                    index(entry.getValue(), path.child(entry.getKey()), paths);
+                }
+            }
+        }
+    }
+
+    private static boolean isRecordable(Object value, Map<Object, ObjectPath> paths) {
+        return value == null || isPlainValue(value) || paths.containsKey(value);
+    }
+
+    private static boolean isPlainValue(Object value) {
+        return value instanceof Boolean || value instanceof Number || value instanceof Character
+                || value instanceof String || value instanceof Enum;
+    }
+
+    public List<Write> getWrites() {
+        return writes;
+    }
+
+    public int size() {
+        return writes.size();
+    }
+
+    public int getUnrecordedCount() {
+        return unrecordedCount;
+    }
+
+    // Format: magic, version, string table, then each write as path, property and tagged value
+    public void write(OutputStream output) throws IOException {
+        List<String> strings = new ArrayList<>();
+        Map<String, Integer> stringIds = new HashMap<>();
+        for (Write write : writes) {
+            collectStrings(write, strings, stringIds);
+        }
+
+        DataOutputStream data = new DataOutputStream(output);
+        data.writeInt(MAGIC);
+        data.writeShort(FORMAT_VERSION);
+        data.writeInt(strings.size());
+        for (String string : strings) {
+            data.writeUTF(string);
+        }
+        data.writeInt(writes.size());
+        for (Write write : writes) {
+            writePath(data, write.path, stringIds);
+            data.writeInt(stringIds.get(write.property));
+            writeValue(data, write.value, stringIds);
+        }
+        data.flush();
+    }
+
+    public static RandomizationPatch read(InputStream input) throws IOException {
+        DataInputStream data = new DataInputStream(input);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a randomization patch");
+        }
+        int version = data.readShort();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported randomization patch version " + version);
+        }
+        String[] strings = new String[data.readInt()];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = data.readUTF();
+        }
+        int count = data.readInt();
+        List<Write> writes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ObjectPath path = readPath(data, strings);
+            String property = strings[data.readInt()];
+            writes.add(new Write(path, property, readValue(data, strings)));
+        }
+        return new RandomizationPatch(writes, 0);
+    }
+
+    private static void collectStrings(Write write, List<String> strings,
+            Map<String, Integer> stringIds) {
+        addString(write.property, strings, stringIds);
+        addPathStrings(write.path, strings, stringIds);
+        if (write.value instanceof ObjectPath) {
+            addPathStrings((ObjectPath) write.value, strings, stringIds);
+        } else if (write.value instanceof Enum) {
+            addString(((Enum<?>) write.value).getDeclaringClass().getName(), strings, stringIds);
+        }
+    }
+
+    private static void addPathStrings(ObjectPath path, List<String> strings,
+            Map<String, Integer> stringIds) {
+        addString(path.rootName, strings, stringIds);
+        for (Object step : path.steps) {
+            if (step instanceof String) {
+                addString((String) step, strings, stringIds);
+            }
+        }
+    }
+
+    private static void addString(String string, List<String> strings,
+            Map<String, Integer> stringIds) {
+        if (!stringIds.containsKey(string)) {
+            stringIds.put(string, strings.size());
+            strings.add(string);
+        }
+    }
+
+    private static void writePath(DataOutputStream data, ObjectPath path,
+            Map<String, Integer> stringIds) throws IOException {
+        data.writeInt(stringIds.get(path.rootName));
+        data.writeShort(path.steps.size());
+        for (Object step : path.steps) {
+            if (step instanceof Integer) {
+                data.writeByte(STEP_INDEX);
+                data.writeInt((Integer) step);
+            } else {
+                data.writeByte(STEP_KEY);
+                data.writeInt(stringIds.get(step));
+            }
+        }
+    }
+
+    private static ObjectPath readPath(DataInputStream data, String[] strings)
+            throws IOException {
+        String rootName = strings[data.readInt()];
+        int depth = data.readShort();
+        List<Object> steps = new ArrayList<>(depth);
+        for (int i = 0; i < depth; i++) {
+            byte kind = data.readByte();
+            if (kind == STEP_INDEX) {
+                steps.add(data.readInt());
+            } else if (kind == STEP_KEY) {
+                steps.add(strings[data.readInt()]);
+            } else {
+                throw new IOException("Unknown path step " + kind);
+            }
+        }
+        return new ObjectPath(rootName, steps);
+    }
+
+    private static void writeValue(DataOutputStream data, Object value,
+            Map<String, Integer> stringIds) throws IOException {
+        if (value == null) {
+            data.writeByte(VALUE_NULL);
+        } else if (value instanceof Boolean) {
+            data.writeByte(VALUE_BOOLEAN);
+            data.writeBoolean((Boolean) value);
+        } else if (value instanceof Integer) {
+            data.writeByte(VALUE_INT);
+            data.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            data.writeByte(VALUE_LONG);
+            data.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            data.writeByte(VALUE_DOUBLE);
+            data.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            data.writeByte(VALUE_FLOAT);
+            data.writeFloat((Float) value);
+        } else if (value instanceof Short) {
+            data.writeByte(VALUE_SHORT);
+            data.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            data.writeByte(VALUE_BYTE);
+            data.writeByte((Byte) value);
+        } else if (value instanceof Character) {
+            data.writeByte(VALUE_CHAR);
+            data.writeChar((Character) value);
+        } else if (value instanceof String) {
+            data.writeByte(VALUE_STRING);
+            data.writeUTF((String) value);
+        } else if (value instanceof Enum) {
+            Enum<?> enumValue = (Enum<?>) value;
+            data.writeByte(VALUE_ENUM);
+            data.writeInt(stringIds.get(enumValue.getDeclaringClass().getName()));
+            data.writeUTF(enumValue.name());
+        } else if (value instanceof ObjectPath) {
+            data.writeByte(VALUE_REFERENCE);
+            writePath(data, (ObjectPath) value, stringIds);
+        } else {
+            throw new IOException("Cannot write value of type " + value.getClass().getName());
+        }
+    }
+
+    private static Object readValue(DataInputStream data, String[] strings) throws IOException {
+        byte tag = data.readByte();
+        switch (tag) {
+            case VALUE_NULL:
+                return null;
+            case VALUE_BOOLEAN:
+                return data.readBoolean();
+            case VALUE_INT:
+                return data.readInt();
+            case VALUE_LONG:
+                return data.readLong();
+            case VALUE_DOUBLE:
+                return data.readDouble();
+            case VALUE_FLOAT:
+                return data.readFloat();
+            case VALUE_SHORT:
+                return data.readShort();
+            case VALUE_BYTE:
+                return data.readByte();
+            case VALUE_CHAR:
+                return data.readChar();
+            case VALUE_STRING:
+                return data.readUTF();
+            case VALUE_ENUM:
+                return readEnum(strings[data.readInt()], data.readUTF());
+            case VALUE_REFERENCE:
+                return readPath(data, strings);
+            default:
+                throw new IOException("Unknown value tag " + tag);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object readEnum(String className, String name) throws IOException {
+        try {
+            Class<?> enumClass = loadClass(className);
+            return Enum.valueOf((Class<? extends Enum>) enumClass, name);
+        } catch (ClassNotFoundException | IllegalArgumentException | ClassCastException e) {
+            throw new IOException("Unknown enum value " + className + "." + name, e);
+        }
+    }
+
+    // Host enums may only be visible to the thread's context class loader (e.g. plugins or app
+    // servers) so it is tried before the library's own loader
+    private static Class<?> loadClass(String className) throws ClassNotFoundException {
+        ClassLoader context = Thread.currentThread().getContextClassLoader();
+        if (context != null) {
+            try {
+                return Class.forName(className, false, context);
+            } catch (ClassNotFoundException e) {
+                // Fall back to the loader that loaded the library
+            }
+        }
+        return Class.forName(className, false, RandomizationPatch.class.getClassLoader());
+    }
+
+    /** One property write. The value is an ObjectPath when it refers to another object */
+    public static final class Write {
+        private final ObjectPath path;
+        private final String property;
+        private final Object value;
+
+        Write(ObjectPath path, String property, Object value) {
+            this.path = path;
+            this.property = property;
+            this.value = value;
+        }
+
+        public ObjectPath getPath() {
+            return path;
+        }
+
+        public String getProperty() {
+            return property;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+    }
+
+    /** Registered name followed by list indices (Integer) and map keys (String) */
+    public static final class ObjectPath {
+        private final String rootName;
+        private final List<Object> steps;
+
+        ObjectPath(String rootName, List<Object> steps) {
+            this.rootName = rootName;
+            this.steps = steps;
+        }
+
+        private ObjectPath child(Object step) {
+            List<Object> childSteps = new ArrayList<>(steps.size() + 1);
+            childSteps.addAll(steps);
+            childSteps.add(step);
+            return new ObjectPath(rootName, List.copyOf(childSteps));
+        }
+
+        public String getRootName() {
+            return rootName;
+        }
+
+        public List<Object> getSteps() {
+            return steps;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(rootName);
+            for (Object step : steps) {
+                text.append('[').append(step instanceof String ? "\"" + step + "\"" : step)
+                        .append(']');
+            }
+            return text.toString();
+        }
+    }
+}
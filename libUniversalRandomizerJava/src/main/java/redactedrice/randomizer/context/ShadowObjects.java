@@ -0,0 +1,145 @@
+package redactedrice.randomizer.context;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Copy on write view of host objects registered with JavaContext.registerShadow. Lua sees the
+ * originals but setter calls (setX(value)) and public field writes are kept here per object and
+ * property instead of reaching the originals. Getter calls (getX() / isX()) and field reads see
+ * those writes. Memory grows with the number of written objects and properties, not the size of
+ * the registered data.
+ *
+ * Only setters and fields are shadowed. Other methods run on the original object and wrappers
+ * passed back into Java methods unwrap to the original, so modules should use setters to change
+ * shadowed data.
+ */
+public final class ShadowObjects {
+    private final Object originals;
+    // original object (by identity) -> property name -> written value, in write order
+    private final Map<Object, Map<String, Object>> writes = new IdentityHashMap<>();
+
+    ShadowObjects(Object originals) {
+        this.originals = originals;
+    }
+
+    // Child with its own copy of the writes so far. The originals are shared
+    synchronized ShadowObjects fork() {
+        ShadowObjects child = new ShadowObjects(originals);
+        for (Map.Entry<Object, Map<String, Object>> entry : writes.entrySet()) {
+            child.writes.put(entry.getKey(), new LinkedHashMap<>(entry.getValue()));
+        }
+        return child;
+    }
+
+    public Object getOriginals() {
+        return originals;
+    }
+
+    synchronized void recordWrite(Object original, String property, Object value) {
+        writes.computeIfAbsent(original, ignored -> new LinkedHashMap<>()).put(property, value);
+    }
+
+    // Puts back the state before a journaled write: the previous value or no write at all
+    synchronized void restoreWrite(Object original, String property, boolean hadWrite,
+            Object previous) {
+        if (hadWrite) {
+            writes.computeIfAbsent(original, ignored -> new LinkedHashMap<>()).put(property,
+                    previous);
+            return;
+        }
+        Map<String, Object> objectWrites = writes.get(original);
+        if (objectWrites != null) {
+            objectWrites.remove(property);
+            if (objectWrites.isEmpty()) {
+                writes.remove(original);
+            }
+        }
+    }
+
+    synchronized boolean hasWrite(Object original, String property) {
+        Map<String, Object> objectWrites = writes.get(original);
+        return objectWrites != null && objectWrites.containsKey(property);
+    }
+
+    synchronized Object getWrite(Object original, String property) {
+        Map<String, Object> objectWrites = writes.get(original);
+        return objectWrites != null ? objectWrites.get(property) : null;
+    }
+
+    public synchronized boolean isModified(Object original) {
+        return writes.containsKey(original);
+    }
+
+    /** Written properties of the object in write order. Empty if it was not written */
+    public synchronized Map<String, Object> getWrites(Object original) {
+        Map<String, Object> objectWrites = writes.get(original);
+        return objectWrites != null ? Collections.unmodifiableMap(new LinkedHashMap<>(objectWrites))
+                : Map.of();
+    }
+
+    public synchronized List<Object> getModifiedObjects() {
+        return new ArrayList<>(writes.keySet());
+    }
+
+    public synchronized int getWriteCount() {
+        int count = 0;
+        for (Map<String, Object> objectWrites : writes.values()) {
+            count += objectWrites.size();
+        }
+        return count;
+    }
+
+    public synchronized void clear() {
+        writes.clear();
+    }
+
+    /**
+     * Returns the modified value of the object. Unmodified objects are returned as is, modified
+     * ones are copied with the copier and the writes applied to the copy
+     */
+    public <T> T materialize(T original, UnaryOperator<T> copier) {
+        if (copier == null) {
+            throw new IllegalArgumentException("Copier cannot be null");
+        }
+        Map<String, Object> objectWrites = getWrites(original);
+        if (objectWrites.isEmpty()) {
+            return original;
+        }
+        T copy = copier.apply(original);
+        applyWrites(copy, objectWrites);
+        return copy;
+    }
+
+    /** materialize for each element. Unmodified elements are shared with the original list */
+    public <T> List<T> materializeAll(List<T> originalList, UnaryOperator<T> copier) {
+        List<T> materialized = new ArrayList<>(originalList.size());
+        for (T original : originalList) {
+            materialized.add(materialize(original, copier));
+        }
+        return materialized;
+    }
+
+    /** Writes everything recorded so far into the original objects and clears the writes */
+    public void applyToOriginals() {
+        Map<Object, Map<String, Object>> pending;
+        synchronized (this) {
+            pending = new IdentityHashMap<>(writes);
+            writes.clear();
+        }
+        for (Map.Entry<Object, Map<String, Object>> entry : pending.entrySet()) {
+            applyWrites(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static void applyWrites(Object target, Map<String, Object> objectWrites) {
+        for (Map.Entry<String, Object> write : objectWrites.entrySet()) {
+            PropertyAccess.write(target, write.getKey(), write.getValue());
+        }
+    }
+}
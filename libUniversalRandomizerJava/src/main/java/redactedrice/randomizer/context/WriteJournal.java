@@ -0,0 +1,170 @@
+package redactedrice.randomizer.context;
+
+import redactedrice.randomizer.utils.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Ordered record of the setter calls and public field writes Lua makes through a context's object
+ * wrappers (see JavaContext.enableWriteJournal). Each entry keeps the value the property had
+ * before the write so the journal can be rolled back to any earlier position or savepoint by
+ * undoing entries newest first. Undo cost grows with the number of writes, not the data size.
+ *
+ * The previous value is read with the property's getter or field. Writes to a property with
+ * neither cannot be undone and are skipped with a warning on rollback. Side effects of setters on
+ * other state and changes made by non setter methods are not journaled.
+ */
+public final class WriteJournal {
+    private final List<Entry> entries = new ArrayList<>();
+    private final List<Savepoint> savepoints = new ArrayList<>();
+
+    WriteJournal() {}
+
+    synchronized void record(Entry entry) {
+        entries.add(entry);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized List<Entry> getEntries() {
+        return Collections.unmodifiableList(new ArrayList<>(entries));
+    }
+
+    /** Marks the current position so it can be rolled back to later */
+    public synchronized Savepoint savepoint(String label) {
+        Savepoint savepoint = new Savepoint(label, entries.size());
+        savepoints.add(savepoint);
+        return savepoint;
+    }
+
+    public synchronized List<Savepoint> getSavepoints() {
+        return Collections.unmodifiableList(new ArrayList<>(savepoints));
+    }
+
+    /**
+     * Undoes every write made after the savepoint. The savepoint stays usable, savepoints taken
+     * after it are dropped. Returns the number of writes undone
+     */
+    public synchronized int rollbackTo(Savepoint savepoint) {
+        int index = indexOf(savepoint);
+        if (index < 0) {
+            throw new IllegalArgumentException("Savepoint is not part of this journal");
+        }
+        return rollbackTo(savepoint.position);
+    }
+
+    /** Undoes the writes after the given position (see size). Returns the number undone */
+    public synchronized int rollbackTo(int position) {
+        if (position < 0 || position > entries.size()) {
+            throw new IndexOutOfBoundsException("Journal position " + position + " out of range");
+        }
+        int undone = entries.size() - position;
+        int skipped = 0;
+        for (int i = entries.size() - 1; i >= position; i--) {
+            if (!entries.remove(i).undo()) {
+                skipped++;
+            }
+        }
+        savepoints.removeIf(savepoint -> savepoint.position > position);
+        if (skipped > 0) {
+            Logger.warn("Could not roll back " + skipped
+                    + " writes to properties without a getter or public field");
+        }
+        return undone - skipped;
+    }
+
+    /** Keeps the current state of the objects and forgets all entries and savepoints */
+    public synchronized void clear() {
+        entries.clear();
+        savepoints.clear();
+    }
+
+    private int indexOf(Savepoint savepoint) {
+        for (int i = 0; i < savepoints.size(); i++) {
+            if (savepoints.get(i) == savepoint) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** One write to a property of a Java object, or of a shadow view of one */
+    public static final class Entry {
+        private final Object target;
+        private final String property;
+        private final boolean hasPreviousValue;
+        private final Object previousValue;
+        private final Object value;
+        // Set when the write went to a shadow instead of the target
+        private final ShadowObjects shadow;
+
+        Entry(Object target, String property, boolean hasPreviousValue, Object previousValue,
+                Object value, ShadowObjects shadow) {
+            this.target = target;
+            this.property = property;
+            this.hasPreviousValue = hasPreviousValue;
+            this.previousValue = previousValue;
+            this.value = value;
+            this.shadow = shadow;
+        }
+
+        // Returns false if the previous value is unknown
+        private boolean undo() {
+            if (shadow != null) {
+                shadow.restoreWrite(target, property, hasPreviousValue, previousValue);
+                return true;
+            }
+            if (!hasPreviousValue) {
+                return false;
+            }
+            PropertyAccess.write(target, property, previousValue);
+            return true;
+        }
+
+        public Object getTarget() {
+            return target;
+        }
+
+        public String getProperty() {
+            return property;
+        }
+
+        public Object getPreviousValue() {
+            return previousValue;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        public boolean isShadowed() {
+            return shadow != null;
+        }
+
+        public boolean isReversible() {
+            return shadow != null || hasPreviousValue;
+        }
+    }
+
+    public static final class Savepoint {
+        private final String label;
+        private final int position;
+
+        private Savepoint(String label, int position) {
+            this.label = label;
+            this.position = position;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public int getPosition() {
+            return position;
+        }
+    }
+}
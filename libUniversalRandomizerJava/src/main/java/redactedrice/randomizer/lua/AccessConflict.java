@@ -0,0 +1,67 @@
+package redactedrice.randomizer.lua;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Two modules of a plan that may not run concurrently because one writes a context key the other
+ * reads or writes (see Module.getReads / getWrites). Modules without declared access conflict with
+ * every other module since they may touch any key, in which case the keys are empty.
+ */
+public final class AccessConflict {
+    private final Module first;
+    private final Module second;
+    private final Set<String> keys;
+
+    private AccessConflict(Module first, Module second, Set<String> keys) {
+        this.first = first;
+        this.second = second;
+        this.keys = Collections.unmodifiableSet(keys);
+    }
+
+    /** Conflict between the two modules or null if they can run concurrently */
+    public static AccessConflict between(Module first, Module second) {
+        if (first == null || second == null) {
+            throw new IllegalArgumentException("Modules cannot be null");
+        }
+        if (!first.declaresContextAccess() || !second.declaresContextAccess()) {
+            return new AccessConflict(first, second, new LinkedHashSet<>());
+        }
+        Set<String> keys = new LinkedHashSet<>();
+        addShared(first.getWrites(), second.getAccessedKeys(), keys);
+        addShared(second.getWrites(), first.getAccessedKeys(), keys);
+        return keys.isEmpty() ? null : new AccessConflict(first, second, keys);
+    }
+
+    private static void addShared(Set<String> writes, Set<String> accessed, Set<String> shared) {
+        for (String key : writes) {
+            if (accessed.contains(key)) {
+                shared.add(key);
+            }
+        }
+    }
+
+    public Module getFirst() {
+        return first;
+    }
+
+    public Module getSecond() {
+        return second;
+    }
+
+    /** Conflicting keys. Empty when one of the modules has undeclared access */
+    public Set<String> getKeys() {
+        return keys;
+    }
+
+    public boolean isUndeclared() {
+        return keys.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "'" + first.getId() + "' and '" + second.getId() + "' conflict on "
+                + (isUndeclared() ? "undeclared context access" : keys);
+    }
+}
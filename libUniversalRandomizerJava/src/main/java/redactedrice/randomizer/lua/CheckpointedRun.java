@@ -0,0 +1,190 @@
+package redactedrice.randomizer.lua;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import redactedrice.randomizer.context.JavaContext;
+import redactedrice.randomizer.context.WriteJournal;
+
+/**
+ * Randomize batch run one step of ExecutionPlan.getSteps() at a time, keeping the context's write
+ * journal position before each step as a checkpoint. reexecuteFrom rolls the context back to a
+ * step's checkpoint and runs only the steps from there with the same base seed, so editing a late
+ * request does not rerun the steps before it.
+ *
+ * Checkpoints only cover Java writes journaled through the object wrappers (see WriteJournal).
+ * Dynamic Lua fields on wrappers and Lua globals set by modules are not rolled back.
+ */
+public final class CheckpointedRun {
+    private final ModuleExecutor executor;
+    private final ModuleRegistry moduleRegistry;
+    private final JavaContext context;
+    private final WriteJournal journal;
+    private final int baseSeed;
+
+    private ExecutionPlan plan;
+    private List<Step> steps;
+    // Journal position before each executed step
+    private final List<Integer> checkpoints = new ArrayList<>();
+    private final List<ExecutionResult> stepResults = new ArrayList<>();
+
+    CheckpointedRun(ModuleExecutor executor, ModuleRegistry moduleRegistry, ExecutionPlan plan,
+            JavaContext context, int baseSeed) {
+        this.executor = executor;
+        this.moduleRegistry = moduleRegistry;
+        this.context = context;
+        this.journal = context.enableWriteJournal();
+        this.baseSeed = baseSeed;
+        this.plan = plan;
+        this.steps = buildSteps(moduleRegistry, plan);
+    }
+
+    // Mirrors ExecutionPlan.getSteps with what each step needs to run
+    private static List<Step> buildSteps(ModuleRegistry moduleRegistry, ExecutionPlan plan) {
+        List<Step> steps = new ArrayList<>();
+        for (Module script : plan.getPreRandomizeScripts()) {
+            steps.add(Step.script(script, ModuleRegistry.SCRIPT_TIMING_PRE,
+                    ModuleRegistry.SCRIPT_WHEN_RANDOMIZE, null));
+        }
+        for (ExecutionRequest request : plan.getModuleRequests()) {
+            Module module = ExecutionPlan.resolveModule(moduleRegistry, request);
+            if (module == null) {
+                throw new IllegalArgumentException("Module not found: " + request.getModuleId());
+            }
+            for (Module script : plan.getPreModuleScripts()) {
+                steps.add(Step.script(script, ModuleRegistry.SCRIPT_TIMING_PRE,
+                        ModuleRegistry.SCRIPT_WHEN_MODULE, null));
+            }
+            steps.add(Step.module(module, request));
+            for (Module script : plan.getPostModuleScripts()) {
+                steps.add(Step.script(script, ModuleRegistry.SCRIPT_TIMING_POST,
+                        ModuleRegistry.SCRIPT_WHEN_MODULE, module.getName()));
+            }
+        }
+        for (Module script : plan.getPostRandomizeScripts()) {
+            steps.add(Step.script(script, ModuleRegistry.SCRIPT_TIMING_POST,
+                    ModuleRegistry.SCRIPT_WHEN_RANDOMIZE, null));
+        }
+        return steps;
+    }
+
+    // Runs the steps from the given index to the end
+    void runFrom(int stepIndex) {
+        for (int i = stepIndex; i < steps.size(); i++) {
+            checkpoints.add(journal.size());
+            Step step = steps.get(i);
+            if (step.request != null) {
+                stepResults.add(executor.executeModule(step.request, step.module, context,
+                        baseSeed, null));
+            } else {
+                stepResults.add(executor.executeLuaScript(step.module, context, step.timing,
+                        step.when, step.executedModuleName));
+            }
+        }
+    }
+
+    /**
+     * Rolls the context back to the checkpoint before stepIndex and runs the plan for the new
+     * requests from that step. The steps before stepIndex must be the same in both plans. Returns
+     * the module results of the whole run like executeModules, or an empty list if the new plan
+     * is not valid (see IssueTracker), in which case nothing is rolled back.
+     */
+    public List<ExecutionResult> reexecuteFrom(int stepIndex, List<ExecutionRequest> newRequests) {
+        if (stepIndex < 0 || stepIndex > checkpoints.size()) {
+            throw new IndexOutOfBoundsException("Step index " + stepIndex + " out of range");
+        }
+        ExecutionPlan newPlan = ExecutionPlan.fromParts(moduleRegistry,
+                plan.getPreRandomizeScripts(), newRequests != null ? newRequests : List.of(),
+                plan.getPreModuleScripts(), plan.getPostModuleScripts(),
+                plan.getPostRandomizeScripts());
+        List<Step> newSteps = buildSteps(moduleRegistry, newPlan);
+        if (stepIndex > newSteps.size()) {
+            throw new IndexOutOfBoundsException("Step index " + stepIndex + " out of range");
+        }
+        for (int i = 0; i < stepIndex; i++) {
+            if (!steps.get(i).sameAs(newSteps.get(i))) {
+                throw new IllegalArgumentException("Step " + i + " (" + steps.get(i).module.getId()
+                        + ") differs in the new requests. Reexecute from it or earlier");
+            }
+        }
+        if (!newPlan.validate()) {
+            return List.of();
+        }
+
+        if (stepIndex < checkpoints.size()) {
+            journal.rollbackTo(checkpoints.get(stepIndex));
+        }
+        checkpoints.subList(stepIndex, checkpoints.size()).clear();
+        stepResults.subList(stepIndex, stepResults.size()).clear();
+        plan = newPlan;
+        steps = newSteps;
+        runFrom(stepIndex);
+        return getResults();
+    }
+
+    public ExecutionPlan getPlan() {
+        return plan;
+    }
+
+    /** Module results in request order, like executeModules returns */
+    public List<ExecutionResult> getResults() {
+        List<ExecutionResult> results = new ArrayList<>();
+        for (int i = 0; i < stepResults.size(); i++) {
+            if (steps.get(i).request != null) {
+                results.add(stepResults.get(i));
+            }
+        }
+        return results;
+    }
+
+    /** One result per executed step including scripts */
+    public List<ExecutionResult> getStepResults() {
+        return Collections.unmodifiableList(new ArrayList<>(stepResults));
+    }
+
+    /** Journal position before the step ran */
+    public int getCheckpoint(int stepIndex) {
+        return checkpoints.get(stepIndex);
+    }
+
+    public int getStepCount() {
+        return steps.size();
+    }
+
+    public JavaContext getContext() {
+        return context;
+    }
+
+    private static final class Step {
+        final Module module;
+        // Null for scripts
+        final ExecutionRequest request;
+        final String timing;
+        final String when;
+        final String executedModuleName;
+
+        private Step(Module module, ExecutionRequest request, String timing, String when,
+                String executedModuleName) {
+            this.module = module;
+            this.request = request;
+            this.timing = timing;
+            this.when = when;
+            this.executedModuleName = executedModuleName;
+        }
+
+        static Step module(Module module, ExecutionRequest request) {
+            return new Step(module, request, null, null, null);
+        }
+
+        static Step script(Module script, String timing, String when,
+                String executedModuleName) {
+            return new Step(script, null, timing, when, executedModuleName);
+        }
+
+        boolean sameAs(Step other) {
+            return module == other.module
+                    && (request == null ? other.request == null : request.equals(other.request));
+        }
+    }
+}
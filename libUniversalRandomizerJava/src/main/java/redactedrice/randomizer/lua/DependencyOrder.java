@@ -0,0 +1,273 @@
+package redactedrice.randomizer.lua;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import redactedrice.randomizer.lua.dynamicVar.DynamicVar;
+
+/**
+ * Stable topological order of module requests. A request runs after the requests whose modules
+ * provide a var it needs and after the requests for modules it requires. Ties keep the user's
+ * order so an already valid list is returned unchanged.
+ *
+ * Needs already met by pre randomize or pre module scripts add no ordering. When several requests
+ * provide a need, only those that do not need the same var themselves are used as predecessors
+ * (if any) so a module that refines a var does not form a cycle with another copy of itself.
+ *
+ * Requests are also grouped into levels. Every request in a level only depends on requests in
+ * earlier levels and does not conflict with any other request in its level, so a host may run a
+ * level concurrently. Two requests conflict if they provide the same var (e.g. a module and one
+ * that refines its var) or if their declared context access conflicts (see AccessConflict), which
+ * includes any module that does not declare its access. Of two conflicting requests the one later
+ * in the order goes in a later level. Requests in a cycle are left in user order after the sorted
+ * ones, are not in any level and are reported as issues.
+ */
+public final class DependencyOrder {
+    public static final String CATEGORY = "module dependency order";
+
+    private final List<ExecutionRequest> orderedRequests;
+    private final List<List<ExecutionRequest>> levels;
+    private final List<Issue> issues;
+
+    private DependencyOrder(List<ExecutionRequest> orderedRequests,
+            List<List<ExecutionRequest>> levels, List<Issue> issues) {
+        this.orderedRequests = orderedRequests;
+        this.levels = levels;
+        this.issues = issues;
+    }
+
+    public static DependencyOrder sort(ModuleRegistry moduleRegistry,
+            List<ExecutionRequest> requests) {
+        if (requests == null || requests.isEmpty()) {
+            return new DependencyOrder(List.of(), List.of(), List.of());
+        }
+        int count = requests.size();
+        List<Module> modules = new ArrayList<>(count);
+        for (ExecutionRequest request : requests) {
+            modules.add(ExecutionPlan.resolveModule(moduleRegistry, request));
+        }
+        List<List<Integer>> successors = buildEdges(moduleRegistry, modules);
+
+        // Kahn's algorithm taking the lowest user index that is ready
+        int[] inDegree = new int[count];
+        for (List<Integer> next : successors) {
+            for (int target : next) {
+                inDegree[target]++;
+            }
+        }
+        int[] level = new int[count];
+        PriorityQueue<Integer> ready = new PriorityQueue<>();
+        for (int i = 0; i < count; i++) {
+            if (inDegree[i] == 0) {
+                ready.add(i);
+            }
+        }
+
+        List<ExecutionRequest> ordered = new ArrayList<>(count);
+        List<Integer> orderedIndexes = new ArrayList<>(count);
+        List<List<ExecutionRequest>> levels = new ArrayList<>();
+        boolean[] sorted = new boolean[count];
+        while (!ready.isEmpty()) {
+            int current = ready.poll();
+            sorted[current] = true;
+            for (int earlier : orderedIndexes) {
+                if (level[earlier] >= level[current]
+                        && conflicts(modules.get(earlier), modules.get(current))) {
+                    level[current] = level[earlier] + 1;
+                }
+            }
+            orderedIndexes.add(current);
+            ordered.add(requests.get(current));
+            while (levels.size() <= level[current]) {
+                levels.add(new ArrayList<>());
+            }
+            levels.get(level[current]).add(requests.get(current));
+            for (int target : successors.get(current)) {
+                level[target] = Math.max(level[target], level[current] + 1);
+                if (--inDegree[target] == 0) {
+                    ready.add(target);
+                }
+            }
+        }
+
+        List<Issue> issues = new ArrayList<>();
+        if (ordered.size() < count) {
+            reportCycles(requests, modules, successors, sorted, issues);
+            for (int i = 0; i < count; i++) {
+                if (!sorted[i]) {
+                    ordered.add(requests.get(i));
+                }
+            }
+        }
+
+        List<List<ExecutionRequest>> levelCopies = new ArrayList<>(levels.size());
+        for (List<ExecutionRequest> group : levels) {
+            levelCopies.add(List.copyOf(group));
+        }
+        return new DependencyOrder(List.copyOf(ordered), Collections.unmodifiableList(levelCopies),
+                List.copyOf(issues));
+    }
+
+    private static List<List<Integer>> buildEdges(ModuleRegistry moduleRegistry,
+            List<Module> modules) {
+        int count = modules.size();
+        List<DynamicVar> providedUpFront = new ArrayList<>();
+        if (moduleRegistry != null) {
+            addProvides(moduleRegistry.getScripts(ModuleRegistry.SCRIPT_TIMING_PRE,
+                    ModuleRegistry.SCRIPT_WHEN_RANDOMIZE), providedUpFront);
+            addProvides(moduleRegistry.getScripts(ModuleRegistry.SCRIPT_TIMING_PRE,
+                    ModuleRegistry.SCRIPT_WHEN_MODULE), providedUpFront);
+        }
+
+        Map<DynamicVar, List<Integer>> providersByVar = new HashMap<>();
+        Map<String, List<Integer>> requestsByModuleId = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            Module module = modules.get(i);
+            if (module == null) {
+                continue;
+            }
+            requestsByModuleId.computeIfAbsent(module.getId(), ignored -> new ArrayList<>())
+                    .add(i);
+            for (DynamicVar provide : module.getProvides()) {
+                providersByVar.computeIfAbsent(provide, ignored -> new ArrayList<>()).add(i);
+            }
+        }
+
+        List<List<Integer>> successors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            successors.add(new ArrayList<>());
+        }
+        for (int consumer = 0; consumer < count; consumer++) {
+            Module module = modules.get(consumer);
+            if (module == null) {
+                continue;
+            }
+            // Set so a provider of several needs only adds one edge
+            Set<Integer> predecessors = new LinkedHashSet<>();
+            for (DynamicVar need : module.getNeeds()) {
+                if (!providedUpFront.contains(need)) {
+                    predecessors.addAll(selectProviders(need, consumer,
+                            providersByVar.getOrDefault(need, List.of()), modules));
+                }
+            }
+            for (String requiredId : module.getRequires().keySet()) {
+                predecessors.addAll(requestsByModuleId.getOrDefault(requiredId, List.of()));
+            }
+            predecessors.remove(consumer);
+            for (int provider : predecessors) {
+                successors.get(provider).add(consumer);
+            }
+        }
+        return successors;
+    }
+
+    private static List<Integer> selectProviders(DynamicVar need, int consumer,
+            List<Integer> candidates, List<Module> modules) {
+        List<Integer> independent = new ArrayList<>();
+        List<Integer> all = new ArrayList<>();
+        for (int candidate : candidates) {
+            if (candidate == consumer) {
+                continue;
+            }
+            all.add(candidate);
+            if (!modules.get(candidate).getNeeds().contains(need)) {
+                independent.add(candidate);
+            }
+        }
+        return independent.isEmpty() ? all : independent;
+    }
+
+    // Unresolved modules may do anything so they conflict with every request
+    private static boolean conflicts(Module first, Module second) {
+        if (first == null || second == null) {
+            return true;
+        }
+        for (DynamicVar provide : first.getProvides()) {
+            if (second.getProvides().contains(provide)) {
+                return true;
+            }
+        }
+        return AccessConflict.between(first, second) != null;
+    }
+
+    private static void addProvides(List<Module> scripts, List<DynamicVar> provided) {
+        for (Module script : scripts) {
+            provided.addAll(script.getProvides());
+        }
+    }
+
+    // Every unsorted request has an unsorted predecessor so walking predecessors always ends in a
+    // cycle. Walks stop at requests seen by earlier walks so each cycle is reported once
+    private static void reportCycles(List<ExecutionRequest> requests, List<Module> modules,
+            List<List<Integer>> successors, boolean[] sorted, List<Issue> issues) {
+        int count = requests.size();
+        List<List<Integer>> predecessors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            predecessors.add(new ArrayList<>());
+        }
+        for (int from = 0; from < count; from++) {
+            for (int to : successors.get(from)) {
+                if (!sorted[from] && !sorted[to]) {
+                    predecessors.get(to).add(from);
+                }
+            }
+        }
+
+        int[] walkId = new int[count];
+        for (int start = 0; start < count; start++) {
+            if (sorted[start] || walkId[start] != 0) {
+                continue;
+            }
+            List<Integer> path = new ArrayList<>();
+            int current = start;
+            while (walkId[current] == 0) {
+                walkId[current] = start + 1;
+                path.add(current);
+                current = predecessors.get(current).get(0);
+            }
+            if (walkId[current] != start + 1) {
+                continue;
+            }
+
+            // path holds the walk backwards. The cycle is the part from current onward
+            List<Integer> cycle = new ArrayList<>(path.subList(path.indexOf(current), path.size()));
+            Collections.reverse(cycle);
+            issues.add(cycleIssue(requests, modules, cycle));
+        }
+    }
+
+    private static Issue cycleIssue(List<ExecutionRequest> requests, List<Module> modules,
+            List<Integer> cycle) {
+        StringBuilder message = new StringBuilder("Dependency cycle between requests: ");
+        for (int index : cycle) {
+            message.append(requests.get(index).getModuleId()).append(" (request ")
+                    .append(index + 1).append(") -> ");
+        }
+        int first = cycle.get(0);
+        message.append(requests.get(first).getModuleId());
+        return new Issue(modules.get(first), requests.get(first).getModuleId(), CATEGORY, true,
+                message.toString());
+    }
+
+    public List<ExecutionRequest> getOrderedRequests() {
+        return orderedRequests;
+    }
+
+    public List<List<ExecutionRequest>> getLevels() {
+        return levels;
+    }
+
+    public List<Issue> getIssues() {
+        return issues;
+    }
+
+    public boolean hasCycles() {
+        return !issues.isEmpty();
+    }
+}
@@ -87,6 +87,10 @@ public class ExecutionErrorFormatter {
     public static void logExecutionInfo(String moduleName, Map<String, Object> arguments,
             String scriptTiming, String scriptWhen, Module module, int baseSeed, int absoluteSeed,
             ExecutionRequest request) {
+        // Skip formatting the arguments when the line would be filtered out anyway
+        if (!Logger.isInfoEnabled()) {
+            return;
+        }
         // Build script type information
         StringBuilder scriptInfo = new StringBuilder();
         if (scriptTiming != null && scriptWhen != null) {
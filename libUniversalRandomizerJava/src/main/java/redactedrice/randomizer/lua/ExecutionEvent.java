@@ -0,0 +1,77 @@
+package redactedrice.randomizer.lua;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Progress of one step (module request) of a multi module run. A STARTED event is followed by
+ * either FINISHED or FAILED for the same step, which carry the result and the time the step took
+ * including its pre/post module scripts.
+ */
+public final class ExecutionEvent {
+    public enum Type {
+        STARTED, FINISHED, FAILED
+    }
+
+    private final Type type;
+    private final int step;
+    private final ExecutionRequest request;
+    private final ExecutionResult result;
+    private final long elapsedNanos;
+
+    private ExecutionEvent(Type type, int step, ExecutionRequest request, ExecutionResult result,
+            long elapsedNanos) {
+        this.type = type;
+        this.step = step;
+        this.request = request;
+        this.result = result;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public static ExecutionEvent started(int step, ExecutionRequest request) {
+        return new ExecutionEvent(Type.STARTED, step, request, null, 0);
+    }
+
+    public static ExecutionEvent completed(int step, ExecutionResult result, long elapsedNanos) {
+        if (result == null) {
+            throw new IllegalArgumentException("Result cannot be null");
+        }
+        return new ExecutionEvent(result.isSuccess() ? Type.FINISHED : Type.FAILED, step,
+                result.getRequest(), result, elapsedNanos);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    // Zero based index of the request in the run
+    public int getStep() {
+        return step;
+    }
+
+    public ExecutionRequest getRequest() {
+        return request;
+    }
+
+    public String getModuleId() {
+        return request != null ? request.getModuleId() : null;
+    }
+
+    // Null for STARTED events
+    public ExecutionResult getResult() {
+        return result;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutionEvent{" + type + ", step=" + step + ", module=" + getModuleId()
+                + (type == Type.STARTED ? "" : ", elapsedMs=" + getElapsedMillis()) + "}";
+    }
+}
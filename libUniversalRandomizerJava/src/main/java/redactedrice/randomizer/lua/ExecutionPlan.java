@@ -12,8 +12,8 @@ import redactedrice.randomizer.utils.IssueTracker;
  * list. Used to validate provides/needs execution order (metadata only, not Lua values) and to
  * drive batch execution.
  *
- * Hosts that add actions incrementally can rebuild with forRandomizeBatch as the list grows and
- * call validate before running.
+ * Hosts that add actions incrementally should edit an ExecutionPlanBuilder, which revalidates only
+ * the affected steps, and build the plan from it before running.
  */
 public final class ExecutionPlan {
     private final List<Module> preRandomizeScripts;
@@ -22,10 +22,21 @@ public final class ExecutionPlan {
     private final List<Module> postModuleScripts;
     private final List<Module> postRandomizeScripts;
     private final List<Module> steps;
+    // Set when the requests were reordered by dependencies, null otherwise
+    private final DependencyOrder dependencyOrder;
 
     private ExecutionPlan(ModuleRegistry moduleRegistry, List<Module> preRandomizeScripts,
             List<ExecutionRequest> moduleRequests, List<Module> preModuleScripts,
             List<Module> postModuleScripts, List<Module> postRandomizeScripts) {
+        this(moduleRegistry, preRandomizeScripts, moduleRequests, preModuleScripts,
+                postModuleScripts, postRandomizeScripts, null);
+    }
+
+    private ExecutionPlan(ModuleRegistry moduleRegistry, List<Module> preRandomizeScripts,
+            List<ExecutionRequest> moduleRequests, List<Module> preModuleScripts,
+            List<Module> postModuleScripts, List<Module> postRandomizeScripts,
+            DependencyOrder dependencyOrder) {
+        this.dependencyOrder = dependencyOrder;
         this.preRandomizeScripts = List.copyOf(preRandomizeScripts);
         this.moduleRequests = List.copyOf(moduleRequests);
         this.preModuleScripts = List.copyOf(preModuleScripts);
@@ -41,6 +52,7 @@ public final class ExecutionPlan {
         this.postModuleScripts = List.of();
         this.postRandomizeScripts = List.of();
         this.steps = List.copyOf(steps);
+        this.dependencyOrder = null;
     }
 
     public static ExecutionPlan forRandomizeBatch(ModuleRegistry moduleRegistry,
@@ -48,6 +60,27 @@ public final class ExecutionPlan {
         return buildRandomizeBatch(moduleRegistry, requests);
     }
 
+    /**
+     * Randomize batch with the requests reordered so providers and required modules run first. See
+     * DependencyOrder for the ordering rules. Dependency cycles are reported by validate along
+     * with any remaining dynamic var issues.
+     */
+    public static ExecutionPlan forDependencyOrderedBatch(ModuleRegistry moduleRegistry,
+            List<ExecutionRequest> requests) {
+        DependencyOrder order = DependencyOrder.sort(moduleRegistry, requests);
+        return new ExecutionPlan(moduleRegistry,
+                moduleRegistry.getScripts(ModuleRegistry.SCRIPT_TIMING_PRE,
+                        ModuleRegistry.SCRIPT_WHEN_RANDOMIZE),
+                order.getOrderedRequests(),
+                moduleRegistry.getScripts(ModuleRegistry.SCRIPT_TIMING_PRE,
+                        ModuleRegistry.SCRIPT_WHEN_MODULE),
+                moduleRegistry.getScripts(ModuleRegistry.SCRIPT_TIMING_POST,
+                        ModuleRegistry.SCRIPT_WHEN_MODULE),
+                moduleRegistry.getScripts(ModuleRegistry.SCRIPT_TIMING_POST,
+                        ModuleRegistry.SCRIPT_WHEN_RANDOMIZE),
+                order);
+    }
+
     public static ExecutionPlan forSingleModule(ModuleRegistry moduleRegistry,
             ExecutionRequest request) {
         return buildModuleScope(moduleRegistry, request != null ? List.of(request) : List.of());
@@ -58,6 +91,14 @@ public final class ExecutionPlan {
         return buildModuleScope(moduleRegistry, requests);
     }
 
+    static ExecutionPlan fromParts(ModuleRegistry moduleRegistry,
+            List<Module> preRandomizeScripts, List<ExecutionRequest> moduleRequests,
+            List<Module> preModuleScripts, List<Module> postModuleScripts,
+            List<Module> postRandomizeScripts) {
+        return new ExecutionPlan(moduleRegistry, preRandomizeScripts, moduleRequests,
+                preModuleScripts, postModuleScripts, postRandomizeScripts);
+    }
+
     public static ExecutionPlan fromSteps(List<Module> steps) {
         return new ExecutionPlan(steps);
     }
@@ -93,7 +134,15 @@ public final class ExecutionPlan {
     }
 
     public boolean validate() {
-        List<Issue> issues = DynamicVarValidator.validateExecutionPlan(this, null);
+        List<Issue> issues = new ArrayList<>();
+        if (dependencyOrder != null) {
+            issues.addAll(dependencyOrder.getIssues());
+        }
+        return reportIssues(DynamicVarValidator.validateExecutionPlan(this, issues));
+    }
+
+    // Reports issues to IssueTracker. Returns false if any of them is an error
+    static boolean reportIssues(List<Issue> issues) {
         boolean valid = true;
         for (Issue issue : issues) {
             if (issue.isError()) {
@@ -129,7 +178,7 @@ public final class ExecutionPlan {
                 postModuleScripts, postRandomizeScripts);
     }
 
-    private static Module resolveModule(ModuleRegistry moduleRegistry, ExecutionRequest request) {
+    static Module resolveModule(ModuleRegistry moduleRegistry, ExecutionRequest request) {
         if (request == null || moduleRegistry == null) {
             return null;
         }
@@ -160,7 +209,36 @@ public final class ExecutionPlan {
         return postRandomizeScripts;
     }
 
+    // Null unless built with forDependencyOrderedBatch
+    public DependencyOrder getDependencyOrder() {
+        return dependencyOrder;
+    }
+
     public List<Module> getSteps() {
         return Collections.unmodifiableList(steps);
     }
+
+    /**
+     * Pairs of module steps that read or write the same context keys (see AccessConflict) in plan
+     * order. Modules missing from this list can safely run concurrently. Scripts are not
+     * included since they run around every module
+     */
+    public List<AccessConflict> findAccessConflicts() {
+        List<Module> modules = new ArrayList<>();
+        for (Module step : steps) {
+            if (!step.isScript()) {
+                modules.add(step);
+            }
+        }
+        List<AccessConflict> conflicts = new ArrayList<>();
+        for (int i = 0; i < modules.size(); i++) {
+            for (int j = i + 1; j < modules.size(); j++) {
+                AccessConflict conflict = AccessConflict.between(modules.get(i), modules.get(j));
+                if (conflict != null) {
+                    conflicts.add(conflict);
+                }
+            }
+        }
+        return conflicts;
+    }
 }
@@ -0,0 +1,270 @@
+package redactedrice.randomizer.lua;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import redactedrice.randomizer.lua.dynamicVar.DynamicVar;
+import redactedrice.randomizer.lua.dynamicVar.DynamicVarValidator;
+
+/**
+ * Mutable randomize batch for hosts that edit the request list interactively. Keeps the provided
+ * dynamic vars in effect before each request so an edit only revalidates from the edited request
+ * onward, and stops early once the provided vars match what they were before the edit. Reports
+ * the same issues as ExecutionPlan.validate on the equivalent plan.
+ *
+ * Scripts are bound from the registry when the builder is created.
+ */
+public final class ExecutionPlanBuilder {
+    private final ModuleRegistry moduleRegistry;
+    private final List<Module> preRandomizeScripts;
+    private final List<Module> preModuleScripts;
+    private final List<Module> postModuleScripts;
+    private final List<Module> postRandomizeScripts;
+
+    private final List<ExecutionRequest> requests = new ArrayList<>();
+    private final List<Module> modules = new ArrayList<>();
+    // Provided vars before each request's steps run. The last entry is the state after all
+    // requests. Entries are never mutated so unchanged ones can be compared by identity
+    private final List<Map<String, DynamicVar>> providedBefore = new ArrayList<>();
+    private final List<List<UnmetNeed>> unmetByRequest = new ArrayList<>();
+    private final List<UnmetNeed> unmetPreRandomize = new ArrayList<>();
+    private List<UnmetNeed> unmetPostRandomize = new ArrayList<>();
+    private int lastRevalidatedCount;
+
+    public ExecutionPlanBuilder(ModuleRegistry moduleRegistry) {
+        if (moduleRegistry == null) {
+            throw new IllegalArgumentException("Module registry cannot be null");
+        }
+        this.moduleRegistry = moduleRegistry;
+        this.preRandomizeScripts = List.copyOf(moduleRegistry.getScripts(
+                ModuleRegistry.SCRIPT_TIMING_PRE, ModuleRegistry.SCRIPT_WHEN_RANDOMIZE));
+        this.preModuleScripts = List.copyOf(moduleRegistry
+                .getScripts(ModuleRegistry.SCRIPT_TIMING_PRE, ModuleRegistry.SCRIPT_WHEN_MODULE));
+        this.postModuleScripts = List.copyOf(moduleRegistry
+                .getScripts(ModuleRegistry.SCRIPT_TIMING_POST, ModuleRegistry.SCRIPT_WHEN_MODULE));
+        this.postRandomizeScripts = List.copyOf(moduleRegistry.getScripts(
+                ModuleRegistry.SCRIPT_TIMING_POST, ModuleRegistry.SCRIPT_WHEN_RANDOMIZE));
+
+        Map<String, DynamicVar> provided = new HashMap<>();
+        int offset = 0;
+        for (Module script : preRandomizeScripts) {
+            applyStep(script, offset++, provided, unmetPreRandomize);
+        }
+        providedBefore.add(Map.copyOf(provided));
+        revalidatePostRandomize(provided);
+    }
+
+    public ExecutionPlanBuilder append(ExecutionRequest request) {
+        return insert(requests.size(), request);
+    }
+
+    public ExecutionPlanBuilder insert(int index, ExecutionRequest request) {
+        if (request == null) {
+            throw new IllegalArgumentException("Request cannot be null");
+        }
+        if (index < 0 || index > requests.size()) {
+            throw new IndexOutOfBoundsException("Insert index " + index + " out of range");
+        }
+        Map<String, DynamicVar> start = providedBefore.get(index);
+        requests.add(index, request);
+        modules.add(index, ExecutionPlan.resolveModule(moduleRegistry, request));
+        unmetByRequest.add(index, List.of());
+        providedBefore.add(index, start);
+        revalidate(index, index, start);
+        return this;
+    }
+
+    public ExecutionRequest remove(int index) {
+        checkIndex(index);
+        Map<String, DynamicVar> start = providedBefore.get(index);
+        ExecutionRequest removed = requests.remove(index);
+        modules.remove(index);
+        unmetByRequest.remove(index);
+        providedBefore.remove(index);
+        revalidate(index, index - 1, start);
+        return removed;
+    }
+
+    public ExecutionPlanBuilder move(int fromIndex, int toIndex) {
+        checkIndex(fromIndex);
+        checkIndex(toIndex);
+        if (fromIndex == toIndex) {
+            lastRevalidatedCount = 0;
+            return this;
+        }
+        int low = Math.min(fromIndex, toIndex);
+        Map<String, DynamicVar> start = providedBefore.get(low);
+        requests.add(toIndex, requests.remove(fromIndex));
+        modules.add(toIndex, modules.remove(fromIndex));
+        unmetByRequest.add(toIndex, unmetByRequest.remove(fromIndex));
+        providedBefore.add(toIndex, providedBefore.remove(fromIndex));
+        revalidate(low, Math.max(fromIndex, toIndex), start);
+        return this;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= requests.size()) {
+            throw new IndexOutOfBoundsException("Request index " + index + " out of range");
+        }
+    }
+
+    // Reruns requests from start with the given provided vars. Requests after lastEdited are
+    // unchanged so once the vars flowing into one match its previous state the rest still holds
+    private void revalidate(int start, int lastEdited, Map<String, DynamicVar> startState) {
+        Map<String, DynamicVar> provided = new HashMap<>(startState);
+        int count = requests.size();
+        for (int i = start; i < count; i++) {
+            if (i > lastEdited && sameState(providedBefore.get(i), provided)) {
+                lastRevalidatedCount = i - start;
+                return;
+            }
+            providedBefore.set(i, i == start ? startState : Map.copyOf(provided));
+
+            List<UnmetNeed> unmet = new ArrayList<>();
+            int offset = 0;
+            for (Module script : preModuleScripts) {
+                applyStep(script, offset++, provided, unmet);
+            }
+            Module module = modules.get(i);
+            if (module != null) {
+                applyStep(module, offset++, provided, unmet);
+            }
+            for (Module script : postModuleScripts) {
+                applyStep(script, offset++, provided, unmet);
+            }
+            unmetByRequest.set(i, unmet.isEmpty() ? List.of() : unmet);
+        }
+        lastRevalidatedCount = count - start;
+        providedBefore.set(count, count == start ? startState : Map.copyOf(provided));
+        revalidatePostRandomize(provided);
+    }
+
+    private void revalidatePostRandomize(Map<String, DynamicVar> provided) {
+        List<UnmetNeed> unmet = new ArrayList<>();
+        int offset = 0;
+        for (Module script : postRandomizeScripts) {
+            applyStep(script, offset++, provided, unmet);
+        }
+        unmetPostRandomize = unmet;
+    }
+
+    // Same need/provide handling as DynamicVarValidator.validateExecutionPlan
+    private static void applyStep(Module step, int offset, Map<String, DynamicVar> provided,
+            List<UnmetNeed> unmet) {
+        for (DynamicVar need : step.getNeeds()) {
+            DynamicVar available = provided.get(need.getName());
+            if (available == null || !available.satisfiesNeed(need)) {
+                unmet.add(new UnmetNeed(step, need, available, offset));
+            }
+        }
+        for (DynamicVar provide : step.getProvides()) {
+            provided.put(provide.getName(), provide);
+        }
+    }
+
+    private static boolean sameState(Map<String, DynamicVar> previous,
+            Map<String, DynamicVar> current) {
+        if (previous == null || previous.size() != current.size()) {
+            return false;
+        }
+        for (Map.Entry<String, DynamicVar> entry : current.entrySet()) {
+            if (previous.get(entry.getKey()) != entry.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean hasIssues() {
+        if (!unmetPreRandomize.isEmpty() || !unmetPostRandomize.isEmpty()) {
+            return true;
+        }
+        for (List<UnmetNeed> unmet : unmetByRequest) {
+            if (!unmet.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Messages point at providers that run later so they are only formatted on request
+    public List<Issue> getIssues() {
+        if (!hasIssues()) {
+            return List.of();
+        }
+        List<Module> steps = getSteps();
+        List<Issue> issues = new ArrayList<>();
+        addIssues(unmetPreRandomize, 0, steps, issues);
+        int segmentStart = preRandomizeScripts.size();
+        for (int i = 0; i < requests.size(); i++) {
+            addIssues(unmetByRequest.get(i), segmentStart, steps, issues);
+            segmentStart += preModuleScripts.size() + (modules.get(i) != null ? 1 : 0)
+                    + postModuleScripts.size();
+        }
+        addIssues(unmetPostRandomize, segmentStart, steps, issues);
+        return issues;
+    }
+
+    private static void addIssues(List<UnmetNeed> unmet, int segmentStart, List<Module> steps,
+            List<Issue> issues) {
+        for (UnmetNeed need : unmet) {
+            int stepIndex = segmentStart + need.offset;
+            issues.add(DynamicVarValidator.executionOrderIssue(need.step, need.need,
+                    need.available, steps.subList(stepIndex + 1, steps.size())));
+        }
+    }
+
+    // Reports issues to IssueTracker like ExecutionPlan.validate. Returns false on any error
+    public boolean validate() {
+        return ExecutionPlan.reportIssues(getIssues());
+    }
+
+    public List<Module> getSteps() {
+        List<Module> steps = new ArrayList<>(preRandomizeScripts);
+        for (Module module : modules) {
+            steps.addAll(preModuleScripts);
+            if (module != null) {
+                steps.add(module);
+            }
+            steps.addAll(postModuleScripts);
+        }
+        steps.addAll(postRandomizeScripts);
+        return steps;
+    }
+
+    public ExecutionPlan build() {
+        return ExecutionPlan.fromParts(moduleRegistry, preRandomizeScripts, requests,
+                preModuleScripts, postModuleScripts, postRandomizeScripts);
+    }
+
+    public List<ExecutionRequest> getRequests() {
+        return Collections.unmodifiableList(requests);
+    }
+
+    public int size() {
+        return requests.size();
+    }
+
+    // Number of requests rerun by the last edit
+    int getLastRevalidatedCount() {
+        return lastRevalidatedCount;
+    }
+
+    private static final class UnmetNeed {
+        final Module step;
+        final DynamicVar need;
+        final DynamicVar available;
+        // position of the step within its request's (or the pre/post randomize) steps
+        final int offset;
+
+        UnmetNeed(Module step, DynamicVar need, DynamicVar available, int offset) {
+            this.step = step;
+            this.need = need;
+            this.available = available;
+            this.offset = offset;
+        }
+    }
+}
@@ -1,6 +1,14 @@
 package redactedrice.randomizer.lua;
 
 import org.luaj.vm2.LuaValue;
+
+import redactedrice.randomizer.utils.LuaJavaConverter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 
@@ -10,18 +18,30 @@ public final class ExecutionResult {
     // Techincally redundant currently with error message but keeping for clarity
     private final boolean success;
     private final String errorMessage;
+    // Null once detached
     private final LuaValue result;
     private final ExecutionRequest request;
     private final int seedUsed;
+    // Immutable Java copy of the result when detached (see detach)
+    private final boolean detached;
+    private final Object javaResult;
 
     private ExecutionResult(ExecutionRequest request, String moduleId, boolean success,
             LuaValue result, String errorMessage, int seedUsed) {
+        this(request, moduleId, success, result, errorMessage, seedUsed, false, null);
+    }
+
+    private ExecutionResult(ExecutionRequest request, String moduleId, boolean success,
+            LuaValue result, String errorMessage, int seedUsed, boolean detached,
+            Object javaResult) {
         this.request = request;
         this.moduleId = moduleId;
         this.success = success;
         this.result = result;
         this.errorMessage = errorMessage;
         this.seedUsed = seedUsed;
+        this.detached = detached;
+        this.javaResult = javaResult;
     }
 
     // Pre/post scripts intentionally omit seed tracking
@@ -56,8 +76,66 @@ public final class ExecutionResult {
         return errorMessage;
     }
 
+    // Detached results rebuild a new Lua value from the Java copy on each call
     public LuaValue getResult() {
-        return result;
+        return detached ? LuaJavaConverter.javaToLua(javaResult) : result;
+    }
+
+    // Result as Java values (see LuaJavaConverter.luaToJava). Immutable when detached
+    public Object getJavaResult() {
+        if (detached) {
+            return javaResult;
+        }
+        return result != null ? LuaJavaConverter.luaToJava(result) : null;
+    }
+
+    public boolean isDetached() {
+        return detached;
+    }
+
+    // Copy that holds the result as immutable Java values and drops the Lua reference so it
+    // no longer pins the module's tables in the Lua heap. Userdata and functions become their
+    // string form
+    public ExecutionResult detach() {
+        if (detached) {
+            return this;
+        }
+        Object value = result != null
+                ? toImmutable(LuaJavaConverter.luaToJava(result), new IdentityHashMap<>())
+                : null;
+        return new ExecutionResult(request, moduleId, success, null, errorMessage, seedUsed, true,
+                value);
+    }
+
+    // Copies lists and maps into unmodifiable ones. Registered before recursing so shared and
+    // self referencing tables stay shared in the copy
+    private static Object toImmutable(Object value, Map<Object, Object> copied) {
+        if (value instanceof List<?> list) {
+            Object existing = copied.get(list);
+            if (existing != null) {
+                return existing;
+            }
+            List<Object> copy = new ArrayList<>(list.size());
+            List<Object> frozen = Collections.unmodifiableList(copy);
+            copied.put(list, frozen);
+            for (Object element : list) {
+                copy.add(toImmutable(element, copied));
+            }
+            return frozen;
+        } else if (value instanceof Map<?, ?> map) {
+            Object existing = copied.get(map);
+            if (existing != null) {
+                return existing;
+            }
+            Map<Object, Object> copy = new LinkedHashMap<>();
+            Map<Object, Object> frozen = Collections.unmodifiableMap(copy);
+            copied.put(map, frozen);
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                copy.put(entry.getKey(), toImmutable(entry.getValue(), copied));
+            }
+            return frozen;
+        }
+        return value;
     }
 
     public int getSeedUsed() {
@@ -83,12 +161,15 @@ public final class ExecutionResult {
         return success == that.success && seedUsed == that.seedUsed
                 && Objects.equals(moduleId, that.moduleId)
                 && Objects.equals(errorMessage, that.errorMessage)
-                && Objects.equals(result, that.result) && Objects.equals(request, that.request);
+                && detached == that.detached && Objects.equals(result, that.result)
+                && Objects.equals(javaResult, that.javaResult)
+                && Objects.equals(request, that.request);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(moduleId, success, errorMessage, result, request, seedUsed);
+        return Objects.hash(moduleId, success, errorMessage, result, javaResult, request,
+                seedUsed);
     }
 
     @Override
@@ -5,6 +5,12 @@ import redactedrice.randomizer.lua.arguments.ArgumentDefinition;
 
 import redactedrice.randomizer.lua.dynamicVar.DynamicVar;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 
 // holds metadata and execution function for a lua randomizer module
@@ -38,6 +44,12 @@ public class Module {
     String source;
     String license;
     String about;
+    // Context keys the module declares it reads and writes. Both null when undeclared, in which
+    // case the module may access the whole context
+    Set<String> reads;
+    Set<String> writes;
+    // Lazily computed, see getContentHash
+    private String contentHash;
 
     public Module(String id, String name, String description, Set<String> groups,
             List<ArgumentDefinition> arguments, LuaFunction executeFunction,
@@ -45,6 +57,20 @@ public class Module {
             boolean seedOffsetFromMetadata, boolean seeded, String when, String author,
             String version, Map<String, String> requires, List<DynamicVar> provides,
             List<DynamicVar> needs, String source, String license, String about) {
+        this(id, name, description, groups, arguments, executeFunction, onLoadFunction, filePath,
+                seedOffset, seedOffsetFromMetadata, seeded, when, author, version, requires,
+                provides, needs, source, license, about, null, null);
+    }
+
+    // reads/writes declare the context keys the module accesses. If either is given the module
+    // accesses only those keys and a missing one is treated as empty
+    public Module(String id, String name, String description, Set<String> groups,
+            List<ArgumentDefinition> arguments, LuaFunction executeFunction,
+            LuaFunction onLoadFunction, String filePath, int seedOffset,
+            boolean seedOffsetFromMetadata, boolean seeded, String when, String author,
+            String version, Map<String, String> requires, List<DynamicVar> provides,
+            List<DynamicVar> needs, String source, String license, String about,
+            Set<String> reads, Set<String> writes) {
         // validate required fields
         validateRequiredFields(id, name, executeFunction, author, version);
 
@@ -74,6 +100,23 @@ public class Module {
         this.source = source;
         this.license = license;
         this.about = about;
+        if (reads != null || writes != null) {
+            this.reads = copyKeys(reads);
+            this.writes = copyKeys(writes);
+        }
+    }
+
+    // Context keys are case sensitive so unlike groups they are only trimmed
+    private static Set<String> copyKeys(Set<String> keys) {
+        Set<String> copy = new LinkedHashSet<>();
+        if (keys != null) {
+            for (String key : keys) {
+                if (key != null && !key.trim().isEmpty()) {
+                    copy.add(key.trim());
+                }
+            }
+        }
+        return Collections.unmodifiableSet(copy);
     }
 
     private void validateRequiredFields(String id, String name, LuaFunction executeFunction,
@@ -201,6 +244,30 @@ public class Module {
         return Collections.unmodifiableList(needs);
     }
 
+    public boolean declaresContextAccess() {
+        return reads != null;
+    }
+
+    // Declared read keys or null if undeclared
+    public Set<String> getReads() {
+        return reads;
+    }
+
+    // Declared write keys or null if undeclared
+    public Set<String> getWrites() {
+        return writes;
+    }
+
+    // Every key the module may access (writes imply reads) or null if undeclared
+    public Set<String> getAccessedKeys() {
+        if (reads == null) {
+            return null;
+        }
+        Set<String> keys = new LinkedHashSet<>(reads);
+        keys.addAll(writes);
+        return Collections.unmodifiableSet(keys);
+    }
+
     public String getSource() {
         return source;
     }
@@ -213,6 +280,28 @@ public class Module {
         return about;
     }
 
+    // SHA-256 of the module file so memoized results survive reloading an unchanged module. Falls
+    // back to a per instance value when the module has no readable file
+    public synchronized String getContentHash() {
+        if (contentHash == null) {
+            contentHash = computeContentHash();
+        }
+        return contentHash;
+    }
+
+    private String computeContentHash() {
+        if (filePath != null) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256")
+                        .digest(Files.readAllBytes(Path.of(filePath)));
+                return HexFormat.of().formatHex(digest);
+            } catch (IOException | NoSuchAlgorithmException | InvalidPathException e) {
+                // fall through to the instance value
+            }
+        }
+        return id + "@" + Integer.toHexString(System.identityHashCode(this));
+    }
+
     @Override
     public String toString() {
         return String.format(
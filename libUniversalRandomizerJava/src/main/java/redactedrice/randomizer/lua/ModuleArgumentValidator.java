@@ -5,10 +5,51 @@ import redactedrice.randomizer.context.JavaContext;
 import redactedrice.randomizer.lua.arguments.ArgumentDefinition;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 // Validates module arguments against their definitions
+// Results are cached per (module, arguments) identity so re-running the same request (e.g. a seed
+// sweep) does no conversion work. Argument maps are treated as immutable once executed
 public class ModuleArgumentValidator {
+    static final int MAX_CACHED_ARGUMENTS = 256;
+
+    private final Map<CacheKey, ValidatedArguments> cache =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<CacheKey, ValidatedArguments> eldest) {
+                    return size() > MAX_CACHED_ARGUMENTS;
+                }
+            };
+
+    // Validate and convert arguments for a module, reusing a prior result when the same module
+    // and argument map were already validated against an unchanged enum registry
+    public ValidatedArguments validateCached(Module module, Map<String, Object> arguments,
+            JavaContext context) {
+        if (module == null) {
+            throw new IllegalArgumentException("Module cannot be null");
+        }
+        EnumRegistry enumRegistry = context != null ? context.getEnumRegistry() : null;
+        CacheKey key = new CacheKey(module, arguments, enumRegistry);
+        ValidatedArguments cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Only successful validations are cached so failures are reported every time
+        ValidatedArguments validated =
+                new ValidatedArguments(validate(module, arguments, context));
+        cache.put(key, validated);
+        return validated;
+    }
+
+    public void clearCache() {
+        cache.clear();
+    }
+
+    int getCachedCount() {
+        return cache.size();
+    }
 
     // Validate and convert arguments for a module
     public Map<String, Object> validate(Module module, Map<String, Object> arguments,
@@ -54,4 +95,42 @@ public class ModuleArgumentValidator {
 
         return validated;
     }
+
+    // Identity based so lookups never hash argument contents. The enum registry version is part
+    // of the key since enum registrations change what values are valid
+    private static final class CacheKey {
+        private final Module module;
+        private final Map<String, Object> arguments;
+        private final EnumRegistry enumRegistry;
+        private final int enumRegistryVersion;
+
+        CacheKey(Module module, Map<String, Object> arguments, EnumRegistry enumRegistry) {
+            this.module = module;
+            this.arguments = arguments;
+            this.enumRegistry = enumRegistry;
+            this.enumRegistryVersion =
+                    enumRegistry != null ? enumRegistry.getModificationCount() : 0;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            } else if (!(o instanceof CacheKey)) {
+                return false;
+            }
+            CacheKey that = (CacheKey) o;
+            return module == that.module && arguments == that.arguments
+                    && enumRegistry == that.enumRegistry
+                    && enumRegistryVersion == that.enumRegistryVersion;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = System.identityHashCode(module);
+            hash = 31 * hash + System.identityHashCode(arguments);
+            hash = 31 * hash + System.identityHashCode(enumRegistry);
+            return 31 * hash + enumRegistryVersion;
+        }
+    }
 }
@@ -0,0 +1,129 @@
+package redactedrice.randomizer.lua;
+
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaThread;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.ZeroArgFunction;
+
+import redactedrice.randomizer.lua.sandbox.monitoring.InterruptibleDebugLib;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Module execution that is run a slice at a time by calling step from the host's own loop (e.g. a
+ * UI or game loop thread), so no single call blocks for longer than its budget plus one check
+ * interval. The work runs in a Lua coroutine that the sandbox's debug library yields once the
+ * slice's budget is used up.
+ *
+ * LuaJ runs each coroutine on its own Java thread but hands control over strictly: the caller of
+ * step waits while the slice runs and the coroutine is parked between slices, so module code never
+ * runs concurrently with the host. Code of a coroutine the module creates itself is not sliced.
+ * The executor should not run anything else until the handle is done. Call cancel to end a handle
+ * that will not be stepped to completion.
+ */
+public final class ModuleExecutionHandle {
+    private final InterruptibleDebugLib debugLib;
+    private final LuaThread thread;
+    private List<ExecutionResult> results;
+    private RuntimeException failure;
+    private boolean done;
+    private volatile boolean cancelled;
+    private long elapsedNanos;
+    private int slices;
+
+    ModuleExecutionHandle(Globals globals, InterruptibleDebugLib debugLib,
+            Supplier<List<ExecutionResult>> work) {
+        this.debugLib = debugLib;
+        this.thread = new LuaThread(globals, new ZeroArgFunction() {
+            @Override
+            public LuaValue call() {
+                results = work.get();
+                return NONE;
+            }
+        });
+    }
+
+    // Runs the work for up to budgetNanos. Returns true once it is done
+    public boolean step(long budgetNanos) {
+        return step(budgetNanos, -1);
+    }
+
+    // Same as above but also yields after maxInstructions Lua instructions (negative for no limit)
+    public boolean step(long budgetNanos, long maxInstructions) {
+        if (budgetNanos <= 0) {
+            throw new IllegalArgumentException("Step budget must be positive");
+        }
+        if (maxInstructions == 0) {
+            throw new IllegalArgumentException("Instruction budget cannot be zero");
+        }
+        if (done) {
+            return true;
+        }
+        long start = System.nanoTime();
+        debugLib.startSlice(thread, start + budgetNanos, maxInstructions, () -> cancelled);
+        Varargs resumed;
+        try {
+            resumed = thread.resume(LuaValue.NONE);
+        } finally {
+            debugLib.endSlice();
+            elapsedNanos += System.nanoTime() - start;
+            slices++;
+        }
+        if (!resumed.arg1().toboolean()) {
+            // The executor catches module errors so this is a failure of the executor itself
+            failure = new IllegalStateException(
+                    "Stepped execution failed: " + resumed.arg(2).tojstring());
+            done = true;
+        } else if ("dead".equals(thread.getStatus())) {
+            done = true;
+        }
+        return done;
+    }
+
+    public boolean step(long budget, TimeUnit unit) {
+        return step(unit.toNanos(budget));
+    }
+
+    // Stops the work at its next check. The running module fails with a Lua error and is rolled
+    // back like any failed module
+    public void cancel() {
+        cancelled = true;
+        while (!step(1)) {
+            // Each step ends at the first check which then raises the cancellation error
+        }
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    // Results of the work once done (one per module request). Empty while running
+    public List<ExecutionResult> getResults() {
+        if (failure != null) {
+            throw failure;
+        }
+        return results != null ? results : List.of();
+    }
+
+    // Last result or null while running
+    public ExecutionResult getResult() {
+        List<ExecutionResult> finished = getResults();
+        return finished.isEmpty() ? null : finished.get(finished.size() - 1);
+    }
+
+    // Time spent inside step calls
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public int getSliceCount() {
+        return slices;
+    }
+}
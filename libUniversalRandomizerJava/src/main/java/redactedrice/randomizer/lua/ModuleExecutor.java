@@ -1,9 +1,14 @@
 package redactedrice.randomizer.lua;
 
+import redactedrice.randomizer.context.ContextFingerprint;
 import redactedrice.randomizer.context.JavaContext;
+import redactedrice.randomizer.context.PatchReplayer;
+import redactedrice.randomizer.context.RandomStream;
+import redactedrice.randomizer.context.RandomizationPatch;
+import redactedrice.randomizer.context.WriteJournal;
+import redactedrice.randomizer.utils.LogContext;
 import redactedrice.randomizer.utils.Logger;
 import redactedrice.randomizer.utils.IssueTracker;
-import redactedrice.randomizer.utils.LuaJavaConverter;
 import redactedrice.randomizer.lua.sandbox.LuaSandbox;
 
 import org.luaj.vm2.LuaError;
@@ -13,24 +18,50 @@ import org.luaj.vm2.Varargs;
 import org.luaj.vm2.lib.OneArgFunction;
 
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 // runs lua modules with the given context and arguments
+//
+// When the context has a write journal (JavaContext.enableWriteJournal) execution is
+// transactional: a savepoint labeled with the module id is taken before each module request and
+// its pre module scripts, and the writes of a module that fails are rolled back before its post
+// module scripts run.
 public class ModuleExecutor {
     LuaSandbox sandbox;
-    List<ExecutionResult> results;
+    // Results kept for getResults, bounded by the retention policy
+    Deque<ExecutionResult> results;
+    ResultRetention resultRetention = ResultRetention.all();
+    // Store detached copies so kept results do not pin the Lua heap (see ExecutionResult.detach)
+    boolean detachResults;
+    final List<ResultListener> resultListeners = new CopyOnWriteArrayList<>();
     ModuleArgumentValidator argumentValidator;
+    // Patch recording state (see startRecording)
+    JavaContext recordingContext;
+    int recordingStart;
+    boolean recordingOwnsJournal;
+    // Optional memo of module results (see ResultMemoCache)
+    ResultMemoCache memoCache;
+    // Debug check that modules only write the context keys they declare
+    boolean enforceDeclaredAccess;
+    // Checked before each module request. Remaining requests are skipped once it returns true
+    volatile BooleanSupplier cancellationCheck;
+    // Notified when each module request of a multi module run starts and completes
+    volatile Consumer<ExecutionEvent> eventListener;
 
     public ModuleExecutor(LuaSandbox sandbox) {
         if (sandbox == null) {
             throw new IllegalArgumentException("Sandbox cannot be null");
         }
         this.sandbox = sandbox;
-        this.results = new ArrayList<>();
+        this.results = new ArrayDeque<>();
         this.argumentValidator = new ModuleArgumentValidator();
     }
 
-    private ExecutionResult executeModule(ExecutionRequest request, Module metadata,
-            JavaContext context, int baseSeed) {
+    ExecutionResult executeModule(ExecutionRequest request, Module metadata,
+            JavaContext context, int baseSeed, ValidatedArguments preparedArgs) {
         if (metadata == null) {
             throw new IllegalArgumentException("Module metadata cannot be null");
         }
@@ -41,33 +72,96 @@ public class ModuleExecutor {
         boolean usesSeed = metadata.isSeeded();
         int seedUsed = 0;
         int absoluteSeed = 0;
+        RandomStream stream = null;
         if (usesSeed) {
             absoluteSeed = request.resolveAbsoluteSeed(baseSeed);
             seedUsed = absoluteSeed;
+            stream = RandomStream.forModule(baseSeed, request.getSeedOffset(), metadata.getId());
         }
 
         String moduleName = metadata.getName();
-        String previousModuleName = Logger.getCurrentModuleName();
         ExecutionResult execResult = null;
         IssueTracker.snapshot();
-
-        Logger.setCurrentModuleName(moduleName);
+        WriteJournal journal = context != null ? context.getWriteJournal() : null;
+        int journalStart = journal != null ? journal.size() : 0;
+        ResultMemoCache memo = context != null && memoCache != null
+                && ResultMemoCache.isMemoizable(metadata) ? memoCache : null;
+        boolean checkWrites =
+                context != null && enforceDeclaredAccess && metadata.declaresContextAccess();
+        boolean ownsJournal = false;
+
+        // Attributes this thread's log lines to the module until closed
+        LogContext.Scope logScope =
+                LogContext.enterModule(moduleName, usesSeed ? absoluteSeed : null);
         try {
-            // validate and convert arguements using enum context from javacontext
-            Map<String, Object> validatedArgs =
-                    argumentValidator.validate(metadata, request.getArguments(), context);
-
-            ExecutionErrorFormatter.logExecutionInfo(moduleName, validatedArgs, null, null,
-                    metadata, baseSeed, absoluteSeed, request);
+            // validate and convert arguements using enum context from javacontext. Repeated
+            // requests reuse the cached conversion
+            ValidatedArguments validatedArgs = preparedArgs != null ? preparedArgs
+                    : argumentValidator.validateCached(metadata, request.getArguments(), context);
+
+            ExecutionErrorFormatter.logExecutionInfo(moduleName, validatedArgs.getValues(), null,
+                    null, metadata, baseSeed, absoluteSeed, request);
+
+            ResultMemoCache.Key memoKey = null;
+            // Input that cannot be fingerprinted is never looked up or stored
+            OptionalLong fingerprint = memo != null
+                    ? ContextFingerprint.of(context, metadata.getAccessedKeys())
+                    : OptionalLong.empty();
+            if (fingerprint.isPresent()) {
+                memoKey = ResultMemoCache.key(metadata, validatedArgs.getValues(), absoluteSeed,
+                        stream != null ? stream.getSeed() : 0, fingerprint.getAsLong());
+                ResultMemoCache.MemoEntry memoized = memo.get(memoKey);
+                if (memoized != null) {
+                    int applied = PatchReplayer.apply(memoized.patch, context);
+                    Logger.info(() -> "Reused memoized result of '" + moduleName + "' (" + applied
+                            + " writes)");
+                    execResult = ExecutionResult.success(request, seedUsed, memoized.result);
+                    return recordResult(execResult);
+                }
+            }
+            // Record the module's writes to store them with the result or check them
+            WriteJournal moduleJournal = null;
+            if (memoKey != null || checkWrites) {
+                ownsJournal = journal == null;
+                moduleJournal = context.enableWriteJournal();
+            }
+            int moduleStart = moduleJournal != null ? moduleJournal.size() : 0;
 
             if (usesSeed) {
-                setSeedInLua(absoluteSeed);
+                setSeedInLua(absoluteSeed, stream);
+            } else {
+                sandbox.getNativePrimitives().resetStream();
             }
-            LuaTable argsTable = toLuaTable(validatedArgs);
+            LuaTable argsTable = validatedArgs.toLuaTable();
 
             // Execute and return the results
-            LuaValue result = executeWithTraceback(metadata, context.toLuaTable(), argsTable);
-            execResult = ExecutionResult.success(request, seedUsed, result);
+            LuaValue result = executeWithTraceback(metadata,
+                    context.toLuaTable(metadata.getAccessedKeys()), argsTable);
+
+            List<WriteJournal.Entry> moduleWrites = List.of();
+            if (moduleJournal != null) {
+                List<WriteJournal.Entry> entries = moduleJournal.getEntries();
+                moduleWrites = entries.subList(Math.min(moduleStart, entries.size()),
+                        entries.size());
+            }
+            String violation = checkWrites ? findUndeclaredWrites(metadata, context,
+                    moduleWrites) : null;
+            if (violation != null) {
+                IssueTracker.addError(violation);
+                execResult = ExecutionResult.failure(request, seedUsed, violation);
+                if (ownsJournal) {
+                    moduleJournal.rollbackTo(moduleStart);
+                }
+            } else {
+                execResult = ExecutionResult.success(request, seedUsed, result);
+                if (memoKey != null && ResultMemoCache.isStorable(result)) {
+                    RandomizationPatch patch =
+                            RandomizationPatch.fromJournal(context, moduleWrites);
+                    if (patch.getUnrecordedCount() == 0) {
+                        memo.put(memoKey, patch, result);
+                    }
+                }
+            }
         } catch (LuaError e) {
             String errorMsg = ExecutionErrorFormatter.formatLuaError(metadata, e);
             IssueTracker.addError(errorMsg);
@@ -78,20 +172,52 @@ public class ModuleExecutor {
             IssueTracker.addError(errorMsg);
             execResult = ExecutionResult.failure(request, seedUsed, errorMsg);
         } finally {
-            if (!IssueTracker.logDeltaSummary("Module '" + moduleName + "'")
-                    && execResult != null && execResult.isSuccess()) {
-                Logger.info("Finished execution of '" + moduleName + "'");
+            try {
+                if (ownsJournal) {
+                    context.disableWriteJournal();
+                }
+                if (journal != null && (execResult == null || !execResult.isSuccess())) {
+                    execResult = rollBack(journal, journalStart, moduleName, request, seedUsed,
+                            execResult);
+                }
+                ExecutionResult finished = execResult;
+                if (!IssueTracker.logDeltaSummary("Module '" + moduleName + "'")
+                        && finished != null && finished.isSuccess()) {
+                    Logger.info(() -> "Finished execution of '" + moduleName + "'");
+                }
+            } finally {
+                IssueTracker.clearSnapshot();
+                // Always restore the previous context to support recursive calls
+                logScope.close();
             }
-            IssueTracker.clearSnapshot();
-            // Always set the module name back to support recursive calls
-            Logger.setCurrentModuleName(previousModuleName);
         }
-        results.add(execResult);
-        return execResult;
+        return recordResult(execResult);
+    }
+
+    // Undoes a failed module's writes. A failed rollback is added to the module's failure
+    // instead of replacing it (or an exception still in flight) so the cleanup after it still runs
+    private static ExecutionResult rollBack(WriteJournal journal, int journalStart,
+            String moduleName, ExecutionRequest request, int seedUsed, ExecutionResult failure) {
+        try {
+            int undone = journal.rollbackTo(journalStart);
+            Logger.info(() -> "Rolled back " + undone + " writes of failed module '"
+                    + moduleName + "'");
+            return failure;
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            String errorMsg = "Failed to roll back the writes of module '" + moduleName + "': "
+                    + e.getMessage();
+            IssueTracker.addError(errorMsg);
+            if (failure == null) {
+                return null;
+            }
+            return ExecutionResult.failure(request, seedUsed,
+                    failure.getErrorMessage() + System.lineSeparator() + errorMsg);
+        }
     }
 
     // Pre/post scripts intentionally omit arguments and seed handling
-    private ExecutionResult executeLuaScript(Module script, JavaContext context,
+    ExecutionResult executeLuaScript(Module script, JavaContext context,
             String scriptTiming, String scriptWhen, String executionModuleName) {
         if (script == null) {
             throw new IllegalArgumentException("Script metadata cannot be null");
@@ -102,11 +228,10 @@ public class ModuleExecutor {
 
         ExecutionRequest request = ExecutionRequest.forScript(script);
         String moduleName = script.getName();
-        String previousModuleName = Logger.getCurrentModuleName();
         ExecutionResult execResult = null;
         IssueTracker.snapshot();
 
-        Logger.setCurrentModuleName(moduleName);
+        LogContext.Scope logScope = LogContext.enterModule(moduleName, null);
         try {
             if (executionModuleName != null) {
                 context.setExecutionModuleName(executionModuleName);
@@ -116,7 +241,8 @@ public class ModuleExecutor {
                     scriptWhen, script, request);
 
             LuaTable argsTable = new LuaTable();
-            LuaValue result = executeWithTraceback(script, context.toLuaTable(), argsTable);
+            LuaValue result = executeWithTraceback(script,
+                    context.toLuaTable(script.getAccessedKeys()), argsTable);
             execResult = ExecutionResult.scriptSuccess(request, result);
         } catch (LuaError e) {
             String errorMsg = ExecutionErrorFormatter.formatLuaError(script, e);
@@ -134,16 +260,26 @@ public class ModuleExecutor {
             IssueTracker.logDeltaSummary("Script '" + moduleName + "'");
             IssueTracker.clearSnapshot();
 
-            // Always set the module name back to support recursive calls
-            Logger.setCurrentModuleName(previousModuleName);
+            // Always restore the previous context to support recursive calls
+            logScope.close();
         }
-        results.add(execResult);
-        return execResult;
+        return recordResult(execResult);
     }
 
     public ExecutionResult executeModule(Module metadata, JavaContext context,
             List<Module> preModuleScripts, List<Module> postModuleScripts, ExecutionRequest request,
             int baseSeed) {
+        return executeModule(metadata, context, preModuleScripts, postModuleScripts, request,
+                baseSeed, null);
+    }
+
+    private ExecutionResult executeModule(Module metadata, JavaContext context,
+            List<Module> preModuleScripts, List<Module> postModuleScripts, ExecutionRequest request,
+            int baseSeed, ValidatedArguments preparedArgs) {
+        WriteJournal journal = context != null ? context.getWriteJournal() : null;
+        if (journal != null) {
+            journal.savepoint(metadata.getId());
+        }
 
         // Execute pre module script(s)
         if (preModuleScripts != null) {
@@ -159,7 +295,8 @@ public class ModuleExecutor {
         }
 
         // Execute the module
-        ExecutionResult result = executeModule(request, metadata, context, baseSeed);
+        ExecutionResult result =
+                executeModule(request, metadata, context, baseSeed, preparedArgs);
         String executedModuleName = metadata.getName();
 
         // Execute post module script(s)
@@ -178,6 +315,23 @@ public class ModuleExecutor {
         return result;
     }
 
+    // Error message naming the registrations the module wrote without declaring them, or null
+    private static String findUndeclaredWrites(Module metadata, JavaContext context,
+            List<WriteJournal.Entry> writes) {
+        List<WriteJournal.Entry> outside = context.findWritesOutside(metadata.getWrites(), writes);
+        if (outside.isEmpty()) {
+            return null;
+        }
+        Set<String> properties = new LinkedHashSet<>();
+        for (WriteJournal.Entry entry : outside) {
+            properties.add(
+                    entry.getTarget().getClass().getSimpleName() + "." + entry.getProperty());
+        }
+        return "Module '" + metadata.getName() + "' wrote " + outside.size()
+                + " properties outside its declared writes " + metadata.getWrites() + ": "
+                + properties;
+    }
+
     private LuaValue executeWithTraceback(Module metadata, LuaTable contextTable,
             LuaTable argsTable) {
         try {
@@ -227,7 +381,10 @@ public class ModuleExecutor {
         return result.arg(2);
     }
 
-    private void setSeedInLua(int seed) {
+    // The native primitives draw from the module's own stream so their results do not depend on
+    // which modules ran before or alongside it
+    private void setSeedInLua(int seed, RandomStream stream) {
+        sandbox.getNativePrimitives().setStream(stream);
         try {
             // load the randomizer module
             LuaValue randomizer =
@@ -262,6 +419,11 @@ public class ModuleExecutor {
         List<ExecutionResult> execResults = new ArrayList<>();
 
         for (ExecutionRequest request : requests) {
+            if (isCancelled()) {
+                break;
+            }
+            int step = execResults.size();
+            long start = stepStarted(step, request);
             // Look up the module metadata from the registry
             Module module = moduleRegistry.getModule(request.getModuleId());
             if (module == null) {
@@ -269,37 +431,259 @@ public class ModuleExecutor {
                 IssueTracker.addError(errorMsg);
                 int seedUsed = request.usesSeed() ? request.resolveAbsoluteSeed(baseSeed) : 0;
                 ExecutionResult errorResult = ExecutionResult.failure(request, seedUsed, errorMsg);
-                execResults.add(errorResult);
+                execResults.add(stepCompleted(step, errorResult, start));
                 continue;
             }
 
             // Execute the module with the request (seed is resolved from metadata if needed)
             ExecutionResult result = executeModule(module, context, preModuleScripts,
                     postModuleScripts, request, baseSeed);
-            execResults.add(result);
+            execResults.add(stepCompleted(step, result, start));
         }
 
         return execResults;
     }
 
-    public List<ExecutionResult> getResults() {
-        return new ArrayList<>(results);
+    // Execute a prepared plan's modules with its bound pre/post module scripts. Modules are
+    // already resolved and arguments reused when still valid for the context's enums
+    public List<ExecutionResult> executeModules(PreparedPlan plan, JavaContext context,
+            int baseSeed) {
+        List<ExecutionRequest> requests = plan.getRequests();
+        List<Module> modules = plan.getModules();
+        ExecutionPlan executionPlan = plan.getExecutionPlan();
+        List<ExecutionResult> execResults = new ArrayList<>(requests.size());
+
+        for (int i = 0; i < requests.size(); i++) {
+            if (isCancelled()) {
+                break;
+            }
+            ExecutionRequest request = requests.get(i);
+            long start = stepStarted(i, request);
+            Module module = modules.get(i);
+            if (module == null) {
+                String errorMsg = "Module not found: " + request.getModuleId();
+                IssueTracker.addError(errorMsg);
+                int seedUsed = request.usesSeed() ? request.resolveAbsoluteSeed(baseSeed) : 0;
+                execResults.add(stepCompleted(i,
+                        ExecutionResult.failure(request, seedUsed, errorMsg), start));
+                continue;
+            }
+
+            execResults.add(stepCompleted(i,
+                    executeModule(module, context, executionPlan.getPreModuleScripts(),
+                            executionPlan.getPostModuleScripts(), request, baseSeed,
+                            plan.getArguments(i, context.getEnumRegistry())),
+                    start));
+        }
+
+        return execResults;
     }
 
-    public void clearResults() {
-        results.clear();
+    // Publishes the start of a step and returns its start time
+    private long stepStarted(int step, ExecutionRequest request) {
+        Consumer<ExecutionEvent> listener = eventListener;
+        if (listener != null) {
+            listener.accept(ExecutionEvent.started(step, request));
+        }
+        return System.nanoTime();
+    }
+
+    private ExecutionResult stepCompleted(int step, ExecutionResult result, long start) {
+        Consumer<ExecutionEvent> listener = eventListener;
+        if (listener != null) {
+            listener.accept(ExecutionEvent.completed(step, result, System.nanoTime() - start));
+        }
+        return result;
+    }
+
+    // Wraps work done with this executor (e.g. executeModules) in a handle that runs it a time
+    // slice at a time (see ModuleExecutionHandle). Cancelling the handle also skips the
+    // remaining module requests
+    public ModuleExecutionHandle startStepping(Supplier<List<ExecutionResult>> work) {
+        if (work == null) {
+            throw new IllegalArgumentException("Work cannot be null");
+        }
+        ModuleExecutionHandle[] handle = new ModuleExecutionHandle[1];
+        // The coroutine runs on its own thread so it takes the caller's log context with it
+        LogContext logContext = LogContext.current();
+        handle[0] = new ModuleExecutionHandle(sandbox.getGlobals(),
+                sandbox.getEnvironment().getDebugLib(), () -> {
+                    BooleanSupplier previous = cancellationCheck;
+                    setCancellationCheck(handle[0]::isCancelled);
+                    LogContext.Scope logScope = logContext.enter();
+                    try {
+                        return work.get();
+                    } finally {
+                        logScope.close();
+                        setCancellationCheck(previous);
+                    }
+                });
+        return handle[0];
+    }
+
+    // Starts recording the writes modules make through the context's wrappers so they can be
+    // saved as a RandomizationPatch. Uses the context's write journal, enabling one if needed, so
+    // writes of failed modules that are rolled back are not part of the patch
+    public void startRecording(JavaContext context) {
+        if (context == null) {
+            throw new IllegalArgumentException("Context cannot be null");
+        }
+        if (recordingContext != null) {
+            throw new IllegalStateException("Already recording");
+        }
+        recordingOwnsJournal = context.getWriteJournal() == null;
+        recordingStart = context.enableWriteJournal().size();
+        recordingContext = context;
+    }
+
+    public boolean isRecording() {
+        return recordingContext != null;
+    }
+
+    // Stops recording and returns the writes made since startRecording
+    public RandomizationPatch stopRecording() {
+        if (recordingContext == null) {
+            throw new IllegalStateException("Not recording");
+        }
+        JavaContext context = recordingContext;
+        recordingContext = null;
+        WriteJournal journal = context.getWriteJournal();
+        List<WriteJournal.Entry> entries = List.of();
+        if (journal != null) {
+            entries = journal.getEntries();
+            entries = entries.subList(Math.min(recordingStart, entries.size()), entries.size());
+        }
+        if (recordingOwnsJournal) {
+            context.disableWriteJournal();
+        }
+        return RandomizationPatch.fromJournal(context, entries);
+    }
+
+    // Runs every step of the plan keeping a checkpoint before each one so the run can be
+    // continued from any step with CheckpointedRun.reexecuteFrom. Enables the context's write
+    // journal. Throws if a request's module is not registered
+    public CheckpointedRun executeWithCheckpoints(ExecutionPlan plan,
+            ModuleRegistry moduleRegistry, JavaContext context, int baseSeed) {
+        if (plan == null || moduleRegistry == null || context == null) {
+            throw new IllegalArgumentException("Plan, registry and context cannot be null");
+        }
+        CheckpointedRun run = new CheckpointedRun(this, moduleRegistry, plan, context, baseSeed);
+        run.runFrom(0);
+        return run;
+    }
+
+    // Sets the memo used to skip modules already run with the same input, or null to disable it.
+    // Off by default
+    public void setMemoCache(ResultMemoCache memoCache) {
+        this.memoCache = memoCache;
     }
 
-    private static LuaTable toLuaTable(Map<String, Object> arguments) {
-        LuaTable table = new LuaTable();
+    public ResultMemoCache getMemoCache() {
+        return memoCache;
+    }
+
+    // Debug mode that journals the writes of modules declaring their context access and fails
+    // modules that write objects only reachable from keys they did not declare as writes. Reads
+    // are always limited since only the declared keys are put in the context table
+    public void setEnforceDeclaredAccess(boolean enforceDeclaredAccess) {
+        this.enforceDeclaredAccess = enforceDeclaredAccess;
+    }
+
+    public boolean isEnforceDeclaredAccess() {
+        return enforceDeclaredAccess;
+    }
+
+    // Cooperative cancellation for multi module runs. Null disables it. Besides skipping the
+    // remaining requests, a running module is interrupted with a Lua error at its next check
+    public void setCancellationCheck(BooleanSupplier cancellationCheck) {
+        this.cancellationCheck = cancellationCheck;
+        sandbox.setCancellationCheck(cancellationCheck);
+    }
 
-        if (arguments != null) {
-            for (Map.Entry<String, Object> entry : arguments.entrySet()) {
-                LuaValue luaValue = LuaJavaConverter.javaToLua(entry.getValue());
-                table.set(entry.getKey(), luaValue);
+    public boolean isCancelled() {
+        BooleanSupplier check = cancellationCheck;
+        return check != null && check.getAsBoolean();
+    }
+
+    // Listener for the progress of multi module runs. Called on the executing thread. Null
+    // removes it
+    public void setEventListener(Consumer<ExecutionEvent> eventListener) {
+        this.eventListener = eventListener;
+    }
+
+    public Consumer<ExecutionEvent> getEventListener() {
+        return eventListener;
+    }
+
+    // Detaches the result if configured, hands it to the listeners and keeps it as the retention
+    // policy allows. Returns the recorded result
+    private ExecutionResult recordResult(ExecutionResult result) {
+        if (detachResults) {
+            result = result.detach();
+        }
+        for (ResultListener listener : resultListeners) {
+            listener.onResult(result);
+        }
+        ResultRetention retention = resultRetention;
+        if (retention.isUnbounded()) {
+            results.add(result);
+        } else if (retention.getLimit() > 0) {
+            while (results.size() >= retention.getLimit()) {
+                results.removeFirst();
+            }
+            results.add(result);
+        }
+        return result;
+    }
+
+    public void addResultListener(ResultListener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Result listener cannot be null");
+        }
+        resultListeners.add(listener);
+    }
+
+    public void removeResultListener(ResultListener listener) {
+        resultListeners.remove(listener);
+    }
+
+    // Applies to results produced from now on. Already kept results are trimmed to the new
+    // bound, dropping the oldest first
+    public void setResultRetention(ResultRetention resultRetention) {
+        if (resultRetention == null) {
+            throw new IllegalArgumentException("Result retention cannot be null");
+        }
+        this.resultRetention = resultRetention;
+        if (!resultRetention.isUnbounded()) {
+            while (results.size() > resultRetention.getLimit()) {
+                results.removeFirst();
             }
         }
+    }
+
+    public ResultRetention getResultRetention() {
+        return resultRetention;
+    }
+
+    // When true results are detached before they are returned, kept or passed to listeners
+    public void setDetachResults(boolean detachResults) {
+        this.detachResults = detachResults;
+    }
+
+    public boolean isDetachResults() {
+        return detachResults;
+    }
+
+    public List<ExecutionResult> getResults() {
+        return new ArrayList<>(results);
+    }
+
+    public void clearResults() {
+        results.clear();
+    }
 
-        return table;
+    // Drops cached argument conversions. Called when modules are reloaded
+    public void clearArgumentCache() {
+        argumentValidator.clearCache();
     }
 }
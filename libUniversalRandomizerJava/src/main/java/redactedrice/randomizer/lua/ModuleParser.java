@@ -109,13 +109,18 @@ public class ModuleParser {
         String license =
                 LuaJavaConverter.tryGetStringFromTable(moduleTable, "license", null, fileName);
         String about = LuaJavaConverter.tryGetStringFromTable(moduleTable, "about", null, fileName);
+        // Optional declared context access. Left null when absent so the module gets everything
+        Set<String> reads = moduleTable.get("reads").isnil() ? null
+                : LuaJavaConverter.tryGetStringSetFromTable(moduleTable, "reads", fileName);
+        Set<String> writes = moduleTable.get("writes").isnil() ? null
+                : LuaJavaConverter.tryGetStringSetFromTable(moduleTable, "writes", fileName);
 
         // Create the module. This will validate and throw if there are issues
         try {
             return new Module(id, name, description, groups, arguments, executeFunction,
                     onLoadFunction, sourceFile.toAbsolutePath().toString(), seedOffset,
                     seedOffsetFromMetadata, seeded, when, author, version, requires, provides,
-                    needs, source, license, about);
+                    needs, source, license, about, reads, writes);
         } catch (IllegalArgumentException e) {
             IssueTracker.addError(fileName + " validation failed: " + e.getMessage());
             return null;
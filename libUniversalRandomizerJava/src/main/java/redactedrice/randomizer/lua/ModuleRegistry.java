@@ -151,6 +151,11 @@ public class ModuleRegistry {
         return repository.getScript(moduleId);
     }
 
+    // Changes whenever modules or scripts are registered or cleared
+    public int getVersion() {
+        return repository.getVersion();
+    }
+
     public Set<String> getDefinedGroupValues() {
         return repository.getDefinedGroupValues();
     }
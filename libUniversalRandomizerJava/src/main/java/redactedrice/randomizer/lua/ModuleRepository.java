@@ -19,6 +19,8 @@ public class ModuleRepository {
     // If set, this will restrict the groups that are loaded to only specified values. Null to
     // autodetermine from loading
     private final Set<String> definedGroups;
+    // Bumped on every registration or clear so prepared plans can detect stale module references
+    private int version;
 
     public static final String SCRIPT_TIMING_PRE = "pre";
     public static final String SCRIPT_TIMING_POST = "post";
@@ -63,6 +65,7 @@ public class ModuleRepository {
 
         // Add to group indices
         addModuleToCategoryIndices(module, module.getGroups(), modulesByGroup, definedGroups);
+        version++;
         return true;
     }
 
@@ -89,6 +92,7 @@ public class ModuleRepository {
 
         scriptsById.put(script.getId(), script);
         scriptsByType.get(timing).get(whenKey).add(script);
+        version++;
         return true;
     }
 
@@ -144,6 +148,10 @@ public class ModuleRepository {
         return modules.get(moduleId);
     }
 
+    public int getVersion() {
+        return version;
+    }
+
     public Module getScript(String moduleId) {
         if (moduleId == null || moduleId.isBlank()) {
             return null;
@@ -222,5 +230,6 @@ public class ModuleRepository {
                 scripts.clear();
             }
         }
+        version++;
     }
 }
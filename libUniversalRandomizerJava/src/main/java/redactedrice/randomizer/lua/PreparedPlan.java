@@ -0,0 +1,173 @@
+package redactedrice.randomizer.lua;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import redactedrice.randomizer.context.EnumDefinition;
+import redactedrice.randomizer.context.EnumRegistry;
+import redactedrice.randomizer.context.JavaContext;
+import redactedrice.randomizer.lua.dynamicVar.DynamicVarValidator;
+
+/**
+ * A randomize batch resolved once and run many times, e.g. once per seed. Holds the execution plan
+ * with its dynamic var issues, the resolved module for each request and the pre-converted
+ * arguments so repeated runs skip registry lookups, plan validation and argument conversion.
+ *
+ * The plan is rebuilt automatically on the next run after modules are reloaded. Converted
+ * arguments are reused by any run whose enum registry defines the same enums as the one they were
+ * converted against, so fresh or forked contexts of a sweep share them; otherwise the executor
+ * validates them as usual.
+ */
+public final class PreparedPlan {
+    private final ModuleRegistry moduleRegistry;
+    private final List<ExecutionRequest> requests;
+    // Replaced as a whole so runs on other threads always see a complete binding
+    private volatile Binding binding;
+
+    private PreparedPlan(ModuleRegistry moduleRegistry, List<ExecutionRequest> requests) {
+        this.moduleRegistry = moduleRegistry;
+        this.requests = List.copyOf(requests);
+    }
+
+    public static PreparedPlan prepare(ModuleRegistry moduleRegistry,
+            List<ExecutionRequest> requests, JavaContext context) {
+        if (moduleRegistry == null) {
+            throw new IllegalArgumentException("Module registry cannot be null");
+        }
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("Requests list cannot be null or empty");
+        }
+        PreparedPlan prepared = new PreparedPlan(moduleRegistry, requests);
+        prepared.refresh(context);
+        return prepared;
+    }
+
+    // True once the registry has loaded or cleared modules since this plan was bound
+    public boolean isStale() {
+        return binding.registryVersion != moduleRegistry.getVersion();
+    }
+
+    // Rebinds against the current registry if it changed. Returns true if a rebuild happened
+    public boolean refreshIfStale(JavaContext context) {
+        if (!isStale()) {
+            return false;
+        }
+        refresh(context);
+        return true;
+    }
+
+    private void refresh(JavaContext context) {
+        ExecutionPlan plan = ExecutionPlan.forRandomizeBatch(moduleRegistry, requests);
+        List<Issue> issues = DynamicVarValidator.validateExecutionPlan(plan, null);
+        EnumRegistry enumRegistry = context != null ? context.getEnumRegistry() : null;
+        ModuleArgumentValidator validator = new ModuleArgumentValidator();
+
+        List<Module> modules = new ArrayList<>(requests.size());
+        List<ValidatedArguments> arguments = new ArrayList<>(requests.size());
+        for (ExecutionRequest request : requests) {
+            Module module = moduleRegistry.getModule(request.getModuleId());
+            modules.add(module);
+            ValidatedArguments validated = null;
+            if (module != null) {
+                try {
+                    validated = new ValidatedArguments(
+                            validator.validate(module, request.getArguments(), context));
+                } catch (IllegalArgumentException e) {
+                    // Leave it to execution so the failure is reported against the module result
+                }
+            }
+            arguments.add(validated);
+        }
+
+        Map<String, EnumDefinition> enumDefinitions = new HashMap<>();
+        if (enumRegistry != null) {
+            for (String name : enumRegistry.getEnumNames()) {
+                enumDefinitions.put(name, enumRegistry.getEnum(name));
+            }
+        }
+        binding = new Binding(moduleRegistry.getVersion(), plan, List.copyOf(issues),
+                Collections.unmodifiableList(modules), Collections.unmodifiableList(arguments),
+                Collections.unmodifiableMap(enumDefinitions));
+    }
+
+    // Reports the plan's dynamic var issues to IssueTracker. Returns false if any is an error
+    public boolean validate() {
+        return ExecutionPlan.reportIssues(binding.issues);
+    }
+
+    public ExecutionPlan getExecutionPlan() {
+        return binding.plan;
+    }
+
+    public List<ExecutionRequest> getRequests() {
+        return requests;
+    }
+
+    public List<Issue> getIssues() {
+        return binding.issues;
+    }
+
+    // Resolved module for each request, null where the id is not a loaded module
+    List<Module> getModules() {
+        return binding.modules;
+    }
+
+    // Pre-converted arguments for the request at index or null if they must be revalidated
+    // because the registry's enums differ from the ones they were converted against
+    ValidatedArguments getArguments(int index, EnumRegistry enumRegistry) {
+        Binding current = binding;
+        return current.matches(enumRegistry) ? current.arguments.get(index) : null;
+    }
+
+    // A registry at a given modification count
+    private record RegistryState(EnumRegistry registry, int modificationCount) {}
+
+    private static final class Binding {
+        final int registryVersion;
+        final ExecutionPlan plan;
+        final List<Issue> issues;
+        final List<Module> modules;
+        final List<ValidatedArguments> arguments;
+        // Enums the arguments were converted against
+        final Map<String, EnumDefinition> enumDefinitions;
+        // Last registry found to match so a run only compares the definitions once
+        private volatile RegistryState lastMatch;
+
+        Binding(int registryVersion, ExecutionPlan plan, List<Issue> issues, List<Module> modules,
+                List<ValidatedArguments> arguments,
+                Map<String, EnumDefinition> enumDefinitions) {
+            this.registryVersion = registryVersion;
+            this.plan = plan;
+            this.issues = issues;
+            this.modules = modules;
+            this.arguments = arguments;
+            this.enumDefinitions = enumDefinitions;
+        }
+
+        boolean matches(EnumRegistry enumRegistry) {
+            if (enumRegistry == null) {
+                return enumDefinitions.isEmpty();
+            }
+            // Read before comparing so a change made meanwhile is not cached as a match
+            int modificationCount = enumRegistry.getModificationCount();
+            RegistryState matched = lastMatch;
+            if (matched != null && matched.registry() == enumRegistry
+                    && matched.modificationCount() == modificationCount) {
+                return true;
+            }
+            if (enumRegistry.getEnumNames().size() != enumDefinitions.size()) {
+                return false;
+            }
+            for (Map.Entry<String, EnumDefinition> entry : enumDefinitions.entrySet()) {
+                if (!entry.getValue().definesSameAs(enumRegistry.getEnum(entry.getKey()))) {
+                    return false;
+                }
+            }
+            lastMatch = new RegistryState(enumRegistry, modificationCount);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package redactedrice.randomizer.lua;
+
+/**
+ * Receives each module and script result as ModuleExecutor produces it, on the executing thread,
+ * so hosts can consume results without the executor retaining them (see ResultRetention).
+ */
+@FunctionalInterface
+public interface ResultListener {
+    void onResult(ExecutionResult result);
+}
@@ -0,0 +1,186 @@
+package redactedrice.randomizer.lua;
+
+import redactedrice.randomizer.context.RandomizationPatch;
+
+import org.luaj.vm2.LuaValue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+// Opt in memo of module results (see ModuleExecutor.setMemoCache). Entries are keyed by the
+// module's content hash and version, its validated arguments, the absolute seed and a
+// ContextFingerprint of the input. A hit replays the recorded writes as a RandomizationPatch and
+// returns the recorded result instead of running the module.
+//
+// Only runs that can be replayed exactly are stored: successful modules whose input could be
+// fingerprinted, whose writes were all recorded, that return nil or a plain value and that do not
+// provide or need dynamic vars (those live on the Lua side and are not part of the patch).
+// Modules relying on other state that is not in the context, such as Lua globals, should not be
+// run with a memo cache.
+public class ResultMemoCache {
+    public static final int DEFAULT_MAX_ENTRIES = 128;
+
+    private final int maxEntries;
+    private final Map<Key, MemoEntry> entries;
+    private long hitCount;
+    private long missCount;
+
+    public ResultMemoCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public ResultMemoCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Max entries must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, MemoEntry> eldest) {
+                return size() > ResultMemoCache.this.maxEntries;
+            }
+        };
+    }
+
+    // Whether runs of the module may be memoized at all
+    static boolean isMemoizable(Module module) {
+        return module.getProvides().isEmpty() && module.getNeeds().isEmpty();
+    }
+
+    // Whether the result can be shared between runs. Tables, functions and userdata are mutable
+    // or tied to the sandbox
+    static boolean isStorable(LuaValue result) {
+        return result == null || result.isnil() || result.isboolean() || result.isnumber()
+                || result.isstring();
+    }
+
+    // streamSeed is the seed of the module's native RandomStream, which unlike the absolute seed
+    // also depends on how it splits into base seed and offset
+    static Key key(Module module, Map<String, Object> arguments, int absoluteSeed,
+            long streamSeed, long fingerprint) {
+        return new Key(module.getId(), module.getVersion(), module.getContentHash(),
+                canonicalize(arguments), absoluteSeed, streamSeed, fingerprint);
+    }
+
+    // Copies the arguments into sorted maps and lists so equal arguments compare equal regardless
+    // of the map types and iteration order they were built with
+    private static Object canonicalize(Object value) {
+        if (value instanceof Map) {
+            Map<String, Object> sorted = new TreeMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                sorted.put(String.valueOf(entry.getKey()), canonicalize(entry.getValue()));
+            }
+            return sorted;
+        } else if (value instanceof List) {
+            List<Object> copy = new ArrayList<>();
+            for (Object element : (List<?>) value) {
+                copy.add(canonicalize(element));
+            }
+            return copy;
+        }
+        return value;
+    }
+
+    synchronized MemoEntry get(Key key) {
+        MemoEntry entry = entries.get(key);
+        if (entry != null) {
+            hitCount++;
+        } else {
+            missCount++;
+        }
+        return entry;
+    }
+
+    synchronized void put(Key key, RandomizationPatch patch, LuaValue result) {
+        entries.put(key, new MemoEntry(patch, result != null ? result : LuaValue.NIL));
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    // Drops every entry. Hit and miss counts are kept
+    public synchronized void invalidateAll() {
+        entries.clear();
+    }
+
+    // Drops the entries of one module, e.g. after its file changed. Returns the number dropped
+    public synchronized int invalidateModule(String moduleId) {
+        int before = entries.size();
+        entries.keySet().removeIf(key -> key.moduleId.equals(moduleId));
+        return before - entries.size();
+    }
+
+    public synchronized void resetCounts() {
+        hitCount = 0;
+        missCount = 0;
+    }
+
+    static final class MemoEntry {
+        final RandomizationPatch patch;
+        final LuaValue result;
+
+        MemoEntry(RandomizationPatch patch, LuaValue result) {
+            this.patch = patch;
+            this.result = result;
+        }
+    }
+
+    static final class Key {
+        private final String moduleId;
+        private final String version;
+        private final String contentHash;
+        private final Object arguments;
+        private final int absoluteSeed;
+        private final long streamSeed;
+        private final long fingerprint;
+
+        private Key(String moduleId, String version, String contentHash, Object arguments,
+                int absoluteSeed, long streamSeed, long fingerprint) {
+            this.moduleId = moduleId;
+            this.version = version;
+            this.contentHash = contentHash;
+            this.arguments = arguments != null ? arguments : new HashMap<>();
+            this.absoluteSeed = absoluteSeed;
+            this.streamSeed = streamSeed;
+            this.fingerprint = fingerprint;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            } else if (!(o instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) o;
+            return absoluteSeed == that.absoluteSeed && streamSeed == that.streamSeed
+                    && fingerprint == that.fingerprint
+                    && moduleId.equals(that.moduleId) && Objects.equals(version, that.version)
+                    && contentHash.equals(that.contentHash) && arguments.equals(that.arguments);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(moduleId, version, contentHash, arguments, absoluteSeed,
+                    streamSeed, fingerprint);
+        }
+    }
+}
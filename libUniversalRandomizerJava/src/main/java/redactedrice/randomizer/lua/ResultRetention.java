@@ -0,0 +1,47 @@
+package redactedrice.randomizer.lua;
+
+/**
+ * How many results ModuleExecutor keeps for getResults: all of them (the default), only the last
+ * N or none. Results are kept until clearResults either way, so long running hosts should bound
+ * them and consume results through a ResultListener instead.
+ */
+public final class ResultRetention {
+    private static final ResultRetention ALL = new ResultRetention(-1);
+    private static final ResultRetention NONE = new ResultRetention(0);
+
+    // Negative keeps everything
+    private final int limit;
+
+    private ResultRetention(int limit) {
+        this.limit = limit;
+    }
+
+    public static ResultRetention all() {
+        return ALL;
+    }
+
+    public static ResultRetention none() {
+        return NONE;
+    }
+
+    public static ResultRetention lastN(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Retained result count cannot be negative");
+        }
+        return count == 0 ? NONE : new ResultRetention(count);
+    }
+
+    public boolean isUnbounded() {
+        return limit < 0;
+    }
+
+    // Maximum number of results kept. Only meaningful when bounded
+    public int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public String toString() {
+        return isUnbounded() ? "ResultRetention{all}" : "ResultRetention{last " + limit + "}";
+    }
+}
@@ -0,0 +1,40 @@
+package redactedrice.randomizer.lua;
+
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import redactedrice.randomizer.utils.LuaJavaConverter;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Arguments that passed module validation along with their converted Lua table. Built once per
+// (module, arguments) and reused so repeated executions skip conversion entirely
+public final class ValidatedArguments {
+    private final Map<String, Object> values;
+    private final LuaTable template;
+
+    ValidatedArguments(Map<String, Object> values) {
+        this.values = Collections.unmodifiableMap(new LinkedHashMap<>(values));
+        this.template = toLuaTable(values);
+    }
+
+    public Map<String, Object> getValues() {
+        return values;
+    }
+
+    // Modules may consume or reorder their argument tables (e.g. exhausting pools) so each
+    // execution gets its own raw copy of the template rather than the shared instance
+    public LuaTable toLuaTable() {
+        return LuaJavaConverter.copyLuaTable(template);
+    }
+
+    private static LuaTable toLuaTable(Map<String, Object> arguments) {
+        LuaTable table = new LuaTable();
+        for (Map.Entry<String, Object> entry : arguments.entrySet()) {
+            LuaValue luaValue = LuaJavaConverter.javaToLua(entry.getValue());
+            table.set(entry.getKey(), luaValue);
+        }
+        return table;
+    }
+}
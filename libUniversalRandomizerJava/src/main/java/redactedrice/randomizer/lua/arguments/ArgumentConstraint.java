@@ -3,7 +3,9 @@ package redactedrice.randomizer.lua.arguments;
 import redactedrice.randomizer.context.EnumDefinition;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 // holds constraints on argument values like ranges or allowed values
 public class ArgumentConstraint {
@@ -13,6 +15,8 @@ public class ArgumentConstraint {
     Double step;
     List<Object> allowedValues;
     List<Object> excludedValues;
+    // allow/exclude lookups for the last enum definition this constraint was validated against
+    private volatile BoundEnumFilter boundFilter;
 
     private ArgumentConstraint(ConstraintType type) {
         this.type = type;
@@ -98,26 +102,11 @@ public class ArgumentConstraint {
                 return Math.abs(remainder) < 0.0001 || Math.abs(remainder - step) < 0.0001;
 
             case ENUM:
-                if (allowedValues != null && !allowedValues.isEmpty()) {
-                    boolean allowed = false;
-                    for (Object candidate : allowedValues) {
-                        if (matchesEnumConstraintValue(candidate, value, enumDef)) {
-                            allowed = true;
-                            break;
-                        }
-                    }
-                    if (!allowed) {
-                        return false;
-                    }
-                }
-                if (excludedValues != null) {
-                    for (Object excluded : excludedValues) {
-                        if (matchesEnumConstraintValue(excluded, value, enumDef)) {
-                            return false;
-                        }
-                    }
+                BoundEnumFilter filter = bindEnumFilter(enumDef);
+                if (filter.allowed != null && !filter.allowed.matches(value, enumDef)) {
+                    return false;
                 }
-                return true;
+                return filter.excluded == null || !filter.excluded.matches(value, enumDef);
 
             default:
                 return false;
@@ -143,33 +132,78 @@ public class ArgumentConstraint {
         return filtered;
     }
 
-    // Prefer enum registry resolution so display labels and odd casing still match canonicals.
-    static boolean matchesEnumConstraintValue(Object constraintEntry, Object value,
-            EnumDefinition enumDef) {
-        if (constraintEntry == null || value == null) {
-            return false;
+    // Definitions are immutable and shared per registry so rebinding only happens when validating
+    // against a different enum (or none)
+    private BoundEnumFilter bindEnumFilter(EnumDefinition enumDef) {
+        BoundEnumFilter filter = boundFilter;
+        if (filter == null || filter.enumDef != enumDef) {
+            filter = new BoundEnumFilter(enumDef,
+                    allowedValues != null && !allowedValues.isEmpty()
+                            ? new EnumMembership(allowedValues, enumDef)
+                            : null,
+                    excludedValues != null ? new EnumMembership(excludedValues, enumDef) : null);
+            boundFilter = filter;
         }
-        if (enumDef != null) {
-            String entryCanonical = enumDef.resolveCanonicalValue(String.valueOf(constraintEntry));
-            String valueCanonical = enumDef.resolveCanonicalValue(String.valueOf(value));
-            if (entryCanonical != null && entryCanonical.equals(valueCanonical)) {
-                return true;
+        return filter;
+    }
+
+    private static final class BoundEnumFilter {
+        final EnumDefinition enumDef;
+        final EnumMembership allowed;
+        final EnumMembership excluded;
+
+        BoundEnumFilter(EnumDefinition enumDef, EnumMembership allowed, EnumMembership excluded) {
+            this.enumDef = enumDef;
+            this.allowed = allowed;
+            this.excluded = excluded;
+        }
+    }
+
+    // Hashed form of an allow/exclude list. An entry matches via enum registry resolution (so
+    // display labels and odd casing still match canonicals), case insensitive text, or equal
+    // numbers to handle Lua's habit of converting whole-number doubles to Integer
+    private static final class EnumMembership {
+        final Set<String> canonicals = new HashSet<>();
+        final Set<String> foldedText = new HashSet<>();
+        final Set<Double> numbers = new HashSet<>();
+
+        EnumMembership(List<Object> entries, EnumDefinition enumDef) {
+            for (Object entry : entries) {
+                if (entry == null) {
+                    continue;
+                }
+                if (enumDef != null) {
+                    String canonical = enumDef.resolveCanonicalValue(String.valueOf(entry));
+                    if (canonical != null) {
+                        canonicals.add(canonical);
+                    }
+                }
+                foldedText.add(EnumDefinition.foldCase(entry.toString()));
+                if (entry instanceof Number) {
+                    numbers.add(numberKey((Number) entry));
+                }
             }
         }
-        if (constraintEntry.toString().equalsIgnoreCase(value.toString())) {
-            return true;
+
+        boolean matches(Object value, EnumDefinition enumDef) {
+            String text = value.toString();
+            if (enumDef != null && !canonicals.isEmpty()) {
+                String canonical = enumDef.resolveCanonicalValue(text);
+                if (canonical != null && canonicals.contains(canonical)) {
+                    return true;
+                }
+            }
+            if (foldedText.contains(EnumDefinition.foldCase(text))) {
+                return true;
+            }
+            return value instanceof Number && numbers.contains(numberKey((Number) value));
         }
-        return matchesAllowedValue(constraintEntry, value);
-    }
 
-    static boolean matchesAllowedValue(Object allowed, Object value) {
-        if (allowed.equals(value) || allowed.toString().equals(value.toString())) {
-            return true;
+        // Double.equals separates 0.0 and -0.0 where == does not
+        private static Double numberKey(Number number) {
+            double d = number.doubleValue();
+            return d == 0.0 ? 0.0 : d;
         }
-        // Compare numerically when both sides are Number to handle Lua's habit of converting
-        // whole-number doubles to Integer (e.g. constraint value 2 vs UI-supplied Double 2.0)
-        return allowed instanceof Number && value instanceof Number
-                && ((Number) allowed).doubleValue() == ((Number) value).doubleValue();
     }
 
     public String getDescription() {
@@ -15,63 +15,91 @@ import java.util.*;
 public class ArgumentConverter {
     public static Object convertAndValidate(Object value, TypeDefinition typeDef,
             EnumRegistry enumRegistry) {
-        if (value == null) {
-            throw new IllegalArgumentException("Value cannot be null");
-        }
+        // TypeDefinitions compile their converter when built so this skips the type switch
+        return typeDef.getCompiledConverter().convert(value, enumRegistry);
+    }
 
-        // convert the value to the right type
-        Object converted = convertToType(value, typeDef, enumRegistry);
+    // Specialized converter for one TypeDefinition. Built once when the type is parsed so each
+    // validation only runs the conversion and constraint check that apply to that type
+    interface CompiledConverter {
+        Object convert(Object value, EnumRegistry enumRegistry);
+    }
 
-        // check constraints for primitives and for named enums (allow/exclude filters)
-        if (typeDef.isPrimitive() || typeDef.isEnum()) {
-            ArgumentConstraint constraint = typeDef.getEnforcedConstraint();
-            if (constraint != null) {
-                EnumDefinition enumDef = null;
-                if (typeDef.isEnum() && enumRegistry != null) {
-                    enumDef = enumRegistry.getEnum(typeDef.getEnumName());
-                }
-                if (!constraint.validate(converted, typeDef.getBaseType(), enumDef)) {
-                    throw new IllegalArgumentException(
-                            String.format("Value '%s' does not satisfy constraint: %s", value,
-                                    constraint.getDescription()));
-                }
-            }
+    static CompiledConverter compile(TypeDefinition typeDef) {
+        CompiledConverter conversion = compileConversion(typeDef);
+
+        // check constraints for primitives and for named enums (allow/exclude filters). ANY
+        // accepts every non null value and conversions never return null so it is skipped
+        ArgumentConstraint constraint = typeDef.getEnforcedConstraint();
+        if ((!typeDef.isPrimitive() && !typeDef.isEnum()) || constraint == null
+                || constraint.getType() == ConstraintType.ANY) {
+            return (value, enumRegistry) -> conversion.convert(requireValue(value), enumRegistry);
         }
 
-        return converted;
+        ArgumentType baseType = typeDef.getBaseType();
+        String enumName = typeDef.isEnum() ? typeDef.getEnumName() : null;
+        return (value, enumRegistry) -> {
+            Object converted = conversion.convert(requireValue(value), enumRegistry);
+            EnumDefinition enumDef = null;
+            if (enumName != null && enumRegistry != null) {
+                enumDef = enumRegistry.getEnum(enumName);
+            }
+            if (!constraint.validate(converted, baseType, enumDef)) {
+                throw new IllegalArgumentException(
+                        String.format("Value '%s' does not satisfy constraint: %s", value,
+                                constraint.getDescription()));
+            }
+            return converted;
+        };
+    }
+
+    private static Object requireValue(Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Value cannot be null");
+        }
+        return value;
     }
 
-    private static Object convertToType(Object value, TypeDefinition typeDef,
-            EnumRegistry enumRegistry) {
-        // call the right converter based on type
+    private static CompiledConverter compileConversion(TypeDefinition typeDef) {
+        // pick the right converter based on type once instead of per value
         switch (typeDef.getBaseType()) {
             case STRING:
-                return convertToString(value);
+                return (value, enumRegistry) -> convertToString(value);
 
             case INTEGER:
-                return convertToInteger(value);
+                return (value, enumRegistry) -> convertToInteger(value);
 
             case DOUBLE:
-                return convertToDouble(value);
+                return (value, enumRegistry) -> convertToDouble(value);
 
             case BOOLEAN:
-                return convertToBoolean(value);
+                return (value, enumRegistry) -> convertToBoolean(value);
 
             case ENUM:
                 // need enum registry to look up valid enum values
-                return convertToEnum(value, typeDef.getEnumName(), enumRegistry);
+                String enumName = typeDef.getEnumName();
+                return (value, enumRegistry) -> convertToEnum(value, enumName, enumRegistry);
 
             case LIST:
                 // recursively convert each element
-                return convertToList(value, typeDef.getElementType(), enumRegistry);
+                CompiledConverter elementConverter =
+                        typeDef.getElementType().getCompiledConverter();
+                return (value, enumRegistry) -> convertToList(value, elementConverter,
+                        enumRegistry);
 
             case TABLE:
                 // recursively convert keys and values
-                return convertToTable(value, typeDef.getKeyType(), typeDef.getValueType(),
-                        enumRegistry);
+                TypeDefinition keyType = typeDef.getKeyType();
+                CompiledConverter keyConverter = keyType.getCompiledConverter();
+                CompiledConverter valueConverter = typeDef.getValueType().getCompiledConverter();
+                return (value, enumRegistry) -> convertToTable(value, keyType, keyConverter,
+                        valueConverter, enumRegistry);
 
             default:
-                throw new IllegalArgumentException("Unknown type: " + typeDef.getBaseType());
+                ArgumentType unknown = typeDef.getBaseType();
+                return (value, enumRegistry) -> {
+                    throw new IllegalArgumentException("Unknown type: " + unknown);
+                };
         }
     }
 
@@ -174,34 +202,36 @@ public class ArgumentConverter {
         return canonicalValue;
     }
 
-    @SuppressWarnings("unchecked")
-    private static List<Object> convertToList(Object value, TypeDefinition elementType,
+    private static List<Object> convertToList(Object value, CompiledConverter elementConverter,
             EnumRegistry enumRegistry) {
-        List<Object> result = new ArrayList<>();
+        List<Object> result;
 
-        // Recurse through convertAndValidate so nested enum/primitive constraints still apply
+        // Recurse through the element converter so nested enum/primitive constraints still apply
         if (value instanceof List) {
             List<?> sourceList = (List<?>) value;
+            result = new ArrayList<>(sourceList.size());
             for (Object element : sourceList) {
-                result.add(convertAndValidate(element, elementType, enumRegistry));
+                result.add(elementConverter.convert(element, enumRegistry));
             }
         } else if (value instanceof LuaTable) {
             // handle lua tables as lists
             LuaTable table = (LuaTable) value;
             int len = table.length();
+            result = new ArrayList<>(len);
             // lua arrays are 1indexed
             for (int i = 1; i <= len; i++) {
                 LuaValue element = table.get(i);
                 if (!element.isnil()) {
-                    result.add(convertAndValidate(LuaJavaConverter.luaToJava(element, true),
-                            elementType, enumRegistry));
+                    result.add(elementConverter.convert(LuaJavaConverter.luaToJava(element, true),
+                            enumRegistry));
                 }
             }
         } else if (value.getClass().isArray()) {
             // handle java arrays
             Object[] array = (Object[]) value;
+            result = new ArrayList<>(array.length);
             for (Object element : array) {
-                result.add(convertAndValidate(element, elementType, enumRegistry));
+                result.add(elementConverter.convert(element, enumRegistry));
             }
         } else {
             throw new IllegalArgumentException(
@@ -211,18 +241,17 @@ public class ArgumentConverter {
         return result;
     }
 
-    @SuppressWarnings("unchecked")
     private static Map<Object, Object> convertToTable(Object value, TypeDefinition keyType,
-            TypeDefinition valueType, EnumRegistry enumRegistry) {
+            CompiledConverter keyConverter, CompiledConverter valueConverter,
+            EnumRegistry enumRegistry) {
         List<Map.Entry<Object, Object>> entries = new ArrayList<>();
 
         if (value instanceof Map) {
             // convert java maps
             Map<?, ?> sourceMap = (Map<?, ?>) value;
             for (Map.Entry<?, ?> entry : sourceMap.entrySet()) {
-                Object convertedKey = convertAndValidate(entry.getKey(), keyType, enumRegistry);
-                Object convertedValue =
-                        convertAndValidate(entry.getValue(), valueType, enumRegistry);
+                Object convertedKey = keyConverter.convert(entry.getKey(), enumRegistry);
+                Object convertedValue = valueConverter.convert(entry.getValue(), enumRegistry);
                 entries.add(Map.entry(convertedKey, convertedValue));
             }
         } else if (value instanceof LuaTable) {
@@ -233,10 +262,10 @@ public class ArgumentConverter {
             LuaValue[] keys = table.keys();
             for (LuaValue key : keys) {
                 LuaValue val = table.get(key);
-                Object convertedKey = convertAndValidate(LuaJavaConverter.luaToJava(key, true),
-                        keyType, enumRegistry);
-                Object convertedValue = convertAndValidate(LuaJavaConverter.luaToJava(val, true),
-                        valueType, enumRegistry);
+                Object convertedKey =
+                        keyConverter.convert(LuaJavaConverter.luaToJava(key, true), enumRegistry);
+                Object convertedValue =
+                        valueConverter.convert(LuaJavaConverter.luaToJava(val, true), enumRegistry);
                 entries.add(Map.entry(convertedKey, convertedValue));
             }
         } else {
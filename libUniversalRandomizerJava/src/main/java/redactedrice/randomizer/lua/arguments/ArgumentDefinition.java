@@ -9,6 +9,8 @@ public class ArgumentDefinition {
     String description;
     TypeDefinition typeDefinition;
     Object defaultValue;
+    // Compiled with the type at module load so each execution only runs the specialized checks
+    ArgumentConverter.CompiledConverter converter;
 
     public ArgumentDefinition(String name, TypeDefinition typeDefinition, Object defaultValue) {
         this(name, null, null, typeDefinition, defaultValue);
@@ -35,6 +37,7 @@ public class ArgumentDefinition {
                 : null;
         this.typeDefinition = typeDefinition;
         this.defaultValue = defaultValue;
+        this.converter = typeDefinition.getCompiledConverter();
     }
 
     public boolean validate(Object value, EnumRegistry enumRegistry) {
@@ -44,8 +47,7 @@ public class ArgumentDefinition {
 
         try {
             Object resolved = value != null ? value : defaultValue;
-            Object converted =
-                    ArgumentConverter.convertAndValidate(resolved, typeDefinition, enumRegistry);
+            Object converted = converter.convert(resolved, enumRegistry);
             return converted != null;
         } catch (Exception e) {
             return false;
@@ -58,7 +60,7 @@ public class ArgumentDefinition {
             throw new IllegalArgumentException("Value cannot be null");
         }
 
-        return ArgumentConverter.convertAndValidate(resolved, typeDefinition, enumRegistry);
+        return converter.convert(resolved, enumRegistry);
     }
 
     // Getters
@@ -11,6 +11,8 @@ public class TypeDefinition {
     private final TypeDefinition keyType;
     private final TypeDefinition valueType;
     private final ArgumentConstraint constraint;
+    // Built once from the fields above so argument validation skips the per value type switch
+    private final ArgumentConverter.CompiledConverter compiledConverter;
 
     private TypeDefinition(ArgumentType baseType, String enumName, TypeDefinition elementType,
             TypeDefinition keyType, TypeDefinition valueType, ArgumentConstraint constraint) {
@@ -20,6 +22,7 @@ public class TypeDefinition {
         this.keyType = keyType;
         this.valueType = valueType;
         this.constraint = constraint != null ? constraint : ArgumentConstraint.any();
+        this.compiledConverter = ArgumentConverter.compile(this);
     }
 
     // Factory methods for primitive types
@@ -112,6 +115,10 @@ public class TypeDefinition {
         return valueType;
     }
 
+    ArgumentConverter.CompiledConverter getCompiledConverter() {
+        return compiledConverter;
+    }
+
     public boolean isPrimitive() {
         return baseType == ArgumentType.STRING || baseType == ArgumentType.INTEGER
                 || baseType == ArgumentType.DOUBLE || baseType == ArgumentType.BOOLEAN;
@@ -11,12 +11,18 @@ public final class DynamicVarNeed {
     private final Module module;
     private final DynamicVar need;
     private final List<DynamicVarProvide> compatibleProviders;
+    private final List<String> compatibleProviderModuleIds;
 
     public DynamicVarNeed(Module module, DynamicVar need,
             List<DynamicVarProvide> compatibleProviders) {
         this.module = module;
         this.need = need;
         this.compatibleProviders = compatibleProviders;
+        Set<String> moduleIds = new LinkedHashSet<>();
+        for (DynamicVarProvide provider : compatibleProviders) {
+            moduleIds.add(provider.getModuleId());
+        }
+        this.compatibleProviderModuleIds = List.copyOf(moduleIds);
     }
 
     public Module getModule() {
@@ -36,10 +42,6 @@ public final class DynamicVarNeed {
     }
 
     public List<String> getCompatibleProviderModuleIds() {
-        Set<String> moduleIds = new LinkedHashSet<>();
-        for (DynamicVarProvide provider : compatibleProviders) {
-            moduleIds.add(provider.getModuleId());
-        }
-        return List.copyOf(moduleIds);
+        return compatibleProviderModuleIds;
     }
 }
@@ -2,6 +2,7 @@ package redactedrice.randomizer.lua.dynamicVar;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -14,11 +15,16 @@ import redactedrice.randomizer.lua.ModuleRepository;
  * Load time registry of declared providers and consumer needs. metadata only.
  * built in two passes
  * so provider collection finishes before any need is checked.
+ * Providers are indexed by name and type (DynamicVar equality) so compatibility lookups only
+ * touch matching providers.
  */
 public final class DynamicVarRegistry {
     private List<DynamicVarProvide> allProviders = List.of();
     private Map<String, List<DynamicVarProvide>> providersByName = Map.of();
+    private Map<DynamicVar, List<DynamicVarProvide>> providersByVar = Map.of();
+    private Map<DynamicVar, List<String>> providerModuleIdsByVar = Map.of();
     private Map<String, List<DynamicVarNeed>> needsByConsumerId = Map.of();
+    private Map<String, List<String>> providerModuleIdsByConsumerId = Map.of();
 
     public static DynamicVarRegistry empty() {
         return new DynamicVarRegistry();
@@ -28,6 +34,7 @@ public final class DynamicVarRegistry {
         List<Module> allModules = repository.getAllModulesAndScripts();
         List<DynamicVarProvide> nextProviders = new ArrayList<>();
         Map<String, List<DynamicVarProvide>> nextProvidersByName = new LinkedHashMap<>();
+        Map<DynamicVar, List<DynamicVarProvide>> nextProvidersByVar = new HashMap<>();
 
         // pass 1 - collect every provide from every loaded module/script
         for (Module module : allModules) {
@@ -36,34 +43,54 @@ public final class DynamicVarRegistry {
                 nextProviders.add(provider);
                 nextProvidersByName.computeIfAbsent(provide.getName(), ignored -> new ArrayList<>())
                         .add(provider);
+                nextProvidersByVar.computeIfAbsent(provide, ignored -> new ArrayList<>())
+                        .add(provider);
             }
         }
+        Map<DynamicVar, List<DynamicVarProvide>> indexedProviders =
+                copyProviderMap(nextProvidersByVar);
+        Map<DynamicVar, List<String>> nextModuleIdsByVar = new HashMap<>();
+        for (Map.Entry<DynamicVar, List<DynamicVarProvide>> entry : indexedProviders
+                .entrySet()) {
+            nextModuleIdsByVar.put(entry.getKey(), moduleIds(entry.getValue()));
+        }
 
-        // pass 2 - Validate needs against the full provider list
+        // pass 2 - Validate needs against the indexed providers
         Map<String, List<DynamicVarNeed>> nextNeedsByConsumerId = new LinkedHashMap<>();
+        Map<String, List<String>> nextProviderIdsByConsumerId = new LinkedHashMap<>();
         for (Module module : allModules) {
             if (module.getNeeds().isEmpty()) {
                 continue;
             }
 
             List<DynamicVarNeed> bindings = new ArrayList<>();
+            LinkedHashSet<String> providerIds = new LinkedHashSet<>();
             for (DynamicVar need : module.getNeeds()) {
                 // A module cannot satisfy its own needs - another provider must exist.
-                bindings.add(new DynamicVarNeed(module, need, findCompatibleProviders(nextProviders,
-                        need, module.getId())));
+                DynamicVarNeed binding = new DynamicVarNeed(module, need, findCompatibleProviders(
+                        indexedProviders.getOrDefault(need, List.of()), module.getId()));
+                bindings.add(binding);
+                providerIds.addAll(binding.getCompatibleProviderModuleIds());
             }
             nextNeedsByConsumerId.put(module.getId(), List.copyOf(bindings));
+            nextProviderIdsByConsumerId.put(module.getId(), List.copyOf(providerIds));
         }
 
         allProviders = List.copyOf(nextProviders);
         providersByName = copyProviderMap(nextProvidersByName);
+        providersByVar = indexedProviders;
+        providerModuleIdsByVar = Map.copyOf(nextModuleIdsByVar);
         needsByConsumerId = Map.copyOf(nextNeedsByConsumerId);
+        providerModuleIdsByConsumerId = Map.copyOf(nextProviderIdsByConsumerId);
     }
 
     public void clear() {
         allProviders = List.of();
         providersByName = Map.of();
+        providersByVar = Map.of();
+        providerModuleIdsByVar = Map.of();
         needsByConsumerId = Map.of();
+        providerModuleIdsByConsumerId = Map.of();
     }
 
     public List<DynamicVarProvide> getAllProviders() {
@@ -82,13 +109,22 @@ public final class DynamicVarRegistry {
         return needsByConsumerId;
     }
 
+    // Module ids of every provider satisfying any of the consumer's needs, in load order
+    public List<String> getProviderModuleIdsForConsumer(String moduleId) {
+        return providerModuleIdsByConsumerId.getOrDefault(moduleId, List.of());
+    }
+
     public List<DynamicVarProvide> findCompatibleProviders(DynamicVar need) {
-        return findCompatibleProviders(allProviders, need, null);
+        return findCompatibleProviders(need, null);
     }
 
     public List<DynamicVarProvide> findCompatibleProviders(DynamicVar need,
             String excludeModuleId) {
-        return findCompatibleProviders(allProviders, need, excludeModuleId);
+        if (need == null) {
+            return List.of();
+        }
+        return findCompatibleProviders(providersByVar.getOrDefault(need, List.of()),
+                excludeModuleId);
     }
 
     public List<String> getCompatibleProviderModuleIds(DynamicVar need) {
@@ -96,31 +132,45 @@ public final class DynamicVarRegistry {
     }
 
     public List<String> getCompatibleProviderModuleIds(DynamicVar need, String excludeModuleId) {
-        LinkedHashSet<String> moduleIds = new LinkedHashSet<>();
-        for (DynamicVarProvide provider : findCompatibleProviders(need, excludeModuleId)) {
-            moduleIds.add(provider.getModuleId());
+        if (need == null) {
+            return List.of();
         }
-        return List.copyOf(moduleIds);
+        List<String> moduleIds = providerModuleIdsByVar.getOrDefault(need, List.of());
+        if (excludeModuleId == null || !moduleIds.contains(excludeModuleId)) {
+            return moduleIds;
+        }
+        List<String> filtered = new ArrayList<>(moduleIds);
+        filtered.remove(excludeModuleId);
+        return List.copyOf(filtered);
     }
 
+    // matches are already compatible with the need so only the exclusion is applied
     private static List<DynamicVarProvide> findCompatibleProviders(
-            List<DynamicVarProvide> providers, DynamicVar need, String excludeModuleId) {
-        List<DynamicVarProvide> matches = new ArrayList<>();
-        for (DynamicVarProvide provider : providers) {
-            if (excludeModuleId != null && excludeModuleId.equals(provider.getModuleId())) {
-                continue;
-            }
-            if (provider.getDefinition().satisfiesNeed(need)) {
-                matches.add(provider);
+            List<DynamicVarProvide> matches, String excludeModuleId) {
+        if (excludeModuleId == null) {
+            return matches;
+        }
+        List<DynamicVarProvide> filtered = new ArrayList<>(matches.size());
+        for (DynamicVarProvide provider : matches) {
+            if (!excludeModuleId.equals(provider.getModuleId())) {
+                filtered.add(provider);
             }
         }
-        return List.copyOf(matches);
+        return filtered.size() == matches.size() ? matches : List.copyOf(filtered);
+    }
+
+    private static List<String> moduleIds(List<DynamicVarProvide> providers) {
+        LinkedHashSet<String> moduleIds = new LinkedHashSet<>();
+        for (DynamicVarProvide provider : providers) {
+            moduleIds.add(provider.getModuleId());
+        }
+        return List.copyOf(moduleIds);
     }
 
-    private static Map<String, List<DynamicVarProvide>> copyProviderMap(
-            Map<String, List<DynamicVarProvide>> source) {
-        Map<String, List<DynamicVarProvide>> copy = new LinkedHashMap<>();
-        for (Map.Entry<String, List<DynamicVarProvide>> entry : source.entrySet()) {
+    private static <K> Map<K, List<DynamicVarProvide>> copyProviderMap(
+            Map<K, List<DynamicVarProvide>> source) {
+        Map<K, List<DynamicVarProvide>> copy = new LinkedHashMap<>();
+        for (Map.Entry<K, List<DynamicVarProvide>> entry : source.entrySet()) {
             copy.put(entry.getKey(), List.copyOf(entry.getValue()));
         }
         return Collections.unmodifiableMap(copy);
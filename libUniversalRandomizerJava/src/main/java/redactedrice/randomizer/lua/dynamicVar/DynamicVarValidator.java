@@ -73,8 +73,8 @@ public final class DynamicVarValidator {
                     continue;
                 }
 
-                issues.add(new Issue(step, need.getName(), EXECUTION_CATEGORY, true,
-                        formatExecutionOrderMessage(step, need, stepIndex, steps, provided)));
+                issues.add(executionOrderIssue(step, need, available,
+                        steps.subList(stepIndex + 1, steps.size())));
             }
 
             for (DynamicVar provide : step.getProvides()) {
@@ -85,18 +85,27 @@ public final class DynamicVarValidator {
         return issues;
     }
 
+    /**
+     * Builds the execution order error for a need that is not satisfied at its step. available is
+     * the value provided under the need's name by earlier steps (or null) and laterSteps are the
+     * steps after the consumer, used to point at providers that run too late.
+     */
+    public static Issue executionOrderIssue(Module consumer, DynamicVar need,
+            DynamicVar available, List<Module> laterSteps) {
+        return new Issue(consumer, need.getName(), EXECUTION_CATEGORY, true,
+                formatExecutionOrderMessage(consumer, need, available, laterSteps));
+    }
+
     private static String formatExecutionOrderMessage(Module consumer, DynamicVar need,
-            int consumerIndex, List<Module> steps, Map<String, DynamicVar> provided) {
+            DynamicVar available, List<Module> laterSteps) {
         String consumerInfo = moduleInfoString(consumer);
-        DynamicVar available = provided.get(need.getName());
         if (available != null && !available.satisfiesNeed(need)) {
             return consumerInfo + ": needs " + need + " but earlier step provides incompatible "
                     + available;
         }
 
         List<String> laterProviderIds = new ArrayList<>();
-        for (int i = consumerIndex + 1; i < steps.size(); i++) {
-            Module step = steps.get(i);
+        for (Module step : laterSteps) {
             if (step == null) {
                 continue;
             }
@@ -4,6 +4,8 @@ import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
 import org.luaj.vm2.Varargs;
 import org.luaj.vm2.lib.VarArgFunction;
+import org.luaj.vm2.lib.ZeroArgFunction;
+import redactedrice.randomizer.utils.LogLevel;
 import redactedrice.randomizer.utils.Logger;
 
 import java.util.HashSet;
@@ -12,10 +14,23 @@ import java.util.Set;
 // Lua function wrappers for logger.* (bridges to Java Logger and optional IssueTracker collection)
 public class LuaLogFunctions {
     private static String concatenateArgs(Varargs args) {
+        return concatenateArgs(args, false);
+    }
+
+    // lazy calls a single function argument for the message. Only the gated levels are lazy;
+    // warnings and errors log their arguments as given
+    private static String concatenateArgs(Varargs args, boolean lazy) {
         // if no args return empty string
         if (args.narg() == 0) {
             return "";
         }
+        // A single function is called for the message so it is only built when logged
+        if (lazy && args.narg() == 1 && args.arg1().isfunction()) {
+            return concatenateArgs(args.arg1().invoke());
+        }
+        if (args.narg() == 1) {
+            return args.arg1().tojstring();
+        }
 
         // concatenate all arguments with tab separators like lua does
         StringBuilder sb = new StringBuilder();
@@ -28,24 +43,27 @@ public class LuaLogFunctions {
         return sb.toString();
     }
 
-    public static LuaValue createDebugFunction() {
+    // Debug and info are checked before the arguments are converted so disabled logging in loops
+    // costs only the level check, and a single function argument is only called when logged.
+    // Warnings and errors are always built since they are also collected to IssueTracker
+    private static LuaValue createGatedFunction(LogLevel level) {
         return new VarArgFunction() {
             @Override
             public Varargs invoke(Varargs args) {
-                Logger.debug(concatenateArgs(args));
+                if (Logger.isLevelEnabled(level)) {
+                    Logger.log(level, concatenateArgs(args, true));
+                }
                 return LuaValue.NIL;
             }
         };
     }
 
+    public static LuaValue createDebugFunction() {
+        return createGatedFunction(LogLevel.DEBUG);
+    }
+
     public static LuaValue createInfoFunction() {
-        return new VarArgFunction() {
-            @Override
-            public Varargs invoke(Varargs args) {
-                Logger.info(concatenateArgs(args));
-                return LuaValue.NIL;
-            }
-        };
+        return createGatedFunction(LogLevel.INFO);
     }
 
     public static LuaValue createWarnFunction() {
@@ -68,12 +86,24 @@ public class LuaLogFunctions {
         };
     }
 
+    // logger.isDebugEnabled() etc. so scripts can skip building expensive messages
+    public static LuaValue createLevelCheckFunction(LogLevel level) {
+        return new ZeroArgFunction() {
+            @Override
+            public LuaValue call() {
+                return LuaValue.valueOf(Logger.isLevelEnabled(level));
+            }
+        };
+    }
+
     public static LuaTable createLoggerTable() {
         LuaTable loggerTable = new LuaTable();
         loggerTable.set("debug", createDebugFunction());
         loggerTable.set("info", createInfoFunction());
         loggerTable.set("warn", createWarnFunction());
         loggerTable.set("error", createErrorFunction());
+        loggerTable.set("isDebugEnabled", createLevelCheckFunction(LogLevel.DEBUG));
+        loggerTable.set("isInfoEnabled", createLevelCheckFunction(LogLevel.INFO));
         loggerTable.set("tableToString", createTableToStringFunction());
         return loggerTable;
     }
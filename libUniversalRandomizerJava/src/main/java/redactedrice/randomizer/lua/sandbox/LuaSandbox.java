@@ -2,6 +2,7 @@ package redactedrice.randomizer.lua.sandbox;
 
 import org.luaj.vm2.Globals;
 import org.luaj.vm2.LuaValue;
+import redactedrice.randomizer.context.NativePrimitives;
 import redactedrice.randomizer.lua.sandbox.monitoring.MemoryLimitExceededException;
 import redactedrice.randomizer.lua.sandbox.monitoring.ResourceMonitor;
 import redactedrice.randomizer.lua.sandbox.monitoring.TimeoutException;
@@ -11,15 +12,22 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.function.BooleanSupplier;
 
 // Sandboxed lua environment that blocks dangerous functions and libraries
 public class LuaSandbox {
     private final SecureLuaEnvironment environment;
     private final ResourceMonitor resourceMonitor;
+    // Java implementations of the core primitives the randomizer Lua library can delegate to
+    private final NativePrimitives nativePrimitives;
 
     public LuaSandbox(List<String> allowedRootDirectories) {
         this.environment = new SecureLuaEnvironment(allowedRootDirectories, true);
         this.resourceMonitor = new ResourceMonitor();
+        this.nativePrimitives = new NativePrimitives();
+        // Globals are protected by now so this has to bypass __newindex
+        environment.getGlobals().rawset(NativePrimitives.GLOBAL_NAME,
+                nativePrimitives.createLuaTable());
     }
 
     public Globals getGlobals() {
@@ -30,6 +38,10 @@ public class LuaSandbox {
         return resourceMonitor;
     }
 
+    public NativePrimitives getNativePrimitives() {
+        return nativePrimitives;
+    }
+
     public SecureLuaEnvironment getEnvironment() {
         return environment;
     }
@@ -70,6 +82,11 @@ public class LuaSandbox {
         }
     }
 
+    // Running scripts raise a Lua error once the check returns true. Null disables it
+    public void setCancellationCheck(BooleanSupplier cancellationCheck) {
+        environment.getDebugLib().setCancellationCheck(cancellationCheck);
+    }
+
     // Allows setting global values from Java
     public void set(String name, LuaValue value) {
         environment.getGlobals().rawset(name, value);
@@ -0,0 +1,97 @@
+package redactedrice.randomizer.lua.sandbox.monitoring;
+
+import org.luaj.vm2.Globals;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaThread;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
+import org.luaj.vm2.lib.DebugLib;
+
+import java.util.function.BooleanSupplier;
+
+// Debug library that lets a running script be cancelled or time sliced. LuaJ reports every
+// executed instruction to the loaded debug library so the cancellation check is polled from here
+// and a Lua error is raised once it returns true. While a slice is active the sliced coroutine
+// yields back to its resumer once the slice's time or instruction budget is used up
+public class InterruptibleDebugLib extends DebugLib {
+    // Instructions between cancellation checks to keep the overhead negligible
+    static final int CHECK_INTERVAL = 1024;
+    // Instructions between clock reads of a time slice
+    static final int SLICE_CLOCK_INTERVAL = 64;
+    public static final String CANCELLED_MESSAGE = "Execution cancelled";
+
+    private Globals globals;
+    private volatile BooleanSupplier cancellationCheck;
+    private int instructionsUntilCheck = CHECK_INTERVAL;
+
+    // Active slice state (see startSlice). Only touched by the resumer and the sliced coroutine,
+    // which never run at the same time
+    private LuaThread slicedThread;
+    private long sliceDeadline;
+    private long sliceInstructionsLeft;
+    private BooleanSupplier sliceCancelled;
+    private int instructionsUntilClock;
+
+    @Override
+    public LuaValue call(LuaValue modname, LuaValue env) {
+        globals = env.checkglobals();
+        return super.call(modname, env);
+    }
+
+    public void setCancellationCheck(BooleanSupplier cancellationCheck) {
+        this.cancellationCheck = cancellationCheck;
+    }
+
+    public BooleanSupplier getCancellationCheck() {
+        return cancellationCheck;
+    }
+
+    // Makes the coroutine yield once the deadline passes or after maxInstructions (negative for
+    // no instruction limit). The slice's cancel check raises a Lua error instead of yielding
+    public void startSlice(LuaThread thread, long deadlineNanos, long maxInstructions,
+            BooleanSupplier cancelled) {
+        slicedThread = thread;
+        sliceDeadline = deadlineNanos;
+        sliceInstructionsLeft = maxInstructions;
+        sliceCancelled = cancelled;
+        instructionsUntilClock = SLICE_CLOCK_INTERVAL;
+    }
+
+    public void endSlice() {
+        slicedThread = null;
+        sliceCancelled = null;
+    }
+
+    @Override
+    public void onInstruction(int pc, Varargs v, int top) {
+        super.onInstruction(pc, v, top);
+        if (slicedThread != null && globals.running == slicedThread) {
+            checkSlice();
+        }
+        if (--instructionsUntilCheck > 0) {
+            return;
+        }
+        instructionsUntilCheck = CHECK_INTERVAL;
+        BooleanSupplier check = cancellationCheck;
+        if (check != null && check.getAsBoolean()) {
+            throw new LuaError(CANCELLED_MESSAGE);
+        }
+    }
+
+    private void checkSlice() {
+        boolean expired = sliceInstructionsLeft > 0 && --sliceInstructionsLeft == 0;
+        if (!expired && --instructionsUntilClock <= 0) {
+            instructionsUntilClock = SLICE_CLOCK_INTERVAL;
+            expired = System.nanoTime() - sliceDeadline >= 0;
+        }
+        if (!expired) {
+            return;
+        }
+        if (sliceCancelled != null && sliceCancelled.getAsBoolean()) {
+            throw new LuaError(CANCELLED_MESSAGE);
+        }
+        // Blocks this coroutine until the next slice resumes it
+        slicedThread = null;
+        globals.yield(LuaValue.NONE);
+    }
+}
@@ -1,9 +1,9 @@
 package redactedrice.randomizer.lua.sandbox.security;
 
 import org.luaj.vm2.Globals;
-import org.luaj.vm2.lib.DebugLib;
 import org.luaj.vm2.lib.jse.JsePlatform;
 import redactedrice.randomizer.lua.sandbox.LuaLogFunctions;
+import redactedrice.randomizer.lua.sandbox.monitoring.InterruptibleDebugLib;
 
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -16,6 +16,7 @@ public class SecureLuaEnvironment {
     private final Globals globals;
     private final FileSystemPolicy fileSystemPolicy;
     private final PackagePolicy packagePolicy;
+    private final InterruptibleDebugLib debugLib;
 
     public SecureLuaEnvironment(List<String> allowedRootDirectories, boolean includeLogger) {
         // Setup policies to apply during setup
@@ -32,7 +33,9 @@ public class SecureLuaEnvironment {
 
         // Setup globals
         Globals globals = JsePlatform.standardGlobals();
-        globals.load(new DebugLib());
+        // Also polls for cancellation while scripts run
+        InterruptibleDebugLib debugLib = new InterruptibleDebugLib();
+        globals.load(debugLib);
 
         // Apply setup policies
         baseFunctionsPolicy.applyToGlobals(globals);
@@ -54,12 +57,17 @@ public class SecureLuaEnvironment {
         this.globals = globals;
         this.fileSystemPolicy = fileSystemPolicy;
         this.packagePolicy = packagePolicy;
+        this.debugLib = debugLib;
     }
 
     public Globals getGlobals() {
         return globals;
     }
 
+    public InterruptibleDebugLib getDebugLib() {
+        return debugLib;
+    }
+
     public boolean isPathAllowed(String filePath) {
         if (filePath == null || filePath.trim().isEmpty()) {
             return false;
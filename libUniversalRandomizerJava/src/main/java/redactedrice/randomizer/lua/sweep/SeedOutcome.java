@@ -0,0 +1,61 @@
+package redactedrice.randomizer.lua.sweep;
+
+import redactedrice.randomizer.context.JavaContext;
+import redactedrice.randomizer.lua.ExecutionResult;
+import redactedrice.randomizer.utils.IssueTracker.Issue;
+
+import java.util.List;
+
+/**
+ * One finished candidate of a seed search: the seed, the module results, the issues raised while
+ * running it and the context the plan ran against, for the host's acceptance check (e.g. a logic
+ * check on the randomized data).
+ */
+public final class SeedOutcome {
+    private final int seed;
+    private final List<ExecutionResult> results;
+    private final List<Issue> issues;
+    private final JavaContext context;
+
+    public SeedOutcome(int seed, List<ExecutionResult> results, JavaContext context) {
+        this(seed, results, List.of(), context);
+    }
+
+    public SeedOutcome(int seed, List<ExecutionResult> results, List<Issue> issues,
+            JavaContext context) {
+        this.seed = seed;
+        this.results = results != null ? List.copyOf(results) : List.of();
+        this.issues = issues != null ? List.copyOf(issues) : List.of();
+        this.context = context;
+    }
+
+    public int getSeed() {
+        return seed;
+    }
+
+    public List<ExecutionResult> getResults() {
+        return results;
+    }
+
+    // Only this seed's issues, not those of other attempts
+    public List<Issue> getIssues() {
+        return issues;
+    }
+
+    public JavaContext getContext() {
+        return context;
+    }
+
+    // True if the plan ran and every module succeeded
+    public boolean isSuccess() {
+        if (results.isEmpty()) {
+            return false;
+        }
+        for (ExecutionResult result : results) {
+            if (!result.isSuccess()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,217 @@
+package redactedrice.randomizer.lua.sweep;
+
+import org.luaj.vm2.LuaValue;
+
+import redactedrice.randomizer.context.RandomizationPatch;
+import redactedrice.randomizer.lua.ExecutionResult;
+import redactedrice.randomizer.utils.IssueTracker;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compact, Lua free snapshot of one seed of a sweep: the outcome of each module, the issues
+ * collected during the run and optionally the writes it made as a RandomizationPatch. Module
+ * results are kept as text and only for nil, booleans, numbers and strings since tables and
+ * userdata are tied to the sandbox.
+ */
+public final class SeedRecord {
+    private final int seed;
+    private final List<ModuleOutcome> outcomes;
+    private final List<IssueTracker.Issue> issues;
+    // Serialized patch or null when the sweep did not record diffs
+    private final byte[] patch;
+
+    public static final class ModuleOutcome {
+        private final String moduleId;
+        private final boolean success;
+        private final int seedUsed;
+        private final String errorMessage;
+        private final String result;
+
+        public ModuleOutcome(String moduleId, boolean success, int seedUsed,
+                String errorMessage, String result) {
+            this.moduleId = moduleId;
+            this.success = success;
+            this.seedUsed = seedUsed;
+            this.errorMessage = errorMessage;
+            this.result = result;
+        }
+
+        public String getModuleId() {
+            return moduleId;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public int getSeedUsed() {
+            return seedUsed;
+        }
+
+        // Null on success
+        public String getErrorMessage() {
+            return errorMessage;
+        }
+
+        // Text of a scalar result or null for nil and non scalar results
+        public String getResult() {
+            return result;
+        }
+    }
+
+    public SeedRecord(int seed, List<ModuleOutcome> outcomes, List<IssueTracker.Issue> issues,
+            byte[] patch) {
+        this.seed = seed;
+        this.outcomes = outcomes != null ? List.copyOf(outcomes) : List.of();
+        this.issues = issues != null ? List.copyOf(issues) : List.of();
+        this.patch = patch;
+    }
+
+    /** Snapshot of a finished run. Patch may be null */
+    public static SeedRecord of(int seed, List<ExecutionResult> results,
+            List<IssueTracker.Issue> issues, RandomizationPatch patch) throws IOException {
+        List<ModuleOutcome> outcomes = new ArrayList<>();
+        if (results != null) {
+            for (ExecutionResult result : results) {
+                outcomes.add(new ModuleOutcome(result.getModuleId(), result.isSuccess(),
+                        result.getSeedUsed(), result.getErrorMessage(),
+                        scalarText(result.getResult())));
+            }
+        }
+        byte[] patchBytes = null;
+        if (patch != null) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            patch.write(bytes);
+            patchBytes = bytes.toByteArray();
+        }
+        return new SeedRecord(seed, outcomes, issues, patchBytes);
+    }
+
+    private static String scalarText(LuaValue value) {
+        if (value == null || value.isnil()) {
+            return null;
+        }
+        if (value.isboolean() || value.isnumber() || value.isstring()) {
+            return value.tojstring();
+        }
+        return null;
+    }
+
+    public int getSeed() {
+        return seed;
+    }
+
+    public List<ModuleOutcome> getOutcomes() {
+        return Collections.unmodifiableList(outcomes);
+    }
+
+    public List<IssueTracker.Issue> getIssues() {
+        return Collections.unmodifiableList(issues);
+    }
+
+    public boolean isSuccess() {
+        for (ModuleOutcome outcome : outcomes) {
+            if (!outcome.isSuccess()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean hasPatch() {
+        return patch != null;
+    }
+
+    // Deserializes the recorded writes or returns null if none were recorded
+    public RandomizationPatch getPatch() throws IOException {
+        return patch != null ? RandomizationPatch.read(new ByteArrayInputStream(patch)) : null;
+    }
+
+    // Format: seed, outcomes, issues, then the patch bytes (length -1 when absent)
+    byte[] toBytes() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeInt(seed);
+        data.writeInt(outcomes.size());
+        for (ModuleOutcome outcome : outcomes) {
+            writeString(data, outcome.moduleId);
+            data.writeBoolean(outcome.success);
+            data.writeInt(outcome.seedUsed);
+            writeString(data, outcome.errorMessage);
+            writeString(data, outcome.result);
+        }
+        data.writeInt(issues.size());
+        for (IssueTracker.Issue issue : issues) {
+            data.writeByte(issue.severity().ordinal());
+            writeString(data, issue.message());
+            writeString(data, issue.context());
+        }
+        if (patch != null) {
+            data.writeInt(patch.length);
+            data.write(patch);
+        } else {
+            data.writeInt(-1);
+        }
+        data.flush();
+        return bytes.toByteArray();
+    }
+
+    static SeedRecord fromBytes(byte[] bytes) throws IOException {
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(bytes));
+        int seed = data.readInt();
+        int outcomeCount = data.readInt();
+        List<ModuleOutcome> outcomes = new ArrayList<>(outcomeCount);
+        for (int i = 0; i < outcomeCount; i++) {
+            outcomes.add(new ModuleOutcome(readString(data), data.readBoolean(), data.readInt(),
+                    readString(data), readString(data)));
+        }
+        int issueCount = data.readInt();
+        List<IssueTracker.Issue> issues = new ArrayList<>(issueCount);
+        IssueTracker.Severity[] severities = IssueTracker.Severity.values();
+        for (int i = 0; i < issueCount; i++) {
+            int severity = data.readByte();
+            if (severity < 0 || severity >= severities.length) {
+                throw new IOException("Unknown issue severity " + severity);
+            }
+            issues.add(new IssueTracker.Issue(severities[severity], readString(data),
+                    readString(data)));
+        }
+        byte[] patch = null;
+        int patchLength = data.readInt();
+        if (patchLength >= 0) {
+            patch = new byte[patchLength];
+            data.readFully(patch);
+        }
+        return new SeedRecord(seed, outcomes, issues, patch);
+    }
+
+    // Length prefixed UTF-8 so long error messages are not limited like writeUTF. -1 is null
+    private static void writeString(DataOutputStream data, String value) throws IOException {
+        if (value == null) {
+            data.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        data.writeInt(bytes.length);
+        data.write(bytes);
+    }
+
+    private static String readString(DataInputStream data) throws IOException {
+        int length = data.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        data.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
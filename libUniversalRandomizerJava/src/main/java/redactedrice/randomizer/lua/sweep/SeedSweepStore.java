@@ -0,0 +1,222 @@
+package redactedrice.randomizer.lua.sweep;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory-mapped, seed-indexed file of SeedRecords for sweeps over a seed range. Records are
+ * appended through a mapped window so heap use stays bounded by one record no matter how many
+ * seeds are stored, and can be written in any order (e.g. by parallel workers).
+ *
+ * Layout: header (magic, version, start seed, seed count, end of data), an index with the offset
+ * of each seed's record (0 when missing), then the records, each prefixed with its length.
+ */
+public final class SeedSweepStore implements Closeable {
+    private static final int MAGIC = 0x55525357; // "URSW"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final int DATA_END_OFFSET = 16;
+    // Size of the mapped window records are written to or read from
+    private static final long WINDOW_SIZE = 4L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final boolean writable;
+    private final int startSeed;
+    private final int seedCount;
+    // Header and index
+    private final MappedByteBuffer index;
+    private long dataEnd;
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    private SeedSweepStore(FileChannel channel, boolean writable, int startSeed, int seedCount,
+            MappedByteBuffer index, long dataEnd) {
+        this.channel = channel;
+        this.writable = writable;
+        this.startSeed = startSeed;
+        this.seedCount = seedCount;
+        this.index = index;
+        this.dataEnd = dataEnd;
+    }
+
+    /** Creates (or replaces) a store for seeds startSeed until startSeed + seedCount */
+    public static SeedSweepStore create(Path file, int startSeed, int seedCount)
+            throws IOException {
+        if (seedCount <= 0) {
+            throw new IllegalArgumentException("Seed count must be positive");
+        }
+        if ((long) startSeed + seedCount - 1 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Seed range passes Integer.MAX_VALUE");
+        }
+        if (indexSize(seedCount) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many seeds for one store: " + seedCount);
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        long dataStart = indexSize(seedCount);
+        MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_WRITE, 0, dataStart);
+        index.putInt(0, MAGIC);
+        index.putInt(4, FORMAT_VERSION);
+        index.putInt(8, startSeed);
+        index.putInt(12, seedCount);
+        index.putLong(DATA_END_OFFSET, dataStart);
+        return new SeedSweepStore(channel, true, startSeed, seedCount, index, dataStart);
+    }
+
+    /** Opens a finished store for reading */
+    public static SeedSweepStore open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Not a seed sweep store: " + file);
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("Not a seed sweep store: " + file);
+            }
+            int version = header.getInt(4);
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported seed sweep store version " + version);
+            }
+            int seedCount = header.getInt(12);
+            MappedByteBuffer index =
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, indexSize(seedCount));
+            return new SeedSweepStore(channel, false, header.getInt(8), seedCount, index,
+                    header.getLong(DATA_END_OFFSET));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static long indexSize(int seedCount) {
+        return HEADER_SIZE + 8L * seedCount;
+    }
+
+    public int getStartSeed() {
+        return startSeed;
+    }
+
+    public int getSeedCount() {
+        return seedCount;
+    }
+
+    public boolean containsSeed(int seed) {
+        return isInRange(seed) && recordOffset(seed) != 0;
+    }
+
+    // Number of seeds with a record
+    public synchronized int getRecordCount() {
+        int count = 0;
+        for (int i = 0; i < seedCount; i++) {
+            if (index.getLong(HEADER_SIZE + 8 * i) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /** Appends the record for its seed. A seed written twice keeps the later record */
+    public synchronized void append(SeedRecord record) throws IOException {
+        if (!writable) {
+            throw new IllegalStateException("Seed sweep store is read only");
+        }
+        if (!isInRange(record.getSeed())) {
+            throw new IllegalArgumentException("Seed " + record.getSeed() + " is outside "
+                    + startSeed + " to " + (startSeed + seedCount - 1));
+        }
+        byte[] bytes = record.toBytes();
+        long offset = dataEnd;
+        MappedByteBuffer target = windowFor(offset, 4L + bytes.length,
+                FileChannel.MapMode.READ_WRITE);
+        int position = (int) (offset - windowStart);
+        target.putInt(position, bytes.length);
+        target.put(position + 4, bytes);
+
+        dataEnd = offset + 4 + bytes.length;
+        setRecordOffset(record.getSeed(), offset);
+        index.putLong(DATA_END_OFFSET, dataEnd);
+    }
+
+    /** Record of the seed or null if it was not stored */
+    public synchronized SeedRecord read(int seed) throws IOException {
+        if (!isInRange(seed)) {
+            return null;
+        }
+        long offset = recordOffset(seed);
+        if (offset == 0) {
+            return null;
+        }
+        FileChannel.MapMode mode =
+                writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+        MappedByteBuffer source = windowFor(offset, 4, mode);
+        int length = source.getInt((int) (offset - windowStart));
+        source = windowFor(offset, 4L + length, mode);
+        byte[] bytes = new byte[length];
+        source.get((int) (offset - windowStart) + 4, bytes);
+        return SeedRecord.fromBytes(bytes);
+    }
+
+    // Mapped window holding [offset, offset + length), remapping if the current one does not
+    private MappedByteBuffer windowFor(long offset, long length, FileChannel.MapMode mode)
+            throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Record of " + length + " bytes is too large");
+        }
+        if (window == null || offset < windowStart
+                || offset + length > windowStart + window.capacity()) {
+            long size = Math.max(length, WINDOW_SIZE);
+            if (mode == FileChannel.MapMode.READ_ONLY) {
+                size = Math.min(size, channel.size() - offset);
+            }
+            window = channel.map(mode, offset, size);
+            windowStart = offset;
+        }
+        return window;
+    }
+
+    private boolean isInRange(int seed) {
+        return seed >= startSeed && (long) seed < (long) startSeed + seedCount;
+    }
+
+    private long recordOffset(int seed) {
+        return index.getLong(indexPosition(seed));
+    }
+
+    private void setRecordOffset(int seed, long offset) {
+        index.putLong(indexPosition(seed), offset);
+    }
+
+    private int indexPosition(int seed) {
+        return (int) (HEADER_SIZE + 8L * ((long) seed - startSeed));
+    }
+
+    /** Flushes a writable store and trims the unused end of the last window */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (writable) {
+                index.force();
+                if (window != null) {
+                    window.force();
+                }
+            }
+        } finally {
+            window = null;
+            if (writable) {
+                try {
+                    channel.truncate(dataEnd);
+                } catch (IOException e) {
+                    // Some platforms refuse while the window is still mapped. The header keeps
+                    // the end of the data so readers ignore the unused space
+                }
+            }
+            channel.close();
+        }
+    }
+}
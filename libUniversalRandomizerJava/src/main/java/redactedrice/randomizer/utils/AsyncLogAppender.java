@@ -0,0 +1,233 @@
+package redactedrice.randomizer.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes formatted log lines on a background thread so logging threads only pay for formatting.
+ * Lines wait in a bounded ring buffer (callers block while it is full so no line is lost), and the
+ * writer takes them in batches, writing each stream once per batch and flushing according to the
+ * flush policy. close drains everything still buffered. See Logger.enableAsync.
+ */
+public final class AsyncLogAppender implements Closeable {
+    public enum FlushPolicy {
+        // Flush the streams written by each batch
+        EVERY_BATCH,
+        // Flush at most once per flush interval
+        INTERVAL,
+        // Only flush on Logger.flush and close
+        ON_CLOSE
+    }
+
+    public static final int DEFAULT_CAPACITY = 8192;
+    public static final int DEFAULT_BATCH_SIZE = 512;
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 200;
+    // Longest the writer waits for lines before checking for close or a due flush
+    private static final long MAX_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private static final class Entry {
+        final byte[] bytes;
+        final List<OutputStream> streams;
+        // Set for flush requests instead of lines
+        final CountDownLatch flushed;
+
+        Entry(byte[] bytes, List<OutputStream> streams, CountDownLatch flushed) {
+            this.bytes = bytes;
+            this.streams = streams;
+            this.flushed = flushed;
+        }
+    }
+
+    private final ArrayBlockingQueue<Entry> buffer;
+    private final int batchSize;
+    private final FlushPolicy flushPolicy;
+    private final long flushIntervalNanos;
+    private final Thread writer;
+    private volatile boolean closed;
+
+    // Writer thread state
+    private final List<Entry> batch;
+    private final Map<OutputStream, ByteArrayOutputStream> pending = new IdentityHashMap<>();
+    private final Map<OutputStream, Boolean> unflushed = new IdentityHashMap<>();
+    private long lastFlush = System.nanoTime();
+
+    public AsyncLogAppender() {
+        this(DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, FlushPolicy.INTERVAL,
+                DEFAULT_FLUSH_INTERVAL_MILLIS);
+    }
+
+    public AsyncLogAppender(int capacity, int batchSize, FlushPolicy flushPolicy,
+            long flushIntervalMillis) {
+        if (capacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Capacity and batch size must be positive");
+        }
+        if (flushPolicy == null) {
+            throw new IllegalArgumentException("Flush policy cannot be null");
+        }
+        if (flushPolicy == FlushPolicy.INTERVAL && flushIntervalMillis <= 0) {
+            throw new IllegalArgumentException("Flush interval must be positive");
+        }
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.batch = new ArrayList<>(batchSize);
+        this.flushPolicy = flushPolicy;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(flushIntervalMillis, 0));
+        this.writer = new Thread(this::run, "Logger-async-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public FlushPolicy getFlushPolicy() {
+        return flushPolicy;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    // Queues the line for the streams. Returns false once closed so the caller writes it itself
+    public boolean append(byte[] bytes, List<OutputStream> streams) {
+        if (closed) {
+            return false;
+        }
+        try {
+            buffer.put(new Entry(bytes, streams, null));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Waits until every line queued before this call is written and the streams are flushed
+    public void flush() {
+        if (closed || Thread.currentThread() == writer) {
+            return;
+        }
+        CountDownLatch flushed = new CountDownLatch(1);
+        try {
+            buffer.put(new Entry(null, null, flushed));
+            while (!flushed.await(MAX_IDLE_NANOS, TimeUnit.NANOSECONDS)) {
+                if (!writer.isAlive()) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Stops accepting lines, then drains and flushes the buffered ones
+    @Override
+    public void close() {
+        closed = true;
+        if (Thread.currentThread() == writer) {
+            return;
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        // Lines queued by callers that raced with close
+        if (!buffer.isEmpty()) {
+            buffer.drainTo(batch);
+            writeBatch();
+            flushStreams();
+        }
+    }
+
+    private void run() {
+        while (!closed || !buffer.isEmpty()) {
+            Entry first;
+            try {
+                first = buffer.poll(pollNanos(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                // Only close stops the writer
+                continue;
+            }
+            if (first != null) {
+                batch.add(first);
+                buffer.drainTo(batch, batchSize - 1);
+                writeBatch();
+                if (flushPolicy == FlushPolicy.EVERY_BATCH) {
+                    flushStreams();
+                }
+            }
+            if (flushPolicy == FlushPolicy.INTERVAL
+                    && System.nanoTime() - lastFlush >= flushIntervalNanos) {
+                flushStreams();
+            }
+        }
+        flushStreams();
+    }
+
+    private long pollNanos() {
+        if (flushPolicy == FlushPolicy.INTERVAL && !unflushed.isEmpty()) {
+            long untilFlush = flushIntervalNanos - (System.nanoTime() - lastFlush);
+            return Math.max(0, Math.min(untilFlush, MAX_IDLE_NANOS));
+        }
+        return MAX_IDLE_NANOS;
+    }
+
+    // Joins the batch's lines per stream so each stream gets one write, keeping line order
+    private void writeBatch() {
+        for (Entry entry : batch) {
+            if (entry.flushed != null) {
+                writePending();
+                flushStreams();
+                entry.flushed.countDown();
+                continue;
+            }
+            for (OutputStream stream : entry.streams) {
+                pending.computeIfAbsent(stream, s -> new ByteArrayOutputStream())
+                        .writeBytes(entry.bytes);
+            }
+        }
+        batch.clear();
+        writePending();
+    }
+
+    private void writePending() {
+        for (Map.Entry<OutputStream, ByteArrayOutputStream> entry : pending.entrySet()) {
+            ByteArrayOutputStream bytes = entry.getValue();
+            if (bytes.size() == 0) {
+                continue;
+            }
+            try {
+                bytes.writeTo(entry.getKey());
+                unflushed.put(entry.getKey(), Boolean.TRUE);
+            } catch (IOException e) {
+                // Silently ignore write errors to avoid infinite loops
+                System.err.println("Logger: Failed to write to stream: " + e.getMessage());
+            }
+            bytes.reset();
+        }
+        // Buffers are reused across batches unless a lot of streams came and went
+        if (pending.size() > 32) {
+            pending.clear();
+        }
+    }
+
+    private void flushStreams() {
+        for (OutputStream stream : unflushed.keySet()) {
+            try {
+                stream.flush();
+            } catch (IOException e) {
+                System.err.println("Logger: Failed to flush stream: " + e.getMessage());
+            }
+        }
+        unflushed.clear();
+        lastFlush = System.nanoTime();
+    }
+}
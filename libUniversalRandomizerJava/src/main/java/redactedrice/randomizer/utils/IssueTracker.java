@@ -20,6 +20,9 @@ import java.util.List;
 // Plain Logger.warn/error collect into IssueTracker when Logger collection is enabled (default on).
 // IssueTracker.addWarning/addError always collect and log once via Logger.log. A "phase" is one
 // host batch (e.g. loadModules or one executeModules / randomize run), not each module inside it.
+//
+// capture() gives a thread its own store until closed, so every call above only sees that
+// thread's issues. Used where several runs share the JVM, e.g. seed sweeps and searches.
 public final class IssueTracker {
     public enum Severity {
         WARNING, ERROR
@@ -44,9 +47,46 @@ public final class IssueTracker {
         }
     }
 
-    private static final List<Issue> issues = new ArrayList<>();
-    private static int errorSnapshotBaseline = 0;
-    private static int warningSnapshotBaseline = 0;
+    // Issues and snapshot baselines. The global store is used unless the thread has a capture open
+    private static final class Store {
+        private final List<Issue> issues = new ArrayList<>();
+        private int errorSnapshotBaseline = 0;
+        private int warningSnapshotBaseline = 0;
+    }
+
+    // Collects the issues of one thread's work apart from the global store (see capture)
+    public static final class Capture implements AutoCloseable {
+        private final Store store = new Store();
+        private final Store previous;
+        private boolean closed;
+
+        private Capture(Store previous) {
+            this.previous = previous;
+        }
+
+        public List<Issue> getIssues() {
+            synchronized (store) {
+                return List.copyOf(store.issues);
+            }
+        }
+
+        // Restores the store that was in use when the capture was opened
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (previous == null) {
+                CAPTURED.remove();
+            } else {
+                CAPTURED.set(previous);
+            }
+        }
+    }
+
+    private static final Store GLOBAL = new Store();
+    private static final ThreadLocal<Store> CAPTURED = new ThreadLocal<>();
 
     private IssueTracker() {}
 
@@ -82,8 +122,9 @@ public final class IssueTracker {
             return;
         }
         String normalized = message.trim();
-        synchronized (issues) {
-            issues.add(new Issue(Severity.WARNING, normalized, context));
+        Store store = current();
+        synchronized (store) {
+            store.issues.add(new Issue(Severity.WARNING, normalized, context));
         }
     }
 
@@ -93,59 +134,68 @@ public final class IssueTracker {
             return;
         }
         String normalized = message.trim();
-        synchronized (issues) {
-            issues.add(new Issue(Severity.ERROR, normalized, context));
+        Store store = current();
+        synchronized (store) {
+            store.issues.add(new Issue(Severity.ERROR, normalized, context));
         }
     }
 
     public static boolean hasErrors() {
-        synchronized (issues) {
-            return issues.stream().anyMatch(Issue::isError);
+        Store store = current();
+        synchronized (store) {
+            return store.issues.stream().anyMatch(Issue::isError);
         }
     }
 
     public static boolean hasWarnings() {
-        synchronized (issues) {
-            return issues.stream().anyMatch(Issue::isWarning);
+        Store store = current();
+        synchronized (store) {
+            return store.issues.stream().anyMatch(Issue::isWarning);
         }
     }
 
     public static boolean hasIssues() {
-        synchronized (issues) {
-            return !issues.isEmpty();
+        Store store = current();
+        synchronized (store) {
+            return !store.issues.isEmpty();
         }
     }
 
     public static int getErrorCount() {
-        synchronized (issues) {
-            return countErrorsLocked();
+        Store store = current();
+        synchronized (store) {
+            return countErrorsLocked(store);
         }
     }
 
     public static int getWarningCount() {
-        synchronized (issues) {
-            return countWarningsLocked();
+        Store store = current();
+        synchronized (store) {
+            return countWarningsLocked(store);
         }
     }
 
-    // Remember current totals so later get*CountSinceSnapshot reports only new issues.
+    // Remember current totals so later get*CountSinceSnapshot reports only new store.issues.
     // Pair with clearSnapshot in a finally block. A second snapshot overwrites.
     public static void snapshot() {
-        synchronized (issues) {
-            errorSnapshotBaseline = countErrorsLocked();
-            warningSnapshotBaseline = countWarningsLocked();
+        Store store = current();
+        synchronized (store) {
+            store.errorSnapshotBaseline = countErrorsLocked(store);
+            store.warningSnapshotBaseline = countWarningsLocked(store);
         }
     }
 
     public static int getErrorCountSinceSnapshot() {
-        synchronized (issues) {
-            return Math.max(0, countErrorsLocked() - errorSnapshotBaseline);
+        Store store = current();
+        synchronized (store) {
+            return Math.max(0, countErrorsLocked(store) - store.errorSnapshotBaseline);
         }
     }
 
     public static int getWarningCountSinceSnapshot() {
-        synchronized (issues) {
-            return Math.max(0, countWarningsLocked() - warningSnapshotBaseline);
+        Store store = current();
+        synchronized (store) {
+            return Math.max(0, countWarningsLocked(store) - store.warningSnapshotBaseline);
         }
     }
 
@@ -155,9 +205,10 @@ public final class IssueTracker {
 
     // Reset baselines to 0 (deltas then count from an empty prior state).
     public static void clearSnapshot() {
-        synchronized (issues) {
-            errorSnapshotBaseline = 0;
-            warningSnapshotBaseline = 0;
+        Store store = current();
+        synchronized (store) {
+            store.errorSnapshotBaseline = 0;
+            store.warningSnapshotBaseline = 0;
         }
     }
 
@@ -175,20 +226,23 @@ public final class IssueTracker {
     }
 
     public static List<Issue> getIssues() {
-        synchronized (issues) {
-            return List.copyOf(issues);
+        Store store = current();
+        synchronized (store) {
+            return List.copyOf(store.issues);
         }
     }
 
     public static List<String> getErrors() {
-        synchronized (issues) {
-            return issues.stream().filter(Issue::isError).map(Issue::message).toList();
+        Store store = current();
+        synchronized (store) {
+            return store.issues.stream().filter(Issue::isError).map(Issue::message).toList();
         }
     }
 
     public static List<String> getWarnings() {
-        synchronized (issues) {
-            return issues.stream().filter(Issue::isWarning).map(Issue::message).toList();
+        Store store = current();
+        synchronized (store) {
+            return store.issues.stream().filter(Issue::isWarning).map(Issue::message).toList();
         }
     }
 
@@ -196,39 +250,68 @@ public final class IssueTracker {
         if (severity == null) {
             return List.of();
         }
-        synchronized (issues) {
-            return issues.stream().filter(i -> i.severity() == severity).toList();
+        Store store = current();
+        synchronized (store) {
+            return store.issues.stream().filter(i -> i.severity() == severity).toList();
         }
     }
 
     public static void clear() {
-        synchronized (issues) {
-            issues.clear();
-            errorSnapshotBaseline = 0;
-            warningSnapshotBaseline = 0;
+        Store store = current();
+        synchronized (store) {
+            store.issues.clear();
+            store.errorSnapshotBaseline = 0;
+            store.warningSnapshotBaseline = 0;
         }
     }
 
     public static void clearWarnings() {
-        synchronized (issues) {
-            issues.removeIf(Issue::isWarning);
-            warningSnapshotBaseline = 0;
+        Store store = current();
+        synchronized (store) {
+            store.issues.removeIf(Issue::isWarning);
+            store.warningSnapshotBaseline = 0;
         }
     }
 
     public static void clearErrors() {
-        synchronized (issues) {
-            issues.removeIf(Issue::isError);
-            errorSnapshotBaseline = 0;
+        Store store = current();
+        synchronized (store) {
+            store.issues.removeIf(Issue::isError);
+            store.errorSnapshotBaseline = 0;
         }
     }
 
-    private static int countErrorsLocked() {
-        return (int) issues.stream().filter(Issue::isError).count();
+    // Sends the calling thread's issues to a fresh store until the capture is closed so work
+    // running side by side (e.g. seed search workers) doesn't mix issues or snapshots. Captures
+    // nest; the global store is left untouched
+    public static Capture capture() {
+        Capture capture = new Capture(CAPTURED.get());
+        CAPTURED.set(capture.store);
+        return capture;
+    }
+
+    // Adds issues (e.g. ones taken from a capture) to the current store without logging them
+    public static void addAll(List<Issue> added) {
+        if (added == null || added.isEmpty()) {
+            return;
+        }
+        Store store = current();
+        synchronized (store) {
+            store.issues.addAll(added);
+        }
+    }
+
+    private static Store current() {
+        Store captured = CAPTURED.get();
+        return captured != null ? captured : GLOBAL;
+    }
+
+    private static int countErrorsLocked(Store store) {
+        return (int) store.issues.stream().filter(Issue::isError).count();
     }
 
-    private static int countWarningsLocked() {
-        return (int) issues.stream().filter(Issue::isWarning).count();
+    private static int countWarningsLocked(Store store) {
+        return (int) store.issues.stream().filter(Issue::isWarning).count();
     }
 
     private static String formatDeltaCounts(int errors, int warnings) {
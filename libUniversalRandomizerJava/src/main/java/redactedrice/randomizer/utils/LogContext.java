@@ -0,0 +1,112 @@
+package redactedrice.randomizer.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What a log line belongs to: the module being run, its seed and the batch of the run. Each
+ * thread (including virtual threads) has its own current context, so runs on different threads
+ * are attributed correctly without sharing state. Contexts are immutable; enterBatch and
+ * enterModule make a derived context current until the returned scope is closed.
+ *
+ * <pre>
+ * try (LogContext.Scope scope = LogContext.enterModule("shuffle", 1234)) {
+ *     Logger.info("logged as shuffle with seed 1234");
+ * }
+ * </pre>
+ */
+public final class LogContext {
+    public static final LogContext EMPTY = new LogContext(null, null, null);
+
+    private static final ThreadLocal<LogContext> CURRENT = new ThreadLocal<>();
+    private static final AtomicLong nextBatch = new AtomicLong();
+
+    private final String moduleName;
+    private final Integer seed;
+    private final String batchId;
+
+    private LogContext(String moduleName, Integer seed, String batchId) {
+        this.moduleName = moduleName;
+        this.seed = seed;
+        this.batchId = batchId;
+    }
+
+    /** Restores the context that was current before it was opened */
+    public static final class Scope implements AutoCloseable {
+        private final LogContext previous;
+
+        private Scope(LogContext previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            set(previous);
+        }
+    }
+
+    public static LogContext current() {
+        LogContext context = CURRENT.get();
+        return context != null ? context : EMPTY;
+    }
+
+    // Replaces the current context of this thread without a scope
+    public static void set(LogContext context) {
+        if (context == null || context == EMPTY) {
+            // Nothing left behind on pooled threads
+            CURRENT.remove();
+        } else {
+            CURRENT.set(context);
+        }
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    // Unique id for a new batch, e.g. "batch-3"
+    public static String newBatchId() {
+        return "batch-" + nextBatch.incrementAndGet();
+    }
+
+    // Starts a batch with no module yet
+    public static Scope enterBatch(String batchId) {
+        return new LogContext(null, null, batchId).enter();
+    }
+
+    // Module within the current batch. Seed is null for unseeded modules and scripts
+    public static Scope enterModule(String moduleName, Integer seed) {
+        return current().withModule(moduleName, seed).enter();
+    }
+
+    public LogContext withModule(String moduleName, Integer seed) {
+        return new LogContext(moduleName, seed, batchId);
+    }
+
+    public LogContext withBatch(String batchId) {
+        return new LogContext(moduleName, seed, batchId);
+    }
+
+    // Makes this the current context until the scope is closed
+    public Scope enter() {
+        Scope scope = new Scope(current());
+        set(this);
+        return scope;
+    }
+
+    public String getModuleName() {
+        return moduleName;
+    }
+
+    public Integer getSeed() {
+        return seed;
+    }
+
+    public String getBatchId() {
+        return batchId;
+    }
+
+    @Override
+    public String toString() {
+        return "LogContext{module=" + moduleName + ", seed=" + seed + ", batch=" + batchId + "}";
+    }
+}
@@ -0,0 +1,190 @@
+package redactedrice.randomizer.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Logger format string compiled once into literal text and placeholders so formatting a message
+// is a single pass over the segments. Placeholders are %[-][width][.precision]NAME where NAME is
+// LEVEL, TIMESTAMP, MODULE, MESSAGE, SEED or BATCH. Anything else after a % is kept as literal text
+final class LogTemplate {
+    static final int LEVEL = 0;
+    static final int TIMESTAMP = 1;
+    static final int MODULE = 2;
+    static final int MESSAGE = 3;
+    static final int SEED = 4;
+    static final int BATCH = 5;
+    private static final String[] NAMES =
+            {"LEVEL", "TIMESTAMP", "MODULE", "MESSAGE", "SEED", "BATCH"};
+
+    // One literal text or placeholder of the format
+    private record Segment(String literal, int name, boolean leftAligned, int width,
+            int precision) {
+        static Segment literal(String text) {
+            return new Segment(text, -1, false, -1, -1);
+        }
+    }
+
+    private final String source;
+    private final Segment[] segments;
+    private final boolean usesTimestamp;
+    private final boolean usesModule;
+    private final boolean usesContext;
+
+    private LogTemplate(String source, List<Segment> segments) {
+        this.source = source;
+        this.segments = segments.toArray(new Segment[0]);
+        boolean timestamp = false;
+        boolean module = false;
+        boolean context = false;
+        for (Segment segment : segments) {
+            timestamp |= segment.name() == TIMESTAMP;
+            module |= segment.name() == MODULE;
+            context |= segment.name() == SEED || segment.name() == BATCH;
+        }
+        usesTimestamp = timestamp;
+        usesModule = module;
+        usesContext = context;
+    }
+
+    static LogTemplate compile(String format) {
+        List<Segment> segments = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int length = format.length();
+        int i = 0;
+        while (i < length) {
+            char c = format.charAt(i);
+            int end = c == '%' ? parsePlaceholder(format, i, segments, literal) : -1;
+            if (end < 0) {
+                literal.append(c);
+                i++;
+            } else {
+                i = end;
+            }
+        }
+        if (literal.length() > 0) {
+            segments.add(Segment.literal(literal.toString()));
+        }
+        return new LogTemplate(format, segments);
+    }
+
+    // Adds the placeholder starting at start (after any pending literal text) and returns the
+    // index after it, or returns -1 if no placeholder starts there
+    private static int parsePlaceholder(String format, int start, List<Segment> segments,
+            StringBuilder literal) {
+        int i = start + 1;
+        boolean left = i < format.length() && format.charAt(i) == '-';
+        if (left) {
+            i++;
+        }
+        int digitsStart = i;
+        while (i < format.length() && isDigit(format.charAt(i))) {
+            i++;
+        }
+        int width = i > digitsStart ? parseNumber(format, digitsStart, i) : -1;
+        int precision = -1;
+        if (i + 1 < format.length() && format.charAt(i) == '.'
+                && isDigit(format.charAt(i + 1))) {
+            int precisionStart = ++i;
+            while (i < format.length() && isDigit(format.charAt(i))) {
+                i++;
+            }
+            precision = parseNumber(format, precisionStart, i);
+        }
+        for (int name = 0; name < NAMES.length; name++) {
+            if (format.startsWith(NAMES[name], i)) {
+                if (literal.length() > 0) {
+                    segments.add(Segment.literal(literal.toString()));
+                    literal.setLength(0);
+                }
+                segments.add(new Segment(null, name, left, width, precision));
+                return i + NAMES[name].length();
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // Saturates instead of overflowing for absurd widths
+    private static int parseNumber(String format, int start, int end) {
+        long value = 0;
+        for (int i = start; i < end && value <= Integer.MAX_VALUE; i++) {
+            value = value * 10 + (format.charAt(i) - '0');
+        }
+        return (int) Math.min(value, Integer.MAX_VALUE);
+    }
+
+    String getSource() {
+        return source;
+    }
+
+    boolean usesTimestamp() {
+        return usesTimestamp;
+    }
+
+    boolean usesModule() {
+        return usesModule;
+    }
+
+    // Whether SEED or BATCH is used
+    boolean usesContext() {
+        return usesContext;
+    }
+
+    void render(StringBuilder out, String level, String timestamp, String module,
+            String message, String seed, String batch) {
+        for (Segment segment : segments) {
+            if (segment.literal() != null) {
+                out.append(segment.literal());
+                continue;
+            }
+            String value;
+            switch (segment.name()) {
+                case LEVEL:
+                    value = level;
+                    break;
+                case TIMESTAMP:
+                    value = timestamp;
+                    break;
+                case MODULE:
+                    value = module;
+                    break;
+                case SEED:
+                    value = seed;
+                    break;
+                case BATCH:
+                    value = batch;
+                    break;
+                default:
+                    value = message;
+            }
+            if (value == null) {
+                value = "null";
+            }
+            int valueLength = value.length();
+            if (segment.precision() > 0 && valueLength > segment.precision()) {
+                valueLength = segment.precision();
+            }
+            int width = segment.width();
+            if (width > 0 && valueLength > width) {
+                valueLength = width;
+            }
+            int padding = width > 0 ? width - valueLength : 0;
+            if (!segment.leftAligned()) {
+                pad(out, padding);
+            }
+            out.append(value, 0, valueLength);
+            if (segment.leftAligned()) {
+                pad(out, padding);
+            }
+        }
+    }
+
+    static void pad(StringBuilder out, int count) {
+        for (int i = 0; i < count; i++) {
+            out.append(' ');
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package redactedrice.randomizer.utils;
 
 import java.io.OutputStream;
-import java.text.SimpleDateFormat;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
 
 // logging utility that can be called from both java and lua
 // supports multiple output streams per log level
@@ -15,44 +17,74 @@ public class Logger {
     private static final int DEFAULT_MAX_MODULE_NAME_LENGTH = -1;
     private static final boolean DEFAULT_FORCE_MODULE_WIDTH = false;
 
-    private static boolean enabled = true;
+    // Volatile so level checks on executing threads see changes without locking
+    private static volatile boolean enabled = true;
     private static boolean showTimestamp = false;
     private static boolean showModuleName = false;
-    private static String currentModuleName = null;
-    private static LogLevel minLogLevel = LogLevel.INFO;
+    private static volatile LogLevel minLogLevel = LogLevel.INFO;
     private static String formatString = DEFAULT_FORMAT_STRING;
+    // formatString compiled when it is set
+    private static volatile LogTemplate template = LogTemplate.compile(DEFAULT_FORMAT_STRING);
     private static int maxModuleNameLength = DEFAULT_MAX_MODULE_NAME_LENGTH;
     private static boolean forceModuleWidth = DEFAULT_FORCE_MODULE_WIDTH;
     private static String timestampFormat = DEFAULT_TIMESTAMP_FORMAT;
+    // Thread safe so one formatter is shared by every log call
+    private static volatile DateTimeFormatter timestampFormatter =
+            DateTimeFormatter.ofPattern(DEFAULT_TIMESTAMP_FORMAT);
     private static boolean collectWarningsToIssueTracker = true;
     private static boolean collectErrorsToIssueTracker = true;
+    // Set while async mode is on (see enableAsync)
+    private static volatile AsyncLogAppender asyncAppender;
+    private static Thread asyncShutdownHook;
 
-    // Map of log levels to their output streams
-    private static Map<LogLevel, List<OutputStream>> levelStreams = new HashMap<>();
+    // Streams of each log level. The map and lists are immutable and replaced as a whole when
+    // streams change (copy on write) so log calls on any thread read them without locking
+    private static volatile Map<LogLevel, List<OutputStream>> levelStreams = defaultStreams();
+    private static final Object streamsLock = new Object();
 
-    static {
-        // initialize default streams for each log level
-        // by default, each level has its own list of output streams
+    // errors go to stderr, everything else to stdout by default
+    private static OutputStream defaultStream(LogLevel level) {
+        return level == LogLevel.ERROR ? System.err : System.out;
+    }
+
+    private static Map<LogLevel, List<OutputStream>> defaultStreams() {
+        Map<LogLevel, List<OutputStream>> streams = new EnumMap<>(LogLevel.class);
         for (LogLevel level : LogLevel.values()) {
-            levelStreams.put(level, new ArrayList<>());
-            // errors go to stderr, everything else to stdout by default
-            if (level == LogLevel.ERROR) {
-                levelStreams.get(level).add(System.err);
-            } else {
-                levelStreams.get(level).add(System.out);
+            streams.put(level, List.of(defaultStream(level)));
+        }
+        return Collections.unmodifiableMap(streams);
+    }
+
+    // Replaces the streams of the levels with the result of the change
+    private static void updateStreams(Collection<LogLevel> levels,
+            UnaryOperator<List<OutputStream>> change) {
+        synchronized (streamsLock) {
+            Map<LogLevel, List<OutputStream>> updated = new EnumMap<>(levelStreams);
+            for (LogLevel level : levels) {
+                if (level != null) {
+                    updated.put(level, List.copyOf(change.apply(updated.get(level))));
+                }
             }
+            levelStreams = Collections.unmodifiableMap(updated);
         }
     }
 
+    private static List<OutputStream> withStream(List<OutputStream> streams,
+            OutputStream stream) {
+        // only add if we dont already have this stream to avoid duplicates
+        if (streams.contains(stream)) {
+            return streams;
+        }
+        List<OutputStream> added = new ArrayList<>(streams);
+        added.add(stream);
+        return added;
+    }
+
     public static void addStreamForLevel(LogLevel level, OutputStream stream) {
         if (level == null || stream == null) {
             return; // silently ignore null parameters to avoid errors
         }
-        List<OutputStream> streams = levelStreams.get(level);
-        // only add if we dont already have this stream to avoid duplicates
-        if (streams != null && !streams.contains(stream)) {
-            streams.add(stream);
-        }
+        updateStreams(List.of(level), streams -> withStream(streams, stream));
     }
 
     public static void addStreamForLevels(OutputStream stream, LogLevel... levels) {
@@ -60,14 +92,7 @@ public class Logger {
             return; // silently ignore invalid parameters to avoid errors
         }
         // add stream to multiple levels at once
-        for (LogLevel level : levels) {
-            if (level != null) {
-                List<OutputStream> streams = levelStreams.get(level);
-                if (streams != null && !streams.contains(stream)) {
-                    streams.add(stream);
-                }
-            }
-        }
+        updateStreams(Arrays.asList(levels), streams -> withStream(streams, stream));
     }
 
     public static void addStreamForAllLevels(OutputStream stream) {
@@ -75,38 +100,40 @@ public class Logger {
             return; // silently ignore null parameters to avoid errors
         }
         // add stream to all log levels
-        for (LogLevel level : LogLevel.values()) {
-            List<OutputStream> streams = levelStreams.get(level);
-            if (streams != null && !streams.contains(stream)) {
-                streams.add(stream);
-            }
-        }
+        updateStreams(Arrays.asList(LogLevel.values()), streams -> withStream(streams, stream));
+    }
+
+    // Current streams of the level
+    public static List<OutputStream> getStreamsForLevel(LogLevel level) {
+        return level != null ? levelStreams.get(level) : List.of();
     }
 
     public static void removeAllStreamsForLevel(LogLevel level) {
         if (level == null) {
             return; // silently ignore null parameters to avoid errors
         }
-        List<OutputStream> streams = levelStreams.get(level);
-        if (streams != null) {
-            // always ensure system.out/err remain after clearing
-            // this prevents accidental loss of console output
-            OutputStream defaultStream = (level == LogLevel.ERROR) ? System.err : System.out;
-            streams.clear();
-            streams.add(defaultStream);
+        // always ensure system.out/err remain after clearing
+        // this prevents accidental loss of console output
+        updateStreams(List.of(level), streams -> List.of(defaultStream(level)));
+    }
+
+    // Removes the stream from every level (e.g. before closing a file sink). The default console
+    // streams are kept
+    public static void removeStream(OutputStream stream) {
+        if (stream == null || stream == System.out || stream == System.err) {
+            return; // silently ignore null and console streams to avoid losing output
         }
+        updateStreams(Arrays.asList(LogLevel.values()), streams -> {
+            List<OutputStream> removed = new ArrayList<>(streams);
+            removed.remove(stream);
+            return removed;
+        });
     }
 
     public static void clearAllStreams() {
         // clear all custom streams but keep default console outputs
-        for (LogLevel level : LogLevel.values()) {
-            List<OutputStream> streams = levelStreams.get(level);
-            if (streams != null) {
-                // always ensure system.out/err remain after clearing
-                OutputStream defaultStream = (level == LogLevel.ERROR) ? System.err : System.out;
-                streams.clear();
-                streams.add(defaultStream);
-            }
+        synchronized (streamsLock) {
+            levelStreams = defaultStreams();
         }
     }
 
@@ -125,14 +152,15 @@ public class Logger {
     public static void setTimestampFormat(String format) {
         if (format == null || format.isEmpty()) {
             timestampFormat = DEFAULT_TIMESTAMP_FORMAT;
+            timestampFormatter = DateTimeFormatter.ofPattern(DEFAULT_TIMESTAMP_FORMAT);
             return;
         }
 
-        // Validate the format string by trying to create a SimpleDateFormat
+        // Validate the format string by creating the formatter and formatting the current time
         try {
-            SimpleDateFormat sdf = new SimpleDateFormat(format);
-            // Test the format by formatting a date
-            sdf.format(new Date());
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern(format);
+            formatter.format(ZonedDateTime.now());
+            timestampFormatter = formatter;
             timestampFormat = format;
         } catch (Exception e) {
             throw new IllegalArgumentException("Invalid timestamp format string: " + format, e);
@@ -165,12 +193,15 @@ public class Logger {
         return forceModuleWidth;
     }
 
+    // Module name of this thread's LogContext. Prefer LogContext.enterModule which restores the
+    // previous context when closed
     public static void setCurrentModuleName(String moduleName) {
-        currentModuleName = moduleName;
+        LogContext context = LogContext.current();
+        LogContext.set(context.withModule(moduleName, context.getSeed()));
     }
 
     public static String getCurrentModuleName() {
-        return currentModuleName;
+        return LogContext.current().getModuleName();
     }
 
     public static void setMinLogLevel(LogLevel level) {
@@ -213,20 +244,43 @@ public class Logger {
         } else {
             formatString = DEFAULT_FORMAT_STRING;
         }
+        template = LogTemplate.compile(formatString);
     }
 
     public static String getFormatString() {
         return formatString;
     }
 
+    // True if messages of the level would be written. Lets callers skip building messages
+    public static boolean isLevelEnabled(LogLevel level) {
+        return enabled && level.getLevel() >= minLogLevel.getLevel();
+    }
+
+    public static boolean isDebugEnabled() {
+        return isLevelEnabled(LogLevel.DEBUG);
+    }
+
+    public static boolean isInfoEnabled() {
+        return isLevelEnabled(LogLevel.INFO);
+    }
+
     public static void debug(String message) {
         log(LogLevel.DEBUG, message);
     }
 
+    // Only builds the message if debug messages are written
+    public static void debug(Supplier<String> message) {
+        log(LogLevel.DEBUG, message);
+    }
+
     public static void info(String message) {
         log(LogLevel.INFO, message);
     }
 
+    public static void info(Supplier<String> message) {
+        log(LogLevel.INFO, message);
+    }
+
     public static void warn(String message) {
         if (message == null || message.isBlank()) {
             return;
@@ -249,129 +303,147 @@ public class Logger {
         log(LogLevel.ERROR, normalized);
     }
 
+    // Note: unlike warn/error this does not collect to IssueTracker so the message can be skipped
+    public static void log(LogLevel level, Supplier<String> message) {
+        if (isLevelEnabled(level)) {
+            log(level, message.get());
+        }
+    }
+
     public static void log(LogLevel level, String message) {
-        if (!enabled || level.getLevel() < minLogLevel.getLevel()) {
+        if (!isLevelEnabled(level)) {
             return;
         }
 
-        String formatted = formatMessage(level, message);
         List<OutputStream> streams = levelStreams.get(level);
+        if (streams == null || streams.isEmpty()) {
+            return;
+        }
+        byte[] bytes = formatMessage(level, message).getBytes(StandardCharsets.UTF_8);
 
-        if (streams != null && !streams.isEmpty()) {
-            byte[] bytes = (formatted + System.lineSeparator()).getBytes();
-            for (OutputStream stream : streams) {
-                try {
-                    stream.write(bytes);
-                    stream.flush();
-                } catch (java.io.IOException e) {
-                    // Silently ignore write errors to avoid infinite loops
-                    System.err.println("Logger: Failed to write to stream: " + e.getMessage());
-                }
+        AsyncLogAppender appender = asyncAppender;
+        if (appender != null && appender.append(bytes, streams)) {
+            return;
+        }
+        for (OutputStream stream : streams) {
+            try {
+                stream.write(bytes);
+                stream.flush();
+            } catch (java.io.IOException e) {
+                // Silently ignore write errors to avoid infinite loops
+                System.err.println("Logger: Failed to write to stream: " + e.getMessage());
             }
         }
     }
 
-    private static String formatMessage(LogLevel level, String message) {
-        // Prepare values for placeholders
-        String levelStr = level.getDisplayName();
-        String result = formatString;
+    // Switches to writing on a background thread with the default buffer and flush policy
+    public static void enableAsync() {
+        enableAsync(new AsyncLogAppender());
+    }
 
-        // Replace %TIMESTAMP with timestamp (if enabled)
-        // Note: timestampFormat is validated when set, so we can safely use it here
-        String timestamp = "";
-        if (showTimestamp) {
-            SimpleDateFormat sdf = new SimpleDateFormat(timestampFormat);
-            timestamp = sdf.format(new Date());
+    public static void enableAsync(int capacity, AsyncLogAppender.FlushPolicy flushPolicy,
+            long flushIntervalMillis) {
+        enableAsync(new AsyncLogAppender(capacity, AsyncLogAppender.DEFAULT_BATCH_SIZE,
+                flushPolicy, flushIntervalMillis));
+    }
+
+    // Log calls hand their formatted line to the appender instead of writing it. A previous
+    // appender is drained first. A shutdown hook drains the buffer if the JVM exits while
+    // async mode is on
+    public static synchronized void enableAsync(AsyncLogAppender appender) {
+        if (appender == null) {
+            throw new IllegalArgumentException("Appender cannot be null");
+        }
+        AsyncLogAppender previous = asyncAppender;
+        asyncAppender = appender;
+        if (previous != null) {
+            previous.close();
+        }
+        if (asyncShutdownHook == null) {
+            asyncShutdownHook = new Thread(Logger::drainAsync, "Logger-async-drain");
+            Runtime.getRuntime().addShutdownHook(asyncShutdownHook);
         }
+    }
 
-        // Replace %MODULE with module name (if enabled, truncated/padded to max length)
-        String moduleName = "";
-        if (showModuleName && currentModuleName != null) {
-            moduleName = currentModuleName;
-            // Only truncate if maxModuleNameLength is not -1 (no truncation)
-            if (maxModuleNameLength != -1 && moduleName.length() > maxModuleNameLength) {
-                moduleName = moduleName.substring(0, maxModuleNameLength);
-            } else if (forceModuleWidth && maxModuleNameLength != -1
-                    && moduleName.length() < maxModuleNameLength) {
-                // Force module width to max for consistent spacing (only if max length is set)
-                moduleName = String.format("%-" + maxModuleNameLength + "s", moduleName);
-            }
-        } else if (forceModuleWidth && showModuleName && maxModuleNameLength != -1) {
-            // Even if no module name, pad to max width for consistent spacing (only if max length
-            // is set)
-            moduleName = String.format("%-" + maxModuleNameLength + "s", "");
-        }
-
-        // Process placeholders with width specifiers using regex
-        // Pattern matches: %[optional minus][optional width][optional
-        // .precision](LEVEL|TIMESTAMP|MODULE|MESSAGE)
-
-        // Process placeholders (only full names, no single letters)
-        result = processPlaceholder(result,
-                "%(-?)(\\d+)?(?:\\.(\\d+))?(LEVEL|TIMESTAMP|MODULE|MESSAGE)", levelStr, timestamp,
-                moduleName, message);
-
-        return result;
-    }
-
-    private static String processPlaceholder(String format, String patternRegex, String levelStr,
-            String timestamp, String moduleName, String message) {
-        Pattern pattern = Pattern.compile(patternRegex);
-        Matcher matcher = pattern.matcher(format);
-        StringBuffer sb = new StringBuffer();
-
-        while (matcher.find()) {
-            String leftAlign = matcher.group(1); // "-" for left align, null for right
-            String widthStr = matcher.group(2); // Width number
-            String precisionStr = matcher.group(3); // Precision number (for truncation)
-            String placeholder = matcher.group(4); // The actual placeholder letter/word
-
-            boolean isLeftAlign = "-".equals(leftAlign);
-            int width = widthStr != null ? Integer.parseInt(widthStr) : -1;
-            int precision = precisionStr != null ? Integer.parseInt(precisionStr) : -1;
-
-            String value = "";
-            switch (placeholder) {
-                case "LEVEL":
-                    value = levelStr;
-                    break;
-                case "TIMESTAMP":
-                    value = timestamp;
-                    break;
-                case "MODULE":
-                    value = moduleName;
-                    break;
-                case "MESSAGE":
-                    value = message;
-                    break;
-                default:
-                    value = "";
+    // Drains the buffered lines and goes back to writing on the logging thread
+    public static synchronized void disableAsync() {
+        drainAsync();
+        if (asyncShutdownHook != null) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(asyncShutdownHook);
+            } catch (IllegalStateException e) {
+                // Already shutting down so the hook is running or has run
             }
+            asyncShutdownHook = null;
+        }
+    }
 
-            // Apply precision (truncation) if specified
-            if (precision > 0 && value.length() > precision) {
-                value = value.substring(0, precision);
-            }
+    private static void drainAsync() {
+        AsyncLogAppender appender = asyncAppender;
+        asyncAppender = null;
+        if (appender != null) {
+            appender.close();
+        }
+    }
 
-            // Apply width (padding/truncation) if specified
-            if (width > 0) {
-                if (value.length() > width) {
-                    value = value.substring(0, width);
-                } else {
-                    // Pad to width
-                    if (isLeftAlign) {
-                        value = String.format("%-" + width + "s", value);
-                    } else {
-                        value = String.format("%" + width + "s", value);
-                    }
-                }
-            }
+    public static boolean isAsync() {
+        return asyncAppender != null;
+    }
+
+    // Waits until lines logged so far are written and flushed. Lines are already written when
+    // not in async mode
+    public static void flush() {
+        AsyncLogAppender appender = asyncAppender;
+        if (appender != null) {
+            appender.flush();
+        }
+    }
+
+    // Formatted line including the line separator
+    private static String formatMessage(LogLevel level, String message) {
+        LogTemplate compiled = template;
+        // Note: timestampFormat is validated when set, so we can safely use it here
+        String timestamp = "";
+        if (showTimestamp && compiled.usesTimestamp()) {
+            timestamp = timestampFormatter.format(ZonedDateTime.now());
+        }
 
-            matcher.appendReplacement(sb, Matcher.quoteReplacement(value));
+        // Module, seed and batch of the run on this thread. Seed and batch are empty when unset
+        LogContext context = LogContext.current();
+        String moduleName = "";
+        if (showModuleName && compiled.usesModule()) {
+            // truncated/padded to max length
+            moduleName = formatModuleName(context.getModuleName());
         }
-        matcher.appendTail(sb);
+        String seed = "";
+        String batch = "";
+        if (compiled.usesContext()) {
+            seed = context.getSeed() != null ? context.getSeed().toString() : "";
+            batch = context.getBatchId() != null ? context.getBatchId() : "";
+        }
+
+        StringBuilder line = new StringBuilder(64 + (message != null ? message.length() : 4));
+        compiled.render(line, level.getDisplayName(), timestamp, moduleName, message, seed,
+                batch);
+        return line.append(System.lineSeparator()).toString();
+    }
 
-        return sb.toString();
+    private static String formatModuleName(String name) {
+        boolean limited = maxModuleNameLength != -1;
+        if (name == null) {
+            // Even if no module name, pad to max width for consistent spacing
+            return forceModuleWidth && limited ? " ".repeat(maxModuleNameLength) : "";
+        }
+        if (limited && name.length() > maxModuleNameLength) {
+            return name.substring(0, maxModuleNameLength);
+        }
+        if (forceModuleWidth && limited && name.length() < maxModuleNameLength) {
+            // Force module width to max for consistent spacing
+            StringBuilder padded = new StringBuilder(maxModuleNameLength).append(name);
+            LogTemplate.pad(padded, maxModuleNameLength - name.length());
+            return padded.toString();
+        }
+        return name;
     }
 
     // --- ASCII table formatting helpers ---
@@ -435,15 +507,19 @@ public class Logger {
         enabled = true;
         showTimestamp = false;
         showModuleName = false;
-        currentModuleName = null;
+        LogContext.clear();
         minLogLevel = LogLevel.INFO;
         formatString = DEFAULT_FORMAT_STRING;
         maxModuleNameLength = DEFAULT_MAX_MODULE_NAME_LENGTH;
         forceModuleWidth = DEFAULT_FORCE_MODULE_WIDTH;
         timestampFormat = DEFAULT_TIMESTAMP_FORMAT;
+        timestampFormatter = DateTimeFormatter.ofPattern(DEFAULT_TIMESTAMP_FORMAT);
+        template = LogTemplate.compile(DEFAULT_FORMAT_STRING);
         collectWarningsToIssueTracker = true;
         collectErrorsToIssueTracker = true;
 
+        disableAsync();
+
         // Reset streams to defaults (clearAllStreams already ensures System.out/err remain)
         clearAllStreams();
     }
@@ -3,6 +3,7 @@ package redactedrice.randomizer.utils;
 import org.luaj.vm2.LuaFunction;
 import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.Varargs;
 import org.luaj.vm2.lib.jse.CoerceJavaToLua;
 import redactedrice.randomizer.context.EnumDefinition;
 import redactedrice.randomizer.context.JavaObjectWrapper;
@@ -19,6 +20,13 @@ public class LuaJavaConverter {
     }
 
     public static LuaValue javaToLua(Object value, JavaObjectWrapper wrapper) {
+        return javaToLua(value, wrapper, new IdentityHashMap<>());
+    }
+
+    // converted maps each List/Map already seen (by identity) to its table so shared references
+    // resolve to one table and cycles terminate. Callers can share one map across several calls
+    public static LuaValue javaToLua(Object value, JavaObjectWrapper wrapper,
+            Map<Object, LuaTable> converted) {
         if (value == null) {
             return LuaValue.NIL;
         } else if (value instanceof LuaValue) {
@@ -30,9 +38,9 @@ public class LuaJavaConverter {
             // Use LuaJ's built-in coercion for primitives and strings
             return CoerceJavaToLua.coerce(value);
         } else if (value instanceof List) {
-            return listToLuaTable((List<?>) value, wrapper);
+            return listToLuaTable((List<?>) value, wrapper, converted);
         } else if (value instanceof Map) {
-            return mapToLuaTable((Map<?, ?>) value, wrapper);
+            return mapToLuaTable((Map<?, ?>) value, wrapper, converted);
         } else {
             // For complex objects, wrap them if wrapper is provided
             if (wrapper != null) {
@@ -49,10 +57,21 @@ public class LuaJavaConverter {
     }
 
     public static LuaTable listToLuaTable(List<?> list, JavaObjectWrapper wrapper) {
+        return listToLuaTable(list, wrapper, new IdentityHashMap<>());
+    }
+
+    private static LuaTable listToLuaTable(List<?> list, JavaObjectWrapper wrapper,
+            Map<Object, LuaTable> converted) {
+        LuaTable existing = converted.get(list);
+        if (existing != null) {
+            return existing;
+        }
         LuaTable luaTable = new LuaTable();
+        // Register before recursing so self references resolve to this table
+        converted.put(list, luaTable);
         for (int i = 0; i < list.size(); i++) {
             // Lua arrays are 1-indexed
-            luaTable.set(i + 1, javaToLua(list.get(i), wrapper));
+            luaTable.set(i + 1, javaToLua(list.get(i), wrapper, converted));
         }
         return luaTable;
     }
@@ -62,15 +81,55 @@ public class LuaJavaConverter {
     }
 
     public static LuaTable mapToLuaTable(Map<?, ?> map, JavaObjectWrapper wrapper) {
+        return mapToLuaTable(map, wrapper, new IdentityHashMap<>());
+    }
+
+    private static LuaTable mapToLuaTable(Map<?, ?> map, JavaObjectWrapper wrapper,
+            Map<Object, LuaTable> converted) {
+        LuaTable existing = converted.get(map);
+        if (existing != null) {
+            return existing;
+        }
         LuaTable luaTable = new LuaTable();
+        // Register before recursing so self references resolve to this table
+        converted.put(map, luaTable);
         for (Map.Entry<?, ?> entry : map.entrySet()) {
-            LuaValue key = javaToLua(entry.getKey(), wrapper);
-            LuaValue val = javaToLua(entry.getValue(), wrapper);
+            LuaValue key = javaToLua(entry.getKey(), wrapper, converted);
+            LuaValue val = javaToLua(entry.getValue(), wrapper, converted);
             luaTable.set(key, val);
         }
         return luaTable;
     }
 
+    // Copies nested plain tables (sharing and cycles preserved) without converting any values.
+    // Metatables are not copied so this is only meant for tables built by this converter
+    public static LuaTable copyLuaTable(LuaTable source) {
+        return copyLuaTable(source, new IdentityHashMap<>());
+    }
+
+    private static LuaTable copyLuaTable(LuaTable source, Map<LuaTable, LuaTable> copied) {
+        LuaTable existing = copied.get(source);
+        if (existing != null) {
+            return existing;
+        }
+        LuaTable copy = new LuaTable();
+        copied.put(source, copy);
+        LuaValue key = LuaValue.NIL;
+        while (true) {
+            Varargs entry = source.next(key);
+            key = entry.arg1();
+            if (key.isnil()) {
+                break;
+            }
+            LuaValue value = entry.arg(2);
+            if (value.istable()) {
+                value = copyLuaTable(value.checktable(), copied);
+            }
+            copy.rawset(key, value);
+        }
+        return copy;
+    }
+
     public static LuaTable enumDefinitionToLuaTable(String enumName, EnumDefinition enumDef) {
         if (enumDef == null) {
             return null;
@@ -154,6 +213,15 @@ public class LuaJavaConverter {
     }
 
     public static Object luaToJava(LuaValue value, boolean skipTables) {
+        if (skipTables && value.istable()) {
+            return value;
+        }
+        return luaToJava(value, new IdentityHashMap<>());
+    }
+
+    // converted maps each table already seen (by identity) to its Java collection so shared
+    // tables resolve to one List/Map and self referencing tables terminate
+    private static Object luaToJava(LuaValue value, Map<LuaTable, Object> converted) {
         if (value.isnil()) {
             return null;
         } else if (value.isboolean()) {
@@ -165,14 +233,15 @@ public class LuaJavaConverter {
         } else if (value.isstring()) {
             return value.tojstring();
         } else if (value.istable()) {
-            if (skipTables) {
-                return value;
-            }
             LuaTable table = value.checktable();
+            Object existing = converted.get(table);
+            if (existing != null) {
+                return existing;
+            }
             if (isLuaArray(table)) {
-                return luaTableToList(table);
+                return luaTableToList(table, converted);
             } else {
-                return luaTableToMap(table);
+                return luaTableToMap(table, converted);
             }
         }
         return value.toString();
@@ -192,22 +261,27 @@ public class LuaJavaConverter {
         return true;
     }
 
-    private static List<Object> luaTableToList(LuaTable table) {
-        List<Object> list = new ArrayList<>();
+    private static List<Object> luaTableToList(LuaTable table, Map<LuaTable, Object> converted) {
         int length = table.length();
+        List<Object> list = new ArrayList<>(length);
+        // Register before recursing so self references resolve to this list
+        converted.put(table, list);
         for (int i = 1; i <= length; i++) {
-            list.add(luaToJava(table.get(i)));
+            list.add(luaToJava(table.get(i), converted));
         }
         return list;
     }
 
-    private static Map<String, Object> luaTableToMap(LuaTable table) {
+    private static Map<String, Object> luaTableToMap(LuaTable table,
+            Map<LuaTable, Object> converted) {
         Map<String, Object> map = new LinkedHashMap<>();
+        // Register before recursing so self references resolve to this map
+        converted.put(table, map);
         LuaValue[] keys = table.keys();
         for (LuaValue key : keys) {
             if (key.isstring()) {
                 LuaValue value = table.get(key);
-                map.put(key.tojstring(), luaToJava(value));
+                map.put(key.tojstring(), luaToJava(value, converted));
             }
         }
         return map;
@@ -0,0 +1,125 @@
+package redactedrice.randomizer.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Keeps the most recent log lines in memory so a UI can show them without re-reading log files.
+ * Add it to the Logger like any other stream (e.g. Logger.addStreamForAllLevels). Once full,
+ * each new line replaces the oldest one.
+ *
+ * Lines are numbered from 0 in the order they are written. Readers never lock or block writers:
+ * they read the slots directly and skip any line that was replaced while they read, so a reader
+ * can poll from any thread with readSince and the sequence it returned last time.
+ */
+public class RingBufferLogSink extends OutputStream {
+    public static final int DEFAULT_CAPACITY = 1000;
+
+    private record Line(long sequence, String text) {}
+
+    private final AtomicReferenceArray<Line> slots;
+    // Sequence the next line gets. Only increased after its slot is set
+    private final AtomicLong nextSequence = new AtomicLong();
+    // Bytes of a line whose end has not been written yet. Guarded by this
+    private final ByteArrayOutputStream partial = new ByteArrayOutputStream();
+
+    public RingBufferLogSink() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public RingBufferLogSink(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    public int getCapacity() {
+        return slots.length();
+    }
+
+    @Override
+    public synchronized void write(int b) {
+        if (b == '\n') {
+            endLine();
+        } else {
+            partial.write(b);
+        }
+    }
+
+    // Splits the bytes into lines. Logger writes one whole line per call
+    @Override
+    public synchronized void write(byte[] bytes, int offset, int length) {
+        int start = offset;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            if (bytes[i] == '\n') {
+                partial.write(bytes, start, i - start);
+                endLine();
+                start = i + 1;
+            }
+        }
+        partial.write(bytes, start, end - start);
+    }
+
+    private void endLine() {
+        String text = partial.toString(StandardCharsets.UTF_8);
+        partial.reset();
+        if (text.endsWith("\r")) {
+            text = text.substring(0, text.length() - 1);
+        }
+        // Writers hold the lock so the sequence is only read and increased here
+        long sequence = nextSequence.get();
+        slots.set(index(sequence), new Line(sequence, text));
+        nextSequence.set(sequence + 1);
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence % slots.length());
+    }
+
+    // Sequence the next line will get, which is also the number of lines written so far
+    public long getNextSequence() {
+        return nextSequence.get();
+    }
+
+    // Passes the buffered lines numbered fromSequence or later to the reader, oldest first, and
+    // returns the sequence to read from next time. Lines replaced before they were read are
+    // skipped
+    public long readSince(long fromSequence, Consumer<? super String> reader) {
+        if (reader == null) {
+            throw new IllegalArgumentException("Reader cannot be null");
+        }
+        long end = nextSequence.get();
+        long start = Math.max(Math.max(fromSequence, 0), end - slots.length());
+        for (long sequence = start; sequence < end; sequence++) {
+            Line line = slots.get(index(sequence));
+            // A different sequence means a newer line replaced it after end was read
+            if (line != null && line.sequence() == sequence) {
+                reader.accept(line.text());
+            }
+        }
+        return end;
+    }
+
+    // Last count buffered lines, oldest first
+    public List<String> tail(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("Count cannot be negative");
+        }
+        List<String> lines = new ArrayList<>(Math.min(count, slots.length()));
+        readSince(nextSequence.get() - count, lines::add);
+        return lines;
+    }
+
+    // All buffered lines, oldest first
+    public List<String> snapshot() {
+        return tail(slots.length());
+    }
+}
@@ -0,0 +1,310 @@
+package redactedrice.randomizer.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Log file that rolls over once it reaches a size or age limit. The full file is renamed to an
+ * archive next to it (e.g. randomizer.log becomes randomizer.20261018-153000-123.log), which is
+ * gzipped on a background thread if compression is on, and only the newest archives are kept.
+ * Writes go through a buffer that is written to the file at most once per flush interval, so
+ * pairing it with Logger.enableAsync or a flush interval keeps long seed sweeps from making a
+ * system call per line. Add it to the Logger like any other stream (e.g.
+ * Logger.addStreamForAllLevels) and close it after Logger.removeStream.
+ */
+public class RollingFileLogSink extends OutputStream {
+    public static final long DEFAULT_MAX_FILE_BYTES = 64L * 1024 * 1024;
+    public static final int DEFAULT_MAX_ARCHIVES = 10;
+    public static final int BUFFER_SIZE = 64 * 1024;
+    private static final DateTimeFormatter ARCHIVE_TIMESTAMP =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    private static final String GZIP_EXTENSION = ".gz";
+
+    private final Path file;
+    private final String archivePrefix;
+    private final String archiveExtension;
+    // Only names this sink writes, so other files next to it (e.g. app.backup.log) are never
+    // listed or pruned
+    private final Pattern archivePattern;
+    private final long maxFileBytes;
+    private final long rollIntervalMillis;
+    private final int maxArchives;
+    private final boolean compress;
+    private final long flushIntervalMillis;
+
+    // Guarded by this
+    private OutputStream out;
+    private long fileBytes;
+    private long nextRollMillis;
+    private long lastFlushMillis;
+    private boolean closed;
+    private String lastArchiveStamp;
+    private int archiveCounter;
+    // True while a flush skipped inside the interval is waiting to run
+    private boolean trailingFlushScheduled;
+    // Compresses and prunes archives one at a time and runs trailing flushes. Created on first use
+    private ScheduledThreadPoolExecutor background;
+
+    // Rolls at the default size only and flushes on every flush call
+    public RollingFileLogSink(Path file) throws IOException {
+        this(file, DEFAULT_MAX_FILE_BYTES, 0, DEFAULT_MAX_ARCHIVES, true, 0);
+    }
+
+    // maxFileBytes and rollIntervalMillis of 0 turn that limit off. maxArchives of 0 keeps no
+    // archives: rolled files are deleted. Flush calls within flushIntervalMillis of the last one
+    // keep the lines buffered until the interval ends (0 flushes every time)
+    public RollingFileLogSink(Path file, long maxFileBytes, long rollIntervalMillis,
+            int maxArchives, boolean compress, long flushIntervalMillis) throws IOException {
+        if (file == null || file.getFileName() == null) {
+            throw new IllegalArgumentException("Log file cannot be null");
+        }
+        if (maxFileBytes < 0 || rollIntervalMillis < 0 || maxArchives < 0
+                || flushIntervalMillis < 0) {
+            throw new IllegalArgumentException("Log file limits cannot be negative");
+        }
+        this.file = file.toAbsolutePath();
+        this.maxFileBytes = maxFileBytes;
+        this.rollIntervalMillis = rollIntervalMillis;
+        this.maxArchives = maxArchives;
+        this.compress = compress;
+        this.flushIntervalMillis = flushIntervalMillis;
+
+        String name = this.file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        archivePrefix = (dot > 0 ? name.substring(0, dot) : name) + ".";
+        archiveExtension = dot > 0 ? name.substring(dot) : "";
+        archivePattern = Pattern.compile(Pattern.quote(archivePrefix)
+                + "\\d{8}-\\d{6}-\\d{3}(_\\d{3,})?" + Pattern.quote(archiveExtension)
+                + "(" + Pattern.quote(GZIP_EXTENSION) + ")?");
+
+        Path parent = this.file.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        open();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    // Size of the current file including buffered bytes
+    public synchronized long getFileBytes() {
+        return fileBytes;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    // Each write is kept whole in one file. Logger writes one line per call so lines are never
+    // split across files
+    @Override
+    public synchronized void write(byte[] bytes, int offset, int length) throws IOException {
+        if (closed) {
+            throw new IOException("Log file sink is closed");
+        }
+        if (shouldRoll(length)) {
+            roll();
+        }
+        out.write(bytes, offset, length);
+        fileBytes += length;
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        if (closed) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (flushIntervalMillis == 0 || now - lastFlushMillis >= flushIntervalMillis) {
+            out.flush();
+            lastFlushMillis = now;
+        } else if (!trailingFlushScheduled) {
+            // Flush once the interval ends so the last lines of a burst reach the file
+            trailingFlushScheduled = true;
+            background().schedule(this::trailingFlush,
+                    lastFlushMillis + flushIntervalMillis - now, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void trailingFlush() {
+        trailingFlushScheduled = false;
+        if (closed) {
+            return;
+        }
+        try {
+            out.flush();
+            lastFlushMillis = System.currentTimeMillis();
+        } catch (IOException e) {
+            // Silently ignore flush errors to avoid infinite loops
+            System.err.println("Logger: Failed to flush log file: " + e.getMessage());
+        }
+    }
+
+    // Rolls the current file over now if it has anything in it
+    public synchronized void rollOver() throws IOException {
+        if (closed) {
+            throw new IOException("Log file sink is closed");
+        }
+        if (fileBytes > 0) {
+            roll();
+        }
+    }
+
+    // Writes buffered lines and waits for pending compression. The current file is not rolled
+    @Override
+    public void close() throws IOException {
+        ScheduledThreadPoolExecutor pending;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            out.close();
+            pending = background;
+        }
+        if (pending != null) {
+            pending.shutdown();
+            try {
+                pending.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Archives of this file, oldest first
+    public List<Path> getArchives() throws IOException {
+        List<Path> archives = new ArrayList<>();
+        Path parent = file.getParent();
+        try (Stream<Path> files = Files.list(parent)) {
+            files.filter(this::isArchive).sorted().forEach(archives::add);
+        }
+        return archives;
+    }
+
+    // Prefix, timestamp, optional same millisecond suffix, extension and optional .gz (see
+    // archiveName). The active file never matches since it has no timestamp
+    private boolean isArchive(Path path) {
+        return archivePattern.matcher(path.getFileName().toString()).matches();
+    }
+
+    private void open() throws IOException {
+        out = new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND), BUFFER_SIZE);
+        fileBytes = Files.size(file);
+        long now = System.currentTimeMillis();
+        nextRollMillis = rollIntervalMillis > 0 ? now + rollIntervalMillis : Long.MAX_VALUE;
+        lastFlushMillis = now;
+    }
+
+    private boolean shouldRoll(int length) {
+        if (rollIntervalMillis > 0) {
+            long now = System.currentTimeMillis();
+            if (now >= nextRollMillis) {
+                if (fileBytes > 0) {
+                    return true;
+                }
+                // Nothing to archive so the empty file starts the next interval
+                nextRollMillis = now + rollIntervalMillis;
+            }
+        }
+        return fileBytes > 0 && maxFileBytes > 0 && fileBytes + length > maxFileBytes;
+    }
+
+    private void roll() throws IOException {
+        out.close();
+        Path archive = archivePath();
+        Files.move(file, archive);
+        open();
+
+        if (!compress || maxArchives == 0) {
+            pruneArchives();
+            return;
+        }
+        background().execute(() -> {
+            try {
+                gzip(archive);
+                pruneArchives();
+            } catch (IOException e) {
+                // Silently ignore archive errors to avoid infinite loops
+                System.err.println("Logger: Failed to archive log file: " + e.getMessage());
+            }
+        });
+    }
+
+    private ScheduledThreadPoolExecutor background() {
+        if (background == null) {
+            background = new ScheduledThreadPoolExecutor(1, task -> {
+                Thread thread = new Thread(task, "Logger-file-archiver");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // close already wrote the buffer so a waiting trailing flush is not needed
+            background.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        }
+        return background;
+    }
+
+    // Timestamped so archives sort oldest first by name. Archives rolled in the same millisecond
+    // get an increasing suffix
+    private Path archivePath() {
+        String stamp = LocalDateTime.now().format(ARCHIVE_TIMESTAMP);
+        if (stamp.equals(lastArchiveStamp)) {
+            archiveCounter++;
+        } else {
+            lastArchiveStamp = stamp;
+            archiveCounter = 0;
+        }
+        Path archive = archiveName(stamp);
+        while (Files.exists(archive)
+                || Files.exists(archive.resolveSibling(archive.getFileName() + GZIP_EXTENSION))) {
+            archiveCounter++;
+            archive = archiveName(stamp);
+        }
+        return archive;
+    }
+
+    private Path archiveName(String stamp) {
+        // Zero padded so the suffix sorts by number
+        String suffix = archiveCounter > 0 ? String.format("_%03d", archiveCounter) : "";
+        return file.resolveSibling(archivePrefix + stamp + suffix + archiveExtension);
+    }
+
+    private static void gzip(Path source) throws IOException {
+        Path target = source.resolveSibling(source.getFileName() + GZIP_EXTENSION);
+        Path partial = source.resolveSibling(target.getFileName() + ".tmp");
+        try (InputStream in = Files.newInputStream(source);
+                OutputStream gz = new GZIPOutputStream(Files.newOutputStream(partial),
+                        BUFFER_SIZE)) {
+            in.transferTo(gz);
+        }
+        // Only replace the plain archive once the compressed one is complete
+        Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+        Files.delete(source);
+    }
+
+    private void pruneArchives() throws IOException {
+        List<Path> archives = getArchives();
+        for (int i = 0; i < archives.size() - maxArchives; i++) {
+            Files.deleteIfExists(archives.get(i));
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package redactedrice.randomizer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import redactedrice.randomizer.context.JavaContext;
+import redactedrice.randomizer.lua.ExecutionEvent;
+import redactedrice.randomizer.lua.ExecutionRequest;
+import redactedrice.randomizer.lua.ExecutionResult;
+import redactedrice.randomizer.lua.sandbox.monitoring.InterruptibleDebugLib;
+import redactedrice.randomizer.testsupport.TestModules;
+
+class AsyncExecutionTest {
+    public static class Target {
+        private int value;
+
+        public int getValue() {
+            return value;
+        }
+
+        public void setValue(int value) {
+            this.value = value;
+        }
+    }
+
+    // Records every event and counts down once the publisher closes
+    static class RecordingSubscriber implements Flow.Subscriber<ExecutionEvent> {
+        final List<ExecutionEvent> events = new CopyOnWriteArrayList<>();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch closed = new CountDownLatch(1);
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(ExecutionEvent event) {
+            events.add(event);
+            started.countDown();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            closed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            closed.countDown();
+        }
+    }
+
+    @TempDir
+    Path tempDir;
+
+    private LuaRandomizerWrapper wrapper;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path root = tempDir.resolve("mods");
+        Path actions = TestModules.createActions(root);
+        TestModules.writeModule(actions, "increment",
+                "context.target:setValue(context.target:getValue() + 1)");
+        TestModules.writeModule(actions, "broken", "error(\"broken module\")");
+        TestModules.writeModule(actions, "spin", "while true do end");
+
+        wrapper = TestModules.loadWrapper(root);
+    }
+
+    private ExecutionRequest request(String moduleId) {
+        return ExecutionRequest.forModule(wrapper.getModule(moduleId), Map.of());
+    }
+
+    private static JavaContext newContext(Target target) {
+        JavaContext context = new JavaContext();
+        context.register("target", target);
+        return context;
+    }
+
+    @Test
+    void publishesStepEventsAndCompletesWithResults() throws Exception {
+        Target target = new Target();
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        AsyncExecution execution = wrapper.executeModulesAsync(
+                List.of(request("increment"), request("broken"), request("increment")),
+                newContext(target), 1, subscriber);
+
+        List<ExecutionResult> results = execution.getResults().get(10, TimeUnit.SECONDS);
+        assertTrue(subscriber.closed.await(10, TimeUnit.SECONDS));
+        assertEquals(3, results.size());
+        assertEquals(2, target.getValue());
+
+        List<ExecutionEvent> events = subscriber.events;
+        assertEquals(6, events.size());
+        assertEquals(ExecutionEvent.Type.STARTED, events.get(0).getType());
+        assertNull(events.get(0).getResult());
+        assertEquals(ExecutionEvent.Type.FINISHED, events.get(1).getType());
+        assertEquals("increment", events.get(1).getModuleId());
+        assertEquals(ExecutionEvent.Type.FAILED, events.get(3).getType());
+        assertEquals(1, events.get(3).getStep());
+        assertFalse(events.get(3).getResult().isSuccess());
+        assertEquals(2, events.get(5).getStep());
+        assertTrue(events.get(5).getElapsedNanos() > 0);
+        assertFalse(execution.isCancelled());
+    }
+
+    @Test
+    void cancelStopsRunningLuaAndRemainingSteps() throws Exception {
+        Target target = new Target();
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        AsyncExecution execution = wrapper.executeModulesAsync(
+                List.of(request("spin"), request("increment")), newContext(target), 1,
+                subscriber);
+
+        assertTrue(subscriber.started.await(10, TimeUnit.SECONDS));
+        execution.cancel();
+        assertTrue(execution.isCancelled());
+        assertThrows(CancellationException.class, () -> execution.getResults().join());
+
+        // The spinning module is interrupted and the batch ends without the second step
+        assertTrue(subscriber.closed.await(10, TimeUnit.SECONDS));
+        assertEquals(0, target.getValue());
+        List<ExecutionResult> results = wrapper.getExecutionResults();
+        assertEquals(1, results.size());
+        assertFalse(results.get(0).isSuccess());
+        assertTrue(results.get(0).getErrorMessage()
+                .contains(InterruptibleDebugLib.CANCELLED_MESSAGE));
+    }
+
+    @Test
+    void cancellingTheFutureCancelsTheRun() throws Exception {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        AsyncExecution execution = wrapper.executeModulesAsync(List.of(request("spin")),
+                newContext(new Target()), 1, subscriber);
+        assertTrue(subscriber.started.await(10, TimeUnit.SECONDS));
+        execution.getResults().cancel(true);
+        assertTrue(execution.isCancelled());
+        assertTrue(subscriber.closed.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void rejectsOverlappingRuns() throws Exception {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        AsyncExecution execution = wrapper.executeModulesAsync(List.of(request("spin")),
+                newContext(new Target()), 1, subscriber);
+        assertTrue(subscriber.started.await(10, TimeUnit.SECONDS));
+        assertThrows(IllegalStateException.class, () -> wrapper.executeModulesAsync(
+                List.of(request("increment")), newContext(new Target()), 1));
+        execution.cancel();
+        assertTrue(subscriber.closed.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void onlyOneOfConcurrentStartsRuns() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            CyclicBarrier barrier = new CyclicBarrier(4);
+            ConcurrentLinkedQueue<AsyncExecution> started = new ConcurrentLinkedQueue<>();
+            ConcurrentLinkedQueue<Throwable> rejected = new ConcurrentLinkedQueue<>();
+            List<Thread> callers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                Thread caller = new Thread(() -> {
+                    try {
+                        barrier.await();
+                        started.add(wrapper.executeModulesAsync(List.of(request("spin")),
+                                newContext(new Target()), 1));
+                    } catch (Exception e) {
+                        rejected.add(e);
+                    }
+                });
+                caller.start();
+                callers.add(caller);
+            }
+            for (Thread caller : callers) {
+                caller.join();
+            }
+
+            assertEquals(1, started.size());
+            assertEquals(3, rejected.size());
+            for (Throwable e : rejected) {
+                assertTrue(e instanceof IllegalStateException, e::toString);
+            }
+            AsyncExecution execution = started.peek();
+            execution.cancel();
+            assertThrows(CancellationException.class, () -> execution.getResults().join());
+            // Wait for the spinning module to stop so the next round can start
+            wrapper.asyncThread.join(10000);
+        }
+    }
+}
@@ -99,4 +99,127 @@ public class JavaContextTest {
         assertThrows(IllegalArgumentException.class, () -> context.register(null, "value"));
         assertThrows(IllegalArgumentException.class, () -> context.register("", "value"));
     }
+
+    @Test
+    public void testForkSharesRegistrationsCopyOnWrite() {
+        List<Integer> data = new ArrayList<>(List.of(1, 2, 3));
+        context.register("data", data);
+        context.setConfig("mode", "fast");
+
+        JavaContext child = context.fork();
+        assertSame(data, child.get("data"));
+        assertEquals("fast", child.getConfig("mode"));
+
+        child.register("data", List.of(9));
+        child.register("extra", "child");
+        child.setConfig("mode", "slow");
+        assertSame(data, context.get("data"));
+        assertFalse(context.contains("extra"));
+        assertEquals("fast", context.getConfig("mode"));
+
+        context.register("late", "parent");
+        assertFalse(child.contains("late"));
+        assertNull(child.remove("missing"));
+        child.remove("extra");
+        assertFalse(child.contains("extra"));
+    }
+
+    @Test
+    public void testForkEnumsAndWrappersAreIndependent() {
+        context.registerEnum("Difficulty", "EASY", "HARD");
+        context.register("holder", new StringBuilder("shared"));
+
+        JavaContext child = context.fork();
+        assertTrue(child.getEnumRegistry().hasEnum("Difficulty"));
+
+        child.registerEnum("ChildOnly", "A");
+        context.getEnumRegistry().extendEnum("Difficulty", List.of("EXPERT"), null);
+        assertFalse(context.getEnumRegistry().hasEnum("ChildOnly"));
+        assertEquals(2, child.getEnumRegistry().getEnum("Difficulty").getValues().size());
+
+        LuaTable parentTable = context.toLuaTable();
+        LuaTable childTable = child.toLuaTable();
+        assertNotSame(parentTable.get("holder"), childTable.get("holder"));
+    }
+
+    @Test
+    public void testForksConvertConcurrently() throws Exception {
+        List<Integer> data = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            data.add(i);
+        }
+        context.register("data", data);
+        context.registerEnum("Difficulty", "EASY", "HARD");
+
+        java.util.concurrent.ExecutorService executor =
+                java.util.concurrent.Executors.newFixedThreadPool(4);
+        try {
+            List<java.util.concurrent.Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                int seed = i;
+                futures.add(executor.submit(() -> {
+                    JavaContext child = context.fork();
+                    child.register("seed", seed);
+                    LuaTable table = child.toLuaTable();
+                    return table.get("data").length() + table.get("seed").toint();
+                }));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                assertEquals(1000 + i, futures.get(i).get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertFalse(context.contains("seed"));
+    }
+
+    @Test
+    public void testRegisterWhileForking() throws Exception {
+        context.register("base", "value");
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 5000; i++) {
+                context.register("name" + i, i);
+                context.setConfig("key" + i, i);
+            }
+        });
+        writer.start();
+        List<JavaContext> children = new ArrayList<>();
+        while (writer.isAlive()) {
+            children.add(context.fork());
+        }
+        writer.join();
+
+        assertEquals(5001, context.size());
+        for (JavaContext child : children) {
+            int registered = child.size();
+            assertTrue(registered <= 5001);
+            child.register("child", "only");
+            // The parent's later registrations never reach a fork and the fork's never reach
+            // the parent
+            assertEquals(registered + 1, child.size());
+        }
+        assertFalse(context.contains("child"));
+        assertEquals(4999, context.getConfig("key4999"));
+    }
+
+    @Test
+    public void testBuildingTheLuaTableDoesNotCopyOnTheNextWrite() {
+        context.register("first", "value");
+        context.setConfig("key", 1);
+        Map<String, Object> objects = context.objects;
+        Map<String, Object> config = context.config;
+
+        context.toLuaTable();
+        context.toLuaTable(List.of("first"));
+        context.register("second", "value");
+        context.setConfig("other", 2);
+        assertSame(objects, context.objects);
+        assertSame(config, context.config);
+
+        // Only a fork makes the next write copy
+        JavaContext child = context.fork();
+        context.register("third", "value");
+        assertNotSame(objects, context.objects);
+        assertFalse(child.contains("third"));
+    }
 }
@@ -0,0 +1,241 @@
+package redactedrice.randomizer.context;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.luaj.vm2.LuaError;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.lib.TwoArgFunction;
+
+import redactedrice.randomizer.context.testsupport.ContextTestEnum;
+import redactedrice.randomizer.lua.sandbox.LuaSandbox;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NativePrimitivesTest {
+
+    @TempDir
+    Path tempDir;
+
+    public static class Entity {
+        public int tier;
+        private int health;
+        private ContextTestEnum type;
+
+        public Entity(int health, ContextTestEnum type) {
+            this.health = health;
+            this.type = type;
+        }
+
+        public int getHealth() {
+            return health;
+        }
+
+        public void setHealth(int health) {
+            this.health = health;
+        }
+
+        public ContextTestEnum getType() {
+            return type;
+        }
+
+        public void setType(ContextTestEnum type) {
+            this.type = type;
+        }
+    }
+
+    private JavaContext context;
+    private List<Entity> entities;
+    private NativePrimitives primitives;
+
+    @BeforeEach
+    public void setUp() {
+        context = new JavaContext();
+        context.registerEnum(ContextTestEnum.class);
+        entities = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            entities.add(new Entity(100 + i,
+                    i % 3 == 0 ? ContextTestEnum.VALUE1 : ContextTestEnum.VALUE2));
+        }
+        context.register("entities", entities);
+        primitives = new NativePrimitives();
+        primitives.setSeed(42);
+    }
+
+    private LuaTable luaEntities() {
+        return context.toLuaTable().get("entities").checktable();
+    }
+
+    private List<Integer> healths() {
+        List<Integer> healths = new ArrayList<>();
+        for (Entity entity : entities) {
+            healths.add(entity.getHealth());
+        }
+        return healths;
+    }
+
+    @Test
+    public void testPoolReadsPropertiesByAnyName() {
+        LuaTable list = luaEntities();
+        LuaTable byProperty = primitives.pool(list, "health");
+        LuaTable byGetter = primitives.pool(list, "getHealth");
+
+        assertEquals(12, byProperty.length());
+        for (int i = 1; i <= 12; i++) {
+            assertEquals(99 + i, byProperty.get(i).toint());
+            assertEquals(99 + i, byGetter.get(i).toint());
+        }
+        assertEquals("VALUE1", primitives.pool(list, "type").get(1).tojstring());
+    }
+
+    @Test
+    public void testShuffleIsDeterministicForSeed() {
+        LuaTable first = primitives.shuffle(primitives.pool(luaEntities(), "health"),
+                primitives.getStream());
+        primitives.setSeed(42);
+        LuaTable second = primitives.shuffle(primitives.pool(luaEntities(), "health"),
+                primitives.getStream());
+
+        int sum = 0;
+        for (int i = 1; i <= 12; i++) {
+            assertEquals(first.get(i).toint(), second.get(i).toint());
+            sum += first.get(i).toint();
+        }
+        // Same values, only reordered
+        assertEquals(12 * 100 + 66, sum);
+    }
+
+    @Test
+    public void testConsumableAssignUsesEachValueOnce() {
+        LuaTable list = luaEntities();
+        LuaTable pool = primitives.pool(list, "health");
+        assertEquals(12, primitives.assign(list, pool, LuaValue.valueOf("setHealth"), true,
+                primitives.getStream()));
+
+        List<Integer> healths = healths();
+        healths.sort(null);
+        for (int i = 0; i < 12; i++) {
+            assertEquals(100 + i, healths.get(i));
+        }
+
+        pool.set(12, LuaValue.NIL);
+        assertThrows(LuaError.class,
+                () -> primitives.assign(list, pool, LuaValue.valueOf("health"), true,
+                        primitives.getStream()));
+    }
+
+    @Test
+    public void testGroupedAssignStaysWithinGroups() {
+        LuaTable list = luaEntities();
+        LuaTable groups = primitives.groupBy(list, "getType", "health");
+        assertEquals(4, groups.get("VALUE1").length());
+        assertEquals(8, groups.get("VALUE2").length());
+
+        primitives.assignGrouped(list, groups, "type", LuaValue.valueOf("health"), true,
+                primitives.getStream());
+        for (int i = 0; i < entities.size(); i++) {
+            int original = 100 + i;
+            Entity entity = entities.get(i);
+            // Health came from an entity of the same type
+            int source = entity.getHealth() - 100;
+            assertEquals(i % 3 == 0, source % 3 == 0, "entity " + original);
+        }
+    }
+
+    @Test
+    public void testAssignWritesEnumsFromNames() {
+        LuaTable list = luaEntities();
+        LuaTable pool = new LuaTable();
+        pool.set(1, LuaValue.valueOf("VALUE2"));
+        primitives.assign(list, pool, LuaValue.valueOf("type"), false, primitives.getStream());
+
+        for (Entity entity : entities) {
+            assertEquals(ContextTestEnum.VALUE2, entity.getType());
+        }
+    }
+
+    @Test
+    public void testAssignWithFunctionSetter() {
+        LuaTable list = luaEntities();
+        LuaTable pool = new LuaTable();
+        pool.set(1, LuaValue.valueOf(5));
+        LuaValue setter = new TwoArgFunction() {
+            @Override
+            public LuaValue call(LuaValue element, LuaValue value) {
+                element.get("setHealth").call(element, value);
+                return LuaValue.NIL;
+            }
+        };
+        primitives.assign(list, pool, setter, false, primitives.getStream());
+
+        assertTrue(healths().stream().allMatch(health -> health == 5));
+    }
+
+    @Test
+    public void testWritesAreJournaled() {
+        LuaTable list = luaEntities();
+        WriteJournal journal = context.enableWriteJournal();
+        LuaTable pool = new LuaTable();
+        pool.set(1, LuaValue.valueOf(1));
+        primitives.assign(list, pool, LuaValue.valueOf("health"), false, primitives.getStream());
+
+        assertEquals(12, journal.size());
+        journal.rollbackTo(0);
+        assertEquals(100, entities.get(0).getHealth());
+        assertEquals(111, entities.get(11).getHealth());
+    }
+
+    @Test
+    public void testWritesGoToShadow() {
+        context.remove("entities");
+        ShadowObjects shadow = context.registerShadow("entities", entities);
+        LuaTable list = luaEntities();
+        LuaTable pool = new LuaTable();
+        pool.set(1, LuaValue.valueOf(7));
+        primitives.assign(list, pool, LuaValue.valueOf("health"), false, primitives.getStream());
+        primitives.assign(list, pool, LuaValue.valueOf("tier"), false, primitives.getStream());
+
+        assertEquals(100, entities.get(0).getHealth());
+        assertEquals(0, entities.get(0).tier);
+        assertEquals(7, shadow.getWrite(entities.get(0), "health"));
+        assertEquals(7, primitives.pool(list, "health").get(1).toint());
+    }
+
+    @Test
+    public void testWeightedPickSkipsZeroWeights() {
+        LuaTable values = new LuaTable();
+        values.set(1, LuaValue.valueOf("never"));
+        values.set(2, LuaValue.valueOf("always"));
+        LuaTable weights = new LuaTable();
+        weights.set(1, LuaValue.valueOf(0));
+        weights.set(2, LuaValue.valueOf(3));
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals("always",
+                    primitives.weightedPick(values, weights, primitives.getStream()).tojstring());
+        }
+        weights.set(2, LuaValue.valueOf(0));
+        assertThrows(LuaError.class,
+                () -> primitives.weightedPick(values, weights, primitives.getStream()));
+    }
+
+    @Test
+    public void testRegisteredInSandbox() throws Exception {
+        LuaSandbox sandbox = new LuaSandbox(List.of(tempDir.toString()));
+        sandbox.set("entities", luaEntities());
+        sandbox.execute("randomizerNative.setSeed(3)\n"
+                + "local pool = randomizerNative.pool(entities, 'health')\n"
+                + "randomizerNative.assign(entities, randomizerNative.shuffle(pool), 'health',"
+                + " true)");
+
+        List<Integer> healths = healths();
+        healths.sort(null);
+        assertEquals(100, healths.get(0));
+        assertEquals(111, healths.get(11));
+    }
+}
@@ -0,0 +1,134 @@
+package redactedrice.randomizer.context;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.luaj.vm2.LuaValue;
+
+import redactedrice.randomizer.LuaRandomizerWrapper;
+import redactedrice.randomizer.lua.ExecutionRequest;
+import redactedrice.randomizer.lua.ExecutionResult;
+import redactedrice.randomizer.lua.sandbox.LuaSandbox;
+import redactedrice.randomizer.testsupport.TestModules;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RandomStreamTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static List<Integer> draw(RandomStream stream, int count) {
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            values.add(stream.nextInt(1000));
+        }
+        return values;
+    }
+
+    @Test
+    public void testModuleStreamsAreDeterministic() {
+        assertEquals(draw(RandomStream.forModule(5, 10, "shuffle"), 20),
+                draw(RandomStream.forModule(5, 10, "shuffle"), 20));
+        assertNotEquals(draw(RandomStream.forModule(5, 10, "shuffle"), 20),
+                draw(RandomStream.forModule(5, 10, "other"), 20));
+        // Same absolute seed split differently is a different stream
+        assertNotEquals(draw(RandomStream.forModule(5, 10, "shuffle"), 20),
+                draw(RandomStream.forModule(10, 5, "shuffle"), 20));
+    }
+
+    @Test
+    public void testSplitDoesNotDependOnDrawOrder() {
+        RandomStream stream = new RandomStream(7);
+        List<Integer> fire = draw(stream.split("fire"), 10);
+
+        RandomStream drawn = new RandomStream(7);
+        draw(drawn, 50);
+        draw(drawn.split("water"), 10);
+        assertEquals(fire, draw(drawn.split("fire"), 10));
+        assertNotEquals(fire, draw(drawn.split("water"), 10));
+    }
+
+    @Test
+    public void testNextIntRange() {
+        RandomStream stream = new RandomStream(1);
+        for (int i = 0; i < 200; i++) {
+            int value = stream.nextInt(-2, 2);
+            assertTrue(value >= -2 && value <= 2);
+        }
+        assertEquals(Integer.MAX_VALUE, stream.nextInt(Integer.MAX_VALUE, Integer.MAX_VALUE));
+        assertThrows(IllegalArgumentException.class, () -> stream.nextInt(3, 2));
+    }
+
+    @Test
+    public void testConcurrentModulesMatchSequential() throws Exception {
+        List<String> modules = List.of("a", "b", "c", "d", "e", "f");
+        List<List<Integer>> sequential = new ArrayList<>();
+        for (String module : modules) {
+            sequential.add(draw(RandomStream.forModule(99, 3, module), 100));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<Integer>>> futures = new ArrayList<>();
+            for (int i = modules.size() - 1; i >= 0; i--) {
+                String module = modules.get(i);
+                futures.add(0,
+                        executor.submit(() -> draw(RandomStream.forModule(99, 3, module), 100)));
+            }
+            for (int i = 0; i < modules.size(); i++) {
+                assertEquals(sequential.get(i), futures.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testLuaStreamUserdata() throws Exception {
+        LuaSandbox sandbox = new LuaSandbox(List.of(tempDir.toString()));
+        RandomStream stream = new RandomStream(11);
+        sandbox.getNativePrimitives().setStream(stream);
+
+        LuaValue result = sandbox.execute("local s = randomizerNative.stream()\n"
+                + "local group = s:split('fire')\n"
+                + "return { s:random(1, 6), s:random(4), s:random(), group:random(1000) }");
+        RandomStream expected = new RandomStream(11);
+        assertEquals(expected.nextInt(1, 6), result.get(1).toint());
+        assertEquals(expected.nextInt(1, 4), result.get(2).toint());
+        assertEquals(expected.nextDouble(), result.get(3).todouble());
+        assertEquals(stream.split("fire").nextInt(1, 1000), result.get(4).toint());
+    }
+
+    @Test
+    public void testUnseededModuleDoesNotContinueTheSeededStream() throws Exception {
+        Path root = tempDir.resolve("mods");
+        Path actions = TestModules.createActions(root);
+        String draw = "return randomizerNative.stream():random(1, 1000000)";
+        TestModules.writeModule(actions, "seeded_draw", draw);
+        TestModules.writeModule(actions, "unseeded_draw", "seeded = false,", draw);
+        LuaRandomizerWrapper wrapper = TestModules.loadWrapper(root);
+
+        List<ExecutionResult> alone = wrapper.executeModules(
+                List.of(request(wrapper, "unseeded_draw")), new JavaContext(), 0);
+        List<ExecutionResult> afterSeeded = wrapper.executeModules(
+                List.of(request(wrapper, "seeded_draw"), request(wrapper, "unseeded_draw")),
+                new JavaContext(), 5);
+
+        assertTrue(afterSeeded.get(1).isSuccess(), afterSeeded.get(1)::getErrorMessage);
+        assertEquals(alone.get(0).getResult().toint(), afterSeeded.get(1).getResult().toint());
+        assertEquals(new RandomStream(0).nextInt(1, 1000000),
+                afterSeeded.get(1).getResult().toint());
+    }
+
+    private static ExecutionRequest request(LuaRandomizerWrapper wrapper, String moduleId) {
+        return ExecutionRequest.forModule(wrapper.getModule(moduleId), Map.of());
+    }
+}
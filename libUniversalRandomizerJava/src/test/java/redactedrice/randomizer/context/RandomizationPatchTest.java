@@ -0,0 +1,190 @@
+package redactedrice.randomizer.context;
+
+import org.junit.jupiter.api.Test;
+import org.luaj.vm2.LuaValue;
+
+import redactedrice.randomizer.context.testsupport.ContextTestEnum;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RandomizationPatchTest {
+
+    public static class Unit {
+        public String label;
+        private int power;
+        private ContextTestEnum type = ContextTestEnum.VALUE1;
+        private Unit partner;
+
+        public Unit(int power) {
+            this.power = power;
+        }
+
+        public int getPower() {
+            return power;
+        }
+
+        public void setPower(int power) {
+            this.power = power;
+        }
+
+        public ContextTestEnum getType() {
+            return type;
+        }
+
+        public void setType(ContextTestEnum type) {
+            this.type = type;
+        }
+
+        public Unit getPartner() {
+            return partner;
+        }
+
+        public void setPartner(Unit partner) {
+            this.partner = partner;
+        }
+    }
+
+    private static List<Unit> units() {
+        List<Unit> units = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            units.add(new Unit(i));
+        }
+        return units;
+    }
+
+    private static JavaContext contextWith(List<Unit> units, Map<String, Unit> bosses) {
+        JavaContext context = new JavaContext();
+        context.registerEnum(ContextTestEnum.class);
+        context.register("units", units);
+        context.register("bosses", bosses);
+        return context;
+    }
+
+    @Test
+    public void testRecordedWritesReplayOnFreshContext() throws IOException {
+        List<Unit> units = units();
+        JavaContext context = contextWith(units, Map.of("final", new Unit(50)));
+        WriteJournal journal = context.enableWriteJournal();
+        LuaValue luaContext = context.toLuaTable();
+        LuaValue first = luaContext.get("units").get(1);
+        LuaValue boss = luaContext.get("bosses").get("final");
+        first.get("setPower").call(first, LuaValue.valueOf(9));
+        first.get("setType").call(first, LuaValue.valueOf("VALUE2"));
+        first.get("setPartner").call(first, boss);
+        boss.set("label", LuaValue.valueOf("big"));
+
+        RandomizationPatch patch = RandomizationPatch.fromJournal(context, journal.getEntries());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        patch.write(bytes);
+        RandomizationPatch loaded =
+                RandomizationPatch.read(new ByteArrayInputStream(bytes.toByteArray()));
+
+        List<Unit> freshUnits = units();
+        Unit freshBoss = new Unit(50);
+        JavaContext fresh = contextWith(freshUnits, Map.of("final", freshBoss));
+        assertEquals(4, PatchReplayer.apply(loaded, fresh));
+
+        assertEquals(9, freshUnits.get(0).getPower());
+        assertEquals(ContextTestEnum.VALUE2, freshUnits.get(0).getType());
+        assertSame(freshBoss, freshUnits.get(0).getPartner());
+        assertEquals("big", freshBoss.label);
+        assertEquals(1, freshUnits.get(1).getPower());
+        assertEquals("units[0]", loaded.getWrites().get(0).getPath().toString());
+    }
+
+    @Test
+    public void testEnumsResolveThroughTheContextClassLoader() throws Exception {
+        JavaContext context = contextWith(units(), Map.of());
+        WriteJournal journal = context.enableWriteJournal();
+        LuaValue first = context.toLuaTable().get("units").get(1);
+        first.get("setType").call(first, LuaValue.valueOf("VALUE2"));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        RandomizationPatch.fromJournal(context, journal.getEntries()).write(bytes);
+
+        // Loads its own copy of the enum class like a host plugin loader would
+        URL testClasses = ContextTestEnum.class.getProtectionDomain().getCodeSource().getLocation();
+        Thread thread = Thread.currentThread();
+        ClassLoader previous = thread.getContextClassLoader();
+        try (URLClassLoader hostLoader = new URLClassLoader(new URL[] {testClasses}, null)) {
+            thread.setContextClassLoader(hostLoader);
+            Object hostValue = readFirstValue(bytes);
+            assertEquals("VALUE2", ((Enum<?>) hostValue).name());
+            assertSame(hostLoader, hostValue.getClass().getClassLoader());
+
+            // Classes the context loader cannot see still resolve with the library's loader
+            thread.setContextClassLoader(new ClassLoader(null) {});
+            assertSame(ContextTestEnum.VALUE2, readFirstValue(bytes));
+        } finally {
+            thread.setContextClassLoader(previous);
+        }
+    }
+
+    private static Object readFirstValue(ByteArrayOutputStream bytes) throws IOException {
+        return RandomizationPatch.read(new ByteArrayInputStream(bytes.toByteArray())).getWrites()
+                .get(0).getValue();
+    }
+
+    @Test
+    public void testUnaddressableWritesAreCounted() {
+        JavaContext context = contextWith(units(), Map.of());
+        WriteJournal journal = context.enableWriteJournal();
+        LuaValue first = context.toLuaTable().get("units").get(1);
+        first.get("setPartner").call(first, context.toLuaTable().get("units").get(2));
+        // Registered when wrapped but not when the patch is built so it has no path
+        context.register("stray", new Unit(7));
+        LuaValue stray = context.toLuaTable().get("stray");
+        context.remove("stray");
+        stray.get("setPower").call(stray, LuaValue.valueOf(1));
+
+        RandomizationPatch patch = RandomizationPatch.fromJournal(context, journal.getEntries());
+        assertEquals(1, patch.size());
+        assertEquals(1, patch.getUnrecordedCount());
+    }
+
+    @Test
+    public void testReplayIntoShadow() {
+        JavaContext context = new JavaContext();
+        List<Unit> units = units();
+        context.registerShadow("units", units);
+        WriteJournal journal = context.enableWriteJournal();
+        LuaValue second = context.toLuaTable().get("units").get(2);
+        second.get("setPower").call(second, LuaValue.valueOf(40));
+        RandomizationPatch patch = RandomizationPatch.fromJournal(context, journal.getEntries());
+
+        JavaContext fresh = new JavaContext();
+        List<Unit> freshUnits = units();
+        ShadowObjects shadow = fresh.registerShadow("units", freshUnits);
+        PatchReplayer.apply(patch, fresh);
+
+        assertEquals(1, freshUnits.get(1).getPower());
+        assertEquals(Map.of("power", 40), shadow.getWrites(freshUnits.get(1)));
+    }
+
+    @Test
+    public void testMissingTargetFails() {
+        JavaContext context = contextWith(units(), Map.of());
+        WriteJournal journal = context.enableWriteJournal();
+        LuaValue third = context.toLuaTable().get("units").get(3);
+        third.get("setPower").call(third, LuaValue.valueOf(5));
+        RandomizationPatch patch = RandomizationPatch.fromJournal(context, journal.getEntries());
+
+        List<Unit> shorter = units().subList(0, 2);
+        assertThrows(IllegalStateException.class,
+                () -> PatchReplayer.apply(patch, contextWith(shorter, Map.of())));
+    }
+
+    @Test
+    public void testRejectsOtherData() {
+        assertThrows(IOException.class,
+                () -> RandomizationPatch.read(new ByteArrayInputStream(new byte[] {1, 2, 3, 4})));
+    }
+}
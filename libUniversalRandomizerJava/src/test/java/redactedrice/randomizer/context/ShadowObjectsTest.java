@@ -0,0 +1,133 @@
+package redactedrice.randomizer.context;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+
+import redactedrice.randomizer.context.testsupport.ContextTestEnum;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShadowObjectsTest {
+
+    public static class Entity {
+        public int tier;
+        private int health;
+        private ContextTestEnum type = ContextTestEnum.VALUE1;
+
+        public Entity(int health) {
+            this.health = health;
+        }
+
+        public int getHealth() {
+            return health;
+        }
+
+        public void setHealth(int health) {
+            this.health = health;
+        }
+
+        public ContextTestEnum getType() {
+            return type;
+        }
+
+        public void setType(ContextTestEnum type) {
+            this.type = type;
+        }
+
+        public Entity copy() {
+            Entity copy = new Entity(health);
+            copy.tier = tier;
+            copy.type = type;
+            return copy;
+        }
+    }
+
+    private JavaContext context;
+    private List<Entity> originals;
+
+    @BeforeEach
+    public void setUp() {
+        context = new JavaContext();
+        context.registerEnum(ContextTestEnum.class);
+        originals = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            originals.add(new Entity(100 + i));
+        }
+    }
+
+    @Test
+    public void testWritesStayInShadow() {
+        ShadowObjects shadow = context.registerShadow("entities", originals);
+        context.register("entitiesOriginal", originals);
+        LuaTable luaContext = context.toLuaTable();
+
+        LuaValue shadowed = luaContext.get("entities").get(2);
+        shadowed.get("setHealth").call(shadowed, LuaValue.valueOf(7));
+        shadowed.get("setType").call(shadowed, LuaValue.valueOf("VALUE2"));
+        shadowed.set("tier", LuaValue.valueOf(3));
+
+        assertEquals(7, shadowed.get("getHealth").call(shadowed).toint());
+        assertEquals(3, shadowed.get("tier").toint());
+        assertEquals(ContextTestEnum.VALUE2, shadowed.get("getType").call(shadowed).touserdata());
+
+        // Originals, and the directly registered view of them, are untouched
+        LuaValue original = luaContext.get("entitiesOriginal").get(2);
+        assertEquals(101, original.get("getHealth").call(original).toint());
+        assertEquals(101, originals.get(1).getHealth());
+        assertEquals(0, originals.get(1).tier);
+
+        assertEquals(List.of(originals.get(1)), shadow.getModifiedObjects());
+        assertEquals(3, shadow.getWriteCount());
+        assertEquals(Map.of("health", 7, "type", ContextTestEnum.VALUE2, "tier", 3),
+                shadow.getWrites(originals.get(1)));
+        assertSame(shadow, context.getShadow("entities"));
+    }
+
+    @Test
+    public void testMaterializeCopiesOnlyWrittenObjects() {
+        ShadowObjects shadow = context.registerShadow("entities", originals);
+        LuaValue shadowed = context.toLuaTable().get("entities").get(3);
+        shadowed.get("setHealth").call(shadowed, LuaValue.valueOf(1));
+
+        List<Entity> modified = shadow.materializeAll(originals, Entity::copy);
+
+        assertSame(originals.get(0), modified.get(0));
+        assertSame(originals.get(1), modified.get(1));
+        assertNotSame(originals.get(2), modified.get(2));
+        assertEquals(1, modified.get(2).getHealth());
+        assertEquals(102, originals.get(2).getHealth());
+
+        shadow.applyToOriginals();
+        assertEquals(1, originals.get(2).getHealth());
+        assertEquals(0, shadow.getWriteCount());
+    }
+
+    @Test
+    public void testForkCopiesShadowWrites() {
+        ShadowObjects shadow = context.registerShadow("entities", originals);
+        LuaValue shadowed = context.toLuaTable().get("entities").get(1);
+        shadowed.get("setHealth").call(shadowed, LuaValue.valueOf(5));
+
+        JavaContext child = context.fork();
+        ShadowObjects childShadow = child.getShadow("entities");
+        assertNotSame(shadow, childShadow);
+        assertEquals(Map.of("health", 5), childShadow.getWrites(originals.get(0)));
+
+        LuaValue childShadowed = child.toLuaTable().get("entities").get(1);
+        childShadowed.get("setHealth").call(childShadowed, LuaValue.valueOf(9));
+        assertEquals(5, shadowed.get("getHealth").call(shadowed).toint());
+        assertEquals(9, childShadowed.get("getHealth").call(childShadowed).toint());
+    }
+
+    @Test
+    public void testRegisterShadowRejectsNull() {
+        assertThrows(IllegalArgumentException.class,
+                () -> context.registerShadow("entities", null));
+    }
+}
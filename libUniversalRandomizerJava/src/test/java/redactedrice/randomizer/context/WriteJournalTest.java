@@ -0,0 +1,135 @@
+package redactedrice.randomizer.context;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.luaj.vm2.LuaValue;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WriteJournalTest {
+
+    public static class Stats {
+        public int level = 1;
+        private int health;
+        private String secret = "none";
+
+        public Stats(int health) {
+            this.health = health;
+        }
+
+        public int getHealth() {
+            return health;
+        }
+
+        public void setHealth(int health) {
+            this.health = health;
+        }
+
+        // Write only so its previous value cannot be read back
+        public void setSecret(String secret) {
+            this.secret = secret;
+        }
+
+        public String secret() {
+            return secret;
+        }
+    }
+
+    private JavaContext context;
+    private Stats stats;
+
+    @BeforeEach
+    public void setUp() {
+        context = new JavaContext();
+        stats = new Stats(10);
+        context.register("stats", stats);
+    }
+
+    @Test
+    public void testRollbackToSavepointUndoesNewestFirst() {
+        WriteJournal journal = context.enableWriteJournal();
+        LuaValue wrapper = context.toLuaTable().get("stats");
+
+        wrapper.get("setHealth").call(wrapper, LuaValue.valueOf(20));
+        WriteJournal.Savepoint savepoint = journal.savepoint("second");
+        wrapper.get("setHealth").call(wrapper, LuaValue.valueOf(30));
+        wrapper.set("level", LuaValue.valueOf(5));
+        wrapper.get("setHealth").call(wrapper, LuaValue.valueOf(40));
+        journal.savepoint("later");
+        assertEquals(4, journal.size());
+        assertEquals(40, stats.getHealth());
+        assertEquals(5, stats.level);
+
+        assertEquals(3, journal.rollbackTo(savepoint));
+        assertEquals(20, stats.getHealth());
+        assertEquals(1, stats.level);
+        assertEquals(1, journal.size());
+        assertEquals(List.of(savepoint), journal.getSavepoints());
+
+        assertEquals(1, journal.rollbackTo(0));
+        assertEquals(10, stats.getHealth());
+    }
+
+    @Test
+    public void testEntriesRecordPreviousAndNewValues() {
+        WriteJournal journal = context.enableWriteJournal();
+        LuaValue wrapper = context.toLuaTable().get("stats");
+        wrapper.get("setHealth").call(wrapper, LuaValue.valueOf(15));
+        wrapper.set("scratch", LuaValue.valueOf("lua only"));
+
+        assertEquals(1, journal.size());
+        WriteJournal.Entry entry = journal.getEntries().get(0);
+        assertSame(stats, entry.getTarget());
+        assertEquals("health", entry.getProperty());
+        assertEquals(10, entry.getPreviousValue());
+        assertEquals(15, entry.getValue());
+        assertTrue(entry.isReversible());
+    }
+
+    @Test
+    public void testUnreadablePropertyIsSkippedOnRollback() {
+        WriteJournal journal = context.enableWriteJournal();
+        LuaValue wrapper = context.toLuaTable().get("stats");
+        wrapper.get("setSecret").call(wrapper, LuaValue.valueOf("changed"));
+        wrapper.get("setHealth").call(wrapper, LuaValue.valueOf(99));
+
+        assertFalse(journal.getEntries().get(0).isReversible());
+        assertEquals(1, journal.rollbackTo(0));
+        assertEquals(10, stats.getHealth());
+        assertEquals("changed", stats.secret());
+    }
+
+    @Test
+    public void testShadowWritesRollBack() {
+        ShadowObjects shadow = context.registerShadow("shadowed", List.of(stats));
+        WriteJournal journal = context.enableWriteJournal();
+        LuaValue wrapper = context.toLuaTable().get("shadowed").get(1);
+
+        wrapper.get("setHealth").call(wrapper, LuaValue.valueOf(50));
+        WriteJournal.Savepoint savepoint = journal.savepoint("after first");
+        wrapper.get("setHealth").call(wrapper, LuaValue.valueOf(60));
+        wrapper.set("level", LuaValue.valueOf(3));
+
+        journal.rollbackTo(savepoint);
+        assertEquals(Map.of("health", 50), shadow.getWrites(stats));
+        journal.rollbackTo(0);
+        assertFalse(shadow.isModified(stats));
+        assertEquals(10, stats.getHealth());
+    }
+
+    @Test
+    public void testDisabledJournalRecordsNothing() {
+        WriteJournal journal = context.enableWriteJournal();
+        assertSame(journal, context.enableWriteJournal());
+        context.disableWriteJournal();
+        assertNull(context.getWriteJournal());
+
+        LuaValue wrapper = context.toLuaTable().get("stats");
+        wrapper.get("setHealth").call(wrapper, LuaValue.valueOf(11));
+        assertEquals(0, journal.size());
+        assertEquals(11, stats.getHealth());
+    }
+}
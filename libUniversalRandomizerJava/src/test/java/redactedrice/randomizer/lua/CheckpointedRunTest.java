@@ -0,0 +1,114 @@
+package redactedrice.randomizer.lua;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import redactedrice.randomizer.LuaRandomizerWrapper;
+import redactedrice.randomizer.context.JavaContext;
+import redactedrice.randomizer.testsupport.TestModules;
+import redactedrice.randomizer.utils.IssueTracker;
+
+class CheckpointedRunTest {
+    public static class Target {
+        private int value;
+        public final List<String> calls = new ArrayList<>();
+
+        public int getValue() {
+            return value;
+        }
+
+        public void setValue(int value) {
+            this.value = value;
+        }
+
+        public void called(String moduleId) {
+            calls.add(moduleId);
+        }
+    }
+
+    private static final String AMOUNT_ARGUMENT =
+            "arguments = { { name = \"amount\", definition = \"integer\" } },";
+
+    @TempDir
+    Path tempDir;
+
+    private LuaRandomizerWrapper wrapper;
+    private JavaContext context;
+    private Target target;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path root = tempDir.resolve("mods");
+        Path actions = TestModules.createActions(root);
+        TestModules.writeModule(actions, "cp_set", AMOUNT_ARGUMENT, """
+                context.target:called("cp_set")
+                context.target:setValue(args.amount)""");
+        TestModules.writeModule(actions, "cp_add", AMOUNT_ARGUMENT, """
+                context.target:called("cp_add")
+                context.target:setValue(context.target:getValue() + args.amount)""");
+
+        wrapper = TestModules.loadWrapper(root);
+        context = new JavaContext();
+        target = new Target();
+        context.register("target", target);
+        IssueTracker.clear();
+    }
+
+    @Test
+    void reexecuteFromRunsOnlyTheTail() {
+        CheckpointedRun run = wrapper.executeModulesWithCheckpoints(
+                List.of(request("cp_set", 1), request("cp_add", 10), request("cp_add", 5)),
+                context, 0);
+        assertEquals(16, target.getValue());
+        assertEquals(3, run.getStepCount());
+
+        List<ExecutionResult> results = run.reexecuteFrom(2,
+                List.of(request("cp_set", 1), request("cp_add", 10), request("cp_add", 100)));
+
+        assertEquals(111, target.getValue());
+        assertEquals(3, results.size());
+        assertTrue(results.get(2).isSuccess());
+        assertEquals(List.of("cp_set", "cp_add", "cp_add", "cp_add"), target.calls);
+        assertEquals(2, run.getCheckpoint(2));
+    }
+
+    @Test
+    void reexecuteCanAddAndDropRequests() {
+        CheckpointedRun run = wrapper.executeModulesWithCheckpoints(
+                List.of(request("cp_set", 1), request("cp_add", 10), request("cp_add", 5)),
+                context, 0);
+
+        run.reexecuteFrom(1, List.of(request("cp_set", 1)));
+        assertEquals(1, target.getValue());
+        assertEquals(1, run.getResults().size());
+
+        run.reexecuteFrom(1, List.of(request("cp_set", 1), request("cp_add", 2),
+                request("cp_add", 3)));
+        assertEquals(6, target.getValue());
+    }
+
+    @Test
+    void changedEarlierStepIsRejected() {
+        CheckpointedRun run = wrapper.executeModulesWithCheckpoints(
+                List.of(request("cp_set", 1), request("cp_add", 10)), context, 0);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> run.reexecuteFrom(1, List.of(request("cp_set", 2), request("cp_add", 10))));
+        assertEquals(11, target.getValue());
+    }
+
+    private ExecutionRequest request(String moduleId, int amount) {
+        return ExecutionRequest.forModule(wrapper.getModule(moduleId), Map.of("amount", amount));
+    }
+}
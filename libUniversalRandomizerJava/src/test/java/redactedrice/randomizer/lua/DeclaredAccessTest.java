@@ -0,0 +1,116 @@
+package redactedrice.randomizer.lua;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import redactedrice.randomizer.LuaRandomizerWrapper;
+import redactedrice.randomizer.context.JavaContext;
+import redactedrice.randomizer.testsupport.TestModules;
+import redactedrice.randomizer.utils.IssueTracker;
+
+class DeclaredAccessTest {
+    public static class Target {
+        private int value;
+
+        public int getValue() {
+            return value;
+        }
+
+        public void setValue(int value) {
+            this.value = value;
+        }
+    }
+
+    @TempDir
+    Path tempDir;
+
+    private LuaRandomizerWrapper wrapper;
+    private JavaContext context;
+    private Target source;
+    private Target target;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path root = tempDir.resolve("mods");
+        Path actions = TestModules.createActions(root);
+        TestModules.writeModule(actions, "copy_value",
+                "reads = { \"source\" }, writes = { \"target\" },",
+                "context.target:setValue(context.source:getValue())");
+        TestModules.writeModule(actions, "sees_target", "reads = { \"source\" },",
+                "if context.target ~= nil then error(\"target visible\") end");
+        TestModules.writeModule(actions, "writes_source", "reads = { \"source\" },",
+                "context.source:setValue(99)");
+        TestModules.writeModule(actions, "resets_target", "writes = { \"target\" },",
+                "context.target:setValue(0)");
+        TestModules.writeModule(actions, "undeclared", "", "context.target:setValue(1)");
+
+        wrapper = TestModules.loadWrapper(root);
+        context = new JavaContext();
+        source = new Target();
+        source.setValue(7);
+        target = new Target();
+        context.register("source", source);
+        context.register("target", target);
+        IssueTracker.clear();
+    }
+
+    @Test
+    void onlyDeclaredKeysAreBuilt() {
+        assertTrue(run("copy_value").isSuccess());
+        assertEquals(7, target.getValue());
+        assertTrue(run("sees_target").isSuccess());
+    }
+
+    @Test
+    void undeclaredWritesFailWhenEnforced() {
+        assertTrue(run("writes_source").isSuccess());
+        assertEquals(99, source.getValue());
+
+        source.setValue(7);
+        wrapper.setEnforceDeclaredAccess(true);
+        ExecutionResult result = run("writes_source");
+        assertFalse(result.isSuccess());
+        assertTrue(result.getErrorMessage().contains("outside its declared writes"));
+        assertEquals(7, source.getValue());
+        assertEquals(null, context.getWriteJournal());
+
+        assertTrue(run("copy_value").isSuccess());
+        assertEquals(7, target.getValue());
+    }
+
+    @Test
+    void planReportsConflictingModules() {
+        ExecutionPlan plan = ExecutionPlan.forRandomizeBatch(wrapper.getModuleRegistry(),
+                List.of(request("copy_value"), request("sees_target"), request("resets_target"),
+                        request("undeclared")));
+
+        List<AccessConflict> conflicts = plan.findAccessConflicts();
+        // Both writers of target conflict and undeclared conflicts with everything
+        assertEquals(4, conflicts.size());
+        assertEquals(Set.of("target"), conflicts.get(0).getKeys());
+        assertEquals("copy_value", conflicts.get(0).getFirst().getId());
+        assertEquals("resets_target", conflicts.get(0).getSecond().getId());
+        assertTrue(conflicts.get(1).isUndeclared());
+        assertEquals("undeclared", conflicts.get(3).getSecond().getId());
+        assertEquals(null, AccessConflict.between(wrapper.getModule("copy_value"),
+                wrapper.getModule("sees_target")));
+    }
+
+    private ExecutionResult run(String moduleId) {
+        return wrapper.executeModules(List.of(request(moduleId)), context, 0).get(0);
+    }
+
+    private ExecutionRequest request(String moduleId) {
+        return ExecutionRequest.forModule(wrapper.getModule(moduleId), null);
+    }
+}
@@ -0,0 +1,168 @@
+package redactedrice.randomizer.lua;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import redactedrice.randomizer.lua.sandbox.LuaSandbox;
+import redactedrice.randomizer.testsupport.TestModules;
+import redactedrice.randomizer.utils.IssueTracker;
+
+class DependencyOrderTest {
+    @TempDir
+    Path tempDir;
+
+    private ModuleRegistry registry;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        registry = loadRegistry();
+        IssueTracker.clear();
+    }
+
+    @Test
+    void providersMoveAheadOfConsumersKeepingUserOrder() {
+        ExecutionPlan plan = ExecutionPlan.forDependencyOrderedBatch(registry,
+                requests("do_uses_y", "do_independent", "do_makes_y", "do_makes_x"));
+
+        assertEquals(List.of("do_independent", "do_makes_x", "do_makes_y", "do_uses_y"),
+                ids(plan.getModuleRequests()));
+        assertTrue(plan.validate(), () -> IssueTracker.getErrors().toString());
+
+        List<List<ExecutionRequest>> levels = plan.getDependencyOrder().getLevels();
+        assertEquals(3, levels.size());
+        assertEquals(List.of("do_independent", "do_makes_x"), ids(levels.get(0)));
+        assertEquals(List.of("do_makes_y"), ids(levels.get(1)));
+        assertEquals(List.of("do_uses_y"), ids(levels.get(2)));
+    }
+
+    @Test
+    void validOrderIsUnchanged() {
+        List<ExecutionRequest> requests =
+                requests("do_makes_x", "do_independent", "do_makes_y", "do_uses_y");
+
+        DependencyOrder order = DependencyOrder.sort(registry, requests);
+
+        assertEquals(requests, order.getOrderedRequests());
+        assertFalse(order.hasCycles());
+    }
+
+    @Test
+    void requiredModuleRunsFirst() {
+        DependencyOrder order =
+                DependencyOrder.sort(registry, requests("do_requires", "do_independent"));
+
+        assertEquals(List.of("do_independent", "do_requires"), ids(order.getOrderedRequests()));
+    }
+
+    @Test
+    void cyclesAreReported() {
+        ExecutionPlan plan = ExecutionPlan.forDependencyOrderedBatch(registry,
+                requests("do_cycle_a", "do_independent", "do_cycle_b"));
+        DependencyOrder order = plan.getDependencyOrder();
+
+        assertTrue(order.hasCycles());
+        assertEquals(1, order.getIssues().size());
+        String message = order.getIssues().get(0).getMessage();
+        assertTrue(message.contains("do_cycle_a") && message.contains("do_cycle_b"), message);
+        assertEquals(List.of("do_independent", "do_cycle_a", "do_cycle_b"),
+                ids(order.getOrderedRequests()));
+        assertEquals(1, order.getLevels().size());
+        assertFalse(plan.validate());
+    }
+
+    @Test
+    void conflictingRequestsAreInSeparateLevels() {
+        DependencyOrder order = DependencyOrder.sort(registry, requests("do_makes_x",
+                "do_also_makes_x", "do_refines_x", "do_independent", "do_writes_other"));
+
+        assertEquals(List.of("do_makes_x", "do_also_makes_x", "do_refines_x", "do_independent",
+                "do_writes_other"), ids(order.getOrderedRequests()));
+        List<List<ExecutionRequest>> levels = order.getLevels();
+        assertEquals(3, levels.size());
+        assertEquals(List.of("do_makes_x", "do_independent"), ids(levels.get(0)));
+        assertEquals(List.of("do_also_makes_x", "do_writes_other"), ids(levels.get(1)));
+        assertEquals(List.of("do_refines_x"), ids(levels.get(2)));
+    }
+
+    @Test
+    void undeclaredAccessGetsItsOwnLevel() {
+        DependencyOrder order = DependencyOrder.sort(registry,
+                requests("do_independent", "do_undeclared", "do_makes_x"));
+
+        List<List<ExecutionRequest>> levels = order.getLevels();
+        assertEquals(3, levels.size());
+        assertEquals(List.of("do_independent"), ids(levels.get(0)));
+        assertEquals(List.of("do_undeclared"), ids(levels.get(1)));
+        assertEquals(List.of("do_makes_x"), ids(levels.get(2)));
+    }
+
+    private List<ExecutionRequest> requests(String... moduleIds) {
+        List<ExecutionRequest> requests = new ArrayList<>();
+        for (String moduleId : moduleIds) {
+            requests.add(ExecutionRequest.forModule(registry.getModule(moduleId), null));
+        }
+        return requests;
+    }
+
+    private static List<String> ids(List<ExecutionRequest> requests) {
+        List<String> ids = new ArrayList<>();
+        for (ExecutionRequest request : requests) {
+            ids.add(request.getModuleId());
+        }
+        return ids;
+    }
+
+    private ModuleRegistry loadRegistry() throws IOException {
+        Path root = tempDir.resolve("mods");
+        Path actions = TestModules.createActions(root);
+
+        writeModule(actions, "do_makes_x", """
+                provides = { { name = "x", type = "integer" } },
+                writes = { "x" },""");
+        writeModule(actions, "do_makes_y", """
+                needs = { { name = "x", type = "integer" } },
+                provides = { { name = "y", type = "integer" } },
+                reads = { "x" }, writes = { "y" },""");
+        writeModule(actions, "do_uses_y", """
+                needs = { { name = "y", type = "integer" } },
+                reads = { "y" },""");
+        writeModule(actions, "do_independent", "reads = { \"other\" },");
+        writeModule(actions, "do_refines_x", """
+                needs = { { name = "x", type = "integer" } },
+                provides = { { name = "x", type = "integer" } },
+                reads = { "x" }, writes = { "x" },""");
+        writeModule(actions, "do_also_makes_x", """
+                provides = { { name = "x", type = "integer" } },
+                writes = { "x" },""");
+        writeModule(actions, "do_writes_other", "writes = { \"other\" },");
+        writeModule(actions, "do_undeclared", "");
+        writeModule(actions, "do_requires", "requires = { do_independent = \"1.0\" },");
+        writeModule(actions, "do_cycle_a", """
+                needs = { { name = "b", type = "integer" } },
+                provides = { { name = "a", type = "integer" } },""");
+        writeModule(actions, "do_cycle_b", """
+                needs = { { name = "a", type = "integer" } },
+                provides = { { name = "b", type = "integer" } },""");
+
+        LuaSandbox sandbox =
+                new LuaSandbox(List.of(TestModules.randomizerPath(), root.toString()));
+        ModuleRegistry registry = new ModuleRegistry(sandbox);
+        registry.loadModulesFromDirectory(root.toString());
+        return registry;
+    }
+
+    // The order only depends on the declared fields so the modules do nothing
+    private static void writeModule(Path actions, String id, String fields) throws IOException {
+        TestModules.writeModule(actions, id, fields, "");
+    }
+}
@@ -0,0 +1,160 @@
+package redactedrice.randomizer.lua;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import redactedrice.randomizer.lua.dynamicVar.DynamicVarValidator;
+import redactedrice.randomizer.lua.sandbox.LuaSandbox;
+import redactedrice.randomizer.utils.IssueTracker;
+
+class ExecutionPlanBuilderTest {
+    @TempDir
+    Path tempDir;
+
+    private ModuleRegistry registry;
+    private ExecutionRequest provider;
+    private ExecutionRequest consumer;
+    private ExecutionRequest filler;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        registry = loadRegistry();
+        provider = ExecutionRequest.forModule(registry.getModule("pb_provider"), null);
+        consumer = ExecutionRequest.forModule(registry.getModule("pb_consumer"), null);
+        filler = ExecutionRequest.forModule(registry.getModule("pb_filler"), null);
+        IssueTracker.clear();
+    }
+
+    @Test
+    void moveFixesProviderOrder() {
+        ExecutionPlanBuilder builder = new ExecutionPlanBuilder(registry);
+        builder.append(consumer).append(filler).append(provider);
+
+        assertTrue(builder.hasIssues());
+        assertTrue(builder.getIssues().get(0).getMessage().contains("later"));
+        assertFalse(builder.validate());
+
+        builder.move(2, 0);
+
+        assertFalse(builder.hasIssues());
+        assertTrue(builder.getIssues().isEmpty());
+        assertEquals(List.of(provider, consumer, filler), builder.getRequests());
+    }
+
+    @Test
+    void editsOnlyRevalidateAffectedRequests() {
+        ExecutionPlanBuilder builder = new ExecutionPlanBuilder(registry);
+        builder.append(provider);
+        for (int i = 0; i < 1000; i++) {
+            builder.append(filler);
+        }
+        builder.append(consumer);
+
+        builder.insert(10, filler);
+        assertEquals(1, builder.getLastRevalidatedCount());
+
+        builder.remove(500);
+        assertEquals(0, builder.getLastRevalidatedCount());
+
+        builder.move(5, 20);
+        assertEquals(16, builder.getLastRevalidatedCount());
+        assertFalse(builder.hasIssues());
+
+        // Removing the provider changes what flows into every later request
+        builder.remove(0);
+        assertEquals(builder.size(), builder.getLastRevalidatedCount());
+        assertTrue(builder.hasIssues());
+    }
+
+    @Test
+    void issuesMatchFullPlanValidation() {
+        ExecutionPlanBuilder builder = new ExecutionPlanBuilder(registry);
+        List<ExecutionRequest> pool = List.of(provider, consumer, filler);
+        Random random = new Random(7);
+
+        for (int edit = 0; edit < 200; edit++) {
+            int size = builder.size();
+            int action = size == 0 ? 0 : random.nextInt(3);
+            if (action == 0) {
+                builder.insert(random.nextInt(size + 1), pool.get(random.nextInt(pool.size())));
+            } else if (action == 1) {
+                builder.remove(random.nextInt(size));
+            } else {
+                builder.move(random.nextInt(size), random.nextInt(size));
+            }
+
+            List<Issue> expected = DynamicVarValidator.validateExecutionPlan(
+                    ExecutionPlan.forRandomizeBatch(registry, builder.getRequests()), null);
+            assertEquals(messages(expected), messages(builder.getIssues()));
+        }
+    }
+
+    private static List<String> messages(List<Issue> issues) {
+        List<String> messages = new ArrayList<>();
+        for (Issue issue : issues) {
+            messages.add(issue.getMessage());
+        }
+        return messages;
+    }
+
+    private ModuleRegistry loadRegistry() throws IOException {
+        Path root = tempDir.resolve("mods");
+        Path actions = root.resolve("actions");
+        Files.createDirectories(actions);
+
+        Files.writeString(actions.resolve("pb_provider.lua"), """
+                return {
+                    id = "pb_provider",
+                    name = "Provider",
+                    groups = { "test" },
+                    author = "test",
+                    version = "1.0",
+                    provides = { { name = "token", type = "integer" } },
+                    execute = function() end,
+                }
+                """);
+
+        Files.writeString(actions.resolve("pb_consumer.lua"), """
+                return {
+                    id = "pb_consumer",
+                    name = "Consumer",
+                    groups = { "test" },
+                    author = "test",
+                    version = "1.0",
+                    needs = { { name = "token", type = "integer" } },
+                    execute = function() end,
+                }
+                """);
+
+        Files.writeString(actions.resolve("pb_filler.lua"), """
+                return {
+                    id = "pb_filler",
+                    name = "Filler",
+                    groups = { "test" },
+                    author = "test",
+                    version = "1.0",
+                    execute = function() end,
+                }
+                """);
+
+        String randomizerPath =
+                new File("../UniversalRandomizerCore/randomizer").getAbsolutePath();
+        LuaSandbox sandbox = new LuaSandbox(List.of(randomizerPath, root.toString()));
+        ModuleRegistry registry = new ModuleRegistry(sandbox);
+        registry.loadModulesFromDirectory(root.toString());
+        return registry;
+    }
+}
@@ -3,8 +3,12 @@ package redactedrice.randomizer.lua;
 import org.junit.jupiter.api.Test;
 import org.luaj.vm2.LuaInteger;
 import org.luaj.vm2.LuaString;
+import org.luaj.vm2.LuaTable;
 import org.luaj.vm2.LuaValue;
 
+import java.util.List;
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class ExecutionResultTest {
@@ -70,4 +74,33 @@ class ExecutionResultTest {
         assertEquals(luaInt, execResult.getResult());
         assertEquals(42, execResult.getResult().toint());
     }
+
+    @Test
+    void detachKeepsImmutableJavaCopy() {
+        LuaTable table = new LuaTable();
+        table.set("name", "fire");
+        LuaTable list = new LuaTable();
+        list.set(1, LuaValue.valueOf(1));
+        list.set(2, LuaValue.valueOf(2));
+        table.set("list", list);
+        table.set("self", table);
+        ExecutionRequest request = ExecutionRequest.forModuleWithSeedOffset("TestModule", null, 0);
+        ExecutionResult detached = ExecutionResult.success(request, 7, table).detach();
+
+        assertTrue(detached.isDetached());
+        assertSame(detached, detached.detach());
+        assertEquals(7, detached.getSeedUsed());
+        Map<?, ?> value = (Map<?, ?>) detached.getJavaResult();
+        assertEquals("fire", value.get("name"));
+        assertEquals(List.of(1, 2), value.get("list"));
+        assertSame(value, value.get("self"));
+        assertThrows(UnsupportedOperationException.class, () -> value.clear());
+        assertThrows(UnsupportedOperationException.class,
+                () -> ((List<?>) value.get("list")).clear());
+
+        // Changes to the Lua table after detaching do not reach the copy
+        table.set("name", "water");
+        assertEquals("fire", value.get("name"));
+        assertEquals("fire", detached.getResult().get("name").tojstring());
+    }
 }
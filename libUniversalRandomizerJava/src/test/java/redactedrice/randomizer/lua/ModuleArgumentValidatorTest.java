@@ -0,0 +1,90 @@
+package redactedrice.randomizer.lua;
+
+import redactedrice.randomizer.context.JavaContext;
+import redactedrice.randomizer.lua.arguments.ArgumentDefinition;
+import redactedrice.randomizer.lua.arguments.TypeDefinition;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.lib.ZeroArgFunction;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModuleArgumentValidatorTest {
+
+    private ModuleArgumentValidator validator;
+    private JavaContext context;
+    private Module module;
+
+    @BeforeEach
+    public void setUp() {
+        validator = new ModuleArgumentValidator();
+        context = new JavaContext();
+        context.registerEnum("Difficulty", "EASY", "NORMAL", "HARD");
+        module = module(List.of(
+                new ArgumentDefinition("difficulty", TypeDefinition.enumType("Difficulty"), null),
+                new ArgumentDefinition("pool", TypeDefinition.listOf(TypeDefinition.integer()),
+                        null)));
+    }
+
+    @Test
+    public void testSameRequestReusesValidatedArguments() {
+        Map<String, Object> args = Map.of("difficulty", "hard", "pool", List.of(1, 2, 3));
+
+        ValidatedArguments first = validator.validateCached(module, args, context);
+        ValidatedArguments second = validator.validateCached(module, args, context);
+
+        assertSame(first, second);
+        assertEquals("HARD", first.getValues().get("difficulty"));
+        assertEquals(1, validator.getCachedCount());
+    }
+
+    @Test
+    public void testArgumentTablesAreIndependentCopies() {
+        Map<String, Object> args = Map.of("difficulty", "EASY", "pool", List.of(1, 2, 3));
+        ValidatedArguments validated = validator.validateCached(module, args, context);
+
+        LuaTable first = validated.toLuaTable();
+        first.get("pool").set(1, LuaValue.valueOf(99));
+        LuaTable second = validated.toLuaTable();
+
+        assertNotSame(first, second);
+        assertEquals(1, second.get("pool").get(1).toint());
+    }
+
+    @Test
+    public void testEnumRegistryChangeInvalidatesCache() {
+        Map<String, Object> args = Map.of("difficulty", "EASY", "pool", List.of(1));
+        ValidatedArguments first = validator.validateCached(module, args, context);
+
+        context.getEnumRegistry().extendEnum("Difficulty", List.of("EXPERT"), null);
+        ValidatedArguments second = validator.validateCached(module, args, context);
+
+        assertNotSame(first, second);
+    }
+
+    @Test
+    public void testFailedValidationIsNotCached() {
+        Map<String, Object> args = Map.of("difficulty", "IMPOSSIBLE", "pool", List.of(1));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> validator.validateCached(module, args, context));
+        assertEquals(0, validator.getCachedCount());
+    }
+
+    private static Module module(List<ArgumentDefinition> arguments) {
+        ZeroArgFunction execute = new ZeroArgFunction() {
+            @Override
+            public LuaValue call() {
+                return LuaValue.NIL;
+            }
+        };
+        return new Module("test_module", "Test Module", null, Set.of("test"), arguments, execute,
+                null, null, 0, false, true, null, "author", "1.0.0", Map.of(), null, null, null,
+                null, null);
+    }
+}
@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -127,6 +128,57 @@ public class ModuleParserTest {
         assertFalse(unseeded.isSeedOffsetFromMetadata());
     }
 
+    @Test
+    void declaredContextAccessIsParsed() throws IOException {
+        Module declared = parse(writeScript("""
+                return {
+                    id = "declared_module",
+                    name = "Declared Module",
+                    groups = { "test" },
+                    author = "Test",
+                    version = "0.1",
+                    reads = { "items", " config " },
+                    writes = { "players" },
+                    execute = function(context, args) end,
+                }
+                """));
+        assertNotNull(declared);
+        assertTrue(declared.declaresContextAccess());
+        assertEquals(java.util.Set.of("items", "config"), declared.getReads());
+        assertEquals(java.util.Set.of("players"), declared.getWrites());
+        assertEquals(java.util.Set.of("items", "config", "players"),
+                declared.getAccessedKeys());
+
+        Module writesOnly = parse(writeScript("""
+                return {
+                    id = "writes_only",
+                    name = "Writes Only",
+                    groups = { "test" },
+                    author = "Test",
+                    version = "0.1",
+                    writes = { "players" },
+                    execute = function(context, args) end,
+                }
+                """));
+        assertNotNull(writesOnly);
+        assertTrue(writesOnly.getReads().isEmpty());
+        assertEquals(java.util.Set.of("players"), writesOnly.getAccessedKeys());
+
+        Module undeclared = parse(writeScript("""
+                return {
+                    id = "undeclared",
+                    name = "Undeclared",
+                    groups = { "test" },
+                    author = "Test",
+                    version = "0.1",
+                    execute = function(context, args) end,
+                }
+                """));
+        assertNotNull(undeclared);
+        assertFalse(undeclared.declaresContextAccess());
+        assertNull(undeclared.getAccessedKeys());
+    }
+
     private Path writeScript(String contents) throws IOException {
         Path luaFile = tempDir.resolve("module.lua");
         Files.writeString(luaFile, contents);
@@ -0,0 +1,141 @@
+package redactedrice.randomizer.lua;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import redactedrice.randomizer.LuaRandomizerWrapper;
+import redactedrice.randomizer.context.JavaContext;
+import redactedrice.randomizer.testsupport.TestModules;
+import redactedrice.randomizer.utils.IssueTracker;
+
+class PreparedPlanTest {
+    @TempDir
+    Path tempDir;
+
+    private LuaRandomizerWrapper wrapper;
+    private JavaContext context;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path root = writeModules();
+        wrapper = TestModules.loadWrapper(root);
+        context = new JavaContext();
+        IssueTracker.clear();
+    }
+
+    @Test
+    void preparedPlanRunsForMultipleSeeds() {
+        PreparedPlan plan = wrapper.prepareExecutionPlan(
+                List.of(ExecutionRequest.forModule(wrapper.getModule("pp_double"),
+                        Map.of("count", 3))),
+                context);
+        ExecutionPlan executionPlan = plan.getExecutionPlan();
+
+        List<ExecutionResult> first = wrapper.executePreparedPlan(plan, context, 100);
+        List<ExecutionResult> second = wrapper.executePreparedPlan(plan, context, 200);
+
+        assertSame(executionPlan, plan.getExecutionPlan());
+        assertTrue(first.get(0).isSuccess(), () -> first.get(0).getErrorMessage());
+        assertTrue(second.get(0).isSuccess(), () -> second.get(0).getErrorMessage());
+        assertEquals(6, first.get(0).getResult().toint());
+        assertEquals(6, second.get(0).getResult().toint());
+        assertNotEquals(first.get(0).getSeedUsed(), second.get(0).getSeedUsed());
+    }
+
+    @Test
+    void reloadingModulesRebindsPreparedPlan() {
+        PreparedPlan plan = wrapper.prepareExecutionPlan(
+                List.of(ExecutionRequest.forModule(wrapper.getModule("pp_double"),
+                        Map.of("count", 2))),
+                context);
+        Module original = plan.getModules().get(0);
+
+        wrapper.loadModules();
+        assertTrue(plan.isStale());
+
+        List<ExecutionResult> results = wrapper.executePreparedPlan(plan, context, 1);
+
+        assertFalse(plan.isStale());
+        assertNotEquals(original, plan.getModules().get(0));
+        assertSame(wrapper.getModule("pp_double"), plan.getModules().get(0));
+        assertEquals(4, results.get(0).getResult().toint());
+    }
+
+    @Test
+    void invalidArgumentsAreReportedOnEachRun() {
+        PreparedPlan plan = wrapper.prepareExecutionPlan(
+                List.of(ExecutionRequest.forModule(wrapper.getModule("pp_double"),
+                        Map.of("count", "many"))),
+                context);
+
+        for (int seed = 0; seed < 2; seed++) {
+            List<ExecutionResult> results = wrapper.executePreparedPlan(plan, context, seed);
+            assertFalse(results.get(0).isSuccess());
+            assertTrue(results.get(0).getErrorMessage().contains("count"));
+        }
+    }
+
+    @Test
+    void convertedArgumentsAreReusedByOtherContexts() {
+        context.getEnumRegistry().registerEnum("PpColor", List.of("RED", "BLUE"));
+        PreparedPlan plan = wrapper.prepareExecutionPlan(
+                List.of(ExecutionRequest.forModule(wrapper.getModule("pp_double"),
+                        Map.of("count", 3))),
+                context);
+        ValidatedArguments prepared = plan.getArguments(0, context.getEnumRegistry());
+        assertNotNull(prepared);
+
+        // Each run of a sweep gets a fresh or forked context with the same enums
+        JavaContext fresh = new JavaContext();
+        fresh.getEnumRegistry().registerEnum("PpColor", List.of("RED", "BLUE"));
+        JavaContext forked = context.fork();
+        List<ExecutionResult> first = wrapper.executePreparedPlan(plan, fresh, 1);
+        List<ExecutionResult> second = wrapper.executePreparedPlan(plan, forked, 2);
+
+        assertEquals(6, first.get(0).getResult().toint());
+        assertEquals(6, second.get(0).getResult().toint());
+        assertSame(prepared, plan.getArguments(0, fresh.getEnumRegistry()));
+        assertSame(prepared, plan.getArguments(0, forked.getEnumRegistry()));
+
+        JavaContext different = new JavaContext();
+        different.getEnumRegistry().registerEnum("PpColor", List.of("RED", "GREEN"));
+        assertNull(plan.getArguments(0, different.getEnumRegistry()));
+        fresh.getEnumRegistry().extendEnum("PpColor", List.of("GREEN"), null);
+        assertNull(plan.getArguments(0, fresh.getEnumRegistry()));
+    }
+
+    private Path writeModules() throws IOException {
+        Path root = tempDir.resolve("mods");
+        Path actions = TestModules.createActions(root);
+
+        Files.writeString(actions.resolve("pp_double.lua"), """
+                return {
+                    id = "pp_double",
+                    name = "Double",
+                    groups = { "test" },
+                    author = "test",
+                    version = "1.0",
+                    arguments = {
+                        { name = "count", definition = "integer" },
+                    },
+                    execute = function(context, args) return args.count * 2 end,
+                }
+                """);
+        return root;
+    }
+}
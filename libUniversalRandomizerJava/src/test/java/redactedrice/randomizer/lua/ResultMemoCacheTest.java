@@ -0,0 +1,215 @@
+package redactedrice.randomizer.lua;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import redactedrice.randomizer.LuaRandomizerWrapper;
+import redactedrice.randomizer.context.JavaContext;
+import redactedrice.randomizer.testsupport.TestModules;
+import redactedrice.randomizer.utils.IssueTracker;
+
+class ResultMemoCacheTest {
+    public static class Target {
+        private int value;
+
+        public int getValue() {
+            return value;
+        }
+
+        public void setValue(int value) {
+            this.value = value;
+        }
+    }
+
+    public static class Holder {
+        private final Target inner = new Target();
+
+        public Target getInner() {
+            return inner;
+        }
+    }
+
+    public static class Unreadable extends Target {
+        public int getBroken() {
+            throw new IllegalStateException("Unreadable");
+        }
+    }
+
+    // Not public so its getters are only readable after making them accessible
+    static class HiddenTarget {
+        private int value;
+
+        public int getValue() {
+            return value;
+        }
+
+        public void setValue(int value) {
+            this.value = value;
+        }
+    }
+
+    private static final String AMOUNT_ARGUMENT =
+            "arguments = { { name = \"amount\", definition = \"integer\" } },";
+
+    @TempDir
+    Path tempDir;
+
+    private LuaRandomizerWrapper wrapper;
+    private ResultMemoCache memo;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path root = tempDir.resolve("mods");
+        Path actions = TestModules.createActions(root);
+        TestModules.writeModule(actions, "memo_add", AMOUNT_ARGUMENT, """
+                local value = context.target:getValue() + args.amount
+                context.target:setValue(value)
+                return value""");
+        TestModules.writeModule(actions, "memo_table", AMOUNT_ARGUMENT, """
+                context.target:setValue(args.amount)
+                return { args.amount }""");
+        TestModules.writeModule(actions, "memo_read", AMOUNT_ARGUMENT,
+                "return context.target:getValue() + args.amount");
+        TestModules.writeModule(actions, "memo_inner", AMOUNT_ARGUMENT, """
+                local inner = context.target:getInner()
+                inner:setValue(inner:getValue() + args.amount)
+                return inner:getValue()""");
+
+        wrapper = TestModules.loadWrapper(root);
+        memo = new ResultMemoCache();
+        wrapper.setResultMemoCache(memo);
+        IssueTracker.clear();
+    }
+
+    @Test
+    void sameInputReplaysRecordedResult() {
+        Target first = new Target();
+        ExecutionResult firstResult = run("memo_add", 5, first);
+        Target second = new Target();
+        ExecutionResult secondResult = run("memo_add", 5, second);
+
+        assertTrue(secondResult.isSuccess());
+        assertEquals(5, firstResult.getResult().toint());
+        assertEquals(5, secondResult.getResult().toint());
+        assertEquals(5, second.getValue());
+        assertEquals(1, memo.getHitCount());
+        assertEquals(1, memo.getMissCount());
+        assertEquals(1, memo.size());
+    }
+
+    @Test
+    void changedInputOrArgumentsMiss() {
+        run("memo_add", 5, new Target());
+
+        Target changed = new Target();
+        changed.setValue(3);
+        assertEquals(8, run("memo_add", 5, changed).getResult().toint());
+        assertEquals(8, changed.getValue());
+
+        Target otherArgs = new Target();
+        assertEquals(2, run("memo_add", 2, otherArgs).getResult().toint());
+
+        assertEquals(0, memo.getHitCount());
+        assertEquals(3, memo.getMissCount());
+        assertEquals(3, memo.size());
+    }
+
+    @Test
+    void invalidatedModuleRunsAgain() {
+        run("memo_add", 5, new Target());
+        assertEquals(1, memo.invalidateModule("memo_add"));
+        assertEquals(0, memo.size());
+
+        Target target = new Target();
+        run("memo_add", 5, target);
+        assertEquals(5, target.getValue());
+        assertEquals(0, memo.getHitCount());
+    }
+
+    @Test
+    void tableResultsAreNotStored() {
+        run("memo_table", 4, new Target());
+        Target target = new Target();
+        ExecutionResult result = run("memo_table", 4, target);
+
+        assertTrue(result.getResult().istable());
+        assertEquals(4, target.getValue());
+        assertEquals(0, memo.getHitCount());
+        assertEquals(0, memo.size());
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        memo = new ResultMemoCache(1);
+        wrapper.setResultMemoCache(memo);
+        run("memo_add", 1, new Target());
+        run("memo_add", 2, new Target());
+        assertEquals(1, memo.size());
+
+        run("memo_add", 1, new Target());
+        assertEquals(0, memo.getHitCount());
+    }
+
+    @Test
+    void mutationThroughAGetterMisses() {
+        Holder holder = new Holder();
+        JavaContext context = new JavaContext();
+        context.register("target", holder);
+        assertEquals(5, run("memo_inner", 5, context).getResult().toint());
+
+        holder.getInner().setValue(100);
+        assertEquals(105, run("memo_inner", 5, context).getResult().toint());
+        assertEquals(105, holder.getInner().getValue());
+        assertEquals(0, memo.getHitCount());
+    }
+
+    @Test
+    void nonPublicClassesAreFingerprinted() {
+        HiddenTarget hidden = new HiddenTarget();
+        JavaContext context = new JavaContext();
+        context.register("target", hidden);
+        assertEquals(5, run("memo_read", 5, context).getResult().toint());
+
+        hidden.setValue(1);
+        assertEquals(6, run("memo_read", 5, context).getResult().toint());
+        assertEquals(0, memo.getHitCount());
+
+        HiddenTarget same = new HiddenTarget();
+        same.setValue(1);
+        JavaContext sameContext = new JavaContext();
+        sameContext.register("target", same);
+        assertEquals(6, run("memo_read", 5, sameContext).getResult().toint());
+        assertEquals(1, memo.getHitCount());
+    }
+
+    @Test
+    void unreadableInputIsNotStored() {
+        ExecutionResult result = run("memo_read", 5, new Unreadable());
+        assertTrue(result.isSuccess(), result::getErrorMessage);
+        run("memo_read", 5, new Unreadable());
+
+        assertEquals(0, memo.size());
+        assertEquals(0, memo.getHitCount());
+    }
+
+    private ExecutionResult run(String moduleId, int amount, Target target) {
+        JavaContext context = new JavaContext();
+        context.register("target", target);
+        return run(moduleId, amount, context);
+    }
+
+    private ExecutionResult run(String moduleId, int amount, JavaContext context) {
+        List<ExecutionResult> results = wrapper.executeModules(List.of(ExecutionRequest
+                .forModule(wrapper.getModule(moduleId), Map.of("amount", amount))), context, 0);
+        return results.get(0);
+    }
+}
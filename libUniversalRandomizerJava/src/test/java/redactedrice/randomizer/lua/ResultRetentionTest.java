@@ -0,0 +1,103 @@
+package redactedrice.randomizer.lua;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import redactedrice.randomizer.LuaRandomizerWrapper;
+import redactedrice.randomizer.context.JavaContext;
+import redactedrice.randomizer.testsupport.TestModules;
+
+class ResultRetentionTest {
+    @TempDir
+    Path tempDir;
+
+    private LuaRandomizerWrapper wrapper;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path root = tempDir.resolve("mods");
+        Path actions = TestModules.createActions(root);
+        TestModules.writeModule(actions, "make_table",
+                "return { kind = \"table\", values = { 1, 2, 3 } }");
+
+        wrapper = TestModules.loadWrapper(root);
+    }
+
+    private List<ExecutionRequest> requests(int count) {
+        List<ExecutionRequest> requests = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            requests.add(ExecutionRequest.forModule(wrapper.getModule("make_table"), Map.of()));
+        }
+        return requests;
+    }
+
+    @Test
+    void keepsAllByDefault() {
+        wrapper.executeModules(requests(3), new JavaContext(), 0);
+        wrapper.executeModule(requests(1).get(0), new JavaContext(), 0);
+        assertEquals(4, wrapper.getExecutionResults().size());
+    }
+
+    @Test
+    void keepsOnlyTheLastResults() {
+        wrapper.setResultRetention(ResultRetention.lastN(2));
+        List<ExecutionResult> returned = wrapper.executeModules(requests(5), new JavaContext(), 0);
+        assertEquals(5, returned.size());
+
+        List<ExecutionResult> kept = wrapper.getExecutionResults();
+        assertEquals(2, kept.size());
+        assertEquals(returned.get(3), kept.get(0));
+        assertEquals(returned.get(4), kept.get(1));
+
+        wrapper.setResultRetention(ResultRetention.none());
+        assertTrue(wrapper.getExecutionResults().isEmpty());
+        wrapper.executeModules(requests(2), new JavaContext(), 0);
+        assertTrue(wrapper.getExecutionResults().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> ResultRetention.lastN(-1));
+    }
+
+    @Test
+    void listenersStreamResultsAsProduced() {
+        List<ExecutionResult> streamed = new ArrayList<>();
+        ResultListener listener = streamed::add;
+        wrapper.addResultListener(listener);
+        wrapper.setResultRetention(ResultRetention.none());
+
+        List<ExecutionResult> returned = wrapper.executeModules(requests(3), new JavaContext(), 0);
+        assertEquals(returned, streamed);
+
+        wrapper.removeResultListener(listener);
+        wrapper.executeModules(requests(1), new JavaContext(), 0);
+        assertEquals(3, streamed.size());
+    }
+
+    @Test
+    void detachedResultsHoldJavaValues() {
+        wrapper.setDetachResults(true);
+        List<ExecutionResult> returned = wrapper.executeModules(requests(1), new JavaContext(), 0);
+
+        ExecutionResult result = returned.get(0);
+        assertTrue(result.isDetached());
+        assertTrue(result.isSuccess());
+        Map<?, ?> value = (Map<?, ?>) result.getJavaResult();
+        assertEquals("table", value.get("kind"));
+        assertEquals(List.of(1, 2, 3), value.get("values"));
+        assertTrue(wrapper.getExecutionResults().get(0).isDetached());
+
+        wrapper.setDetachResults(false);
+        assertFalse(wrapper.executeModules(requests(1), new JavaContext(), 0).get(0)
+                .isDetached());
+    }
+}
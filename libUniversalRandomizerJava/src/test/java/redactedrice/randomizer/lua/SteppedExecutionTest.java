@@ -0,0 +1,129 @@
+package redactedrice.randomizer.lua;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import redactedrice.randomizer.LuaRandomizerWrapper;
+import redactedrice.randomizer.context.JavaContext;
+import redactedrice.randomizer.lua.sandbox.monitoring.InterruptibleDebugLib;
+import redactedrice.randomizer.testsupport.TestModules;
+
+class SteppedExecutionTest {
+    public static class Target {
+        private int value;
+
+        public int getValue() {
+            return value;
+        }
+
+        public void setValue(int value) {
+            this.value = value;
+        }
+    }
+
+    @TempDir
+    Path tempDir;
+
+    private LuaRandomizerWrapper wrapper;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path root = tempDir.resolve("mods");
+        Path actions = TestModules.createActions(root);
+        TestModules.writeModule(actions, "sum", """
+                local total = 0
+                for i = 1, 20000 do
+                    total = (total + i) % 1000
+                end
+                context.target:setValue(context.target:getValue() + total)
+                return total""");
+        TestModules.writeModule(actions, "spin", "while true do end");
+        wrapper = TestModules.loadWrapper(root);
+    }
+
+    private ExecutionRequest request(String moduleId) {
+        return ExecutionRequest.forModule(wrapper.getModule(moduleId), Map.of());
+    }
+
+    private static JavaContext newContext(Target target) {
+        JavaContext context = new JavaContext();
+        context.register("target", target);
+        return context;
+    }
+
+    @Test
+    void steppedModuleMatchesBlockingRun() {
+        Target expected = new Target();
+        ExecutionResult blocking =
+                wrapper.executeModule(request("sum"), newContext(expected), 0);
+
+        Target target = new Target();
+        ModuleExecutionHandle handle = wrapper.startModule(request("sum"), newContext(target), 0);
+        assertFalse(handle.isDone());
+        assertNull(handle.getResult());
+        int steps = 0;
+        while (!handle.step(TimeUnit.SECONDS.toNanos(10), 5000)) {
+            steps++;
+        }
+        // The loop runs several instructions per iteration so it takes many slices
+        assertTrue(steps > 5);
+        assertTrue(handle.isDone());
+        assertTrue(handle.step(1));
+
+        assertTrue(handle.getResult().isSuccess());
+        assertEquals(blocking.getResult().toint(), handle.getResult().getResult().toint());
+        assertEquals(expected.getValue(), target.getValue());
+    }
+
+    @Test
+    void steppedBatchRunsAllModules() {
+        Target target = new Target();
+        ModuleExecutionHandle handle = wrapper.startModules(
+                List.of(request("sum"), request("sum")), newContext(target), 0);
+        while (!handle.step(TimeUnit.MILLISECONDS.toNanos(1))) {
+            // A frame of the host's loop would go here
+        }
+        assertEquals(2, handle.getResults().size());
+        assertTrue(handle.getSliceCount() >= 1);
+        assertEquals(2 * handle.getResults().get(0).getResult().toint(), target.getValue());
+    }
+
+    @Test
+    void timeBudgetBoundsEachStep() {
+        ModuleExecutionHandle handle =
+                wrapper.startModule(request("spin"), newContext(new Target()), 0);
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            assertFalse(handle.step(TimeUnit.MILLISECONDS.toNanos(5)));
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        }
+        handle.cancel();
+        assertTrue(handle.isDone());
+        assertTrue(handle.isCancelled());
+        ExecutionResult result = handle.getResult();
+        assertFalse(result.isSuccess());
+        assertTrue(result.getErrorMessage().contains(InterruptibleDebugLib.CANCELLED_MESSAGE));
+    }
+
+    @Test
+    void invalidBudgetsAreRejected() {
+        ModuleExecutionHandle handle =
+                wrapper.startModule(request("sum"), newContext(new Target()), 0);
+        assertThrows(IllegalArgumentException.class, () -> handle.step(0));
+        assertThrows(IllegalArgumentException.class, () -> handle.step(1000, 0));
+        handle.cancel();
+    }
+}
@@ -0,0 +1,149 @@
+package redactedrice.randomizer.lua;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import redactedrice.randomizer.LuaRandomizerWrapper;
+import redactedrice.randomizer.context.JavaContext;
+import redactedrice.randomizer.context.PatchReplayer;
+import redactedrice.randomizer.context.RandomizationPatch;
+import redactedrice.randomizer.context.WriteJournal;
+import redactedrice.randomizer.testsupport.TestModules;
+import redactedrice.randomizer.utils.IssueTracker;
+import redactedrice.randomizer.utils.LogContext;
+
+class TransactionalExecutionTest {
+    public static class Target {
+        private int value;
+
+        public int getValue() {
+            return value;
+        }
+
+        public void setValue(int value) {
+            this.value = value;
+        }
+    }
+
+    // Its value can only go up so rolling back a write to it throws
+    public static class Ratchet {
+        private int value;
+
+        public int getValue() {
+            return value;
+        }
+
+        public void setValue(int value) {
+            if (value < this.value) {
+                throw new IllegalStateException("Ratchet cannot go down");
+            }
+            this.value = value;
+        }
+    }
+
+    @TempDir
+    Path tempDir;
+
+    private LuaRandomizerWrapper wrapper;
+    private JavaContext context;
+    private Target target;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path root = tempDir.resolve("mods");
+        Path actions = TestModules.createActions(root);
+        TestModules.writeModule(actions, "tx_set_one", "context.target:setValue(1)");
+        TestModules.writeModule(actions, "tx_fails",
+                "context.target:setValue(100) error(\"boom\")");
+        TestModules.writeModule(actions, "tx_ratchet_fails",
+                "context.ratchet:setValue(5) error(\"ratchet boom\")");
+        TestModules.writeModule(actions, "tx_add_ten",
+                "context.target:setValue(context.target:getValue() + 10)");
+
+        wrapper = TestModules.loadWrapper(root);
+        context = new JavaContext();
+        target = new Target();
+        context.register("target", target);
+        IssueTracker.clear();
+    }
+
+    @Test
+    void failedModuleIsRolledBack() {
+        WriteJournal journal = context.enableWriteJournal();
+
+        List<ExecutionResult> results = wrapper.executeModules(List.of(request("tx_set_one"),
+                request("tx_fails"), request("tx_add_ten")), context, 0);
+
+        assertTrue(results.get(0).isSuccess());
+        assertFalse(results.get(1).isSuccess());
+        assertTrue(results.get(2).isSuccess());
+        assertEquals(11, target.getValue());
+        assertEquals(3, journal.getSavepoints().size());
+        assertEquals(2, journal.size());
+    }
+
+    @Test
+    void savepointsUndoLaterModules() {
+        WriteJournal journal = context.enableWriteJournal();
+        wrapper.executeModules(List.of(request("tx_set_one"), request("tx_add_ten"),
+                request("tx_add_ten")), context, 0);
+        assertEquals(21, target.getValue());
+
+        WriteJournal.Savepoint secondStep = journal.getSavepoints().get(1);
+        assertEquals("tx_add_ten", secondStep.getLabel());
+        journal.rollbackTo(secondStep);
+        assertEquals(1, target.getValue());
+    }
+
+    @Test
+    void recordedPatchReplaysWithoutLua() {
+        wrapper.startRecording(context);
+        wrapper.executeModules(List.of(request("tx_set_one"), request("tx_fails"),
+                request("tx_add_ten")), context, 0);
+        RandomizationPatch patch = wrapper.stopRecording();
+        assertNull(context.getWriteJournal());
+        assertEquals(2, patch.size());
+
+        JavaContext fresh = new JavaContext();
+        Target freshTarget = new Target();
+        fresh.register("target", freshTarget);
+        PatchReplayer.apply(patch, fresh);
+        assertEquals(11, freshTarget.getValue());
+    }
+
+    @Test
+    void failuresAreKeptWithoutJournal() {
+        wrapper.executeModules(List.of(request("tx_fails")), context, 0);
+        assertEquals(100, target.getValue());
+    }
+
+    @Test
+    void failedRollbackIsAddedToTheFailure() {
+        context.register("ratchet", new Ratchet());
+        context.enableWriteJournal();
+        List<ExecutionResult> results = wrapper.executeModules(
+                List.of(request("tx_ratchet_fails"), request("tx_set_one")), context, 0);
+
+        String message = results.get(0).getErrorMessage();
+        assertTrue(message.contains("ratchet boom"), message);
+        assertTrue(message.contains("Failed to roll back"), message);
+        assertTrue(results.get(1).isSuccess());
+        assertEquals(1, target.getValue());
+        assertSame(LogContext.EMPTY, LogContext.current());
+    }
+
+    private ExecutionRequest request(String moduleId) {
+        return ExecutionRequest.forModule(wrapper.getModule(moduleId), null);
+    }
+}
@@ -108,4 +108,22 @@ public class ArgumentConstraintTest {
         assertFalse(byCase.validate("COLORLESS", ArgumentType.ENUM));
         assertFalse(byCase.validate("COLORLESS", ArgumentType.ENUM, enumDef));
     }
+
+    @Test
+    public void testEnumAllowListRebindsToNewDefinition() {
+        EnumDefinition base = new EnumDefinition("Stage", Arrays.asList("BASIC", "STAGE_1"),
+                Map.of("BASIC", 0, "STAGE_1", 1), null, Map.of("STAGE_1", "Stage 1"));
+        ArgumentConstraint constraint =
+                ArgumentConstraint.enumValues(Arrays.asList("Stage 1", "Stage 2"));
+
+        assertTrue(constraint.validate("STAGE_1", ArgumentType.ENUM, base));
+        assertTrue(constraint.validate("stage 1", ArgumentType.ENUM, base));
+        assertFalse(constraint.validate("BASIC", ArgumentType.ENUM, base));
+        assertFalse(constraint.validate("STAGE_2", ArgumentType.ENUM, base));
+
+        EnumDefinition extended = base.expandWith(Arrays.asList("STAGE_2"), null,
+                Map.of("STAGE_2", "Stage 2"));
+        assertTrue(constraint.validate("STAGE_2", ArgumentType.ENUM, extended));
+        assertFalse(constraint.validate("BASIC", ArgumentType.ENUM, extended));
+    }
 }
@@ -0,0 +1,79 @@
+package redactedrice.randomizer.lua.dynamicVar;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.luaj.vm2.LuaFunction;
+import org.luaj.vm2.LuaValue;
+import org.luaj.vm2.lib.ZeroArgFunction;
+
+import redactedrice.randomizer.lua.Module;
+import redactedrice.randomizer.lua.ModuleRepository;
+import redactedrice.randomizer.utils.IssueTracker;
+
+class DynamicVarRegistryTest {
+    private ModuleRepository repository;
+    private DynamicVarRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        repository = new ModuleRepository(null);
+        registry = DynamicVarRegistry.empty();
+        IssueTracker.clear();
+    }
+
+    @Test
+    void lookupsOnlyReturnProvidersWithMatchingNameAndType() {
+        register(module("int_provider", List.of(new DynamicVar("token", "Integer")), List.of()));
+        register(module("string_provider", List.of(new DynamicVar("token", "string")), List.of()));
+        register(module("other_provider", List.of(new DynamicVar("other", "integer")), List.of()));
+        registry.buildFrom(repository);
+
+        DynamicVar need = new DynamicVar("token", "integer");
+        assertEquals(List.of("int_provider"), registry.getCompatibleProviderModuleIds(need));
+        assertEquals(1, registry.findCompatibleProviders(need).size());
+        assertTrue(registry.getCompatibleProviderModuleIds(need, "int_provider").isEmpty());
+        assertTrue(registry.findCompatibleProviders(new DynamicVar("missing", "integer"))
+                .isEmpty());
+    }
+
+    @Test
+    void consumerAdjacencyCombinesProvidersAcrossNeeds() {
+        register(module("first", List.of(new DynamicVar("a", "integer")), List.of()));
+        register(module("second", List.of(new DynamicVar("b", "integer"),
+                new DynamicVar("a", "integer")), List.of()));
+        register(module("consumer", List.of(),
+                List.of(new DynamicVar("a", "integer"), new DynamicVar("b", "integer"))));
+        registry.buildFrom(repository);
+
+        List<String> providers = registry.getProviderModuleIdsForConsumer("consumer");
+        assertEquals(Set.of("first", "second"), Set.copyOf(providers));
+        assertEquals(2, providers.size());
+        assertTrue(registry.getProviderModuleIdsForConsumer("first").isEmpty());
+
+        registry.clear();
+        assertTrue(registry.getProviderModuleIdsForConsumer("consumer").isEmpty());
+    }
+
+    private void register(Module module) {
+        repository.registerModule(module, m -> true);
+    }
+
+    private static Module module(String id, List<DynamicVar> provides, List<DynamicVar> needs) {
+        LuaFunction execute = new ZeroArgFunction() {
+            @Override
+            public LuaValue call() {
+                return LuaValue.NIL;
+            }
+        };
+        return new Module(id, id, null, Set.of("test"), null, execute, null, null, 0, false, true,
+                null, "author", "1.0.0", Map.of("ExampleApp", "1.0.0"), provides, needs, null,
+                null, null);
+    }
+}
@@ -4,6 +4,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.List;
 
@@ -13,6 +15,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import redactedrice.randomizer.utils.IssueTracker;
+import redactedrice.randomizer.utils.LogLevel;
 import redactedrice.randomizer.utils.Logger;
 
 class LuaLoggerBridgeTest {
@@ -65,4 +68,44 @@ class LuaLoggerBridgeTest {
     void issuesGlobalIsNotAvailable() {
         assertTrue(sandbox.execute("return issues == nil").toboolean());
     }
+
+    @Test
+    void debugBelowMinLevelSkipsMessageFunction() {
+        ByteArrayOutputStream capture = new ByteArrayOutputStream();
+        Logger.addStreamForAllLevels(capture);
+        Logger.setFormatString("%MESSAGE");
+        Logger.setMinLogLevel(LogLevel.INFO);
+
+        String script = """
+                local built = 0
+                logger.debug(function() built = built + 1 return "lazy" end)
+                logger.info(function() built = built + 1 return "eager", 2 end)
+                return built
+                """;
+        assertEquals(1, sandbox.execute(script).toint());
+        assertFalse(sandbox.execute("return logger.isDebugEnabled()").toboolean());
+        assertTrue(sandbox.execute("return logger.isInfoEnabled()").toboolean());
+        String output = capture.toString(StandardCharsets.UTF_8);
+        assertFalse(output.contains("lazy"));
+        assertTrue(output.contains("eager\t2"));
+
+        Logger.setMinLogLevel(LogLevel.DEBUG);
+        assertTrue(sandbox.execute("return logger.isDebugEnabled()").toboolean());
+        sandbox.execute("logger.debug('now', 'visible')");
+        assertTrue(capture.toString(StandardCharsets.UTF_8).contains("now\tvisible"));
+    }
+
+    @Test
+    void warnAndErrorDoNotCallFunctionArguments() {
+        String script = """
+                local called = 0
+                local message = function() called = called + 1 return "lazy" end
+                logger.warn(message)
+                logger.error(message)
+                return called
+                """;
+        assertEquals(0, sandbox.execute(script).toint());
+        assertTrue(IssueTracker.getWarnings().get(0).startsWith("function"));
+        assertTrue(IssueTracker.getErrors().get(0).startsWith("function"));
+    }
 }
@@ -0,0 +1,274 @@
+package redactedrice.randomizer.lua.sweep;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import redactedrice.randomizer.LuaRandomizerWrapper;
+import redactedrice.randomizer.context.JavaContext;
+import redactedrice.randomizer.lua.ExecutionRequest;
+import redactedrice.randomizer.lua.ExecutionResult;
+import redactedrice.randomizer.lua.PreparedPlan;
+import redactedrice.randomizer.testsupport.TestModules;
+import redactedrice.randomizer.utils.IssueTracker;
+
+class SeedSearchTest {
+    public static class Target {
+        private int value;
+
+        public int getValue() {
+            return value;
+        }
+
+        public void setValue(int value) {
+            this.value = value;
+        }
+    }
+
+    @TempDir
+    Path tempDir;
+
+    private LuaRandomizerWrapper wrapper;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path root = tempDir.resolve("mods");
+        Path actions = TestModules.createActions(root);
+        TestModules.writeModule(actions, "roll",
+                "context.target:setValue(randomizerNative.stream():random(1, 100))");
+        TestModules.writeModule(actions, "warn_odd", """
+                local value = randomizerNative.stream():random(1, 100)
+                context.target:setValue(value)
+                if value % 2 == 1 then logger.warn("odd roll " .. value) end""");
+        TestModules.writeModule(actions, "roll_bonus", """
+                if context.Bonus == nil then error("Bonus enum missing") end
+                context.target:setValue(randomizerNative.stream():random(1, 100))""");
+
+        wrapper = TestModules.loadWrapper(root);
+    }
+
+    private static JavaContext newContext() {
+        JavaContext context = new JavaContext();
+        context.register("target", new Target());
+        return context;
+    }
+
+    private static int rolled(SeedOutcome outcome) {
+        return ((Target) outcome.getContext().get("target")).getValue();
+    }
+
+    private List<ExecutionRequest> requests() {
+        return requests("roll");
+    }
+
+    private List<ExecutionRequest> requests(String moduleId) {
+        return List.of(ExecutionRequest.forModule(wrapper.getModule(moduleId), Map.of()));
+    }
+
+    // Issues expected of a warn_odd run that rolled value
+    private static List<String> oddRollWarnings(int value) {
+        return value % 2 == 1 ? List.of("odd roll " + value) : List.of();
+    }
+
+    private static List<String> messages(List<IssueTracker.Issue> issues) {
+        return issues.stream().map(IssueTracker.Issue::message).toList();
+    }
+
+    @Test
+    void parallelSearchFindsLowestAcceptedSeed() {
+        Predicate<SeedOutcome> lowRoll = outcome -> outcome.isSuccess() && rolled(outcome) <= 5;
+
+        // Sequential reference
+        Integer expected = null;
+        for (int seed = 0; seed < 500 && expected == null; seed++) {
+            JavaContext context = newContext();
+            List<ExecutionResult> results = wrapper.executeModules(requests(), context, seed);
+            if (lowRoll.test(new SeedOutcome(seed, results, context))) {
+                expected = seed;
+            }
+        }
+        assertNotNull(expected);
+
+        wrapper.setSeedSearchParallelism(4);
+        SeedOutcome found =
+                wrapper.findSeed(requests(), SeedSearchTest::newContext, lowRoll, 0, 500);
+        assertNotNull(found);
+        assertEquals(expected, found.getSeed());
+        assertTrue(rolled(found) <= 5);
+
+        wrapper.setSeedSearchParallelism(1);
+        assertEquals(expected,
+                wrapper.findSeed(requests(), SeedSearchTest::newContext, lowRoll, 0, 500)
+                        .getSeed());
+    }
+
+    @Test
+    void noAcceptedSeedReturnsNull() {
+        wrapper.setSeedSearchParallelism(2);
+        assertNull(wrapper.findSeed(requests(), SeedSearchTest::newContext,
+                outcome -> false, 10, 20));
+    }
+
+    @Test
+    void predicateFailurePropagates() {
+        wrapper.setSeedSearchParallelism(2);
+        assertThrows(IllegalStateException.class,
+                () -> wrapper.findSeed(requests(), SeedSearchTest::newContext, outcome -> {
+                    throw new IllegalStateException("bad predicate");
+                }, 0, 10));
+        assertThrows(IllegalArgumentException.class,
+                () -> wrapper.findSeed(requests(), SeedSearchTest::newContext,
+                        outcome -> true, 0, 0));
+    }
+
+    @Test
+    void eachAttemptKeepsOnlyItsOwnIssues() {
+        Map<Integer, SeedOutcome> outcomes = new ConcurrentHashMap<>();
+        wrapper.setSeedSearchParallelism(4);
+        assertNull(wrapper.findSeed(requests("warn_odd"), SeedSearchTest::newContext, outcome -> {
+            outcomes.put(outcome.getSeed(), outcome);
+            return false;
+        }, 0, 40));
+
+        assertEquals(40, outcomes.size());
+        int warned = 0;
+        for (SeedOutcome outcome : outcomes.values()) {
+            assertEquals(oddRollWarnings(rolled(outcome)), messages(outcome.getIssues()));
+            warned += outcome.getIssues().size();
+        }
+        assertTrue(warned > 0 && warned < 40);
+        assertFalse(IssueTracker.hasIssues());
+
+        SeedOutcome found = wrapper.findSeed(requests("warn_odd"), SeedSearchTest::newContext,
+                outcome -> rolled(outcome) % 2 == 1, 0, 40);
+        assertNotNull(found);
+        assertEquals(oddRollWarnings(rolled(found)), messages(found.getIssues()));
+        assertEquals(found.getIssues(), IssueTracker.getIssues());
+    }
+
+    @Test
+    void sweepStoresOnlyEachSeedsIssues() throws IOException {
+        PreparedPlan plan =
+                wrapper.prepareExecutionPlan(requests("warn_odd"), new JavaContext());
+        Map<Integer, Target> targets = new ConcurrentHashMap<>();
+        int[] nextSeed = {0};
+        Path file = tempDir.resolve("sweep.bin");
+        wrapper.sweepSeeds(plan, () -> {
+            JavaContext context = newContext();
+            targets.put(nextSeed[0]++, (Target) context.get("target"));
+            return context;
+        }, 0, 20, file, false);
+
+        try (SeedSweepStore store = SeedSweepStore.open(file)) {
+            for (int seed = 0; seed < 20; seed++) {
+                assertEquals(oddRollWarnings(targets.get(seed).getValue()),
+                        messages(store.read(seed).getIssues()));
+            }
+        }
+    }
+
+    @Test
+    void workersSeeTheHostsSharedContext() {
+        wrapper.getSharedContext().registerEnum("Bonus", "SMALL", "BIG");
+        Target settings = new Target();
+        settings.setValue(10);
+        wrapper.getSharedContext().register("settings", settings);
+        wrapper.setSeedSearchParallelism(4);
+
+        Map<Integer, SeedOutcome> outcomes = new ConcurrentHashMap<>();
+        assertNull(wrapper.findSeed(requests("roll_bonus"), SeedSearchTest::newContext, outcome -> {
+            outcomes.put(outcome.getSeed(), outcome);
+            return false;
+        }, 0, 40));
+        assertEquals(40, outcomes.size());
+        for (SeedOutcome outcome : outcomes.values()) {
+            assertTrue(outcome.isSuccess(), () -> outcome.getResults().toString());
+            assertEquals(hostRoll(outcome.getSeed()), rolled(outcome));
+        }
+
+        Predicate<SeedOutcome> underSetting = outcome -> outcome.isSuccess() && rolled(outcome)
+                <= ((Target) wrapper.getSharedContext().get("settings")).getValue();
+        SeedOutcome found = wrapper.findSeed(requests("roll_bonus"), SeedSearchTest::newContext,
+                underSetting, 0, 200);
+        assertNotNull(found);
+        int expected = 0;
+        while (hostRoll(expected) > settings.getValue()) {
+            expected++;
+        }
+        assertEquals(expected, found.getSeed());
+        assertEquals(hostRoll(found.getSeed()), rolled(found));
+    }
+
+    // Value roll_bonus sets when run directly on the host wrapper
+    private int hostRoll(int seed) {
+        JavaContext context = newContext();
+        List<ExecutionResult> results =
+                wrapper.executeModules(requests("roll_bonus"), context, seed);
+        assertTrue(results.get(0).isSuccess());
+        return ((Target) context.get("target")).getValue();
+    }
+
+    @Test
+    void workersRunOnLoadLikeTheHost() throws IOException {
+        // onLoad keeps a host setting in a module local and registers an enum
+        Path root = tempDir.resolve("onload");
+        Path actions = TestModules.createActions(root);
+        Files.writeString(actions.resolve("roll_offset.lua"), """
+                local offset = 0
+                return {
+                    id = "roll_offset",
+                    name = "roll_offset",
+                    groups = { "test" },
+                    author = "test",
+                    version = "1.0",
+                    onLoad = function(context)
+                        offset = context.settings:getValue()
+                        context.registerEnum("Tier", { "LOW", "HIGH" })
+                    end,
+                    execute = function(context, args)
+                        if context.Tier == nil then error("Tier enum missing") end
+                        context.target:setValue(randomizerNative.stream():random(1, 100) + offset)
+                    end,
+                }
+                """);
+        LuaRandomizerWrapper host = new LuaRandomizerWrapper(
+                List.of(TestModules.randomizerPath(), root.toString()), List.of(root.toString()));
+        Target settings = new Target();
+        settings.setValue(1000);
+        host.getSharedContext().register("settings", settings);
+        host.loadModules();
+        host.setSeedSearchParallelism(4);
+        List<ExecutionRequest> requests =
+                List.of(ExecutionRequest.forModule(host.getModule("roll_offset"), Map.of()));
+
+        Map<Integer, SeedOutcome> outcomes = new ConcurrentHashMap<>();
+        assertNull(host.findSeed(requests, SeedSearchTest::newContext, outcome -> {
+            outcomes.put(outcome.getSeed(), outcome);
+            return false;
+        }, 0, 40));
+        assertEquals(40, outcomes.size());
+        for (SeedOutcome outcome : outcomes.values()) {
+            assertTrue(outcome.isSuccess(), () -> outcome.getResults().toString());
+            JavaContext context = newContext();
+            assertTrue(host.executeModules(requests, context, outcome.getSeed()).get(0)
+                    .isSuccess());
+            assertEquals(((Target) context.get("target")).getValue(), rolled(outcome));
+            assertTrue(rolled(outcome) > 1000);
+        }
+    }
+}
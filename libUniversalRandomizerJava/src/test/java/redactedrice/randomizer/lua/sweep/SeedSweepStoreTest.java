@@ -0,0 +1,135 @@
+package redactedrice.randomizer.lua.sweep;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.luaj.vm2.LuaValue;
+
+import redactedrice.randomizer.context.JavaContext;
+import redactedrice.randomizer.context.RandomizationPatch;
+import redactedrice.randomizer.context.WriteJournal;
+import redactedrice.randomizer.utils.IssueTracker;
+import redactedrice.support.test.GroupedTestEntity;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SeedSweepStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static SeedRecord record(int seed, String message) {
+        List<SeedRecord.ModuleOutcome> outcomes = new ArrayList<>();
+        outcomes.add(new SeedRecord.ModuleOutcome("shuffle", true, seed + 10, null, "42"));
+        outcomes.add(new SeedRecord.ModuleOutcome("assign", message == null, seed + 20,
+                message, null));
+        List<IssueTracker.Issue> issues = new ArrayList<>();
+        if (message != null) {
+            issues.add(new IssueTracker.Issue(IssueTracker.Severity.ERROR, message, "assign"));
+        }
+        return new SeedRecord(seed, outcomes, issues, null);
+    }
+
+    @Test
+    public void testRecordsReadBackBySeed() throws IOException {
+        Path file = tempDir.resolve("sweep.bin");
+        try (SeedSweepStore store = SeedSweepStore.create(file, 100, 10)) {
+            // Out of order like parallel workers would write them
+            store.append(record(105, "pool ran out"));
+            store.append(record(100, null));
+            store.append(record(109, null));
+            assertEquals(3, store.getRecordCount());
+            assertEquals(105, store.read(105).getSeed());
+        }
+
+        try (SeedSweepStore store = SeedSweepStore.open(file)) {
+            assertEquals(100, store.getStartSeed());
+            assertEquals(10, store.getSeedCount());
+            assertEquals(3, store.getRecordCount());
+            assertTrue(store.containsSeed(109));
+            assertFalse(store.containsSeed(101));
+            assertNull(store.read(101));
+            assertNull(store.read(500));
+
+            SeedRecord failed = store.read(105);
+            assertFalse(failed.isSuccess());
+            assertEquals(2, failed.getOutcomes().size());
+            assertEquals("42", failed.getOutcomes().get(0).getResult());
+            assertEquals(115, failed.getOutcomes().get(0).getSeedUsed());
+            assertEquals("pool ran out", failed.getOutcomes().get(1).getErrorMessage());
+            assertEquals(1, failed.getIssues().size());
+            assertTrue(failed.getIssues().get(0).isError());
+            assertEquals("assign", failed.getIssues().get(0).context());
+            assertFalse(failed.hasPatch());
+
+            assertTrue(store.read(100).isSuccess());
+            assertThrows(IllegalStateException.class, () -> store.append(record(102, null)));
+        }
+    }
+
+    @Test
+    public void testRecordsSpanningWindows() throws IOException {
+        Path file = tempDir.resolve("large.bin");
+        // Each message is about 1.5MB so the records cross the 4MB mapped windows
+        String message = "x".repeat(1500 * 1024);
+        long recordBytes = 0;
+        try (SeedSweepStore store = SeedSweepStore.create(file, 0, 8)) {
+            for (int seed = 7; seed >= 0; seed--) {
+                SeedRecord record = record(seed, message + seed);
+                store.append(record);
+                recordBytes += 4 + record.toBytes().length;
+            }
+        }
+        try (SeedSweepStore store = SeedSweepStore.open(file)) {
+            for (int seed = 0; seed < 8; seed++) {
+                assertEquals(message + seed,
+                        store.read(seed).getOutcomes().get(1).getErrorMessage());
+            }
+        }
+        // Unused space of the last window is trimmed so only the header and index remain on top
+        // of the records
+        assertTrue(Files.size(file) > recordBytes);
+        assertTrue(Files.size(file) < recordBytes + 1024);
+    }
+
+    @Test
+    public void testPatchRoundTrip() throws IOException {
+        List<GroupedTestEntity> entities = new ArrayList<>();
+        entities.add(new GroupedTestEntity("a", 1));
+        JavaContext context = new JavaContext();
+        context.register("entities", entities);
+        WriteJournal journal = context.enableWriteJournal();
+        LuaValue entity = context.toLuaTable().get("entities").get(1);
+        entity.get("setHealth").call(entity, LuaValue.valueOf(9));
+        RandomizationPatch patch = RandomizationPatch.fromJournal(context, journal.getEntries());
+
+        Path file = tempDir.resolve("patch.bin");
+        try (SeedSweepStore store = SeedSweepStore.create(file, 5, 1)) {
+            store.append(SeedRecord.of(5, List.of(), List.of(), patch));
+        }
+        try (SeedSweepStore store = SeedSweepStore.open(file)) {
+            RandomizationPatch read = store.read(5).getPatch();
+            assertEquals(1, read.size());
+            assertEquals("health", read.getWrites().get(0).getProperty());
+            assertEquals(9, read.getWrites().get(0).getValue());
+        }
+    }
+
+    @Test
+    public void testInvalidRanges() throws IOException {
+        Path file = tempDir.resolve("range.bin");
+        assertThrows(IllegalArgumentException.class, () -> SeedSweepStore.create(file, 0, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> SeedSweepStore.create(file, Integer.MAX_VALUE, 2));
+        try (SeedSweepStore store = SeedSweepStore.create(file, 0, 2)) {
+            assertThrows(IllegalArgumentException.class, () -> store.append(record(2, null)));
+        }
+        Files.writeString(tempDir.resolve("other.bin"), "not a store at all, no really");
+        assertThrows(IOException.class, () -> SeedSweepStore.open(tempDir.resolve("other.bin")));
+    }
+}
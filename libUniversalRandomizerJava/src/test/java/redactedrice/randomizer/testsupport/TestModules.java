@@ -0,0 +1,57 @@
+package redactedrice.randomizer.testsupport;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import redactedrice.randomizer.LuaRandomizerWrapper;
+
+// Writes small Lua modules into a temp dir and loads them for execution tests
+public final class TestModules {
+    private TestModules() {}
+
+    // Absolute path of the core randomizer Lua files every sandbox needs
+    public static String randomizerPath() {
+        return new File("../UniversalRandomizerCore/randomizer").getAbsolutePath();
+    }
+
+    // Creates the module root's actions dir and returns it
+    public static Path createActions(Path root) throws IOException {
+        Path actions = root.resolve("actions");
+        Files.createDirectories(actions);
+        return actions;
+    }
+
+    public static void writeModule(Path actions, String id, String body) throws IOException {
+        writeModule(actions, id, "", body);
+    }
+
+    // Module in the test group that runs body in execute(context, args). fields is added before
+    // execute, e.g. arguments, needs and provides or reads and writes
+    public static void writeModule(Path actions, String id, String fields, String body)
+            throws IOException {
+        Files.writeString(actions.resolve(id + ".lua"), """
+                return {
+                    id = "%s",
+                    name = "%s",
+                    groups = { "test" },
+                    author = "test",
+                    version = "1.0",
+                    %s
+                    execute = function(context, args)
+                        %s
+                    end,
+                }
+                """.formatted(id, id, fields, body));
+    }
+
+    // Wrapper that may only read the core and the root and has the root's modules loaded
+    public static LuaRandomizerWrapper loadWrapper(Path root) {
+        LuaRandomizerWrapper wrapper = new LuaRandomizerWrapper(
+                List.of(randomizerPath(), root.toString()), List.of(root.toString()));
+        wrapper.loadModules();
+        return wrapper;
+    }
+}
@@ -128,4 +128,22 @@ class IssueTrackerTest {
         assertEquals(1, IssueTracker.getWarningCountSinceSnapshot());
         IssueTracker.clearSnapshot();
     }
+
+    @Test
+    void captureKeepsIssuesApartFromTheGlobalStore() {
+        IssueTracker.addWarning("before");
+        try (IssueTracker.Capture capture = IssueTracker.capture()) {
+            assertFalse(IssueTracker.hasIssues());
+            IssueTracker.addError("captured");
+            IssueTracker.snapshot();
+            IssueTracker.clear();
+            IssueTracker.addError("after clear");
+
+            assertEquals(List.of("after clear"), IssueTracker.getErrors());
+            assertEquals(1, capture.getIssues().size());
+        }
+        assertEquals(List.of("before"), IssueTracker.getWarnings());
+        assertFalse(IssueTracker.hasErrors());
+        assertEquals(1, IssueTracker.getWarningCountSinceSnapshot());
+    }
 }
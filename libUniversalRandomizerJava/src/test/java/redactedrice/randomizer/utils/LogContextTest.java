@@ -0,0 +1,129 @@
+package redactedrice.randomizer.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class LogContextTest {
+    @BeforeEach
+    void setUp() {
+        Logger.reset();
+    }
+
+    @AfterEach
+    void tearDown() {
+        Logger.reset();
+    }
+
+    @Test
+    @SuppressWarnings("try") // Scopes are only opened for their effect
+    void scopesNestAndRestoreThePreviousContext() {
+        try (LogContext.Scope batch = LogContext.enterBatch("batch-a")) {
+            try (LogContext.Scope module = LogContext.enterModule("shuffle", 42)) {
+                assertEquals("shuffle", LogContext.current().getModuleName());
+                assertEquals(42, LogContext.current().getSeed());
+                assertEquals("batch-a", LogContext.current().getBatchId());
+                assertEquals("shuffle", Logger.getCurrentModuleName());
+            }
+            assertNull(LogContext.current().getModuleName());
+            assertEquals("batch-a", LogContext.current().getBatchId());
+        }
+        assertSame(LogContext.EMPTY, LogContext.current());
+    }
+
+    @Test
+    @SuppressWarnings("try") // Scopes are only opened for their effect
+    void seedAndBatchPlaceholdersAreEmptyWhenUnset() {
+        ByteArrayOutputStream capture = new ByteArrayOutputStream();
+        Logger.addStreamForAllLevels(capture);
+        Logger.setFormatString("<%SEED|%BATCH> %MESSAGE");
+
+        Logger.info("outside");
+        try (LogContext.Scope batch = LogContext.enterBatch("batch-7");
+                LogContext.Scope module = LogContext.enterModule("shuffle", 1234)) {
+            Logger.info("inside");
+        }
+
+        assertEquals("<|> outside" + System.lineSeparator() + "<1234|batch-7> inside"
+                + System.lineSeparator(), capture.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @SuppressWarnings("try") // Scopes are only opened for their effect
+    void concurrentRunsAreAttributedToTheirOwnModule() throws InterruptedException {
+        ByteArrayOutputStream capture = new ByteArrayOutputStream();
+        Logger.addStreamForAllLevels(capture);
+        Logger.setShowModuleName(true);
+        Logger.setFormatString("%MODULE %SEED %MESSAGE");
+
+        int threadCount = 8;
+        int linesPerThread = 200;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            int id = t;
+            Thread thread = new Thread(() -> {
+                try (LogContext.Scope module = LogContext.enterModule("module" + id, id)) {
+                    start.await();
+                    for (int i = 0; i < linesPerThread; i++) {
+                        Logger.info("from" + id);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        String[] lines = capture.toString(StandardCharsets.UTF_8).split(System.lineSeparator());
+        assertEquals(threadCount * linesPerThread, lines.length);
+        for (String line : lines) {
+            String[] parts = line.split(" ");
+            String id = parts[2].substring("from".length());
+            assertEquals("module" + id, parts[0]);
+            assertEquals(id, parts[1]);
+        }
+        assertNull(Logger.getCurrentModuleName());
+    }
+
+    @Test
+    void streamsAddedWhileLoggingAreNotLost() throws InterruptedException {
+        Logger.setFormatString("%MESSAGE");
+        List<ByteArrayOutputStream> captures = new ArrayList<>();
+        Thread logging = new Thread(() -> {
+            for (int i = 0; i < 1000; i++) {
+                Logger.info("line");
+            }
+        });
+        logging.start();
+        for (int i = 0; i < 50; i++) {
+            ByteArrayOutputStream capture = new ByteArrayOutputStream();
+            captures.add(capture);
+            Logger.addStreamForLevel(LogLevel.INFO, capture);
+        }
+        logging.join();
+
+        assertEquals(51, Logger.getStreamsForLevel(LogLevel.INFO).size());
+        Logger.info("last");
+        for (ByteArrayOutputStream capture : captures) {
+            assertTrue(capture.toString(StandardCharsets.UTF_8).endsWith("last"
+                    + System.lineSeparator()));
+        }
+    }
+}
@@ -2,6 +2,7 @@ package redactedrice.randomizer.utils;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.ByteArrayOutputStream;
@@ -143,4 +144,74 @@ class LoggerTest {
         assertTrue(capture.toString(StandardCharsets.UTF_8).contains("trimmed warning"));
         assertFalse(capture.toString(StandardCharsets.UTF_8).contains("  trimmed warning  "));
     }
+
+    @Test
+    void formatPlaceholdersApplyWidthAndPrecision() {
+        ByteArrayOutputStream capture = new ByteArrayOutputStream();
+        Logger.addStreamForAllLevels(capture);
+        Logger.setShowModuleName(true);
+        Logger.setCurrentModuleName("shuffleStarters");
+        Logger.setFormatString("[%-7LEVEL|%8.4MODULE] %.5MESSAGE %UNKNOWN 100%");
+
+        Logger.info("truncated message");
+
+        assertEquals("[INFO   |    shuf] trunc %UNKNOWN 100%" + System.lineSeparator(),
+                capture.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void invalidTimestampFormatIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> Logger.setTimestampFormat("HH:mm{"));
+        Logger.setTimestampFormat("yyyy");
+        assertEquals("yyyy", Logger.getTimestampFormat());
+    }
+
+    @Test
+    void asyncModeWritesInOrderAndDrainsOnDisable() {
+        ByteArrayOutputStream capture = new ByteArrayOutputStream();
+        Logger.addStreamForAllLevels(capture);
+        Logger.setFormatString("%MESSAGE");
+        Logger.enableAsync(16, AsyncLogAppender.FlushPolicy.ON_CLOSE, 0);
+        assertTrue(Logger.isAsync());
+
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            Logger.info("line " + i);
+            expected.append("line ").append(i).append(System.lineSeparator());
+        }
+        Logger.flush();
+        assertEquals(expected.toString(), capture.toString(StandardCharsets.UTF_8));
+
+        Logger.info("last");
+        Logger.disableAsync();
+        assertFalse(Logger.isAsync());
+        assertTrue(capture.toString(StandardCharsets.UTF_8)
+                .endsWith("last" + System.lineSeparator()));
+
+        // Back to writing on the calling thread
+        Logger.info("sync");
+        assertTrue(capture.toString(StandardCharsets.UTF_8)
+                .endsWith("sync" + System.lineSeparator()));
+    }
+
+    @Test
+    void supplierIsOnlyCalledWhenLevelIsEnabled() {
+        ByteArrayOutputStream capture = new ByteArrayOutputStream();
+        Logger.addStreamForAllLevels(capture);
+        Logger.setFormatString("%MESSAGE");
+        int[] calls = new int[1];
+
+        Logger.debug(() -> "debug " + ++calls[0]);
+        assertEquals(0, calls[0]);
+        assertFalse(Logger.isDebugEnabled());
+
+        Logger.info(() -> "info " + ++calls[0]);
+        assertEquals(1, calls[0]);
+        assertTrue(capture.toString(StandardCharsets.UTF_8).contains("info 1"));
+
+        Logger.setEnabled(false);
+        assertFalse(Logger.isInfoEnabled());
+        Logger.info(() -> "disabled " + ++calls[0]);
+        assertEquals(1, calls[0]);
+    }
 }
@@ -0,0 +1,65 @@
+package redactedrice.randomizer.utils;
+
+import org.junit.jupiter.api.Test;
+import org.luaj.vm2.LuaTable;
+import org.luaj.vm2.LuaValue;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LuaJavaConverterGraphTest {
+
+    @Test
+    public void testSharedListConvertsToSingleTable() {
+        List<Integer> shared = Arrays.asList(1, 2, 3);
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("first", shared);
+        root.put("second", shared);
+
+        LuaTable table = (LuaTable) LuaJavaConverter.javaToLua(root);
+
+        assertSame(table.get("first"), table.get("second"));
+        assertEquals(3, table.get("first").get(3).toint());
+    }
+
+    @Test
+    public void testCyclicMapDoesNotOverflow() {
+        Map<String, Object> root = new HashMap<>();
+        root.put("name", "root");
+        root.put("self", root);
+
+        LuaTable table = (LuaTable) LuaJavaConverter.javaToLua(root);
+
+        assertSame(table, table.get("self"));
+        assertEquals("root", table.get("self").get("name").tojstring());
+    }
+
+    @Test
+    public void testSharedTableConvertsToSingleCollection() {
+        LuaTable shared = new LuaTable();
+        shared.set(1, LuaValue.valueOf("a"));
+        LuaTable root = new LuaTable();
+        root.set("left", shared);
+        root.set("right", shared);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> converted = (Map<String, Object>) LuaJavaConverter.luaToJava(root);
+
+        assertSame(converted.get("left"), converted.get("right"));
+        assertEquals(List.of("a"), converted.get("left"));
+    }
+
+    @Test
+    public void testSelfReferencingTableDoesNotOverflow() {
+        LuaTable root = new LuaTable();
+        root.set("value", LuaValue.valueOf(5));
+        root.set("self", root);
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> converted = (Map<String, Object>) LuaJavaConverter.luaToJava(root);
+
+        assertSame(converted, converted.get("self"));
+        assertEquals(5, converted.get("value"));
+    }
+}
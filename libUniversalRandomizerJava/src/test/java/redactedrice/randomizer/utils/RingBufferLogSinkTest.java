@@ -0,0 +1,102 @@
+package redactedrice.randomizer.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RingBufferLogSinkTest {
+    @BeforeEach
+    void setUp() {
+        Logger.reset();
+    }
+
+    @AfterEach
+    void tearDown() {
+        Logger.reset();
+    }
+
+    @Test
+    void keepsTheMostRecentLines() {
+        RingBufferLogSink sink = new RingBufferLogSink(3);
+        Logger.addStreamForAllLevels(sink);
+        Logger.setFormatString("%MESSAGE");
+
+        for (int i = 0; i < 5; i++) {
+            Logger.info("line" + i);
+        }
+
+        assertEquals(List.of("line2", "line3", "line4"), sink.snapshot());
+        assertEquals(List.of("line4"), sink.tail(1));
+        assertEquals(5, sink.getNextSequence());
+    }
+
+    @Test
+    void readSinceReturnsOnlyNewLines() {
+        RingBufferLogSink sink = new RingBufferLogSink(10);
+        List<String> read = new ArrayList<>();
+        sink.write("first\nsec".getBytes(StandardCharsets.UTF_8), 0, 9);
+        long next = sink.readSince(0, read::add);
+        assertEquals(List.of("first"), read);
+
+        sink.write("ond\r\nthird\n".getBytes(StandardCharsets.UTF_8), 0, 11);
+        read.clear();
+        next = sink.readSince(next, read::add);
+        assertEquals(List.of("second", "third"), read);
+        assertEquals(3, next);
+    }
+
+    @Test
+    void readersSkipLinesThatWereReplaced() {
+        RingBufferLogSink sink = new RingBufferLogSink(2);
+        for (int i = 0; i < 4; i++) {
+            sink.write(("line" + i + "\n").getBytes(StandardCharsets.UTF_8), 0, 6);
+        }
+        List<String> read = new ArrayList<>();
+        assertEquals(4, sink.readSince(0, read::add));
+        assertEquals(List.of("line2", "line3"), read);
+    }
+
+    @Test
+    void concurrentReadersSeeLinesInOrder() throws InterruptedException {
+        RingBufferLogSink sink = new RingBufferLogSink(64);
+        int lineCount = 20_000;
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < lineCount; i++) {
+                byte[] line = (i + "\n").getBytes(StandardCharsets.UTF_8);
+                sink.write(line, 0, line.length);
+            }
+        });
+        writer.start();
+
+        long next = 0;
+        int last = -1;
+        List<String> read = new ArrayList<>();
+        while (writer.isAlive() || next < sink.getNextSequence()) {
+            read.clear();
+            next = sink.readSince(next, read::add);
+            for (String line : read) {
+                int value = Integer.parseInt(line);
+                assertTrue(value > last);
+                last = value;
+            }
+        }
+        writer.join();
+        assertEquals(lineCount - 1, last);
+    }
+
+    @Test
+    void invalidArgumentsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new RingBufferLogSink(0));
+        RingBufferLogSink sink = new RingBufferLogSink();
+        assertThrows(IllegalArgumentException.class, () -> sink.tail(-1));
+        assertThrows(IllegalArgumentException.class, () -> sink.readSince(0, null));
+    }
+}
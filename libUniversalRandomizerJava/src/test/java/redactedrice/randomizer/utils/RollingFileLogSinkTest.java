@@ -0,0 +1,186 @@
+package redactedrice.randomizer.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class RollingFileLogSinkTest {
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void setUp() {
+        Logger.reset();
+    }
+
+    @AfterEach
+    void tearDown() {
+        Logger.reset();
+    }
+
+    private static String read(Path path) throws IOException {
+        if (!path.toString().endsWith(".gz")) {
+            return Files.readString(path, StandardCharsets.UTF_8);
+        }
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(path))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    void rollsBySizeAndCompressesArchives() throws IOException {
+        Path file = dir.resolve("randomizer.log");
+        RollingFileLogSink sink = new RollingFileLogSink(file, 20, 0, 10, true, 0);
+        Logger.addStreamForAllLevels(sink);
+        Logger.setFormatString("%MESSAGE");
+
+        Logger.info("line-one");
+        Logger.info("line-two");
+        Logger.info("line-three");
+        Logger.removeStream(sink);
+        sink.close();
+
+        List<Path> archives = sink.getArchives();
+        assertEquals(1, archives.size());
+        assertTrue(archives.get(0).getFileName().toString().endsWith(".log.gz"));
+        String separator = System.lineSeparator();
+        assertEquals("line-one" + separator + "line-two" + separator, read(archives.get(0)));
+        assertEquals("line-three" + separator, read(file));
+    }
+
+    @Test
+    void keepsOnlyTheNewestArchives() throws IOException {
+        Path file = dir.resolve("sweep.log");
+        try (RollingFileLogSink sink = new RollingFileLogSink(file, 0, 0, 2, false, 0)) {
+            for (int i = 0; i < 5; i++) {
+                sink.write(("roll-" + i + "\n").getBytes(StandardCharsets.UTF_8));
+                sink.rollOver();
+            }
+            List<Path> archives = sink.getArchives();
+            assertEquals(2, archives.size());
+            assertEquals("roll-3\n", read(archives.get(0)));
+            assertEquals("roll-4\n", read(archives.get(1)));
+            assertEquals(0, sink.getFileBytes());
+        }
+    }
+
+    @Test
+    void rollsAfterTheInterval() throws IOException, InterruptedException {
+        Path file = dir.resolve("timed.log");
+        try (RollingFileLogSink sink = new RollingFileLogSink(file, 0, 50, 5, false, 0)) {
+            sink.write("before\n".getBytes(StandardCharsets.UTF_8));
+            Thread.sleep(80);
+            sink.write("after\n".getBytes(StandardCharsets.UTF_8));
+            sink.flush();
+
+            List<Path> archives = sink.getArchives();
+            assertEquals(1, archives.size());
+            assertEquals("before\n", read(archives.get(0)));
+            assertEquals("after\n", read(file));
+        }
+    }
+
+    @Test
+    void flushIntervalKeepsLinesBufferedUntilClose() throws IOException {
+        Path file = dir.resolve("buffered.log");
+        RollingFileLogSink sink = new RollingFileLogSink(file, 0, 0, 1, true, 60_000);
+        sink.write("buffered\n".getBytes(StandardCharsets.UTF_8));
+        sink.flush();
+        assertEquals("", read(file));
+
+        sink.close();
+        assertEquals("buffered\n", read(file));
+        assertThrows(IOException.class, () -> sink.write('x'));
+    }
+
+    @Test
+    void otherFilesAreNotArchives() throws IOException {
+        Path file = dir.resolve("app.log");
+        List<String> foreign = List.of("app.backup.log", "app.backup.log.gz", "app.log.gz",
+                "app.20261018-153000-123.txt", "app.20261018-153000.log",
+                "app.20261018-153000-123_1.log", "app.20261018-153000-123.log.gz.tmp",
+                "other.20261018-153000-123.log");
+        for (String name : foreign) {
+            Files.writeString(dir.resolve(name), name);
+        }
+        try (RollingFileLogSink sink = new RollingFileLogSink(file, 0, 0, 1, false, 0)) {
+            assertTrue(sink.getArchives().isEmpty());
+            for (int i = 0; i < 3; i++) {
+                sink.write(("roll-" + i + "\n").getBytes(StandardCharsets.UTF_8));
+                sink.rollOver();
+            }
+            List<Path> archives = sink.getArchives();
+            assertEquals(1, archives.size());
+            assertEquals("roll-2\n", read(archives.get(0)));
+            assertFalse(archives.contains(file));
+        }
+        for (String name : foreign) {
+            assertEquals(name, Files.readString(dir.resolve(name)));
+        }
+    }
+
+    @Test
+    void noArchivesAreKeptWhenMaxArchivesIsZero() throws IOException {
+        Path file = dir.resolve("app.log");
+        Files.writeString(dir.resolve("app.backup.log"), "keep");
+        try (RollingFileLogSink sink = new RollingFileLogSink(file, 0, 0, 0, true, 0)) {
+            sink.write("rolled\n".getBytes(StandardCharsets.UTF_8));
+            sink.rollOver();
+            sink.write("current\n".getBytes(StandardCharsets.UTF_8));
+            assertTrue(sink.getArchives().isEmpty());
+        }
+        assertEquals("current\n", read(file));
+        assertEquals("keep", read(dir.resolve("app.backup.log")));
+    }
+
+    @Test
+    void skippedFlushReachesTheFileAfterTheInterval() throws IOException, InterruptedException {
+        Path file = dir.resolve("trailing.log");
+        try (RollingFileLogSink sink = new RollingFileLogSink(file, 0, 0, 1, true, 200)) {
+            sink.write("last\n".getBytes(StandardCharsets.UTF_8));
+            sink.flush();
+            assertEquals("", read(file));
+
+            // Nothing else is written or flushed
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (read(file).isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals("last\n", read(file));
+        }
+    }
+
+    @Test
+    void appendsToAnExistingFile() throws IOException {
+        Path file = dir.resolve("existing.log");
+        Files.writeString(file, "old\n");
+        try (RollingFileLogSink sink = new RollingFileLogSink(file)) {
+            assertEquals(4, sink.getFileBytes());
+            sink.write("new\n".getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals("old\nnew\n", read(file));
+        assertFalse(Files.exists(dir.resolve("existing.log.gz")));
+    }
+
+    @Test
+    void invalidLimitsAreRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new RollingFileLogSink(dir.resolve("bad.log"), -1, 0, 1, true, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new RollingFileLogSink(null));
+    }
+}